@@ -19,16 +19,41 @@ package com.conductor.stream.utils;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
 import java.util.Spliterators;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
-import com.conductor.stream.utils.buffer.KeyedBufferIterator;
+import com.conductor.stream.utils.buffer.KeyedAggregatingIterator;
+import com.conductor.stream.utils.buffer.KeyedGroupingSpliterator;
+import com.conductor.stream.utils.buffer.LazyGroupingIterator;
+import com.conductor.stream.utils.buffer.LongKeyedBufferIterator;
+import com.conductor.stream.utils.join.AsOfJoinBuilder;
+import com.conductor.stream.utils.join.BandJoinIterator;
+import com.conductor.stream.utils.join.CoGroup;
+import com.conductor.stream.utils.join.CoGroupIterator;
+import com.conductor.stream.utils.join.IntJoinBuilder;
 import com.conductor.stream.utils.join.JoinBuilder;
 import com.conductor.stream.utils.join.JoinType;
+import com.conductor.stream.utils.join.JoiningIterator;
+import com.conductor.stream.utils.join.LongJoinBuilder;
+import com.conductor.stream.utils.join.LongJoiningIterator;
+import com.conductor.stream.utils.join.ParallelJoiningIterator;
+import com.conductor.stream.utils.join.WindowedJoinBuilder;
 import com.conductor.stream.utils.merge.SortedMergeIterator;
+import com.conductor.stream.utils.misc.PrefetchingIterator;
+import com.conductor.stream.utils.sort.ExternalSortBuilder;
+import com.conductor.stream.utils.sort.ExternalSortIterator;
+import com.conductor.stream.utils.spill.Serializer;
 
 /**
  * This class is a series of utilities specifically for dealing with
@@ -47,6 +72,11 @@ public final class OrderedStreamUtils {
      *
      * The stream must be sorted by the key for this to function properly.
      *
+     * The returned stream is parallel if the provided one is, and can be made parallel
+     * with `.parallel()`. The stream is then split wherever it splits, and each split is
+     * realigned to the next key boundary, so the groups come out the same as they would
+     * sequentially.
+     *
      * Note - when you use this operator, you need to be aware that you are relinquishing
      * ALL control of the base stream. Do NOT try to reuse the inputted stream. Do NOT
      * try to close the underlying stream. All interactions must now be done with the
@@ -57,9 +87,105 @@ public final class OrderedStreamUtils {
      * @return grouped stream.
      */
     public static <TYPE, KEY> Stream<List<TYPE>> groupBy(Stream<TYPE> stream, Function<TYPE, KEY> keyingFunction) {
-        final Iterator<TYPE> iterator = stream.iterator();
+        return keyedGroupBy(stream, keyingFunction)
+                .map(Map.Entry::getValue);
+    }
+
+    /**
+     * This groups a stream by a key just like groupBy, but emits each group along with
+     * its key, so that it doesn't need to be worked out again from the group's items.
+     *
+     * The stream must be sorted by the key for this to function properly. The returned
+     * stream can be made parallel, the same as groupBy's.
+     *
+     * Note - when you use this operator, you need to be aware that you are relinquishing
+     * ALL control of the base stream. Do NOT try to reuse the inputted stream. Do NOT
+     * try to close the underlying stream. All interactions must now be done with the
+     * stream you get in return.
+     *
+     * @param stream stream to group.
+     * @param keyingFunction function to generate the key to be grouped by.
+     * @return grouped stream of each key and its items.
+     */
+    public static <TYPE, KEY> Stream<Map.Entry<KEY, List<TYPE>>> keyedGroupBy(
+            Stream<TYPE> stream, Function<TYPE, KEY> keyingFunction) {
+        final Spliterator<Map.Entry<KEY, List<TYPE>>> spliterator =
+                new KeyedGroupingSpliterator<>(stream.spliterator(), keyingFunction);
 
-        final Iterator<List<TYPE>> iter = new KeyedBufferIterator<>(iterator, keyingFunction);
+        return StreamSupport.stream(spliterator, stream.isParallel())
+                // Whenever the grouped stream is closed, we need to close the
+                // underlying stream.
+                .onClose(stream::close);
+    }
+
+    /**
+     * This groups a stream by a primitive long key, such as an id, just like groupBy.
+     * The keys are compared as longs, so they're never boxed.
+     *
+     * The stream must be sorted by the key for this to function properly.
+     *
+     * Note - when you use this operator, you need to be aware that you are relinquishing
+     * ALL control of the base stream. Do NOT try to reuse the inputted stream. Do NOT
+     * try to close the underlying stream. All interactions must now be done with the
+     * stream you get in return.
+     *
+     * @param stream stream to group.
+     * @param keyingFunction function to generate the key to be grouped by.
+     * @return grouped stream.
+     */
+    public static <TYPE> Stream<List<TYPE>> groupByLong(Stream<TYPE> stream, ToLongFunction<TYPE> keyingFunction) {
+        final Iterator<List<TYPE>> iter = new LongKeyedBufferIterator<>(stream.iterator(), keyingFunction);
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iter, 0), false)
+                // Whenever the grouped stream is closed, we need to close the
+                // underlying stream.
+                .onClose(stream::close);
+    }
+
+    /**
+     * This groups a stream by a primitive int key, just like groupByLong.
+     *
+     * The stream must be sorted by the key for this to function properly.
+     *
+     * Note - when you use this operator, you need to be aware that you are relinquishing
+     * ALL control of the base stream. Do NOT try to reuse the inputted stream. Do NOT
+     * try to close the underlying stream. All interactions must now be done with the
+     * stream you get in return.
+     *
+     * @param stream stream to group.
+     * @param keyingFunction function to generate the key to be grouped by.
+     * @return grouped stream.
+     */
+    public static <TYPE> Stream<List<TYPE>> groupByInt(Stream<TYPE> stream, ToIntFunction<TYPE> keyingFunction) {
+        // ints are compared just the same as longs
+        return groupByLong(stream, keyingFunction::applyAsInt);
+    }
+
+    /**
+     * This groups a stream by a key just like groupBy, but without reading the groups
+     * into lists. Each group comes out as an entry of its key and a stream of its items,
+     * which reads straight off the provided stream. So groups of any size can be
+     * handled without holding them in memory.
+     *
+     * Since the groups all read off the same stream, each group's stream can only be
+     * read until the next group is asked for. Whatever is left of it is then skipped.
+     * So read each group before moving on to the next; collecting the groups into a
+     * list and reading them afterwards leaves them all empty.
+     *
+     * The stream must be sorted by the key for this to function properly.
+     *
+     * Note - when you use this operator, you need to be aware that you are relinquishing
+     * ALL control of the base stream. Do NOT try to reuse the inputted stream. Do NOT
+     * try to close the underlying stream. All interactions must now be done with the
+     * stream you get in return.
+     *
+     * @param stream stream to group.
+     * @param keyingFunction function to generate the key to be grouped by.
+     * @return grouped stream.
+     */
+    public static <TYPE, KEY> Stream<Map.Entry<KEY, Stream<TYPE>>> groupByLazy(
+            Stream<TYPE> stream, Function<TYPE, KEY> keyingFunction) {
+        final Iterator<Map.Entry<KEY, Stream<TYPE>>> iter = new LazyGroupingIterator<>(stream.iterator(), keyingFunction);
 
         return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iter, 0), false)
                 // Whenever the grouped stream is closed, we need to close the
@@ -86,6 +212,75 @@ public final class OrderedStreamUtils {
                 .map(aggregationFunction);
     }
 
+    /**
+     * This is a convenience wrapper around groupByLong that also takes in an aggregation
+     * function that turns the collection of items into an instance of a type.
+     *
+     * Note - when you use this operator, you need to be aware that you are relinquishing
+     * ALL control of the base stream. Do NOT try to reuse the inputted stream. Do NOT
+     * try to close the underlying stream. All interactions must now be done with the
+     * stream you get in return.
+     *
+     * @param stream stream to group.
+     * @param keyingFunction function to generate the key to be grouped by.
+     * @param aggregationFunction function to apply to the group stream.
+     * @return grouped value.
+     */
+    public static <TYPE, AGGREGATE> Stream<AGGREGATE> aggregateByLong(
+            Stream<TYPE> stream, ToLongFunction<TYPE> keyingFunction, Function<List<TYPE>, AGGREGATE> aggregationFunction) {
+        return groupByLong(stream, keyingFunction)
+                .map(aggregationFunction);
+    }
+
+    /**
+     * This is a convenience wrapper around groupByInt that also takes in an aggregation
+     * function that turns the collection of items into an instance of a type.
+     *
+     * Note - when you use this operator, you need to be aware that you are relinquishing
+     * ALL control of the base stream. Do NOT try to reuse the inputted stream. Do NOT
+     * try to close the underlying stream. All interactions must now be done with the
+     * stream you get in return.
+     *
+     * @param stream stream to group.
+     * @param keyingFunction function to generate the key to be grouped by.
+     * @param aggregationFunction function to apply to the group stream.
+     * @return grouped value.
+     */
+    public static <TYPE, AGGREGATE> Stream<AGGREGATE> aggregateByInt(
+            Stream<TYPE> stream, ToIntFunction<TYPE> keyingFunction, Function<List<TYPE>, AGGREGATE> aggregationFunction) {
+        return groupByInt(stream, keyingFunction)
+                .map(aggregationFunction);
+    }
+
+    /**
+     * This aggregates each group of a stream grouped by key with a collector, such as
+     * Collectors.counting() or Collectors.summingLong(...). Unlike the overload above,
+     * the groups are never held in memory: every item is handed to the collector as it's
+     * read, and each group is finished as soon as the key changes. So this can aggregate
+     * groups of any size.
+     *
+     * The stream must be sorted by the key for this to function properly.
+     *
+     * Note - when you use this operator, you need to be aware that you are relinquishing
+     * ALL control of the base stream. Do NOT try to reuse the inputted stream. Do NOT
+     * try to close the underlying stream. All interactions must now be done with the
+     * stream you get in return.
+     *
+     * @param stream stream to group.
+     * @param keyingFunction function to generate the key to be grouped by.
+     * @param collector the collector to aggregate each group with.
+     * @return aggregated stream.
+     */
+    public static <TYPE, KEY, CONTAINER, AGGREGATE> Stream<AGGREGATE> aggregate(
+            Stream<TYPE> stream, Function<TYPE, KEY> keyingFunction, Collector<? super TYPE, CONTAINER, AGGREGATE> collector) {
+        final Iterator<AGGREGATE> iter = new KeyedAggregatingIterator<>(stream.iterator(), keyingFunction, collector);
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iter, 0), false)
+                // Whenever the aggregated stream is closed, we need to close the
+                // underlying stream.
+                .onClose(stream::close);
+    }
+
     /**
      * Creates and returns a new Stream that merges together all the provided streams,
      * using the natural ordering of the items.
@@ -133,10 +328,123 @@ public final class OrderedStreamUtils {
                 .onClose(() -> streams.forEach(Stream::close));
     }
 
+    /**
+     * Creates and returns a new Stream that merges together all the provided streams,
+     * using the provided comparator to compute the order of items, while reading ahead
+     * on each of the streams.
+     *
+     * This is meant for streams backed by blocking I/O (files, database cursors...).
+     * Each stream gets a reading task on the provided executor, which keeps up to
+     * prefetchDepth of its items queued up, so a slow stream is fetching its next item
+     * while the merge is busy elsewhere. The executor must be able to run one task per
+     * stream at the same time, as each task holds on to its thread until its stream
+     * is exhausted or the merged stream is closed. Exceptions thrown by a stream are
+     * thrown when the merge reaches the item that failed.
+     *
+     * As this lives in OrderedStreamUtils, this method assumes that the streams are
+     * already each individually sorted by the provided comparator. This just zips
+     * them together.
+     *
+     * Note - when you use this operator, you need to be aware that you are relinquishing
+     * ALL control of the base stream. Do NOT try to reuse the inputted stream. Do NOT
+     * try to close the underlying stream. All interactions must now be done with the
+     * stream you get in return. Closing the returned stream stops the reading tasks
+     * before closing the underlying streams.
+     *
+     * @param streams the streams to merge together.
+     * @param comparator the comparator to use to merge the streams.
+     * @param executor the executor to run the reading tasks on.
+     * @param prefetchDepth the maximum number of items to read ahead on each stream.
+     * @return the stream of all the items, in order.
+     */
+    public static <TYPE> Stream<TYPE> sortedMerge(
+            List<Stream<TYPE>> streams, Comparator<TYPE> comparator, Executor executor, int prefetchDepth) {
+        final List<Stream<TYPE>> prefetchedStreams = streams.stream()
+                .map(stream -> prefetch(stream, executor, prefetchDepth))
+                .collect(Collectors.toList());
+
+        return sortedMerge(prefetchedStreams, comparator);
+    }
+
+    /**
+     * Wraps a stream so that it reads ahead on another thread.
+     *
+     * @param stream the stream to read ahead on.
+     * @param executor the executor to run the reading task on.
+     * @param depth the maximum number of items to read ahead.
+     * @return the wrapped stream.
+     */
+    private static <TYPE> Stream<TYPE> prefetch(Stream<TYPE> stream, Executor executor, int depth) {
+        final PrefetchingIterator<TYPE> iter = new PrefetchingIterator<>(stream.iterator(), executor, depth);
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iter, 0), false)
+                // Stop reading before we close the underlying stream, so
+                // that it isn't closed out from under the reading task.
+                .onClose(iter::close)
+                .onClose(stream::close);
+    }
+
+    /**
+     * Returns a stream of all the items of the provided stream, sorted by the provided
+     * comparator, without holding more than memoryBudget items in memory.
+     *
+     * The stream is read in runs of memoryBudget items. Each run is sorted using all
+     * available cores, and spilled to a temporary file with the provided serializer.
+     * The runs are then merged back together with a sorted merge. Nothing is read from
+     * the stream until the first item is requested, and the sort is stable.
+     *
+     * Note - when you use this operator, you need to be aware that you are relinquishing
+     * ALL control of the base stream. Do NOT try to reuse the inputted stream. Do NOT
+     * try to close the underlying stream. All interactions must now be done with the
+     * stream you get in return. The temporary files are deleted when the returned stream
+     * is closed, so make sure it is.
+     *
+     * @param stream the stream to sort.
+     * @param comparator the comparator to sort by.
+     * @param serializer the serializer used to spill items to disk.
+     * @param memoryBudget the maximum number of items to hold in memory at once.
+     * @return the sorted stream.
+     */
+    public static <TYPE> Stream<TYPE> externalSort(
+            Stream<TYPE> stream, Comparator<TYPE> comparator, Serializer<TYPE> serializer, int memoryBudget) {
+        return externalSort(ExternalSortBuilder.<TYPE>builder()
+                .setStream(stream)
+                .setComparator(comparator)
+                .setSerializer(serializer)
+                .setMemoryBudget(memoryBudget)
+        );
+    }
+
+    /**
+     * Returns a stream of all the items of the provided stream, sorted by the provided
+     * comparator, without holding more than the memory budget's worth of items in memory.
+     *
+     * This accepts the builder, which also allows compressing the spilled runs and
+     * choosing where they are spilled to.
+     *
+     * Note - when you use this operator, you need to be aware that you are relinquishing
+     * ALL control of the base stream. Do NOT try to reuse the inputted stream. Do NOT
+     * try to close the underlying stream. All interactions must now be done with the
+     * stream you get in return. The temporary files are deleted when the returned stream
+     * is closed, so make sure it is.
+     *
+     * @param builder the builder containing all the required options.
+     * @return the sorted stream.
+     */
+    public static <TYPE> Stream<TYPE> externalSort(final ExternalSortBuilder<TYPE> builder) {
+        final ExternalSortIterator<TYPE> iter = builder.build();
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iter, 0), false)
+                // Whenever the sorted stream is closed, we need to delete the
+                // spilled runs, and close the underlying stream.
+                .onClose(iter::close)
+                .onClose(builder.getStream()::close);
+    }
+
     /**
      * Returns a stream that is a join of the two provided sorted streams. There are
-     * three join types supported: full inner, full outer, and left. In case of duplicates,
-     * the items will be joined in the order in which they appear.
+     * five join types supported: full inner, full outer, left, left semi and left anti.
+     * In case of duplicates, the items will be joined in the order in which they appear.
      *
      * The inputted streams must each be sorted according to the key for this to function
      * properly.
@@ -154,7 +462,9 @@ public final class OrderedStreamUtils {
      * @param rightHandKeyingFunction a function which returns a key value, used by the
      *                                comparator to determine the relative location in the stream.
      * @param joinFunction a function which join the values from the two streams.
-     * @param joinType the type of join to perform -- left, outer, or inner.
+     * @param joinType the type of join to perform -- left, outer, inner, left semi, or
+     *                 left anti. Semi and anti joins never call the join function, and
+     *                 emit the left items as is.
      * @return the joined stream.
      */
     public static <KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> Stream<RESULT> join(
@@ -179,13 +489,14 @@ public final class OrderedStreamUtils {
 
     /**
      * Returns a stream that is a join of the two provided sorted streams. There are
-     * three join types supported: full inner, full outer, and left. In case of duplicates,
-     * the items will be joined in the order in which they appear.
+     * five join types supported: full inner, full outer, left, left semi and left anti.
+     * In case of duplicates, the items will be joined in the order in which they appear.
      *
      * The inputted streams must each be sorted according to the key for this to function
      * properly.
      *
-     * This accepts the builder for easier construction of joins.
+     * This accepts the builder for easier construction of joins. The builder also
+     * allows joining duplicate keys many-to-many, like a SQL join.
      *
      * Note - when you use this operator, you need to be aware that you are relinquishing
      * ALL control of the base stream. Do NOT try to reuse the inputted stream. Do NOT
@@ -198,7 +509,279 @@ public final class OrderedStreamUtils {
     public static <KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> Stream<RESULT> join(
             final JoinBuilder<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> builder
     ) {
-        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(builder.build(), 0), false)
+        final JoiningIterator<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> iter = builder.build();
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iter, 0), false)
+                // Whenever the joined stream is closed, we need to clean up
+                // anything spilled to disk, and close the underlying sources
+                // and streams.
+                .onClose(iter::close)
+                .onClose(() -> {
+                    if (builder.getLeftHandSide() != null) {
+                        builder.getLeftHandSide().close();
+                    }
+                    if (builder.getRightHandSide() != null) {
+                        builder.getRightHandSide().close();
+                    }
+                });
+    }
+
+    /**
+     * Returns a stream that is a join of the two provided sorted streams, just like
+     * the join above, but with the work spread over the given pool. Both streams are
+     * read in order and cut into partitions of consecutive key ranges (at the builder's
+     * splitters, if it has any, and otherwise by the builder's partition size), which
+     * are joined in parallel. The results come out in the same order as they would
+     * from a single-threaded join. The key distribution isn't sampled, so without
+     * splitters, partitions are cut by item count alone.
+     *
+     * Keys with too many items (on either side) to fit in a partition are split over
+     * several partitions, so a single hot key doesn't hold up the rest. The join function
+     * must be safe to call from several threads at once.
+     *
+     * Note - when you use this operator, you need to be aware that you are relinquishing
+     * ALL control of the base stream. Do NOT try to reuse the inputted stream. Do NOT
+     * try to close the underlying stream. All interactions must now be done with the
+     * stream you get in return.
+     *
+     * @param builder the builder containing all the required options.
+     * @param pool the pool to join on.
+     * @return the joined stream.
+     */
+    public static <KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> Stream<RESULT> parallelJoin(
+            final JoinBuilder<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> builder,
+            final ForkJoinPool pool
+    ) {
+        final ParallelJoiningIterator<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> iter = builder.buildParallel(pool);
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iter, 0), false)
+                .onClose(iter::close)
+                .onClose(() -> {
+                    if (builder.getLeftHandSide() != null) {
+                        builder.getLeftHandSide().close();
+                    }
+                    if (builder.getRightHandSide() != null) {
+                        builder.getRightHandSide().close();
+                    }
+                });
+    }
+
+    /**
+     * Returns a stream that is a join of the two provided streams, sorted by long keys
+     * in ascending order. This works just like the join above, but keys are extracted
+     * and compared as primitives, without boxing them.
+     *
+     * Note - when you use this operator, you need to be aware that you are relinquishing
+     * ALL control of the base stream. Do NOT try to reuse the inputted stream. Do NOT
+     * try to close the underlying stream. All interactions must now be done with the
+     * stream you get in return.
+     *
+     * @param builder the builder containing all the required options.
+     * @return the joined stream.
+     */
+    public static <LEFT_VALUE, RIGHT_VALUE, RESULT> Stream<RESULT> join(
+            final LongJoinBuilder<LEFT_VALUE, RIGHT_VALUE, RESULT> builder
+    ) {
+        final LongJoiningIterator<LEFT_VALUE, RIGHT_VALUE, RESULT> iter = builder.build();
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iter, 0), false)
+                .onClose(iter::close)
+                .onClose(() -> {
+                    builder.getLeftHandSide().close();
+                    builder.getRightHandSide().close();
+                });
+    }
+
+    /**
+     * Returns a stream that is a join of the two provided streams, sorted by int keys
+     * in ascending order. This works just like the join above, but keys are extracted
+     * and compared as primitives, without boxing them.
+     *
+     * Note - when you use this operator, you need to be aware that you are relinquishing
+     * ALL control of the base stream. Do NOT try to reuse the inputted stream. Do NOT
+     * try to close the underlying stream. All interactions must now be done with the
+     * stream you get in return.
+     *
+     * @param builder the builder containing all the required options.
+     * @return the joined stream.
+     */
+    public static <LEFT_VALUE, RIGHT_VALUE, RESULT> Stream<RESULT> join(
+            final IntJoinBuilder<LEFT_VALUE, RIGHT_VALUE, RESULT> builder
+    ) {
+        final LongJoiningIterator<LEFT_VALUE, RIGHT_VALUE, RESULT> iter = builder.build();
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iter, 0), false)
+                .onClose(iter::close)
+                .onClose(() -> {
+                    builder.getLeftHandSide().close();
+                    builder.getRightHandSide().close();
+                });
+    }
+
+    /**
+     * Returns a stream that is an as-of join of the two provided sorted streams: each
+     * left item is joined to the latest right item with a key at or before its own, the
+     * last known value at that point. This is done in a single forward pass over both
+     * streams, holding on to just the latest right item.
+     *
+     * The supported join types are inner, where left items without an earlier right
+     * item are dropped, left, where they're joined to null, left semi, and left anti.
+     *
+     * The inputted streams must each be sorted according to the key for this to function
+     * properly.
+     *
+     * Note - when you use this operator, you need to be aware that you are relinquishing
+     * ALL control of the base stream. Do NOT try to reuse the inputted stream. Do NOT
+     * try to close the underlying stream. All interactions must now be done with the
+     * stream you get in return.
+     *
+     * @param leftHandSide the left side stream to join.
+     * @param rightHandSide the right side stream to join.
+     * @param ordering a comparator which specifies the relative ordering of both streams.
+     * @param leftHandKeyingFunction a function which returns the key of a left item.
+     * @param rightHandKeyingFunction a function which returns the key of a right item.
+     * @param joinFunction a function which join the values from the two streams.
+     * @param joinType the type of join to perform.
+     * @return the joined stream.
+     */
+    public static <KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> Stream<RESULT> asOfJoin(
+            final Stream<LEFT_VALUE> leftHandSide,
+            final Stream<RIGHT_VALUE> rightHandSide,
+            final Comparator<KEY> ordering,
+            final Function<LEFT_VALUE, KEY> leftHandKeyingFunction,
+            final Function<RIGHT_VALUE, KEY> rightHandKeyingFunction,
+            final BiFunction<LEFT_VALUE, RIGHT_VALUE, RESULT> joinFunction,
+            final JoinType joinType
+    ) {
+        return asOfJoin(AsOfJoinBuilder.<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT>builder()
+                .setLeftHandSide(leftHandSide)
+                .setRightHandSide(rightHandSide)
+                .setOrdering(ordering)
+                .setLeftHandKeyingFunction(leftHandKeyingFunction)
+                .setRightHandKeyingFunction(rightHandKeyingFunction)
+                .setJoinFunction(joinFunction)
+                .setJoinType(joinType)
+        );
+    }
+
+    /**
+     * Returns a stream that is an as-of join of the two provided sorted streams. See
+     * above.
+     *
+     * This accepts the builder, which also allows partitioning the streams, so that the
+     * latest right item is looked up per partition (per stock symbol, say), and setting
+     * a maximum staleness, past which the latest right item is ignored. Only the latest
+     * right item of each partition is held in memory.
+     *
+     * Note - when you use this operator, you need to be aware that you are relinquishing
+     * ALL control of the base stream. Do NOT try to reuse the inputted stream. Do NOT
+     * try to close the underlying stream. All interactions must now be done with the
+     * stream you get in return.
+     *
+     * @param builder the builder containing all the required options.
+     * @return the joined stream.
+     */
+    public static <KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> Stream<RESULT> asOfJoin(
+            final AsOfJoinBuilder<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> builder
+    ) {
+        final Iterator<RESULT> iter = builder.build();
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iter, 0), false)
+                // Whenever the joined stream is closed, we need to close the
+                // underlying streams.
+                .onClose(() -> {
+                    builder.getLeftHandSide().close();
+                    builder.getRightHandSide().close();
+                });
+    }
+
+    /**
+     * Returns a stream that is a band join of the two provided sorted streams: each left
+     * item is joined to every right item whose key is within a band around the left
+     * item's key, rather than equal to it. The band is given by two functions, which
+     * take a left key and return the lowest and highest matching right keys (inclusive).
+     * For instance, for timestamps within 50ms, `t -> t - 50` and `t -> t + 50`.
+     *
+     * The join types work just as they do for join, with a match meaning a right item
+     * within the band. Only the right items within the current band are held in memory.
+     *
+     * The inputted streams must each be sorted according to the key for this to function
+     * properly, and both ends of the band must go up as the left key does.
+     *
+     * Note - when you use this operator, you need to be aware that you are relinquishing
+     * ALL control of the base stream. Do NOT try to reuse the inputted stream. Do NOT
+     * try to close the underlying stream. All interactions must now be done with the
+     * stream you get in return.
+     *
+     * @param leftHandSide the left side stream to join.
+     * @param rightHandSide the right side stream to join.
+     * @param ordering a comparator which specifies the relative ordering of both streams.
+     * @param leftHandKeyingFunction a function which returns the key of a left item.
+     * @param rightHandKeyingFunction a function which returns the key of a right item.
+     * @param lowerBound a function which returns the lowest right key a left key matches.
+     * @param upperBound a function which returns the highest right key a left key matches.
+     * @param joinFunction a function which join the values from the two streams.
+     * @param joinType the type of join to perform.
+     * @return the joined stream.
+     */
+    public static <KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> Stream<RESULT> bandJoin(
+            final Stream<LEFT_VALUE> leftHandSide,
+            final Stream<RIGHT_VALUE> rightHandSide,
+            final Comparator<KEY> ordering,
+            final Function<LEFT_VALUE, KEY> leftHandKeyingFunction,
+            final Function<RIGHT_VALUE, KEY> rightHandKeyingFunction,
+            final Function<KEY, KEY> lowerBound,
+            final Function<KEY, KEY> upperBound,
+            final BiFunction<LEFT_VALUE, RIGHT_VALUE, RESULT> joinFunction,
+            final JoinType joinType
+    ) {
+        final Iterator<RESULT> iter = new BandJoinIterator<>(
+                leftHandSide.iterator(),
+                rightHandSide.iterator(),
+                ordering,
+                leftHandKeyingFunction,
+                rightHandKeyingFunction,
+                lowerBound,
+                upperBound,
+                joinFunction,
+                joinType
+        );
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iter, 0), false)
+                // Whenever the joined stream is closed, we need to close the
+                // underlying streams.
+                .onClose(() -> {
+                    leftHandSide.close();
+                    rightHandSide.close();
+                });
+    }
+
+    /**
+     * Returns a stream that is a windowed join of the two provided streams, which only
+     * need to be sorted by time to within a max out-of-orderness, such as feeds where
+     * items can arrive a little late. Items with the same key are joined when their
+     * times are within the window size of each other.
+     *
+     * The join keeps a watermark, the lowest time it can still see on either side. Items
+     * older than the watermark are dropped as late, and items more than a window older
+     * than it are evicted from the join state, since nothing still to come can join to
+     * them. So the memory used stays flat, even on never-ending streams. The join types
+     * work just as they do for join, with unmatched items emitted as they're evicted.
+     *
+     * Note - when you use this operator, you need to be aware that you are relinquishing
+     * ALL control of the base stream. Do NOT try to reuse the inputted stream. Do NOT
+     * try to close the underlying stream. All interactions must now be done with the
+     * stream you get in return.
+     *
+     * @param builder the builder containing all the required options.
+     * @return the joined stream.
+     */
+    public static <KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> Stream<RESULT> windowedJoin(
+            final WindowedJoinBuilder<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> builder
+    ) {
+        final Iterator<RESULT> iter = builder.build();
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iter, 0), false)
                 // Whenever the joined stream is closed, we need to close the
                 // underlying streams.
                 .onClose(() -> {
@@ -207,4 +790,118 @@ public final class OrderedStreamUtils {
                 });
     }
 
+    /**
+     * Returns a stream of the items of the left stream that have at least one item with
+     * a matching key in the right stream, like a SQL WHERE EXISTS. Each left item is
+     * emitted once, as is, no matter how many right items it matches.
+     *
+     * The inputted streams must each be sorted according to the key for this to function
+     * properly.
+     *
+     * Note - when you use this operator, you need to be aware that you are relinquishing
+     * ALL control of the base stream. Do NOT try to reuse the inputted stream. Do NOT
+     * try to close the underlying stream. All interactions must now be done with the
+     * stream you get in return.
+     *
+     * @param leftHandSide the stream to filter.
+     * @param rightHandSide the stream to look for matches in.
+     * @param ordering a comparator which specifies the relative ordering of both streams.
+     * @param leftHandKeyingFunction a function which returns a key value, used by the
+     *                               comparator to determine the relative location in the stream.
+     * @param rightHandKeyingFunction a function which returns a key value, used by the
+     *                                comparator to determine the relative location in the stream.
+     * @return the left items that have a match.
+     */
+    public static <KEY, LEFT_VALUE, RIGHT_VALUE> Stream<LEFT_VALUE> semiJoin(
+            final Stream<LEFT_VALUE> leftHandSide,
+            final Stream<RIGHT_VALUE> rightHandSide,
+            final Comparator<KEY> ordering,
+            final Function<LEFT_VALUE, KEY> leftHandKeyingFunction,
+            final Function<RIGHT_VALUE, KEY> rightHandKeyingFunction
+    ) {
+        return join(JoinBuilder.<KEY, LEFT_VALUE, RIGHT_VALUE, LEFT_VALUE>builder()
+                .setLeftHandSide(leftHandSide)
+                .setRightHandSide(rightHandSide)
+                .setOrdering(ordering)
+                .setLeftHandKeyingFunction(leftHandKeyingFunction)
+                .setRightHandKeyingFunction(rightHandKeyingFunction)
+                .setJoinType(JoinType.LEFT_SEMI)
+        );
+    }
+
+    /**
+     * Returns a stream of the items of the left stream that have no item with a matching
+     * key in the right stream, like a SQL WHERE NOT EXISTS. The left items are emitted
+     * as is.
+     *
+     * The inputted streams must each be sorted according to the key for this to function
+     * properly.
+     *
+     * Note - when you use this operator, you need to be aware that you are relinquishing
+     * ALL control of the base stream. Do NOT try to reuse the inputted stream. Do NOT
+     * try to close the underlying stream. All interactions must now be done with the
+     * stream you get in return.
+     *
+     * @param leftHandSide the stream to filter.
+     * @param rightHandSide the stream to look for matches in.
+     * @param ordering a comparator which specifies the relative ordering of both streams.
+     * @param leftHandKeyingFunction a function which returns a key value, used by the
+     *                               comparator to determine the relative location in the stream.
+     * @param rightHandKeyingFunction a function which returns a key value, used by the
+     *                                comparator to determine the relative location in the stream.
+     * @return the left items that have no match.
+     */
+    public static <KEY, LEFT_VALUE, RIGHT_VALUE> Stream<LEFT_VALUE> antiJoin(
+            final Stream<LEFT_VALUE> leftHandSide,
+            final Stream<RIGHT_VALUE> rightHandSide,
+            final Comparator<KEY> ordering,
+            final Function<LEFT_VALUE, KEY> leftHandKeyingFunction,
+            final Function<RIGHT_VALUE, KEY> rightHandKeyingFunction
+    ) {
+        return join(JoinBuilder.<KEY, LEFT_VALUE, RIGHT_VALUE, LEFT_VALUE>builder()
+                .setLeftHandSide(leftHandSide)
+                .setRightHandSide(rightHandSide)
+                .setOrdering(ordering)
+                .setLeftHandKeyingFunction(leftHandKeyingFunction)
+                .setRightHandKeyingFunction(rightHandKeyingFunction)
+                .setJoinType(JoinType.LEFT_ANTI)
+        );
+    }
+
+    /**
+     * Returns a stream that cogroups all the provided sorted streams in a single pass.
+     * For every key found in any of the streams, in order, it emits a CoGroup holding
+     * the key and, for each stream, the list of its items with that key (which is empty
+     * if the stream doesn't have the key).
+     *
+     * This is cheaper than chaining joins when combining more than two streams, since
+     * each item is keyed exactly once and no intermediate join results are built.
+     *
+     * The inputted streams must each be sorted according to the key for this to function
+     * properly.
+     *
+     * Note - when you use this operator, you need to be aware that you are relinquishing
+     * ALL control of the base stream. Do NOT try to reuse the inputted stream. Do NOT
+     * try to close the underlying stream. All interactions must now be done with the
+     * stream you get in return.
+     *
+     * @param streams the streams to cogroup.
+     * @param keyingFunctions a function which returns a key value for each stream, in the
+     *                        same order as the streams.
+     * @param ordering a comparator which specifies the relative ordering of all the streams.
+     * @return the cogrouped stream.
+     */
+    public static <KEY> Stream<CoGroup<KEY>> cogroup(
+            final List<? extends Stream<?>> streams,
+            final List<? extends Function<?, ? extends KEY>> keyingFunctions,
+            final Comparator<KEY> ordering
+    ) {
+        final Iterator<CoGroup<KEY>> iter = new CoGroupIterator<>(streams, keyingFunctions, ordering);
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iter, 0), false)
+                // Whenever the cogrouped stream is closed, we need to close the
+                // underlying streams.
+                .onClose(() -> streams.forEach(Stream::close));
+    }
+
 }
@@ -16,14 +16,40 @@
 
 package com.conductor.stream.utils;
 
-import com.conductor.stream.utils.buffer.SizedBufferIterator;
+import com.conductor.stream.utils.buffer.HashGroupingBuilder;
+import com.conductor.stream.utils.buffer.HashGroupingIterator;
+import com.conductor.stream.utils.buffer.ListPool;
+import com.conductor.stream.utils.buffer.SizedBufferSpliterator;
+import com.conductor.stream.utils.buffer.SizedDoubleBufferIterator;
+import com.conductor.stream.utils.buffer.SizedIntBufferIterator;
+import com.conductor.stream.utils.buffer.SizedLongBufferIterator;
+import com.conductor.stream.utils.buffer.StripedAggregator;
+import com.conductor.stream.utils.buffer.TimedBufferIterator;
+import com.conductor.stream.utils.buffer.WeightedBufferIterator;
+import com.conductor.stream.utils.buffer.WindowAggregatingIterator;
+import com.conductor.stream.utils.buffer.WindowingIterator;
+import com.conductor.stream.utils.join.HashJoinBuilder;
+import com.conductor.stream.utils.join.HashJoinIterator;
+import com.conductor.stream.utils.join.JoinType;
 import com.conductor.stream.utils.misc.SwitchIfEmptySpliterator;
+import com.conductor.stream.utils.spill.Serializer;
 
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
 import java.util.Spliterators;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collector;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
@@ -40,6 +66,11 @@ public final class StreamUtils {
      * Java 8 streams don't support streaming groupings, just materialized grouping.
      * This chunks a stream into lists the provided size.
      *
+     * The returned stream is parallel if the provided one is, and can be made parallel
+     * with `.parallel()`. Streams over sized sources, like lists and arrays, are split
+     * on list boundaries, so the lists are built in parallel too. Others are split into
+     * batches of lists, which are then processed in parallel.
+     *
      * Note - when you use this operator, you need to be aware that you are relinquishing
      * ALL control of the base stream. Do NOT try to reuse the inputted stream. Do NOT
      * try to close the underlying stream. All interactions must now be done with the
@@ -51,9 +82,175 @@ public final class StreamUtils {
      * @return grouped stream.
      */
     public static <TYPE> Stream<List<TYPE>> buffer(Stream<TYPE> stream, final int size) {
-        final Iterator<TYPE> iterator = stream.iterator();
+        // without a pool, every list is new
+        return buffer(stream, size, null);
+    }
+
+    /**
+     * Chunks a stream of ints into arrays the provided size. This is the same as
+     * buffering a stream of objects into lists, but without boxing every item, which
+     * takes several times the memory of an array.
+     *
+     * Note - when you use this operator, you need to be aware that you are relinquishing
+     * ALL control of the base stream. Do NOT try to reuse the inputted stream. Do NOT
+     * try to close the underlying stream. All interactions must now be done with the
+     * stream you get in return.
+     *
+     * @param stream stream to group.
+     * @param size size of the arrays to emit.
+     * @return grouped stream.
+     */
+    public static Stream<int[]> buffer(IntStream stream, final int size) {
+        final Iterator<int[]> iter = new SizedIntBufferIterator(stream.iterator(), size);
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iter, 0), false)
+                // Whenever the buffered stream is closed, we need to close the
+                // underlying stream.
+                .onClose(stream::close);
+    }
+
+    /**
+     * Chunks a stream of longs into arrays the provided size. See above.
+     *
+     * Note - when you use this operator, you need to be aware that you are relinquishing
+     * ALL control of the base stream. Do NOT try to reuse the inputted stream. Do NOT
+     * try to close the underlying stream. All interactions must now be done with the
+     * stream you get in return.
+     *
+     * @param stream stream to group.
+     * @param size size of the arrays to emit.
+     * @return grouped stream.
+     */
+    public static Stream<long[]> buffer(LongStream stream, final int size) {
+        final Iterator<long[]> iter = new SizedLongBufferIterator(stream.iterator(), size);
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iter, 0), false)
+                // Whenever the buffered stream is closed, we need to close the
+                // underlying stream.
+                .onClose(stream::close);
+    }
+
+    /**
+     * Chunks a stream of doubles into arrays the provided size. See above.
+     *
+     * Note - when you use this operator, you need to be aware that you are relinquishing
+     * ALL control of the base stream. Do NOT try to reuse the inputted stream. Do NOT
+     * try to close the underlying stream. All interactions must now be done with the
+     * stream you get in return.
+     *
+     * @param stream stream to group.
+     * @param size size of the arrays to emit.
+     * @return grouped stream.
+     */
+    public static Stream<double[]> buffer(DoubleStream stream, final int size) {
+        final Iterator<double[]> iter = new SizedDoubleBufferIterator(stream.iterator(), size);
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iter, 0), false)
+                // Whenever the buffered stream is closed, we need to close the
+                // underlying stream.
+                .onClose(stream::close);
+    }
+
+    /**
+     * Chunks a stream into lists the provided size, just like above, but reusing the
+     * lists. The lists are taken from the provided pool, and once you're done with a
+     * list, you can hand it back to the pool with `release` to be filled again. This
+     * saves allocating a new list for every chunk on very long streams.
+     *
+     * Note - when you use this operator, you need to be aware that you are relinquishing
+     * ALL control of the base stream. Do NOT try to reuse the inputted stream. Do NOT
+     * try to close the underlying stream. All interactions must now be done with the
+     * stream you get in return.
+     *
+     * @param stream stream to group.
+     * @param size size of the lists to emit.
+     * @param pool the pool to take the lists from, or null to create new lists.
+     * @param <TYPE> the type of items in the stream.
+     * @return grouped stream.
+     */
+    public static <TYPE> Stream<List<TYPE>> buffer(Stream<TYPE> stream, final int size, final ListPool<TYPE> pool) {
+        final Spliterator<List<TYPE>> spliterator = new SizedBufferSpliterator<>(stream.spliterator(), size, pool);
+
+        return StreamSupport.stream(spliterator, stream.isParallel())
+                // Whenever the buffered stream is closed, we need to close the
+                // underlying stream.
+                .onClose(stream::close);
+    }
+
+    /**
+     * Chunks a stream into lists the provided size, just like above, but without holding
+     * on to any item for longer than the max delay. A list is emitted once it's full, or
+     * once the max delay has passed since its first item was read, whichever comes first.
+     * This bounds the latency added by buffering slow trickling streams.
+     *
+     * To do that, the provided stream is read on another thread, which is run on the
+     * provided executor for as long as the stream is being read. Close the returned
+     * stream to stop reading.
+     *
+     * Note - when you use this operator, you need to be aware that you are relinquishing
+     * ALL control of the base stream. Do NOT try to reuse the inputted stream. Do NOT
+     * try to close the underlying stream. All interactions must now be done with the
+     * stream you get in return.
+     *
+     * @param stream stream to group.
+     * @param size size of the lists to emit.
+     * @param maxDelay the most time to hold on to an item before emitting it.
+     * @param unit the unit of the max delay.
+     * @param executor the executor to read the stream on.
+     * @param <TYPE> the type of items in the stream.
+     * @return grouped stream.
+     */
+    public static <TYPE> Stream<List<TYPE>> buffer(
+            Stream<TYPE> stream, final int size, final long maxDelay, final TimeUnit unit, final Executor executor) {
+        final TimedBufferIterator<TYPE> iter = new TimedBufferIterator<>(stream.iterator(), size, maxDelay, unit, executor);
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iter, 0), false)
+                // Stop reading before we close the underlying stream, so
+                // that it isn't closed out from under the reading task.
+                .onClose(iter::close)
+                .onClose(stream::close);
+    }
+
+    /**
+     * Chunks a stream into lists by weight rather than count, such as by size in bytes
+     * for sinks with a limit on the size of a batch. Each list is as full as it can be
+     * without its total weight going over the max weight. An item heavier than the max
+     * weight by itself is emitted in a list of its own.
+     *
+     * Note - when you use this operator, you need to be aware that you are relinquishing
+     * ALL control of the base stream. Do NOT try to reuse the inputted stream. Do NOT
+     * try to close the underlying stream. All interactions must now be done with the
+     * stream you get in return.
+     *
+     * @param stream stream to group.
+     * @param maxWeight the most total weight of the lists to emit.
+     * @param weigher a function which returns the weight of an item.
+     * @param <TYPE> the type of items in the stream.
+     * @return grouped stream.
+     */
+    public static <TYPE> Stream<List<TYPE>> bufferByWeight(Stream<TYPE> stream, final long maxWeight, final ToLongFunction<TYPE> weigher) {
+        return bufferByWeight(stream, maxWeight, weigher, Integer.MAX_VALUE);
+    }
 
-        final Iterator<List<TYPE>> iter = new SizedBufferIterator(iterator, size);
+    /**
+     * Chunks a stream into lists by weight, just like above, but also with at most the
+     * max count of items in each list.
+     *
+     * Note - when you use this operator, you need to be aware that you are relinquishing
+     * ALL control of the base stream. Do NOT try to reuse the inputted stream. Do NOT
+     * try to close the underlying stream. All interactions must now be done with the
+     * stream you get in return.
+     *
+     * @param stream stream to group.
+     * @param maxWeight the most total weight of the lists to emit.
+     * @param weigher a function which returns the weight of an item.
+     * @param maxCount the most items in the lists to emit.
+     * @param <TYPE> the type of items in the stream.
+     * @return grouped stream.
+     */
+    public static <TYPE> Stream<List<TYPE>> bufferByWeight(
+            Stream<TYPE> stream, final long maxWeight, final ToLongFunction<TYPE> weigher, final int maxCount) {
+        final Iterator<List<TYPE>> iter = new WeightedBufferIterator<>(stream.iterator(), maxWeight, weigher, maxCount);
 
         return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iter, 0), false)
                 // Whenever the buffered stream is closed, we need to close the
@@ -61,6 +258,73 @@ public final class StreamUtils {
                 .onClose(stream::close);
     }
 
+    /**
+     * This chunks a stream into count windows of the provided size, which move along
+     * the stream by the provided step. A step smaller than the size gives overlapping
+     * (sliding) windows, and a step equal to the size gives the same chunks as buffer
+     * (tumbling windows). Only full windows are emitted.
+     *
+     * The windows are views of a ring buffer shared by all of them, so nothing is
+     * copied as the window slides. That means each window can only be read until the
+     * stream moves on to the next one. Copy a window to keep it.
+     *
+     * Note - when you use this operator, you need to be aware that you are relinquishing
+     * ALL control of the base stream. Do NOT try to reuse the inputted stream. Do NOT
+     * try to close the underlying stream. All interactions must now be done with the
+     * stream you get in return.
+     *
+     * @param stream stream to window.
+     * @param size number of items in each window.
+     * @param step number of items each window moves on from the last.
+     * @return the windowed stream.
+     */
+    public static <TYPE> Stream<List<TYPE>> window(Stream<TYPE> stream, final int size, final int step) {
+        final Iterator<List<TYPE>> iter = new WindowingIterator<>(stream.iterator(), size, step);
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iter, 0), false)
+                // Whenever the windowed stream is closed, we need to close the
+                // underlying stream.
+                .onClose(stream::close);
+    }
+
+    /**
+     * This aggregates count windows of a stream, like window, but keeps the aggregate
+     * up to date as items enter and leave the window, rather than aggregating each
+     * window from scratch. So sliding the window costs the same, however big it is.
+     *
+     * For example, a rolling mean of 60 items:
+     * window(stream, 60, 1, 0.0, (sum, i) -> sum + i, (sum, i) -> sum - i).map(sum -> sum / 60)
+     *
+     * Note - when you use this operator, you need to be aware that you are relinquishing
+     * ALL control of the base stream. Do NOT try to reuse the inputted stream. Do NOT
+     * try to close the underlying stream. All interactions must now be done with the
+     * stream you get in return.
+     *
+     * @param stream stream to window.
+     * @param size number of items in each window.
+     * @param step number of items each window moves on from the last.
+     * @param identity the aggregate of an empty window.
+     * @param addFunction function which adds an item to an aggregate.
+     * @param removeFunction function which removes an item from an aggregate.
+     * @return the stream of each window's aggregate.
+     */
+    public static <TYPE, AGGREGATE> Stream<AGGREGATE> window(
+            Stream<TYPE> stream,
+            final int size,
+            final int step,
+            final AGGREGATE identity,
+            final BiFunction<AGGREGATE, TYPE, AGGREGATE> addFunction,
+            final BiFunction<AGGREGATE, TYPE, AGGREGATE> removeFunction
+    ) {
+        final Iterator<AGGREGATE> iter = new WindowAggregatingIterator<>(
+                stream.iterator(), size, step, identity, addFunction, removeFunction);
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iter, 0), false)
+                // Whenever the windowed stream is closed, we need to close the
+                // underlying stream.
+                .onClose(stream::close);
+    }
+
     // Just create one BiConsumer that is a no combiner, and reuse it.
     private static final BiConsumer NO_COMBINER = (t1, t2) -> {
         throw new UnsupportedOperationException("No combiner supplied for merging parallel results");
@@ -78,6 +342,56 @@ public final class StreamUtils {
         return NO_COMBINER;
     }
 
+    /**
+     * This is a collector that groups a parallel, unordered, stream by key, like
+     * Collectors.groupingByConcurrent, but without all the threads contending on
+     * the same table, or on the same containers for hot keys. Where noCombiner
+     * forbids combining, this gives the collection a combiner that's built for it.
+     *
+     * The items are folded into the downstream collector in per-thread stripes, each
+     * with its own table and lock, and every key's containers are combined with the
+     * downstream collector's combiner at the end. The collector is CONCURRENT and
+     * UNORDERED, so a parallel stream shares a single striped aggregator between all
+     * its threads. The resulting map is NOT thread safe.
+     *
+     * @param keyingFunction function to generate the key to be grouped by.
+     * @param downstream the collector to fold each group into, which must have a
+     *                   combiner.
+     * @return a collector of each key's aggregate.
+     */
+    public static <TYPE, KEY, CONTAINER, AGGREGATE> Collector<TYPE, ?, Map<KEY, AGGREGATE>> concurrentGroupingBy(
+            final Function<TYPE, KEY> keyingFunction,
+            final Collector<? super TYPE, CONTAINER, AGGREGATE> downstream
+    ) {
+        return concurrentGroupingBy(keyingFunction, downstream, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * This is a collector that groups a parallel, unordered, stream by key with striped
+     * accumulators. See above.
+     *
+     * @param keyingFunction function to generate the key to be grouped by.
+     * @param downstream the collector to fold each group into, which must have a
+     *                   combiner.
+     * @param stripes the minimum number of stripes, which should be about the number
+     *                of threads collecting.
+     * @return a collector of each key's aggregate.
+     */
+    public static <TYPE, KEY, CONTAINER, AGGREGATE> Collector<TYPE, ?, Map<KEY, AGGREGATE>> concurrentGroupingBy(
+            final Function<TYPE, KEY> keyingFunction,
+            final Collector<? super TYPE, CONTAINER, AGGREGATE> downstream,
+            final int stripes
+    ) {
+        return Collector.<TYPE, StripedAggregator<TYPE, KEY, CONTAINER, AGGREGATE>, Map<KEY, AGGREGATE>>of(
+                () -> new StripedAggregator<>(keyingFunction, downstream, stripes),
+                StripedAggregator::accept,
+                StripedAggregator::merge,
+                StripedAggregator::finish,
+                Collector.Characteristics.CONCURRENT,
+                Collector.Characteristics.UNORDERED
+        );
+    }
+
     /**
      * This is a convenience method that is similar to RxJava's similarly named
      * switchIfEmpty. It allows you to pass in a supplier of a replacement stream
@@ -104,4 +418,156 @@ public final class StreamUtils {
                 .onClose(stream::close);
     }
 
+    /**
+     * Returns a stream that is a join of the two provided streams, which don't need to
+     * be sorted. It builds a hash table from the smaller stream, and probes it with the
+     * other. Keys are matched with equals and hashCode, every left item is joined to
+     * every right item with the same key (like a SQL join), and the join type can be
+     * any of full inner, full outer, left, left semi and left anti. The joined items
+     * come out in no particular order.
+     *
+     * Everything is held in memory. To bound memory, use the builder, which can
+     * partition the streams to disk.
+     *
+     * Note - when you use this operator, you need to be aware that you are relinquishing
+     * ALL control of the base stream. Do NOT try to reuse the inputted stream. Do NOT
+     * try to close the underlying stream. All interactions must now be done with the
+     * stream you get in return.
+     *
+     * @param leftHandSide the left side stream to join.
+     * @param rightHandSide the right side stream to join.
+     * @param leftHandKeyingFunction a function which returns the key of a left item.
+     * @param rightHandKeyingFunction a function which returns the key of a right item.
+     * @param joinFunction a function which join the values from the two streams.
+     * @param joinType the type of join to perform.
+     * @param <KEY> the type of the key.
+     * @param <LEFT_VALUE> the type of the items in the left stream.
+     * @param <RIGHT_VALUE> the type of the items in the right stream.
+     * @param <RESULT> the type of the items in the joined stream.
+     * @return the joined stream.
+     */
+    public static <KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> Stream<RESULT> hashJoin(
+            final Stream<LEFT_VALUE> leftHandSide,
+            final Stream<RIGHT_VALUE> rightHandSide,
+            final Function<LEFT_VALUE, KEY> leftHandKeyingFunction,
+            final Function<RIGHT_VALUE, KEY> rightHandKeyingFunction,
+            final BiFunction<LEFT_VALUE, RIGHT_VALUE, RESULT> joinFunction,
+            final JoinType joinType
+    ) {
+        return hashJoin(HashJoinBuilder.<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT>builder()
+                .setLeftHandSide(leftHandSide)
+                .setRightHandSide(rightHandSide)
+                .setLeftHandKeyingFunction(leftHandKeyingFunction)
+                .setRightHandKeyingFunction(rightHandKeyingFunction)
+                .setJoinFunction(joinFunction)
+                .setJoinType(joinType)
+        );
+    }
+
+    /**
+     * Returns a stream that is a hash join of the two provided streams, which don't
+     * need to be sorted. See above.
+     *
+     * This accepts the builder, which allows setting a memory budget. If both streams
+     * outgrow it, they're split into partitions by key hash, spilled to disk, and joined
+     * a partition at a time (a grace hash join). The spilled partitions are deleted as
+     * they're done with, or when the returned stream is closed.
+     *
+     * Note - when you use this operator, you need to be aware that you are relinquishing
+     * ALL control of the base stream. Do NOT try to reuse the inputted stream. Do NOT
+     * try to close the underlying stream. All interactions must now be done with the
+     * stream you get in return.
+     *
+     * @param builder the builder containing all the required options.
+     * @param <KEY> the type of the key.
+     * @param <LEFT_VALUE> the type of the items in the left stream.
+     * @param <RIGHT_VALUE> the type of the items in the right stream.
+     * @param <RESULT> the type of the items in the joined stream.
+     * @return the joined stream.
+     */
+    public static <KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> Stream<RESULT> hashJoin(
+            final HashJoinBuilder<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> builder
+    ) {
+        final HashJoinIterator<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> iter = builder.build();
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iter, 0), false)
+                // Whenever the joined stream is closed, we need to clean up
+                // anything spilled to disk, and close the underlying streams.
+                .onClose(iter::close)
+                .onClose(() -> {
+                    builder.getLeftHandSide().close();
+                    builder.getRightHandSide().close();
+                });
+    }
+
+    /**
+     * Returns a stream of the groups of the provided stream, which doesn't need to be
+     * sorted, by the provided key. Each group is folded into the collector as it's read,
+     * and comes out along with its key, in no particular order.
+     *
+     * Unlike Collectors.groupingBy, this doesn't need to hold everything in memory. Once
+     * there are more groups than the memory budget, the items of the rest are spilled
+     * to disk by key hash, and grouped a partition at a time. The spilled partitions are
+     * deleted as they're done with, or when the returned stream is closed.
+     *
+     * The memory budget counts groups, not bytes. Each group in memory holds its whole
+     * container, so with a collector whose container grows with the group (such as
+     * Collectors.toList), the heap isn't bounded by the budget. It works best with
+     * collectors that fold into a fixed size container, like counting or summing.
+     *
+     * Note - when you use this operator, you need to be aware that you are relinquishing
+     * ALL control of the base stream. Do NOT try to reuse the inputted stream. Do NOT
+     * try to close the underlying stream. All interactions must now be done with the
+     * stream you get in return.
+     *
+     * @param stream stream to group.
+     * @param keyingFunction function to generate the key to be grouped by.
+     * @param collector the collector to fold each group into.
+     * @param serializer the serializer used to spill items to disk.
+     * @param memoryBudget the maximum number of groups to hold in memory at once.
+     * @return the grouped stream of each key and its aggregate.
+     */
+    public static <TYPE, KEY, CONTAINER, AGGREGATE> Stream<Map.Entry<KEY, AGGREGATE>> groupByUnsorted(
+            final Stream<TYPE> stream,
+            final Function<TYPE, KEY> keyingFunction,
+            final Collector<? super TYPE, CONTAINER, AGGREGATE> collector,
+            final Serializer<TYPE> serializer,
+            final int memoryBudget
+    ) {
+        return groupByUnsorted(HashGroupingBuilder.<TYPE, KEY, CONTAINER, AGGREGATE>builder()
+                .setStream(stream)
+                .setKeyingFunction(keyingFunction)
+                .setCollector(collector)
+                .setSerializer(serializer)
+                .setMemoryBudget(memoryBudget)
+        );
+    }
+
+    /**
+     * Returns a stream of the groups of the provided stream, which doesn't need to be
+     * sorted. See above.
+     *
+     * This accepts the builder, which also allows compressing the spilled partitions and
+     * choosing where they are spilled to.
+     *
+     * Note - when you use this operator, you need to be aware that you are relinquishing
+     * ALL control of the base stream. Do NOT try to reuse the inputted stream. Do NOT
+     * try to close the underlying stream. All interactions must now be done with the
+     * stream you get in return.
+     *
+     * @param builder the builder containing all the required options.
+     * @return the grouped stream of each key and its aggregate.
+     */
+    public static <TYPE, KEY, CONTAINER, AGGREGATE> Stream<Map.Entry<KEY, AGGREGATE>> groupByUnsorted(
+            final HashGroupingBuilder<TYPE, KEY, CONTAINER, AGGREGATE> builder
+    ) {
+        final HashGroupingIterator<TYPE, KEY, CONTAINER, AGGREGATE> iter = builder.build();
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iter, 0), false)
+                // Whenever the grouped stream is closed, we need to clean up
+                // anything spilled to disk, and close the underlying stream.
+                .onClose(iter::close)
+                .onClose(builder.getStream()::close);
+    }
+
 }
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.buffer;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * This is the base of the count windowing iterators. It reads the
+ * underlying iterator into a ring buffer of the window size, and emits a
+ * window once the buffer is first full, and then again every `step` items.
+ * When the step is smaller than the size the windows overlap (sliding
+ * windows), when they're equal they don't (tumbling windows), and when
+ * it's bigger some items fall between windows.
+ *
+ * The ring buffer is allocated once and shared by all the windows, so
+ * nothing is copied when the window slides. Subclasses are told about
+ * each item as it enters and leaves the buffer, and turn the buffer into
+ * whatever a window is.
+ *
+ * Only full windows are emitted, so if the underlying iterator has fewer
+ * items than the window size, there are no windows at all, and any items
+ * read after the last full window are dropped.
+ *
+ * NOTE: this is NOT thread safe.
+ *
+ * @param <TYPE> the type of item in the underlying iterator.
+ * @param <WINDOW> the type of the emitted windows.
+ *
+ * @author Benjamin Shai
+ */
+abstract class AbstractWindowingIterator<TYPE, WINDOW> implements Iterator<WINDOW> {
+
+    private final Iterator<TYPE> iterator;
+    private final int size;
+    private final int step;
+
+    // the ring buffer: `count` items, the oldest of which is at `start`
+    private final Object[] ring;
+    private int start;
+    private int count;
+    // counts the changes to the ring buffer, so that views of it can tell
+    // when they're stale
+    private long modifications;
+
+    // whether the next window has been read in, but not emitted yet
+    private boolean ready;
+
+    /**
+     * Creates an iterator.
+     *
+     * @param iterator the underlying iterator.
+     * @param size the number of items in each window.
+     * @param step the number of items the window moves by.
+     */
+    AbstractWindowingIterator(Iterator<TYPE> iterator, int size, int step) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Window size must be at least 1.");
+        }
+        if (step < 1) {
+            throw new IllegalArgumentException("Window step must be at least 1.");
+        }
+        this.iterator = iterator;
+        this.size = size;
+        this.step = step;
+        this.ring = new Object[size];
+    }
+
+    /**
+     * Determines whether there's another full window, reading it in if
+     * need be.
+     *
+     * @return true or false.
+     */
+    @Override
+    public boolean hasNext() {
+        if (!ready) {
+            // the first window needs filling up, and each after it needs
+            // another step's worth of items
+            int needed = count < size ? size - count : step;
+            while (needed > 0 && iterator.hasNext()) {
+                push(iterator.next());
+                needed--;
+            }
+            ready = needed == 0;
+        }
+        return ready;
+    }
+
+    /**
+     * Gets the next window.
+     *
+     * @return the window.
+     */
+    @Override
+    public WINDOW next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        ready = false;
+        return window();
+    }
+
+    /**
+     * Gets the number of items in each window.
+     *
+     * @return the window size.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Gets the number of times the ring buffer has changed. This changes
+     * whenever the iterator reads ahead, which hasNext can do as well as next.
+     *
+     * @return the modification count.
+     */
+    long modifications() {
+        return modifications;
+    }
+
+    /**
+     * Gets an item of the current window.
+     *
+     * @param index the index of the item, with 0 being the oldest.
+     * @return the item.
+     */
+    @SuppressWarnings("unchecked")
+    TYPE get(int index) {
+        return (TYPE) ring[(start + index) % size];
+    }
+
+    /**
+     * Called whenever an item enters the window.
+     *
+     * @param item the item.
+     */
+    void onAdd(TYPE item) {}
+
+    /**
+     * Called whenever an item leaves the window, before the item that
+     * replaces it is added.
+     *
+     * @param item the item.
+     */
+    void onRemove(TYPE item) {}
+
+    /**
+     * Turns the current contents of the ring buffer into a window.
+     *
+     * @return the window.
+     */
+    abstract WINDOW window();
+
+    @SuppressWarnings("unchecked")
+    private void push(TYPE item) {
+        modifications++;
+        if (count < size) {
+            ring[(start + count) % size] = item;
+            count++;
+        } else {
+            // overwrite the oldest item, which is now the newest
+            final TYPE evicted = (TYPE) ring[start];
+            ring[start] = item;
+            start = (start + 1) % size;
+            onRemove(evicted);
+        }
+        onAdd(item);
+    }
+}
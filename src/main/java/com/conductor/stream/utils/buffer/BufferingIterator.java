@@ -33,8 +33,20 @@ import java.util.List;
  */
 abstract class BufferingIterator<TYPE> implements Iterator<List<TYPE>> {
 
+    // the capacity of an ArrayList by default
+    private static final int DEFAULT_CAPACITY = 10;
+    // the most the first list is presized to. Past this, it grows as items
+    // arrive, so that a huge buffer size on a small stream doesn't allocate
+    // a huge array up front. Once a list has filled, the stream has shown
+    // it's long enough, and later lists start at their full capacity.
+    static final int MAX_PRESIZE = 1024;
+
     private final Iterator<TYPE> iterator;
-    private final List<TYPE> list;
+    private final ListPool<TYPE> pool;
+    // the list being filled, which is handed off as is when flushed, and
+    // only started once there's an item to put in it
+    private List<TYPE> list;
+    private int lastSize;
     private boolean isFirst;
 
     /**
@@ -44,8 +56,19 @@ abstract class BufferingIterator<TYPE> implements Iterator<List<TYPE>> {
      * @param iterator the iterator to buffer
      */
     BufferingIterator(Iterator<TYPE> iterator) {
+        this(iterator, null);
+    }
+
+    /**
+     * Create a buffering iterator, passing in the underlying iterator
+     * to be buffered, and a pool to take the lists from.
+     *
+     * @param iterator the iterator to buffer
+     * @param pool the pool of lists, or null to create new lists.
+     */
+    BufferingIterator(Iterator<TYPE> iterator, ListPool<TYPE> pool) {
         this.iterator = iterator;
-        list = new ArrayList<>();
+        this.pool = pool;
         isFirst = true;
     }
 
@@ -56,7 +79,7 @@ abstract class BufferingIterator<TYPE> implements Iterator<List<TYPE>> {
      */
     @Override
     public boolean hasNext() {
-        return iterator.hasNext() || !list.isEmpty();
+        return iterator.hasNext() || list != null;
     }
 
     /**
@@ -78,7 +101,7 @@ abstract class BufferingIterator<TYPE> implements Iterator<List<TYPE>> {
                 isFirst = false;
                 setupState(next);
                 // still add the item to the list
-                list.add(next);
+                add(next);
 
                 // continue, because until we hit the flush point, we haven't
                 // returned a list.
@@ -90,14 +113,14 @@ abstract class BufferingIterator<TYPE> implements Iterator<List<TYPE>> {
                 // flush list
                 final List<TYPE> retList = flushList();
                 // start new list
-                list.add(next);
+                add(next);
 
                 return retList;
             }
 
             // Otherwise, we must not be in flush mode. Just add it
             // to the list and carry on.
-            list.add(next);
+            add(next);
         }
 
         // otherwise, send the last list down the line
@@ -123,15 +146,54 @@ abstract class BufferingIterator<TYPE> implements Iterator<List<TYPE>> {
     abstract boolean shouldFlush(TYPE item);
 
     /**
-     * This method fills up a list with all the values currently being
-     * held on to, and clears the current list pointer so it can start
-     * holding the next set of items.
+     * This is the capacity new lists are created with, which should be
+     * about the number of items that go in a list.
+     *
+     * By default it's the size of the last list flushed, since lists tend
+     * to be about the same size. Override it if you know better. The first
+     * list is capped at MAX_PRESIZE.
+     *
+     * @param lastSize the size of the last list flushed, or 0 before the
+     *                 first flush.
+     * @return the capacity of the next list.
+     */
+    int nextCapacity(int lastSize) {
+        return lastSize > 0 ? lastSize : DEFAULT_CAPACITY;
+    }
+
+    /**
+     * This method hands off the list currently being held on to, so that the
+     * next item starts a new one. The list is handed off as is, rather than
+     * copied, so that the items are only ever added once.
      *
      * @return old list
      */
     private List<TYPE> flushList() {
-        List<TYPE> oldList = new ArrayList<>(list);
-        list.clear();
+        final List<TYPE> oldList = list != null ? list : newList();
+        lastSize = oldList.size();
+        list = null;
         return oldList;
     }
+
+    private void add(TYPE item) {
+        if (list == null) {
+            list = newList();
+        }
+        list.add(item);
+    }
+
+    private List<TYPE> newList() {
+        return pool != null ? pool.acquire() : new ArrayList<>(initialCapacity());
+    }
+
+    /**
+     * The capacity to start the next list at.
+     *
+     * @return the capacity.
+     */
+    int initialCapacity() {
+        final int capacity = nextCapacity(lastSize);
+        // nothing has been flushed yet, so we don't know how long the stream is
+        return lastSize > 0 ? capacity : Math.min(capacity, MAX_PRESIZE);
+    }
 }
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.buffer;
+
+import com.conductor.stream.utils.spill.Serializer;
+
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
+
+/**
+ * This is a builder for the HashGroupingIterator, to make construction
+ * much simpler.
+ *
+ * @author Benjamin Shai
+ */
+public class HashGroupingBuilder<TYPE, KEY, CONTAINER, AGGREGATE> {
+
+    private Stream<TYPE> stream;
+    private Function<TYPE, KEY> keyingFunction;
+    private Collector<? super TYPE, CONTAINER, AGGREGATE> collector;
+    private Serializer<TYPE> serializer;
+    private int memoryBudget;
+    private boolean compressed;
+    private Path tempDirectory;
+
+    public HashGroupingBuilder() {}
+
+    public HashGroupingBuilder<TYPE, KEY, CONTAINER, AGGREGATE> setStream(final Stream<TYPE> stream) {
+        this.stream = stream;
+        return this;
+    }
+
+    /**
+     * Getter so that we can appropriately clean up resources.
+     *
+     * @return the base stream
+     */
+    public Stream<TYPE> getStream() {
+        return stream;
+    }
+
+    public HashGroupingBuilder<TYPE, KEY, CONTAINER, AGGREGATE> setKeyingFunction(final Function<TYPE, KEY> keyingFunction) {
+        this.keyingFunction = keyingFunction;
+        return this;
+    }
+
+    public HashGroupingBuilder<TYPE, KEY, CONTAINER, AGGREGATE> setCollector(
+            final Collector<? super TYPE, CONTAINER, AGGREGATE> collector) {
+        this.collector = collector;
+        return this;
+    }
+
+    public HashGroupingBuilder<TYPE, KEY, CONTAINER, AGGREGATE> setSerializer(final Serializer<TYPE> serializer) {
+        this.serializer = serializer;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of groups held in memory at once. The items
+     * of any other groups are spilled to disk.
+     *
+     * This counts groups, not bytes: each group holds its whole container,
+     * so a container that grows with its group (such as the one behind
+     * Collectors.toList) isn't bounded by it.
+     *
+     * @param memoryBudget the maximum number of groups.
+     * @return this builder.
+     */
+    public HashGroupingBuilder<TYPE, KEY, CONTAINER, AGGREGATE> setMemoryBudget(final int memoryBudget) {
+        this.memoryBudget = memoryBudget;
+        return this;
+    }
+
+    public HashGroupingBuilder<TYPE, KEY, CONTAINER, AGGREGATE> setCompressed(final boolean compressed) {
+        this.compressed = compressed;
+        return this;
+    }
+
+    /**
+     * Sets the directory partitions are spilled to. Defaults to the default
+     * temporary-file directory.
+     *
+     * @param tempDirectory the directory.
+     * @return this builder.
+     */
+    public HashGroupingBuilder<TYPE, KEY, CONTAINER, AGGREGATE> setTempDirectory(final Path tempDirectory) {
+        this.tempDirectory = tempDirectory;
+        return this;
+    }
+
+    public HashGroupingIterator<TYPE, KEY, CONTAINER, AGGREGATE> build() {
+        Objects.requireNonNull(stream, "Stream must not be null.");
+        Objects.requireNonNull(keyingFunction, "Keying function must not be null.");
+        Objects.requireNonNull(collector, "Collector must not be null.");
+        Objects.requireNonNull(serializer, "Serializer must not be null.");
+
+        return new HashGroupingIterator<>(
+                stream.iterator(),
+                keyingFunction,
+                collector,
+                serializer,
+                memoryBudget,
+                compressed,
+                tempDirectory
+        );
+    }
+
+    /**
+     * Static convenience method.
+     *
+     * @return a builder.
+     */
+    public static <TYPE, KEY, CONTAINER, AGGREGATE> HashGroupingBuilder<TYPE, KEY, CONTAINER, AGGREGATE> builder() {
+        return new HashGroupingBuilder<>();
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.buffer;
+
+import com.conductor.stream.utils.spill.Partitioner;
+import com.conductor.stream.utils.spill.Serializer;
+import com.conductor.stream.utils.spill.SpillFile;
+
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Collector;
+
+/**
+ * This is an iterator that groups an UNSORTED iterator by a key, folding
+ * each group into a collector, without holding more than a fixed number
+ * of groups in memory.
+ *
+ * Items are folded into a hash table of collector containers, one per key,
+ * just like Collectors.groupingBy. Once the table holds `maxGroups` keys,
+ * the items of any key that isn't already in it are spilled to one of a
+ * handful of temporary files, picked by the hash of the key. The keys that
+ * are in the table stay there until the underlying iterator is exhausted,
+ * so their groups are complete once it is, and get emitted. Then each
+ * spilled partition is grouped the same way, one at a time, re-partitioning
+ * with a different hash if it still has too many keys. Since each
+ * key ends up in exactly one partition, every group is complete when it's
+ * emitted, however large the input is. And since every pass finishes at
+ * least `maxGroups` keys, it always gets there, even if the keys' hashes
+ * all collide.
+ *
+ * The groups are emitted in no particular order. Nothing is read from the
+ * underlying iterator until the first hasNext/next call.
+ *
+ * The temporary files are deleted when this is closed, so make sure it is.
+ *
+ * NOTE: this is NOT thread safe.
+ *
+ * @param <TYPE> the type of item in the underlying iterator.
+ * @param <KEY> the type of the item returned by the keying function.
+ * @param <CONTAINER> the type of the collector's mutable container.
+ * @param <AGGREGATE> the type of the collector's result.
+ *
+ * @author Benjamin Shai
+ */
+public class HashGroupingIterator<TYPE, KEY, CONTAINER, AGGREGATE>
+        implements Iterator<Map.Entry<KEY, AGGREGATE>>, AutoCloseable {
+
+    // the number of files each pass spills to
+    private static final int PARTITIONS = 16;
+
+    private final Iterator<TYPE> iterator;
+    private final Function<TYPE, KEY> keyingFunction;
+    private final Collector<? super TYPE, CONTAINER, AGGREGATE> collector;
+    private final BiConsumer<CONTAINER, ? super TYPE> accumulator;
+    private final Serializer<TYPE> serializer;
+    private final int maxGroups;
+    private final boolean compressed;
+    private final Path tempDirectory;
+
+    // spilled partitions that still need to be grouped
+    private final Deque<Partition> partitions;
+    // the groups of the current pass that haven't been emitted yet
+    private Iterator<Map.Entry<KEY, CONTAINER>> groups;
+
+    /**
+     * Creates an iterator.
+     *
+     * @param iterator the iterator to group.
+     * @param keyingFunction the keying function to determine grouping.
+     * @param collector the collector to fold each group into.
+     * @param serializer the serializer used to spill items to disk.
+     * @param maxGroups the maximum number of groups to hold in memory at once.
+     * @param compressed whether or not to compress the spilled partitions.
+     * @param tempDirectory the directory to spill partitions to, or null for
+     *                      the default temporary-file directory.
+     */
+    public HashGroupingIterator(
+            Iterator<TYPE> iterator,
+            Function<TYPE, KEY> keyingFunction,
+            Collector<? super TYPE, CONTAINER, AGGREGATE> collector,
+            Serializer<TYPE> serializer,
+            int maxGroups,
+            boolean compressed,
+            Path tempDirectory) {
+        if (maxGroups < 1) {
+            throw new IllegalArgumentException("Max groups must be at least 1.");
+        }
+        this.iterator = iterator;
+        this.keyingFunction = keyingFunction;
+        this.collector = collector;
+        this.accumulator = collector.accumulator();
+        this.serializer = serializer;
+        this.maxGroups = maxGroups;
+        this.compressed = compressed;
+        this.tempDirectory = tempDirectory;
+        this.partitions = new ArrayDeque<>();
+    }
+
+    /**
+     * Determines whether or not there are groups left to emit. This may
+     * need to group a whole partition, or the whole underlying iterator.
+     *
+     * @return true or false.
+     */
+    @Override
+    public boolean hasNext() {
+        if (groups == null) {
+            groups = group(iterator, 0);
+        }
+        while (!groups.hasNext() && !partitions.isEmpty()) {
+            final Partition partition = partitions.poll();
+            // the partition is read in full by the time we're done grouping
+            // it, so it can be deleted right away
+            try (SpillFile<TYPE> file = partition.file) {
+                groups = group(file.read(), partition.pass);
+            }
+        }
+        return groups.hasNext();
+    }
+
+    /**
+     * Finishes the next group, and returns it along with its key.
+     *
+     * @return the key and the aggregate of the group.
+     */
+    @Override
+    public Map.Entry<KEY, AGGREGATE> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        final Map.Entry<KEY, CONTAINER> group = groups.next();
+        // let go of the container, since it might be big
+        groups.remove();
+        return new AbstractMap.SimpleImmutableEntry<>(group.getKey(), collector.finisher().apply(group.getValue()));
+    }
+
+    /**
+     * Deletes any partitions that were spilled to disk.
+     */
+    @Override
+    public void close() {
+        RuntimeException exception = null;
+        for (Partition partition : partitions) {
+            // make sure we try to delete every partition, even if one fails
+            try {
+                partition.file.close();
+            } catch (RuntimeException e) {
+                if (exception == null) {
+                    exception = e;
+                } else {
+                    exception.addSuppressed(e);
+                }
+            }
+        }
+        partitions.clear();
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    /**
+     * Reads the whole provided iterator, folding the items of the first
+     * `maxGroups` keys, and spilling the rest.
+     *
+     * @param items the items to group.
+     * @param pass how many times these items have been spilled already.
+     * @return the groups that were completed.
+     */
+    private Iterator<Map.Entry<KEY, CONTAINER>> group(Iterator<TYPE> items, int pass) {
+        final Map<KEY, CONTAINER> table = new HashMap<>();
+        // the partitions for this pass, created as they're needed
+        final List<Partition> spilled = new ArrayList<>(Collections.nCopies(PARTITIONS, null));
+
+        while (items.hasNext()) {
+            final TYPE item = items.next();
+            final KEY key = keyingFunction.apply(item);
+            CONTAINER container = table.get(key);
+            if (container == null && table.size() < maxGroups) {
+                container = collector.supplier().get();
+                table.put(key, container);
+            }
+            if (container != null) {
+                accumulator.accept(container, item);
+            } else {
+                final int index = Partitioner.partitionOf(key, pass, PARTITIONS);
+                Partition partition = spilled.get(index);
+                if (partition == null) {
+                    partition = new Partition(new SpillFile<>(tempDirectory, serializer, compressed), pass + 1);
+                    spilled.set(index, partition);
+                    // register it right away, so it's cleaned up even if writing fails
+                    partitions.add(partition);
+                }
+                partition.file.write(item);
+            }
+        }
+        return table.entrySet().iterator();
+    }
+
+    /**
+     * A spilled partition, along with the pass it will be grouped in.
+     */
+    private final class Partition {
+        private final SpillFile<TYPE> file;
+        private final int pass;
+
+        Partition(SpillFile<TYPE> file, int pass) {
+            this.file = file;
+            this.pass = pass;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.buffer;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Collector;
+
+/**
+ * This is an iterator that groups the provided iterator by a key, just
+ * like the KeyedBufferIterator, but folds each group into a collector as
+ * it goes, instead of holding the whole group in a list. Every item is
+ * handed to the collector's accumulator as soon as it's read, and the
+ * group is finished as soon as the key changes. So summing or counting a
+ * group of any size only takes as much memory as the collector does.
+ *
+ * IMPORTANT: the stream must be ordered.
+ *
+ * @param <TYPE> the type of item in the underlying iterator.
+ * @param <KEY> the type of the item returned by the keying function.
+ * @param <CONTAINER> the type of the collector's mutable container.
+ * @param <AGGREGATE> the type of the collector's result.
+ *
+ * @author Benjamin Shai
+ */
+public class KeyedAggregatingIterator<TYPE, KEY, CONTAINER, AGGREGATE> implements Iterator<AGGREGATE> {
+
+    private final Iterator<TYPE> iterator;
+    private final Function<TYPE, KEY> keyingFunction;
+    private final Collector<? super TYPE, CONTAINER, AGGREGATE> collector;
+    private final BiConsumer<CONTAINER, ? super TYPE> accumulator;
+
+    // the first item of the next group, which we had to read to find
+    // out the current group was over
+    private TYPE nextItem;
+    private KEY nextKey;
+    private boolean hasNextItem;
+
+    /**
+     * Creates an iterator.
+     *
+     * @param iterator the underlying iterator.
+     * @param keyingFunction the keying function to determine grouping.
+     * @param collector the collector to fold each group into.
+     */
+    public KeyedAggregatingIterator(
+            Iterator<TYPE> iterator,
+            Function<TYPE, KEY> keyingFunction,
+            Collector<? super TYPE, CONTAINER, AGGREGATE> collector) {
+        this.iterator = iterator;
+        this.keyingFunction = keyingFunction;
+        this.collector = collector;
+        this.accumulator = collector.accumulator();
+    }
+
+    /**
+     * Whether or not there is a group left.
+     *
+     * @return true or false.
+     */
+    @Override
+    public boolean hasNext() {
+        return hasNextItem || iterator.hasNext();
+    }
+
+    /**
+     * Folds the next group into the collector, and returns the result.
+     *
+     * @return the aggregate of the group.
+     */
+    @Override
+    public AGGREGATE next() {
+        if (!hasNextItem) {
+            if (!iterator.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            nextItem = iterator.next();
+            nextKey = keyingFunction.apply(nextItem);
+        }
+        final KEY key = nextKey;
+        final CONTAINER container = collector.supplier().get();
+        accumulator.accept(container, nextItem);
+        hasNextItem = false;
+        // don't hold on to the item any longer than we have to
+        nextItem = null;
+
+        while (iterator.hasNext()) {
+            final TYPE item = iterator.next();
+            final KEY itemKey = keyingFunction.apply(item);
+            // once the key changes, hold on to the item for the next group
+            if (!Objects.equals(key, itemKey)) {
+                nextItem = item;
+                nextKey = itemKey;
+                hasNextItem = true;
+                break;
+            }
+            accumulator.accept(container, item);
+        }
+        return collector.finisher().apply(container);
+    }
+}
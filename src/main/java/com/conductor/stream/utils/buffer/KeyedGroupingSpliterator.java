@@ -0,0 +1,194 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.buffer;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * This spliterator groups the provided spliterator by a key into lists,
+ * just like the KeyedBufferIterator, but it can also be split, so that a
+ * parallel stream can build and process the groups on several threads.
+ * Each group is emitted along with its key, so that it doesn't have to be
+ * worked out again from the items.
+ *
+ * It splits the underlying spliterator wherever that splits, which will
+ * usually be in the middle of a group. To make sure no group is split in
+ * two, the second half then hands the items of its first group over to
+ * the first half, which reads them after its own. If they turn out to
+ * have the same key as the first half's last group, they're simply read
+ * into it, and otherwise they make up a group of their own. Either way,
+ * the groups come out exactly as they would sequentially.
+ *
+ * IMPORTANT: the stream must be ordered.
+ *
+ * @param <TYPE> the type of item in the underlying spliterator.
+ * @param <KEY> the type of the item returned by the keying function.
+ *
+ * @author Benjamin Shai
+ */
+public class KeyedGroupingSpliterator<TYPE, KEY> implements Spliterator<Map.Entry<KEY, List<TYPE>>> {
+
+    private final Spliterator<TYPE> spliterator;
+    private final Function<TYPE, KEY> keyingFunction;
+    // items handed over from the next split, to finish our last group
+    private final List<TYPE> trailing;
+    private int trailingIndex;
+
+    // the first item of the next group, which we had to read to find out
+    // the last group was over, along with its key
+    private TYPE head;
+    private KEY headKey;
+    private boolean hasHead;
+
+    /**
+     * Creates a spliterator.
+     *
+     * @param spliterator the underlying spliterator.
+     * @param keyingFunction the keying function to determine grouping.
+     */
+    public KeyedGroupingSpliterator(Spliterator<TYPE> spliterator, Function<TYPE, KEY> keyingFunction) {
+        this(spliterator, keyingFunction, Collections.emptyList());
+    }
+
+    private KeyedGroupingSpliterator(Spliterator<TYPE> spliterator, Function<TYPE, KEY> keyingFunction, List<TYPE> trailing) {
+        this.spliterator = spliterator;
+        this.keyingFunction = keyingFunction;
+        this.trailing = trailing;
+    }
+
+    /**
+     * Emit the next group and its key, if there are any items left.
+     *
+     * @param action the action to hand the group to.
+     * @return whether or not there was a group.
+     */
+    @Override
+    public boolean tryAdvance(Consumer<? super Map.Entry<KEY, List<TYPE>>> action) {
+        if (!fillHead()) {
+            return false;
+        }
+        final KEY key = headKey;
+        final List<TYPE> group = new ArrayList<>();
+        group.add(takeHead());
+        // read until the key changes, holding on to the item that changes it
+        while (fillHead() && Objects.equals(headKey, key)) {
+            group.add(takeHead());
+        }
+        action.accept(new AbstractMap.SimpleImmutableEntry<>(key, group));
+        return true;
+    }
+
+    /**
+     * Split off the groups at the front.
+     *
+     * @return a spliterator of the groups at the front, or null if this
+     * can't be split.
+     */
+    @Override
+    public Spliterator<Map.Entry<KEY, List<TYPE>>> trySplit() {
+        final Spliterator<TYPE> prefixSpliterator = spliterator.trySplit();
+        if (prefixSpliterator == null) {
+            return null;
+        }
+        final List<TYPE> handedOver = new ArrayList<>();
+        final KeyedGroupingSpliterator<TYPE, KEY> prefix =
+                new KeyedGroupingSpliterator<>(prefixSpliterator, keyingFunction, handedOver);
+        // If we're holding on to an item, it comes before the front half,
+        // so it has to go with it.
+        if (hasHead) {
+            prefix.head = head;
+            prefix.headKey = headKey;
+            prefix.hasHead = true;
+            takeHead();
+        }
+        // Hand over our first group, which may be the end of the front
+        // half's last group.
+        if (fillHead()) {
+            final KEY key = headKey;
+            do {
+                handedOver.add(takeHead());
+            } while (fillHead() && Objects.equals(headKey, key));
+        }
+        return prefix;
+    }
+
+    /**
+     * The number of items left, which is as many groups as there can be.
+     *
+     * @return the estimated number of groups.
+     */
+    @Override
+    public long estimateSize() {
+        final long items = spliterator.estimateSize();
+        if (items == Long.MAX_VALUE) {
+            return Long.MAX_VALUE;
+        }
+        return items + trailing.size() - trailingIndex + (hasHead ? 1 : 0);
+    }
+
+    /**
+     * The groups are never null, and keep the order of the underlying
+     * spliterator.
+     *
+     * @return the characteristics, packed into an int.
+     */
+    @Override
+    public int characteristics() {
+        return Spliterator.NONNULL | spliterator.characteristics() & Spliterator.ORDERED;
+    }
+
+    /**
+     * Makes sure the next unread item is held, if there is one, taking it
+     * from the underlying spliterator, and then from the handed over items.
+     *
+     * @return whether there is one.
+     */
+    private boolean fillHead() {
+        if (hasHead) {
+            return true;
+        }
+        if (!spliterator.tryAdvance(this::setHead)) {
+            if (trailingIndex >= trailing.size()) {
+                return false;
+            }
+            setHead(trailing.get(trailingIndex++));
+        }
+        return true;
+    }
+
+    private void setHead(TYPE item) {
+        head = item;
+        headKey = keyingFunction.apply(item);
+        hasHead = true;
+    }
+
+    private TYPE takeHead() {
+        final TYPE item = head;
+        head = null;
+        headKey = null;
+        hasHead = false;
+        return item;
+    }
+}
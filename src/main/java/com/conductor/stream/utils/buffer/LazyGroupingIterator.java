@@ -0,0 +1,156 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.buffer;
+
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * This is an iterator that groups the provided iterator by a key, just
+ * like the KeyedBufferIterator, but without reading the groups into lists.
+ * Each group is emitted as its key, along with a stream of its items that
+ * reads straight off the underlying iterator. So a group of any size is
+ * never held in memory.
+ *
+ * Since all the groups share the underlying iterator, a group's stream
+ * can only be read until the next group is asked for. Whatever is left of
+ * it is then skipped, and it's empty from then on. So don't hold on to the
+ * groups to read later, read each one before moving on to the next.
+ *
+ * IMPORTANT: the stream must be ordered.
+ *
+ * As such, this iterator shouldn't be used in parallel streams,
+ * as this iterator isn't fully thread safe.
+ *
+ * @param <TYPE> the type of item in the underlying iterator.
+ * @param <KEY> the type of the item returned by the keying function.
+ *
+ * @author Benjamin Shai
+ */
+public class LazyGroupingIterator<TYPE, KEY> implements Iterator<Map.Entry<KEY, Stream<TYPE>>> {
+
+    private final Iterator<TYPE> iterator;
+    private final Function<TYPE, KEY> keyingFunction;
+
+    // the next item off the underlying iterator that no group has read yet,
+    // along with its key
+    private TYPE head;
+    private KEY headKey;
+    private boolean hasHead;
+
+    // the group currently being read, counted so that old groups can tell
+    // they're over
+    private KEY currentKey;
+    private long currentGroup;
+
+    /**
+     * Creates an iterator.
+     *
+     * @param iterator the underlying iterator.
+     * @param keyingFunction the keying function to determine grouping.
+     */
+    public LazyGroupingIterator(Iterator<TYPE> iterator, Function<TYPE, KEY> keyingFunction) {
+        this.iterator = iterator;
+        this.keyingFunction = keyingFunction;
+    }
+
+    /**
+     * Whether or not there is a group left. This skips whatever is left of
+     * the current group.
+     *
+     * @return true or false.
+     */
+    @Override
+    public boolean hasNext() {
+        // skip the rest of the current group, if there is one
+        if (currentGroup > 0) {
+            while (fillHead() && Objects.equals(headKey, currentKey)) {
+                takeHead();
+            }
+        }
+        return fillHead();
+    }
+
+    /**
+     * Starts the next group.
+     *
+     * @return the key of the group, and a stream of its items.
+     */
+    @Override
+    public Map.Entry<KEY, Stream<TYPE>> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        currentKey = headKey;
+        currentGroup++;
+        final Iterator<TYPE> groupIterator = new GroupIterator(currentGroup);
+        final Stream<TYPE> group = StreamSupport.stream(Spliterators.spliteratorUnknownSize(groupIterator, 0), false);
+        return new AbstractMap.SimpleImmutableEntry<>(currentKey, group);
+    }
+
+    /**
+     * Makes sure the next unread item is held, if there is one.
+     *
+     * @return whether there is one.
+     */
+    private boolean fillHead() {
+        if (!hasHead && iterator.hasNext()) {
+            head = iterator.next();
+            headKey = keyingFunction.apply(head);
+            hasHead = true;
+        }
+        return hasHead;
+    }
+
+    private TYPE takeHead() {
+        final TYPE item = head;
+        head = null;
+        hasHead = false;
+        return item;
+    }
+
+    /**
+     * Reads the items of one group, for as long as it's the current group.
+     */
+    private class GroupIterator implements Iterator<TYPE> {
+        private final long group;
+
+        GroupIterator(long group) {
+            this.group = group;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return group == currentGroup && fillHead() && Objects.equals(headKey, currentKey);
+        }
+
+        @Override
+        public TYPE next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return takeHead();
+        }
+    }
+}
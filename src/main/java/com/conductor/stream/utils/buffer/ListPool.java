@@ -0,0 +1,91 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.buffer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This is a pool of lists for the buffers to fill, so that the lists they
+ * emit can be reused, rather than allocating (and garbage collecting) a
+ * new list for every chunk.
+ *
+ * Once you're done with a list you got from a buffer, hand it back with
+ * `release`, and it'll be cleared and filled again by the buffer later
+ * on. Don't hold on to a list, or any view of it, after releasing it.
+ * Lists that are never released are just garbage collected as usual.
+ *
+ * The pool only keeps up to the provided number of lists, and drops any
+ * more that are released. It's thread safe, so lists can be released from
+ * any thread, such as the threads of a parallel stream.
+ *
+ * @param <TYPE> the type of the items in the lists.
+ *
+ * @author Benjamin Shai
+ */
+public class ListPool<TYPE> {
+
+    private final int capacity;
+    private final int maxPooled;
+    private final Queue<List<TYPE>> pooled = new ConcurrentLinkedQueue<>();
+    // the size of the queue, which is slow to count
+    private final AtomicInteger pooledCount = new AtomicInteger();
+
+    /**
+     * Creates a pool.
+     *
+     * @param capacity the capacity of the new lists, which should be about
+     *                 the number of items that go in a list.
+     * @param maxPooled the most lists to keep around.
+     */
+    public ListPool(int capacity, int maxPooled) {
+        this.capacity = capacity;
+        this.maxPooled = maxPooled;
+    }
+
+    /**
+     * Get an empty list, reusing a released one if there are any.
+     *
+     * @return an empty list.
+     */
+    public List<TYPE> acquire() {
+        final List<TYPE> list = pooled.poll();
+        if (list == null) {
+            return new ArrayList<>(capacity);
+        }
+        pooledCount.decrementAndGet();
+        return list;
+    }
+
+    /**
+     * Hand back a list that you're done with, so that it can be reused.
+     *
+     * @param list the list.
+     */
+    public void release(List<TYPE> list) {
+        // only keep the list if there's room for it
+        if (pooledCount.incrementAndGet() > maxPooled) {
+            pooledCount.decrementAndGet();
+            return;
+        }
+        list.clear();
+        pooled.offer(list);
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.buffer;
+
+import java.util.Iterator;
+import java.util.function.ToLongFunction;
+
+/**
+ * This is an implementation of BufferingIterator that groups streams by
+ * a primitive long key, just like the KeyedBufferIterator, but without
+ * boxing the keys or calling equals on them.
+ *
+ * IMPORTANT: the stream must be ordered.
+ *
+ * @param <TYPE> the type of item in the underlying iterator.
+ *
+ * @author Benjamin Shai
+ */
+public class LongKeyedBufferIterator<TYPE> extends BufferingIterator<TYPE> {
+
+    private long currentKey;
+    private final ToLongFunction<TYPE> keyingFunction;
+
+    /**
+     * Creates an iterator.
+     *
+     * @param iterator the underlying iterator.
+     * @param keyingFunction the keying function to determine grouping.
+     */
+    public LongKeyedBufferIterator(Iterator<TYPE> iterator, ToLongFunction<TYPE> keyingFunction) {
+        super(iterator);
+        this.keyingFunction = keyingFunction;
+    }
+
+    /**
+     * Sets up the iterator with the key of the first item.
+     *
+     * @param firstItem the very first item in the iterator, for setting up state.
+     */
+    @Override
+    void setupState(TYPE firstItem) {
+        currentKey = keyingFunction.applyAsLong(firstItem);
+    }
+
+    /**
+     * Determines whether the given item matches the current key.
+     *
+     * @param item the current item to determine whether flush should occur.
+     * @return true or false.
+     */
+    @Override
+    boolean shouldFlush(TYPE item) {
+        final long key = keyingFunction.applyAsLong(item);
+        if (key != currentKey) {
+            // save the new key, and flush the list
+            currentKey = key;
+            return true;
+        }
+        return false;
+    }
+}
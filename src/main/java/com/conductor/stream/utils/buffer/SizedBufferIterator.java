@@ -38,7 +38,18 @@ public class SizedBufferIterator<TYPE> extends BufferingIterator<TYPE> {
      * @param size desired size of each list of items to be emitted.
      */
     public SizedBufferIterator(Iterator<TYPE> iterator, int size) {
-        super(iterator);
+        this(iterator, size, null);
+    }
+
+    /**
+     * Creates an iterator which takes its lists from the provided pool.
+     *
+     * @param iterator underlying iterator.
+     * @param size desired size of each list of items to be emitted.
+     * @param pool the pool of lists, or null to create new lists.
+     */
+    public SizedBufferIterator(Iterator<TYPE> iterator, int size, ListPool<TYPE> pool) {
+        super(iterator, pool);
         this.size = size;
     }
 
@@ -65,4 +76,16 @@ public class SizedBufferIterator<TYPE> extends BufferingIterator<TYPE> {
         // if the modulus is 0, we've hit our max, and we flush the list
         return currentItem == 0;
     }
+
+    /**
+     * Every list but the last holds exactly the size, so start them all
+     * at that capacity (except the first, which is capped).
+     *
+     * @param lastSize the size of the last list flushed.
+     * @return the size.
+     */
+    @Override
+    int nextCapacity(int lastSize) {
+        return size;
+    }
 }
@@ -0,0 +1,241 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.buffer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+/**
+ * This spliterator splits the provided spliterator into lists of the
+ * provided size, just like the SizedBufferIterator, but it can also be
+ * split, so that a parallel stream can build and process the lists on
+ * several threads.
+ *
+ * If the underlying spliterator knows the exact size of its splits
+ * (it's SIZED and SUBSIZED, like one over an array or ArrayList), this
+ * splits it the same way. Since the split won't usually fall on a list
+ * boundary, the first half then borrows the items it needs to finish its
+ * last list from the start of the second half. That way, the lists come
+ * out exactly as they would sequentially.
+ *
+ * Otherwise, splitting reads a batch of lists off the underlying
+ * spliterator, and hands them off as an array to be processed in
+ * parallel, just like the spliterators for iterators in the JDK do. The
+ * batches get bigger with every split.
+ *
+ * @param <TYPE> the type of the items in the underlying spliterator.
+ *
+ * @author Benjamin Shai
+ */
+public class SizedBufferSpliterator<TYPE> implements Spliterator<List<TYPE>> {
+
+    // the number of items in the first batch, when falling back to batches
+    private static final int BATCH_UNIT = 1 << 10;
+    // the most items in a batch
+    private static final int MAX_BATCH = 1 << 25;
+
+    private final Spliterator<TYPE> spliterator;
+    private final int size;
+    private final ListPool<TYPE> pool;
+    // items borrowed from the next split, to finish our last list
+    private final List<TYPE> trailing;
+    private int trailingIndex;
+    // the number of lists in the next batch
+    private int batch;
+    // whether or not a list has been filled, which shows the stream is long
+    private boolean filled;
+
+    /**
+     * Creates a spliterator.
+     *
+     * @param spliterator underlying spliterator.
+     * @param size desired size of each list of items to be emitted.
+     */
+    public SizedBufferSpliterator(Spliterator<TYPE> spliterator, int size) {
+        this(spliterator, size, null);
+    }
+
+    /**
+     * Creates a spliterator which takes its lists from the provided pool.
+     *
+     * @param spliterator underlying spliterator.
+     * @param size desired size of each list of items to be emitted.
+     * @param pool the pool of lists, or null to create new lists.
+     */
+    public SizedBufferSpliterator(Spliterator<TYPE> spliterator, int size, ListPool<TYPE> pool) {
+        this(spliterator, size, pool, Collections.emptyList());
+    }
+
+    private SizedBufferSpliterator(Spliterator<TYPE> spliterator, int size, ListPool<TYPE> pool, List<TYPE> trailing) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("The buffer size must be positive.");
+        }
+        this.spliterator = spliterator;
+        this.size = size;
+        this.pool = pool;
+        this.trailing = trailing;
+    }
+
+    /**
+     * Emit the next list of items, if there are any items left.
+     *
+     * @param action the action to hand the list to.
+     * @return whether or not there was a list.
+     */
+    @Override
+    public boolean tryAdvance(Consumer<? super List<TYPE>> action) {
+        // the list is handed off as is, so it's started at the right size
+        final List<TYPE> list = pool != null ? pool.acquire() : new ArrayList<>(initialCapacity());
+        final Consumer<TYPE> adder = list::add;
+        while (list.size() < size && advanceItem(adder)) {
+            // keep filling the list
+        }
+        filled |= list.size() == size;
+        if (list.isEmpty()) {
+            if (pool != null) {
+                pool.release(list);
+            }
+            return false;
+        }
+        action.accept(list);
+        return true;
+    }
+
+    /**
+     * The capacity to start a list at. If the number of items left is known
+     * exactly, that's the size, but no more than there are items left.
+     * Otherwise, it's the size once a list has been filled, and no more than
+     * the presize cap before then.
+     *
+     * @return the capacity.
+     */
+    int initialCapacity() {
+        if (spliterator.hasCharacteristics(Spliterator.SIZED)) {
+            final long remaining = spliterator.estimateSize() + (trailing.size() - trailingIndex);
+            return (int) Math.min(size, remaining);
+        }
+        return filled ? size : Math.min(size, BufferingIterator.MAX_PRESIZE);
+    }
+
+    /**
+     * Split off the lists at the front.
+     *
+     * @return a spliterator of the lists at the front, or null if this
+     * can't be split.
+     */
+    @Override
+    public Spliterator<List<TYPE>> trySplit() {
+        if (spliterator.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED)) {
+            return splitSized();
+        }
+        return splitBatch();
+    }
+
+    /**
+     * Splits the underlying spliterator, and has the front half borrow the
+     * items it needs to finish its last list from our half.
+     *
+     * @return the spliterator of the front half.
+     */
+    private Spliterator<List<TYPE>> splitSized() {
+        // no point splitting a single list
+        if (spliterator.estimateSize() <= size) {
+            return null;
+        }
+        final Spliterator<TYPE> prefix = spliterator.trySplit();
+        if (prefix == null) {
+            return null;
+        }
+        final int remainder = (int) (prefix.getExactSizeIfKnown() % size);
+        final List<TYPE> borrowed = new ArrayList<>(remainder == 0 ? 0 : size - remainder);
+        if (remainder != 0) {
+            final Consumer<TYPE> adder = borrowed::add;
+            while (borrowed.size() < size - remainder && advanceItem(adder)) {
+                // keep borrowing
+            }
+        }
+        return new SizedBufferSpliterator<>(prefix, size, pool, borrowed);
+    }
+
+    /**
+     * Reads a batch of lists, and hands them off as an array.
+     *
+     * @return a spliterator over the batch.
+     */
+    private Spliterator<List<TYPE>> splitBatch() {
+        // grow the batch by the same number of items every time
+        batch = Math.min(batch + Math.max(1, BATCH_UNIT / size), Math.max(1, MAX_BATCH / size));
+        final List<List<TYPE>> lists = new ArrayList<>(batch);
+        final Consumer<List<TYPE>> adder = lists::add;
+        while (lists.size() < batch && tryAdvance(adder)) {
+            // keep reading lists
+        }
+        if (lists.isEmpty()) {
+            return null;
+        }
+        return Spliterators.spliterator(lists.toArray(), Spliterator.ORDERED | Spliterator.NONNULL);
+    }
+
+    /**
+     * The number of lists left, rounding up for the last partial list.
+     *
+     * @return the estimated number of lists.
+     */
+    @Override
+    public long estimateSize() {
+        final long items = spliterator.estimateSize();
+        if (items == Long.MAX_VALUE) {
+            return Long.MAX_VALUE;
+        }
+        final long total = items + trailing.size() - trailingIndex;
+        return total / size + (total % size == 0 ? 0 : 1);
+    }
+
+    /**
+     * The lists are never null, keep the order of the underlying
+     * spliterator, and are counted exactly if the items are.
+     *
+     * @return the characteristics, packed into an int.
+     */
+    @Override
+    public int characteristics() {
+        return Spliterator.NONNULL
+                | spliterator.characteristics() & (Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED);
+    }
+
+    /**
+     * Hands the next item to the action, taking it from the underlying
+     * spliterator, and then from the borrowed items.
+     *
+     * @param action the action to hand the item to.
+     * @return whether or not there was an item.
+     */
+    private boolean advanceItem(Consumer<? super TYPE> action) {
+        if (spliterator.tryAdvance(action)) {
+            return true;
+        }
+        if (trailingIndex < trailing.size()) {
+            action.accept(trailing.get(trailingIndex++));
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.buffer;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * This iterator should split the provided iterator of doubles into arrays
+ * of the provided size, just like the SizedBufferIterator does with lists,
+ * but without boxing every item.
+ *
+ * Every array but the last is exactly the size. The last one is trimmed
+ * down to the items that are left. The first array is grown as items
+ * arrive, rather than allocated at the full size up front. Once an array
+ * has filled, the rest are allocated at the full size.
+ *
+ * @author Benjamin Shai
+ */
+public class SizedDoubleBufferIterator implements Iterator<double[]> {
+
+    private final PrimitiveIterator.OfDouble iterator;
+    private final int size;
+    // whether or not an array has been filled, which shows the stream is long
+    private boolean filled;
+
+    /**
+     * Creates an iterator.
+     *
+     * @param iterator underlying iterator.
+     * @param size desired size of each array of items to be emitted.
+     */
+    public SizedDoubleBufferIterator(PrimitiveIterator.OfDouble iterator, int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("The buffer size must be positive.");
+        }
+        this.iterator = iterator;
+        this.size = size;
+    }
+
+    /**
+     * Whether or not there is an array of items left.
+     *
+     * @return true or false.
+     */
+    @Override
+    public boolean hasNext() {
+        return iterator.hasNext();
+    }
+
+    /**
+     * Get the next array of items.
+     *
+     * @return an array of items.
+     */
+    @Override
+    public double[] next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        // until an array has filled, don't allocate the whole size up
+        // front, in case there aren't that many items
+        double[] array = new double[filled ? size : Math.min(size, BufferingIterator.MAX_PRESIZE)];
+        int count = 0;
+        while (count < size && iterator.hasNext()) {
+            if (count == array.length) {
+                // grow as items arrive, up to the size
+                array = Arrays.copyOf(array, (int) Math.min(size, 2L * array.length));
+            }
+            array[count++] = iterator.nextDouble();
+        }
+        filled |= count == size;
+        // only the last array can come up short
+        return count == array.length ? array : Arrays.copyOf(array, count);
+    }
+}
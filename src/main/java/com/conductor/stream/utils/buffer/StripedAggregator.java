@@ -0,0 +1,189 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.buffer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+
+/**
+ * This groups items by key into a collector, from many threads at once,
+ * in the spirit of LongAdder.
+ *
+ * Instead of one shared table, which every thread would contend on (and
+ * especially on the containers of hot keys), there are several stripes,
+ * each with its own table and lock. A thread starts at a stripe picked by
+ * its id, and if that stripe is busy, it moves on to the next free one.
+ * So each key may have a container in several stripes, which are combined
+ * with the collector's combiner once all the items are in.
+ *
+ * Items are accepted from any number of threads, but finish must only be
+ * called once they're all done.
+ *
+ * @param <TYPE> the type of the items to group.
+ * @param <KEY> the type of the item returned by the keying function.
+ * @param <CONTAINER> the type of the collector's mutable container.
+ * @param <AGGREGATE> the type of the collector's result.
+ *
+ * @author Benjamin Shai
+ */
+public class StripedAggregator<TYPE, KEY, CONTAINER, AGGREGATE> implements Consumer<TYPE> {
+
+    private final Function<TYPE, KEY> keyingFunction;
+    private final Collector<? super TYPE, CONTAINER, AGGREGATE> collector;
+    private final Supplier<CONTAINER> supplier;
+    private final BiConsumer<CONTAINER, ? super TYPE> accumulator;
+    private final BinaryOperator<CONTAINER> combiner;
+
+    private final List<Stripe> stripes;
+    private final int mask;
+
+    /**
+     * Creates an aggregator.
+     *
+     * @param keyingFunction the keying function to determine grouping.
+     * @param collector the collector to fold each group into. Its combiner
+     *                  is used to merge the stripes.
+     * @param stripes the minimum number of stripes, which is rounded up to a
+     *                power of two. The number of threads that will be
+     *                accepting items is a good choice.
+     */
+    public StripedAggregator(
+            Function<TYPE, KEY> keyingFunction,
+            Collector<? super TYPE, CONTAINER, AGGREGATE> collector,
+            int stripes) {
+        if (stripes < 1) {
+            throw new IllegalArgumentException("Stripes must be at least 1.");
+        }
+        this.keyingFunction = keyingFunction;
+        this.collector = collector;
+        this.supplier = collector.supplier();
+        this.accumulator = collector.accumulator();
+        this.combiner = collector.combiner();
+
+        // a power of two, so a stripe can be picked with a mask
+        final int size = stripes == 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.stripes = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            this.stripes.add(new Stripe());
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * Folds an item into its key's container, in whichever stripe is free.
+     * This can be called from any number of threads.
+     *
+     * @param item the item.
+     */
+    @Override
+    public void accept(TYPE item) {
+        // work out the key before taking a lock
+        final KEY key = keyingFunction.apply(item);
+        final Stripe stripe = lockStripe();
+        try {
+            accumulator.accept(stripe.groups.computeIfAbsent(key, k -> supplier.get()), item);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Moves all the groups of another aggregator into this one.
+     *
+     * @param other the other aggregator, which mustn't be used afterwards.
+     * @return this aggregator.
+     */
+    public StripedAggregator<TYPE, KEY, CONTAINER, AGGREGATE> merge(StripedAggregator<TYPE, KEY, CONTAINER, AGGREGATE> other) {
+        for (Stripe stripe : other.stripes) {
+            stripe.lock.lock();
+            try {
+                // the groups can go in any of our stripes, so just use the first
+                final Stripe target = stripes.get(0);
+                target.lock.lock();
+                try {
+                    stripe.groups.forEach((key, container) -> target.groups.merge(key, container, combiner));
+                } finally {
+                    target.lock.unlock();
+                }
+                stripe.groups.clear();
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Combines every key's containers across the stripes, and finishes them.
+     *
+     * @return each key's aggregate.
+     */
+    public Map<KEY, AGGREGATE> finish() {
+        final Map<KEY, CONTAINER> merged = new HashMap<>();
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                stripe.groups.forEach((key, container) -> merged.merge(key, container, combiner));
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+
+        final Map<KEY, AGGREGATE> result = new HashMap<>(Math.max(16, (int) (merged.size() / .75f) + 1));
+        merged.forEach((key, container) -> result.put(key, collector.finisher().apply(container)));
+        return result;
+    }
+
+    /**
+     * Locks a stripe for the current thread. It tries each stripe in turn,
+     * starting from the thread's own, and only waits if they're all busy.
+     *
+     * @return the locked stripe.
+     */
+    private Stripe lockStripe() {
+        // spread the thread id, since they're usually handed out in order
+        int hash = (int) Thread.currentThread().getId() * 0x9E3779B9;
+        hash ^= hash >>> 16;
+        final int home = hash & mask;
+        for (int i = 0; i <= mask; i++) {
+            final Stripe stripe = stripes.get((home + i) & mask);
+            if (stripe.lock.tryLock()) {
+                return stripe;
+            }
+        }
+        final Stripe stripe = stripes.get(home);
+        stripe.lock.lock();
+        return stripe;
+    }
+
+    /**
+     * A table of containers, and the lock guarding it.
+     */
+    private final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<KEY, CONTAINER> groups = new HashMap<>();
+    }
+}
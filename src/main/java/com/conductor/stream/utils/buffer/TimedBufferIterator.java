@@ -0,0 +1,134 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.buffer;
+
+import com.conductor.stream.utils.misc.PrefetchingIterator;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This iterator should split the provided iterator into lists of the
+ * provided size, but without holding on to any item for longer than the
+ * provided max delay. A list is emitted once it's full, or once the max
+ * delay has passed since its first item was read, whichever comes first.
+ * That way, a slow trickle of items still gets through in good time.
+ *
+ * This can't be done by pulling on the underlying iterator, since its
+ * hasNext call may block for any amount of time waiting for the next item.
+ * Instead, the underlying iterator is read on another thread, through a
+ * PrefetchingIterator reading up to a list's worth of items ahead, and we
+ * only ever wait on that for as long as the current list has left.
+ *
+ * If the underlying iterator throws (even an Error), the items before the
+ * exception are still emitted, and the exception is thrown when the next
+ * list is asked for.
+ *
+ * NOTE: this must be closed, to stop the reading task.
+ *
+ * @param <TYPE> the type of the items in the underlying iterator.
+ *
+ * @author Benjamin Shai
+ */
+public class TimedBufferIterator<TYPE> implements Iterator<List<TYPE>>, AutoCloseable {
+
+    private final PrefetchingIterator<TYPE> iterator;
+    private final int size;
+    private final long maxDelayNanos;
+
+    /**
+     * Creates an iterator, and starts reading the underlying iterator.
+     *
+     * @param iterator underlying iterator.
+     * @param size desired size of each list of items to be emitted.
+     * @param maxDelay the most time to hold on to an item before emitting it.
+     * @param unit the unit of the max delay.
+     * @param executor the executor to run the reading task on.
+     */
+    public TimedBufferIterator(Iterator<TYPE> iterator, int size, long maxDelay, TimeUnit unit, Executor executor) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("The buffer size must be positive.");
+        }
+        // the prefetch queue is allocated up front, so it gets the same cap as
+        // the lists. The consumer drains it while a list fills up anyways.
+        this.iterator = new PrefetchingIterator<>(iterator, executor, Math.min(size, BufferingIterator.MAX_PRESIZE));
+        this.size = size;
+        this.maxDelayNanos = unit.toNanos(maxDelay);
+    }
+
+    /**
+     * Whether or not there is a list of items left. This blocks until the
+     * next item is read, or there turns out not to be one.
+     *
+     * @return true or false.
+     */
+    @Override
+    public boolean hasNext() {
+        return iterator.hasNext();
+    }
+
+    /**
+     * Get the next list of items, once it's full, or the max delay since
+     * its first item has passed.
+     *
+     * @return a list of items.
+     */
+    @Override
+    public List<TYPE> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        // lists are often flushed by the delay long before they're full, so
+        // don't presize them past the cap
+        final List<TYPE> list = new ArrayList<>(Math.min(size, BufferingIterator.MAX_PRESIZE));
+        list.add(iterator.next());
+        // the clock starts with the first item
+        final long deadline = System.nanoTime() + maxDelayNanos;
+
+        while (list.size() < size) {
+            final long remaining = deadline - System.nanoTime();
+            // only wait as long as this list has left
+            if (remaining <= 0 || !iterator.awaitNext(remaining, TimeUnit.NANOSECONDS)) {
+                break;
+            }
+            try {
+                if (!iterator.hasNext()) {
+                    break;
+                }
+            } catch (Throwable e) {
+                // Emit the items we have first, even for an Error. The
+                // prefetching iterator holds on to it, and throws it again
+                // next time.
+                break;
+            }
+            list.add(iterator.next());
+        }
+        return list;
+    }
+
+    /**
+     * Stops reading the underlying iterator.
+     */
+    @Override
+    public void close() {
+        iterator.close();
+    }
+}
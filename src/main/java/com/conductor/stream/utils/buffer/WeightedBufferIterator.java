@@ -0,0 +1,104 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.buffer;
+
+import java.util.Iterator;
+import java.util.function.ToLongFunction;
+
+/**
+ * This iterator should split the provided iterator into lists whose
+ * total weight (say, the size in bytes) is at most the provided max
+ * weight, and optionally, which hold at most the provided max count.
+ *
+ * A list is flushed as soon as the next item would put it over the max
+ * weight, so lists are as full as they can be without going over. An
+ * item that's heavier than the max weight by itself is emitted in a list
+ * of its own, since there's no way to split it.
+ *
+ * @param <TYPE> the type of the items in the underlying iterator.
+ *
+ * @author Benjamin Shai
+ */
+public class WeightedBufferIterator<TYPE> extends BufferingIterator<TYPE> {
+
+    private final long maxWeight;
+    private final ToLongFunction<TYPE> weigher;
+    private final int maxCount;
+    private long currentWeight;
+    private int currentCount;
+
+    /**
+     * Creates an iterator.
+     *
+     * @param iterator underlying iterator.
+     * @param maxWeight the most total weight of each list of items to be emitted.
+     * @param weigher a function which returns the weight of an item.
+     */
+    public WeightedBufferIterator(Iterator<TYPE> iterator, long maxWeight, ToLongFunction<TYPE> weigher) {
+        this(iterator, maxWeight, weigher, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Creates an iterator.
+     *
+     * @param iterator underlying iterator.
+     * @param maxWeight the most total weight of each list of items to be emitted.
+     * @param weigher a function which returns the weight of an item.
+     * @param maxCount the most items in each list of items to be emitted.
+     */
+    public WeightedBufferIterator(Iterator<TYPE> iterator, long maxWeight, ToLongFunction<TYPE> weigher, int maxCount) {
+        super(iterator);
+        if (maxCount <= 0) {
+            throw new IllegalArgumentException("The max count must be positive.");
+        }
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        this.maxCount = maxCount;
+    }
+
+    /**
+     * Sets up the state such that the first item is in the current list.
+     *
+     * @param firstItem the very first item in the iterator, for setting up state.
+     */
+    @Override
+    void setupState(TYPE firstItem) {
+        currentWeight = weigher.applyAsLong(firstItem);
+        currentCount = 1;
+    }
+
+    /**
+     * Flush if adding the item would go over the max weight, or the max
+     * count.
+     *
+     * @param item the current item to determine whether flush should occur.
+     * @return true or false.
+     */
+    @Override
+    boolean shouldFlush(TYPE item) {
+        final long weight = weigher.applyAsLong(item);
+        // if the item doesn't fit, it starts the next list
+        if (currentWeight + weight > maxWeight || currentCount >= maxCount) {
+            currentWeight = weight;
+            currentCount = 1;
+            return true;
+        }
+        currentWeight += weight;
+        currentCount++;
+        return false;
+    }
+}
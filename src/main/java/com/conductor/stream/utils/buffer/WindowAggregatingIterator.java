@@ -0,0 +1,87 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.buffer;
+
+import java.util.Iterator;
+import java.util.function.BiFunction;
+
+/**
+ * This is an iterator that emits an aggregate of each count window of the
+ * underlying iterator. See AbstractWindowingIterator.
+ *
+ * Rather than aggregating each window from scratch, the aggregate is kept
+ * up to date as items enter and leave the window, with the add and remove
+ * functions. So sliding the window costs the same however big it is. A
+ * rolling sum, for example, adds each new item and subtracts each old one.
+ *
+ * NOTE: this is NOT thread safe.
+ *
+ * @param <TYPE> the type of item in the underlying iterator.
+ * @param <AGGREGATE> the type of the aggregate.
+ *
+ * @author Benjamin Shai
+ */
+public class WindowAggregatingIterator<TYPE, AGGREGATE> extends AbstractWindowingIterator<TYPE, AGGREGATE> {
+
+    private final BiFunction<AGGREGATE, TYPE, AGGREGATE> addFunction;
+    private final BiFunction<AGGREGATE, TYPE, AGGREGATE> removeFunction;
+
+    private AGGREGATE aggregate;
+
+    /**
+     * Creates an iterator.
+     *
+     * @param iterator the underlying iterator.
+     * @param size the number of items in each window.
+     * @param step the number of items the window moves by.
+     * @param identity the aggregate of an empty window.
+     * @param addFunction a function which adds an item to an aggregate.
+     * @param removeFunction a function which removes an item from an aggregate.
+     */
+    public WindowAggregatingIterator(
+            Iterator<TYPE> iterator,
+            int size,
+            int step,
+            AGGREGATE identity,
+            BiFunction<AGGREGATE, TYPE, AGGREGATE> addFunction,
+            BiFunction<AGGREGATE, TYPE, AGGREGATE> removeFunction) {
+        super(iterator, size, step);
+        this.aggregate = identity;
+        this.addFunction = addFunction;
+        this.removeFunction = removeFunction;
+    }
+
+    @Override
+    void onAdd(TYPE item) {
+        aggregate = addFunction.apply(aggregate, item);
+    }
+
+    @Override
+    void onRemove(TYPE item) {
+        aggregate = removeFunction.apply(aggregate, item);
+    }
+
+    /**
+     * Gets the aggregate of the current window.
+     *
+     * @return the aggregate.
+     */
+    @Override
+    AGGREGATE window() {
+        return aggregate;
+    }
+}
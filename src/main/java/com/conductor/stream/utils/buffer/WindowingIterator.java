@@ -0,0 +1,95 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.buffer;
+
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * This is an iterator that emits count windows of the underlying iterator,
+ * as lists. See AbstractWindowingIterator.
+ *
+ * The lists are read-only views of the shared ring buffer, rather than
+ * copies, so each one can only be read until the iterator is advanced
+ * again, by either hasNext or next. Reading one after that throws an
+ * IllegalStateException. Copy a window (e.g. into an ArrayList) to keep it.
+ *
+ * NOTE: this is NOT thread safe.
+ *
+ * @param <TYPE> the type of item in the underlying iterator.
+ *
+ * @author Benjamin Shai
+ */
+public class WindowingIterator<TYPE> extends AbstractWindowingIterator<TYPE, List<TYPE>> {
+
+    /**
+     * Creates an iterator.
+     *
+     * @param iterator the underlying iterator.
+     * @param size the number of items in each window.
+     * @param step the number of items the window moves by.
+     */
+    public WindowingIterator(Iterator<TYPE> iterator, int size, int step) {
+        super(iterator, size, step);
+    }
+
+    /**
+     * Gets a view of the ring buffer, which is valid until the iterator
+     * reads any further.
+     *
+     * @return the window.
+     */
+    @Override
+    List<TYPE> window() {
+        return new View(modifications());
+    }
+
+    /**
+     * A read-only view of the current window.
+     */
+    private final class View extends AbstractList<TYPE> implements RandomAccess {
+        private final long modifications;
+
+        View(long modifications) {
+            this.modifications = modifications;
+        }
+
+        @Override
+        public TYPE get(int index) {
+            checkCurrent();
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+            }
+            return WindowingIterator.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            checkCurrent();
+            return WindowingIterator.this.size();
+        }
+
+        private void checkCurrent() {
+            // once the iterator reads ahead, the ring buffer holds different items
+            if (modifications != modifications()) {
+                throw new IllegalStateException("A window can only be read until the iterator is advanced.");
+            }
+        }
+    }
+}
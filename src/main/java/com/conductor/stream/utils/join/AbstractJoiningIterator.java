@@ -0,0 +1,488 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.join;
+
+import com.conductor.stream.utils.seek.SeekableSortedSource;
+import com.conductor.stream.utils.spill.Serializer;
+import com.conductor.stream.utils.spill.SpillFile;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+
+/**
+ * This is the sort-merge join behind the JoiningIterator (and its
+ * primitive-keyed variants). It walks both sides in order, and leaves
+ * everything to do with keys -- extracting them, comparing them and
+ * seeking to them -- to its subclasses, so that keys can be held as
+ * objects or as primitives.
+ *
+ * The key of the item at the head of each side is extracted once, and
+ * kept until that side advances, however many times it gets compared.
+ *
+ * Implement the key methods to use this.
+ *
+ * @param <LEFT_VALUE> the type of the items in the left hand
+ *                     side iterator.
+ * @param <RIGHT_VALUE> the type of the items in the right hand
+ *                      side iterator.
+ * @param <RESULT> the type of the items in the resulting iterator.
+ *
+ * @author Benjamin Shai
+ */
+abstract class AbstractJoiningIterator<LEFT_VALUE, RIGHT_VALUE, RESULT> implements Iterator<RESULT>, AutoCloseable {
+
+    private final SeekableSortedSource<?, LEFT_VALUE> leftHandSide;
+    private final SeekableSortedSource<?, RIGHT_VALUE> rightHandSide;
+    private final BiFunction<LEFT_VALUE, RIGHT_VALUE, RESULT> joinFunction;
+    private final JoinType joinType;
+    private final boolean manyToMany;
+    private final int rightHandRunLimit;
+    private final Serializer<RIGHT_VALUE> rightHandSerializer;
+
+    // Whether the subclass is holding the key of the item currently at
+    // the head of each side. These get reset whenever that side advances.
+    private boolean leftKeyCached;
+    private boolean rightKeyCached;
+
+    // In many-to-many mode, these hold the run of right items that share
+    // the current key, either in memory or (once the run gets too long) on
+    // disk, along with the left item currently being joined to it. The key
+    // of the run itself is held by the subclass.
+    private List<RIGHT_VALUE> run;
+    private SpillFile<RIGHT_VALUE> spilledRun;
+    private LEFT_VALUE runLeftItem;
+    private Iterator<RIGHT_VALUE> runIterator;
+
+    // Since we don't know if we have a next item for the hasNext call
+    // until we actually try to join it (we can't poll the two sides
+    // for their hasNext-ability because what if it's a left join and
+    // we only have items in the right? what if it's an inner join and
+    // we only have full streams of non-matching items?) so we cache
+    // the next item in every hasNext call, and return it in the next
+    // call. This is that cached item.
+    private AtomicReference<RESULT> nextItem;
+
+    /**
+     * Creates a joining iterator.
+     *
+     * @param leftHandSide the left side source to join.
+     * @param rightHandSide the right side source to join.
+     * @param joinFunction a function which join the values from the two sources.
+     * @param joinType the type of join to perform -- left, outer, inner,
+     *                 left semi, or left anti.
+     * @param manyToMany whether to join every left item to every right item
+     *                   with the same key.
+     * @param rightHandRunLimit in many-to-many mode, the maximum number of
+     *                          right items with the same key to hold in memory.
+     * @param rightHandSerializer in many-to-many mode, a serializer for
+     *                            spilling longer runs to disk, or null
+     *                            to reject such runs instead.
+     */
+    AbstractJoiningIterator(
+            SeekableSortedSource<?, LEFT_VALUE> leftHandSide,
+            SeekableSortedSource<?, RIGHT_VALUE> rightHandSide,
+            BiFunction<LEFT_VALUE, RIGHT_VALUE, RESULT> joinFunction,
+            JoinType joinType,
+            boolean manyToMany,
+            int rightHandRunLimit,
+            Serializer<RIGHT_VALUE> rightHandSerializer) {
+        if (rightHandRunLimit < 1) {
+            throw new IllegalArgumentException("Right-hand-side run limit must be at least 1.");
+        }
+        this.leftHandSide = leftHandSide;
+        this.rightHandSide = rightHandSide;
+        this.joinFunction = joinFunction;
+        this.joinType = joinType;
+        this.manyToMany = manyToMany;
+        this.rightHandRunLimit = rightHandRunLimit;
+        this.rightHandSerializer = rightHandSerializer;
+    }
+
+    /**
+     * Extracts and holds on to the key of the item at the head of the left
+     * side, until it's replaced by the next one.
+     *
+     * @param left the left item.
+     */
+    abstract void extractLeftKey(LEFT_VALUE left);
+
+    /**
+     * Extracts and holds on to the key of the item at the head of the right
+     * side, until it's replaced by the next one.
+     *
+     * @param right the right item.
+     */
+    abstract void extractRightKey(RIGHT_VALUE right);
+
+    /**
+     * Compares the held left key to the held right key.
+     *
+     * @return a negative number, zero, or a positive number as the left key
+     * is less than, equal to, or greater than the right key.
+     */
+    abstract int compareKeys();
+
+    /**
+     * Holds on to the current left key as the key of a many-to-many run.
+     */
+    abstract void startRunKey();
+
+    /**
+     * Compares the held left key to the run key.
+     *
+     * @return whether they're equal.
+     */
+    abstract boolean leftKeyInRun();
+
+    /**
+     * Compares the held right key to the run key.
+     *
+     * @return whether they're equal.
+     */
+    abstract boolean rightKeyInRun();
+
+    /**
+     * Gets the run key, for error messages.
+     *
+     * @return the run key.
+     */
+    abstract Object getRunKey();
+
+    /**
+     * Skips the left side to the first item whose key isn't less than the
+     * held right key. This is only called when the held left key is less
+     * than the held right key.
+     *
+     * @return whether the key of the new head of the left side is now held,
+     * which saves extracting it again.
+     */
+    abstract boolean seekLeftToRightKey();
+
+    /**
+     * Skips the right side to the first item whose key isn't less than the
+     * held left key. This is only called when the held right key is less
+     * than the held left key.
+     *
+     * @return whether the key of the new head of the right side is now held,
+     * which saves extracting it again.
+     */
+    abstract boolean seekRightToLeftKey();
+
+    /**
+     * Determines whether there are items left to emit.
+     *
+     * @return true or false.
+     */
+    @Override
+    public boolean hasNext() {
+        // if we already found the next item, and nobody has taken it yet,
+        // hang on to it rather than skipping past it.
+        if (this.nextItem == null) {
+            this.nextItem = getNextJoinedItem();
+        }
+        // if the item is null, we must have exhausted our supply of
+        // items. If not, we're good for the next next call.
+        return this.nextItem != null;
+    }
+
+    /**
+     * Obtains the next joined item, applying the joining function.
+     *
+     * @return the item.
+     */
+    @Override
+    public RESULT next() {
+        // if someone called next without calling hasNext, we won't
+        // have a nextItem. Attempt to get the nextItem, following
+        // the contract of Iterator (throw an exception if there
+        // isn't one).
+        if (!this.hasNext()) {
+            throw new NoSuchElementException();
+        }
+        // now we need to null out nextItem so that people can't call
+        // next twice without hasNext and get the same item.
+        final RESULT returnItem = this.nextItem.get();
+        this.nextItem = null;
+        return returnItem;
+    }
+
+    /**
+     * Deletes the current run of right items, if it was spilled to disk,
+     * and closes both sides.
+     */
+    @Override
+    public void close() {
+        try {
+            clearRun();
+        } finally {
+            try {
+                leftHandSide.close();
+            } finally {
+                rightHandSide.close();
+            }
+        }
+    }
+
+    /**
+     * Computes the actual join, and finds the next appropriate
+     * joined item.
+     *
+     * @return the joined item (which may be null) wrapped in a
+     * reference, to protect against null items being improperly
+     * handled, or null if no next item can be found.
+     */
+    private AtomicReference<RESULT> getNextJoinedItem() {
+        // Get the next available items. Peek so we don't consume.
+        // At any time, one side can be empty. Make sure to check for
+        // hasNext first.
+        boolean leftHasNext = leftHandSide.hasNext();
+        boolean rightHasNext = rightHandSide.hasNext();
+
+        while (leftHasNext || rightHasNext) {
+            // If we're in the middle of joining a run of equal keys, keep
+            // going until it's done.
+            if (runIterator != null) {
+                final AtomicReference<RESULT> joined = getNextRunItem();
+                if (joined != null) {
+                    return joined;
+                }
+                leftHasNext = leftHandSide.hasNext();
+                rightHasNext = rightHandSide.hasNext();
+                continue;
+            }
+
+            // Once the left side is exhausted, only an outer join has
+            // anything left to emit, so don't bother rolling through the
+            // rest of the right side. Likewise, inner and semi joins are
+            // done once the right side is exhausted.
+            if (!leftHasNext && joinType != JoinType.OUTER) {
+                return null;
+            }
+            if (!rightHasNext && (joinType == JoinType.INNER || joinType == JoinType.LEFT_SEMI)) {
+                return null;
+            }
+
+            // so here's the deal. We want to be friendly to sides that
+            // have been completed, which have no item to take a key from.
+            // We're proactive about heading off this issue.
+            final int comparison;
+            if (!leftHasNext) {
+                // treat left side missing the same as we treat as right side
+                // being "smaller"
+                comparison = 1;
+            } else if (!rightHasNext) {
+                // ... and vice versa
+                comparison = -1;
+            } else {
+                // since we know both sides have an item, we can compute the
+                // ordering. Only a side that has advanced since the last
+                // comparison needs its key extracted again.
+                cacheLeftKey();
+                cacheRightKey();
+                comparison = compareKeys();
+            }
+
+            // Depending on the join type, we have different criteria for
+            // how we join (and whether we can join). The one thing in
+            // common is that if the items are equal, always join them.
+            if (comparison == 0) {
+                // semi and anti joins only care whether there's a match, so
+                // leave the right item in place for any following left items
+                // with the same key.
+                if (joinType == JoinType.LEFT_SEMI) {
+                    return new AtomicReference<>(asResult(nextLeft()));
+                } else if (joinType == JoinType.LEFT_ANTI) {
+                    nextLeft();
+                } else if (manyToMany) {
+                    // in many-to-many mode, gather up all the right items with
+                    // this key, and start joining them to the left items.
+                    startRun();
+                    continue;
+                } else {
+                    // apply the join function and consume the item.
+                    return new AtomicReference<>(joinFunction.apply(nextLeft(), nextRight()));
+                }
+            }
+
+            // now we know the keys aren't equal. That means we've got an
+            // uneven join. We need to decide which side to poll to look
+            // for the matching item, and decide what to do with the
+            // unmatched items. That will depend on the join type.
+
+            // if the left side item is smaller than the right side item,
+            // then roll the left looking for a matching item for the
+            // right side.
+            else if (comparison < 0) {
+                // we know the left is smaller. If the join type is left
+                // or outer, we want the left item alone
+                if (joinType == JoinType.OUTER || joinType == JoinType.LEFT) {
+                    return new AtomicReference<>(joinFunction.apply(nextLeft(), null));
+                } else if (joinType == JoinType.LEFT_ANTI) {
+                    // if it's an anti join, the left item has no match, so
+                    // it's exactly what we're looking for.
+                    return new AtomicReference<>(asResult(nextLeft()));
+                } else {
+                    // if it's an inner or semi join, none of the left items
+                    // before the right item's key can match, so skip them,
+                    // and try again.
+                    leftKeyCached = seekLeftToRightKey();
+                }
+            }
+
+            // if the right side item is smaller than the left side item,
+            // then roll the right looking for a matching item for the
+            // left side.
+            else {
+                // we know the right is smaller. If the join type is outer,
+                // we want the right item alone
+                if (joinType == JoinType.OUTER) {
+                    return new AtomicReference<>(joinFunction.apply(null, nextRight()));
+                } else {
+                    // for any other join, none of the right items before
+                    // the left item's key are of any use, so skip them,
+                    // and try again.
+                    rightKeyCached = seekRightToLeftKey();
+                }
+            }
+            // if we've made it this far without finding a match,
+            // rev the hasNexts and try again
+            leftHasNext = leftHandSide.hasNext();
+            rightHasNext = rightHandSide.hasNext();
+        }
+        // the last left item may still have a run to finish
+        if (runIterator != null) {
+            return getNextRunItem();
+        }
+        // if we somehow exited the loop without a result, we must
+        // have exhausted both streams without finding a match.
+        // return null in that case.
+        return null;
+    }
+
+    private void cacheLeftKey() {
+        if (!leftKeyCached) {
+            extractLeftKey(leftHandSide.peek());
+            leftKeyCached = true;
+        }
+    }
+
+    private void cacheRightKey() {
+        if (!rightKeyCached) {
+            extractRightKey(rightHandSide.peek());
+            rightKeyCached = true;
+        }
+    }
+
+    private LEFT_VALUE nextLeft() {
+        leftKeyCached = false;
+        return leftHandSide.next();
+    }
+
+    private RIGHT_VALUE nextRight() {
+        rightKeyCached = false;
+        return rightHandSide.next();
+    }
+
+    /**
+     * Semi and anti joins emit the left items as is, in which case the
+     * result type is the left item type.
+     *
+     * @param left the left item.
+     * @return the left item, as a result.
+     */
+    @SuppressWarnings("unchecked")
+    private RESULT asResult(LEFT_VALUE left) {
+        return (RESULT) left;
+    }
+
+    /**
+     * Consumes all the right items with the current left key into the run,
+     * and starts joining them to the current left item.
+     */
+    private void startRun() {
+        startRunKey();
+        run = new ArrayList<>();
+        while (rightHandSide.hasNext() && rightInRun()) {
+            final RIGHT_VALUE right = nextRight();
+            if (spilledRun != null) {
+                spilledRun.write(right);
+            } else if (run.size() < rightHandRunLimit) {
+                run.add(right);
+            } else if (rightHandSerializer != null) {
+                // the run is too long to hold on to, move it to disk
+                spilledRun = new SpillFile<>(null, rightHandSerializer, false);
+                run.forEach(spilledRun::write);
+                spilledRun.write(right);
+                run = null;
+            } else {
+                throw new IllegalStateException(String.format(
+                        "More than %d right-hand-side items share the key %s.", rightHandRunLimit, getRunKey()));
+            }
+        }
+        runLeftItem = nextLeft();
+        runIterator = iterateRun();
+    }
+
+    /**
+     * Gets the next item of the cross product of the current run with the
+     * left items that share its key, and cleans the run up once that's done.
+     *
+     * @return the joined item wrapped in a reference, or null if the run is
+     * done.
+     */
+    private AtomicReference<RESULT> getNextRunItem() {
+        // move on to the next left item once this one has seen the whole run
+        if (!runIterator.hasNext() && leftHandSide.hasNext() && leftInRun()) {
+            runLeftItem = nextLeft();
+            runIterator = iterateRun();
+        }
+        if (runIterator.hasNext()) {
+            return new AtomicReference<>(joinFunction.apply(runLeftItem, runIterator.next()));
+        }
+        clearRun();
+        return null;
+    }
+
+    private boolean leftInRun() {
+        cacheLeftKey();
+        return leftKeyInRun();
+    }
+
+    private boolean rightInRun() {
+        cacheRightKey();
+        return rightKeyInRun();
+    }
+
+    private Iterator<RIGHT_VALUE> iterateRun() {
+        return spilledRun == null ? run.iterator() : spilledRun.read();
+    }
+
+    private void clearRun() {
+        run = null;
+        runLeftItem = null;
+        runIterator = null;
+        if (spilledRun != null) {
+            final SpillFile<RIGHT_VALUE> spillFile = spilledRun;
+            spilledRun = null;
+            spillFile.close();
+        }
+    }
+}
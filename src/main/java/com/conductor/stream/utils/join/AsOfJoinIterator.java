@@ -0,0 +1,236 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.join;
+
+import com.conductor.stream.utils.misc.PeekingIterator;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * This is an iterator that joins two streams of ordered data "as of" the
+ * left key: each left item is joined to the latest right item whose key
+ * is at or before the left item's key -- the last known value at that
+ * point, say the price of a stock at the time of a trade.
+ *
+ * It works in a single forward pass over both sides. For each left item,
+ * every right item up to its key is read, and remembered as the latest
+ * right item of its partition (the stock, in the example), replacing the
+ * one before it. So only one right item per partition is held in memory.
+ * Without partitioning functions, all items are in the same partition,
+ * and only the very last right item is held.
+ *
+ * Optionally, the last right item can be ignored once it's too stale.
+ * The staleness function takes a left key, and returns the oldest right
+ * key it will still accept.
+ *
+ * The supported join types are inner, where left items without a right
+ * item are dropped, left, where they're joined to null, and left semi and
+ * left anti. Outer joins aren't supported, as most right items are just
+ * superseded rather than unmatched.
+ *
+ * As such, this iterator shouldn't be used in parallel streams,
+ * as this iterator isn't fully thread safe.
+ *
+ * @param <KEY> the type of the key object.
+ * @param <LEFT_VALUE> the type of the items in the left hand
+ *                     side iterator.
+ * @param <RIGHT_VALUE> the type of the items in the right hand
+ *                      side iterator.
+ * @param <RESULT> the type of the items in the resulting iterator.
+ *
+ * @author Benjamin Shai
+ */
+public class AsOfJoinIterator<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> implements Iterator<RESULT> {
+
+    private final Iterator<LEFT_VALUE> leftHandSide;
+    private final PeekingIterator<RIGHT_VALUE> rightHandSide;
+    private final Comparator<KEY> ordering;
+    private final Function<LEFT_VALUE, KEY> leftHandKeyingFunction;
+    private final Function<RIGHT_VALUE, KEY> rightHandKeyingFunction;
+    private final Function<LEFT_VALUE, ?> leftHandPartitioningFunction;
+    private final Function<RIGHT_VALUE, ?> rightHandPartitioningFunction;
+    private final Function<KEY, KEY> staleness;
+    private final BiFunction<LEFT_VALUE, RIGHT_VALUE, RESULT> joinFunction;
+    private final JoinType joinType;
+
+    // the latest right item seen for every partition
+    private final Map<Object, Latest<RIGHT_VALUE, KEY>> latest = new HashMap<>();
+
+    // the next right item, with its key, once it's been peeked at
+    private Latest<RIGHT_VALUE, KEY> peeked;
+
+    private RESULT nextItem;
+    private boolean nextItemReady;
+
+    /**
+     * Creates a new as-of joining iterator.
+     *
+     * NOTE - your join function needs to handle null right values if you're
+     * using a left join. Semi and anti joins never call the join function,
+     * and require the result type to be the left item type.
+     *
+     * @param leftHandSide the left side iterator to join.
+     * @param rightHandSide the right side iterator to join.
+     * @param ordering a comparator which specifies the relative ordering
+     *                 of both iterators.
+     * @param leftHandKeyingFunction a function which returns the key of a
+     *                               left item.
+     * @param rightHandKeyingFunction a function which returns the key of a
+     *                                right item.
+     * @param leftHandPartitioningFunction a function which returns the
+     *                                     partition of a left item, or null
+     *                                     to not partition.
+     * @param rightHandPartitioningFunction a function which returns the
+     *                                      partition of a right item, or null
+     *                                      to not partition.
+     * @param staleness a function which returns the oldest right key a left
+     *                  key accepts, or null to accept any.
+     * @param joinFunction a function which join the values from the two sides.
+     * @param joinType the type of join to perform -- inner, left, left semi,
+     *                 or left anti.
+     */
+    public AsOfJoinIterator(
+            Iterator<LEFT_VALUE> leftHandSide,
+            Iterator<RIGHT_VALUE> rightHandSide,
+            Comparator<KEY> ordering,
+            Function<LEFT_VALUE, KEY> leftHandKeyingFunction,
+            Function<RIGHT_VALUE, KEY> rightHandKeyingFunction,
+            Function<LEFT_VALUE, ?> leftHandPartitioningFunction,
+            Function<RIGHT_VALUE, ?> rightHandPartitioningFunction,
+            Function<KEY, KEY> staleness,
+            BiFunction<LEFT_VALUE, RIGHT_VALUE, RESULT> joinFunction,
+            JoinType joinType) {
+        if (joinType == JoinType.OUTER) {
+            throw new IllegalArgumentException("As-of joins don't support outer joins.");
+        }
+        if ((leftHandPartitioningFunction == null) != (rightHandPartitioningFunction == null)) {
+            throw new IllegalArgumentException("Either both sides or neither side must be partitioned.");
+        }
+        this.leftHandSide = leftHandSide;
+        this.rightHandSide = new PeekingIterator<>(rightHandSide);
+        this.ordering = ordering;
+        this.leftHandKeyingFunction = leftHandKeyingFunction;
+        this.rightHandKeyingFunction = rightHandKeyingFunction;
+        this.leftHandPartitioningFunction = leftHandPartitioningFunction;
+        this.rightHandPartitioningFunction = rightHandPartitioningFunction;
+        this.staleness = staleness;
+        this.joinFunction = joinFunction;
+        this.joinType = joinType;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!nextItemReady && leftHandSide.hasNext()) {
+            joinNext(leftHandSide.next());
+        }
+        return nextItemReady;
+    }
+
+    @Override
+    public RESULT next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        final RESULT result = nextItem;
+        nextItem = null;
+        nextItemReady = false;
+        return result;
+    }
+
+    /**
+     * Joins a left item to the latest right item of its partition, if it
+     * has one that isn't too stale.
+     *
+     * @param left the left item.
+     */
+    private void joinNext(LEFT_VALUE left) {
+        final KEY key = leftHandKeyingFunction.apply(left);
+
+        // catch the right side up to the left item
+        while (rightHandSide.hasNext()) {
+            if (peeked == null) {
+                final RIGHT_VALUE right = rightHandSide.peek();
+                peeked = new Latest<>(rightHandKeyingFunction.apply(right), right);
+            }
+            if (ordering.compare(peeked.key, key) > 0) {
+                break;
+            }
+            rightHandSide.next();
+            latest.put(partition(rightHandPartitioningFunction, peeked.item), peeked);
+            peeked = null;
+        }
+
+        Latest<RIGHT_VALUE, KEY> match = latest.get(partition(leftHandPartitioningFunction, left));
+        if (match != null && staleness != null && ordering.compare(match.key, staleness.apply(key)) < 0) {
+            match = null;
+        }
+
+        if (joinType == JoinType.LEFT_SEMI) {
+            if (match != null) {
+                setNextItem(asResult(left));
+            }
+        } else if (joinType == JoinType.LEFT_ANTI) {
+            if (match == null) {
+                setNextItem(asResult(left));
+            }
+        } else if (match != null) {
+            setNextItem(joinFunction.apply(left, match.item));
+        } else if (joinType == JoinType.LEFT) {
+            setNextItem(joinFunction.apply(left, null));
+        }
+    }
+
+    private void setNextItem(RESULT result) {
+        nextItem = result;
+        nextItemReady = true;
+    }
+
+    private static <TYPE> Object partition(Function<TYPE, ?> partitioningFunction, TYPE item) {
+        return partitioningFunction == null ? null : partitioningFunction.apply(item);
+    }
+
+    /**
+     * Semi and anti joins emit the left items as is, in which case the
+     * result type is the left item type.
+     *
+     * @param left the left item.
+     * @return the left item, as a result.
+     */
+    @SuppressWarnings("unchecked")
+    private RESULT asResult(LEFT_VALUE left) {
+        return (RESULT) left;
+    }
+
+    /**
+     * A right item, along with its key.
+     */
+    private static class Latest<TYPE, KEY> {
+        private final KEY key;
+        private final TYPE item;
+
+        Latest(KEY key, TYPE item) {
+            this.key = key;
+            this.item = item;
+        }
+    }
+}
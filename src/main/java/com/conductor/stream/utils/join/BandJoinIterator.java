@@ -0,0 +1,277 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.join;
+
+import com.conductor.stream.utils.misc.PeekingIterator;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * This is an iterator that joins two streams of ordered data, where the
+ * keys don't have to be equal, just close enough: each left item is
+ * joined to every right item whose key falls within a band around the
+ * left item's key (say, timestamps within 50ms of each other).
+ *
+ * The band is given by two functions, which take a left key and return
+ * the lowest and highest right keys it matches (inclusive). As the left
+ * keys go up, so must both ends of the band, which is the case for any
+ * fixed tolerance.
+ *
+ * The right items within the band are kept in a sliding window. Right
+ * items are added to it as the top of the band reaches them, and evicted
+ * as soon as the bottom of the band passes them, since no later left item
+ * can match them either. So only about a band's worth of right items is
+ * held in memory, no matter how long the streams are.
+ *
+ * The join types work just as they do for the JoiningIterator, with a
+ * match meaning a right item within the band. For outer joins, right
+ * items that never matched are emitted alone as they're evicted.
+ *
+ * Keys can't be null.
+ *
+ * As such, this iterator shouldn't be used in parallel streams,
+ * as this iterator isn't fully thread safe.
+ *
+ * @param <KEY> the type of the key object.
+ * @param <LEFT_VALUE> the type of the items in the left hand
+ *                     side iterator.
+ * @param <RIGHT_VALUE> the type of the items in the right hand
+ *                      side iterator.
+ * @param <RESULT> the type of the items in the resulting iterator.
+ *
+ * @author Benjamin Shai
+ */
+public class BandJoinIterator<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> implements Iterator<RESULT> {
+
+    private final Iterator<LEFT_VALUE> leftHandSide;
+    private final PeekingIterator<RIGHT_VALUE> rightHandSide;
+    private final Comparator<KEY> ordering;
+    private final Function<LEFT_VALUE, KEY> leftHandKeyingFunction;
+    private final Function<RIGHT_VALUE, KEY> rightHandKeyingFunction;
+    private final Function<KEY, KEY> lowerBound;
+    private final Function<KEY, KEY> upperBound;
+    private final BiFunction<LEFT_VALUE, RIGHT_VALUE, RESULT> joinFunction;
+    private final JoinType joinType;
+
+    // the right items within the band of the last left item, in order
+    private final Deque<WindowEntry<RIGHT_VALUE, KEY>> window = new ArrayDeque<>();
+
+    // the key of the next right item, once extracted
+    private KEY rightHandKey;
+    private boolean rightKeyCached;
+
+    // the results we've worked out, but not handed out yet
+    private Iterator<RESULT> pending = Collections.emptyIterator();
+
+    /**
+     * Creates a new band joining iterator.
+     *
+     * NOTE - your join function needs to handle null values if you're using
+     * any join type other than inner. Semi and anti joins never call the join
+     * function, and require the result type to be the left item type.
+     *
+     * @param leftHandSide the left side iterator to join.
+     * @param rightHandSide the right side iterator to join.
+     * @param ordering a comparator which specifies the relative ordering
+     *                 of both iterators.
+     * @param leftHandKeyingFunction a function which returns the key of a
+     *                               left item.
+     * @param rightHandKeyingFunction a function which returns the key of a
+     *                                right item.
+     * @param lowerBound a function which returns the lowest right key a
+     *                   left key matches.
+     * @param upperBound a function which returns the highest right key a
+     *                   left key matches.
+     * @param joinFunction a function which join the values from the two sides.
+     * @param joinType the type of join to perform -- left, outer, inner,
+     *                 left semi, or left anti.
+     */
+    public BandJoinIterator(
+            Iterator<LEFT_VALUE> leftHandSide,
+            Iterator<RIGHT_VALUE> rightHandSide,
+            Comparator<KEY> ordering,
+            Function<LEFT_VALUE, KEY> leftHandKeyingFunction,
+            Function<RIGHT_VALUE, KEY> rightHandKeyingFunction,
+            Function<KEY, KEY> lowerBound,
+            Function<KEY, KEY> upperBound,
+            BiFunction<LEFT_VALUE, RIGHT_VALUE, RESULT> joinFunction,
+            JoinType joinType) {
+        this.leftHandSide = leftHandSide;
+        this.rightHandSide = new PeekingIterator<>(rightHandSide);
+        this.ordering = ordering;
+        this.leftHandKeyingFunction = leftHandKeyingFunction;
+        this.rightHandKeyingFunction = rightHandKeyingFunction;
+        this.lowerBound = lowerBound;
+        this.upperBound = upperBound;
+        this.joinFunction = joinFunction;
+        this.joinType = joinType;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!pending.hasNext()) {
+            if (!advance()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public RESULT next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return pending.next();
+    }
+
+    /**
+     * Works out the results of the next left item, or, once the left side is
+     * done, the next leftover right item.
+     *
+     * @return false once there's nothing left to emit.
+     */
+    private boolean advance() {
+        if (!leftHandSide.hasNext()) {
+            // Once the left side is exhausted, only an outer join has
+            // anything left to emit: the right items that never matched.
+            if (joinType != JoinType.OUTER) {
+                return false;
+            }
+            final List<RESULT> results = new ArrayList<>();
+            if (!window.isEmpty()) {
+                evict(window.pollFirst(), results);
+            } else if (rightHandSide.hasNext()) {
+                results.add(joinFunction.apply(null, nextRight()));
+            } else {
+                return false;
+            }
+            pending = results.iterator();
+            return true;
+        }
+
+        // Inner and semi joins are done once there's nothing left to match.
+        if (window.isEmpty() && !rightHandSide.hasNext()
+                && (joinType == JoinType.INNER || joinType == JoinType.LEFT_SEMI)) {
+            return false;
+        }
+
+        final LEFT_VALUE left = leftHandSide.next();
+        final KEY key = leftHandKeyingFunction.apply(left);
+        final KEY lower = lowerBound.apply(key);
+        final KEY upper = upperBound.apply(key);
+        final List<RESULT> results = new ArrayList<>();
+
+        // slide the bottom of the window up to the bottom of the band
+        while (!window.isEmpty() && ordering.compare(window.peekFirst().key, lower) < 0) {
+            evict(window.pollFirst(), results);
+        }
+        // ... and the top of the window up to the top of the band, passing
+        // over any right items that are already below it
+        while (rightHandSide.hasNext() && ordering.compare(rightKey(), upper) <= 0) {
+            final WindowEntry<RIGHT_VALUE, KEY> entry = new WindowEntry<>(rightKey(), nextRight());
+            if (ordering.compare(entry.key, lower) < 0) {
+                evict(entry, results);
+            } else {
+                window.addLast(entry);
+            }
+        }
+
+        // now everything in the window matches the left item
+        if (joinType == JoinType.LEFT_SEMI) {
+            if (!window.isEmpty()) {
+                results.add(asResult(left));
+            }
+        } else if (joinType == JoinType.LEFT_ANTI) {
+            if (window.isEmpty()) {
+                results.add(asResult(left));
+            }
+        } else if (!window.isEmpty()) {
+            for (WindowEntry<RIGHT_VALUE, KEY> entry : window) {
+                entry.matched = true;
+                results.add(joinFunction.apply(left, entry.item));
+            }
+        } else if (joinType == JoinType.LEFT || joinType == JoinType.OUTER) {
+            results.add(joinFunction.apply(left, null));
+        }
+
+        pending = results.iterator();
+        return true;
+    }
+
+    /**
+     * Drops a right item that no more left items can match, emitting it
+     * alone if it's an outer join and it never matched.
+     *
+     * @param entry the right item.
+     * @param results the results to add it to.
+     */
+    private void evict(WindowEntry<RIGHT_VALUE, KEY> entry, List<RESULT> results) {
+        if (joinType == JoinType.OUTER && !entry.matched) {
+            results.add(joinFunction.apply(null, entry.item));
+        }
+    }
+
+    private KEY rightKey() {
+        if (!rightKeyCached) {
+            rightHandKey = rightHandKeyingFunction.apply(rightHandSide.peek());
+            rightKeyCached = true;
+        }
+        return rightHandKey;
+    }
+
+    private RIGHT_VALUE nextRight() {
+        rightKeyCached = false;
+        return rightHandSide.next();
+    }
+
+    /**
+     * Semi and anti joins emit the left items as is, in which case the
+     * result type is the left item type.
+     *
+     * @param left the left item.
+     * @return the left item, as a result.
+     */
+    @SuppressWarnings("unchecked")
+    private RESULT asResult(LEFT_VALUE left) {
+        return (RESULT) left;
+    }
+
+    /**
+     * A right item in the window, along with its key, and whether any left
+     * item has matched it.
+     */
+    private static class WindowEntry<TYPE, KEY> {
+        private final KEY key;
+        private final TYPE item;
+        private boolean matched;
+
+        WindowEntry(KEY key, TYPE item) {
+            this.key = key;
+            this.item = item;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.join;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A single key of a cogroup, along with the items from each of the
+ * cogrouped streams that have that key.
+ *
+ * @param <KEY> the type of the key.
+ *
+ * @author Benjamin Shai
+ */
+public final class CoGroup<KEY> {
+
+    private final KEY key;
+    private final List<List<?>> groups;
+
+    /**
+     * Creates a cogroup.
+     *
+     * @param key the key shared by all the items.
+     * @param groups the items from each stream, in the order the streams
+     *               were provided. Streams without the key get an empty list.
+     */
+    public CoGroup(KEY key, List<List<?>> groups) {
+        this.key = key;
+        this.groups = groups;
+    }
+
+    public KEY getKey() {
+        return key;
+    }
+
+    /**
+     * Gets the number of streams that were cogrouped.
+     *
+     * @return the number of streams.
+     */
+    public int size() {
+        return groups.size();
+    }
+
+    /**
+     * Gets the items with this key from one of the streams. The type of the
+     * items isn't checked, so make sure it matches the stream's.
+     *
+     * @param index the index of the stream, in the order the streams were provided.
+     * @param <TYPE> the type of the items in that stream.
+     * @return the items, which may be empty.
+     */
+    @SuppressWarnings("unchecked")
+    public <TYPE> List<TYPE> get(int index) {
+        return (List<TYPE>) groups.get(index);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final CoGroup<?> coGroup = (CoGroup<?>) o;
+        return Objects.equals(key, coGroup.key) && groups.equals(coGroup.groups);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(key, groups);
+    }
+
+    @Override
+    public String toString() {
+        return "CoGroup{key=" + key + ", groups=" + groups + "}";
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.join;
+
+import com.conductor.stream.utils.misc.PeekingIterator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * This is an iterator that cogroups any number of streams of ordered
+ * data in a single pass. For every key found in any of the streams, it
+ * emits the key along with the items from each stream that have it.
+ *
+ * That's right, ordered data. Every stream must be sorted by its key,
+ * according to the same comparator.
+ *
+ * Each item's key is computed exactly once, when the item reaches the
+ * front of its stream, and held on to until the item is consumed.
+ *
+ * As such, this iterator shouldn't be used in parallel streams,
+ * as this iterator isn't fully thread safe.
+ *
+ * @param <KEY> the type of the key object.
+ *
+ * @author Benjamin Shai
+ */
+public class CoGroupIterator<KEY> implements Iterator<CoGroup<KEY>> {
+
+    private final List<PeekingIterator<Object>> iterators;
+    private final List<Function<Object, ? extends KEY>> keyingFunctions;
+    private final Comparator<KEY> ordering;
+
+    // the key of the item at the front of each stream, and whether it has
+    // been computed yet
+    private final List<KEY> keys;
+    private final boolean[] hasKey;
+
+    /**
+     * Creates a new cogrouping iterator.
+     *
+     * @param streams the streams to cogroup.
+     * @param keyingFunctions the function which returns the key of an item,
+     *                        one for each stream, in the same order.
+     * @param ordering a comparator which specifies the relative ordering of
+     *                 the keys.
+     */
+    @SuppressWarnings("unchecked")
+    public CoGroupIterator(
+            List<? extends Stream<?>> streams,
+            List<? extends Function<?, ? extends KEY>> keyingFunctions,
+            Comparator<KEY> ordering) {
+        if (streams.size() != keyingFunctions.size()) {
+            throw new IllegalArgumentException("There must be exactly one keying function per stream.");
+        }
+        this.iterators = new ArrayList<>(streams.size());
+        this.keyingFunctions = new ArrayList<>(streams.size());
+        this.keys = new ArrayList<>(streams.size());
+        for (int i = 0; i < streams.size(); i++) {
+            this.iterators.add(new PeekingIterator<>((Iterator<Object>) streams.get(i).iterator()));
+            this.keyingFunctions.add((Function<Object, ? extends KEY>) keyingFunctions.get(i));
+            this.keys.add(null);
+        }
+        this.hasKey = new boolean[streams.size()];
+        this.ordering = ordering;
+    }
+
+    /**
+     * Determines whether there are keys left to emit.
+     *
+     * @return true or false.
+     */
+    @Override
+    public boolean hasNext() {
+        for (PeekingIterator<Object> iterator : iterators) {
+            if (iterator.hasNext()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the smallest key left in any of the streams, along with all of
+     * the items that have it.
+     *
+     * @return the cogroup.
+     */
+    @Override
+    public CoGroup<KEY> next() {
+        // find the smallest key at the front of any of the streams
+        int smallest = -1;
+        for (int i = 0; i < iterators.size(); i++) {
+            if (iterators.get(i).hasNext()
+                    && (smallest == -1 || ordering.compare(peekKey(i), peekKey(smallest)) < 0)) {
+                smallest = i;
+            }
+        }
+        // In following the contract of `Iterator.next`, if every stream is
+        // empty, throw a NoSuchElementException.
+        if (smallest == -1) {
+            throw new NoSuchElementException();
+        }
+
+        final KEY key = peekKey(smallest);
+        final List<List<?>> groups = new ArrayList<>(iterators.size());
+        for (int i = 0; i < iterators.size(); i++) {
+            groups.add(consumeGroup(i, key));
+        }
+        return new CoGroup<>(key, groups);
+    }
+
+    /**
+     * Consumes all the items at the front of a stream with the given key.
+     *
+     * @param index the index of the stream.
+     * @param key the key to consume.
+     * @return the items, or an empty list if there are none.
+     */
+    private List<Object> consumeGroup(int index, KEY key) {
+        final PeekingIterator<Object> iterator = iterators.get(index);
+        List<Object> group = Collections.emptyList();
+        while (iterator.hasNext() && ordering.compare(peekKey(index), key) == 0) {
+            if (group.isEmpty()) {
+                group = new ArrayList<>();
+            }
+            group.add(iterator.next());
+            // the front of the stream moved, so its key needs recomputing
+            hasKey[index] = false;
+        }
+        return group;
+    }
+
+    /**
+     * Gets the key of the item at the front of a stream, only applying the
+     * keying function if that item hasn't been keyed yet.
+     *
+     * @param index the index of the stream.
+     * @return the key.
+     */
+    private KEY peekKey(int index) {
+        if (!hasKey[index]) {
+            keys.set(index, keyingFunctions.get(index).apply(iterators.get(index).peek()));
+            hasKey[index] = true;
+        }
+        return keys.get(index);
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.join;
+
+import com.conductor.stream.utils.spill.Serializer;
+
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * This is a builder for the HashJoinIterator, to make construction
+ * much simpler.
+ *
+ * @author Benjamin Shai
+ */
+public class HashJoinBuilder<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> {
+
+    private static final int DEFAULT_PARTITIONS = 16;
+
+    private Stream<LEFT_VALUE> leftHandSide;
+    private Stream<RIGHT_VALUE> rightHandSide;
+    private Function<LEFT_VALUE, KEY> leftHandKeyingFunction;
+    private Function<RIGHT_VALUE, KEY> rightHandKeyingFunction;
+    private BiFunction<LEFT_VALUE, RIGHT_VALUE, RESULT> joinFunction;
+    private JoinType joinType;
+    private int memoryBudget = Integer.MAX_VALUE;
+    private Serializer<LEFT_VALUE> leftHandSerializer;
+    private Serializer<RIGHT_VALUE> rightHandSerializer;
+    private int partitions = DEFAULT_PARTITIONS;
+    private boolean compressed;
+    private Path tempDirectory;
+
+    public HashJoinBuilder() {}
+
+    public HashJoinBuilder<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> setLeftHandSide(final Stream<LEFT_VALUE> leftHandSide) {
+        this.leftHandSide = leftHandSide;
+        return this;
+    }
+
+    /**
+     * Getter so that we can appropriately clean up resources.
+     *
+     * @return the base stream on the left side
+     */
+    public Stream<LEFT_VALUE> getLeftHandSide() {
+        return leftHandSide;
+    }
+
+    public HashJoinBuilder<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> setRightHandSide(final Stream<RIGHT_VALUE> rightHandSide) {
+        this.rightHandSide = rightHandSide;
+        return this;
+    }
+
+    /**
+     * Getter so that we can appropriately clean up resources.
+     *
+     * @return the base stream on the right side
+     */
+    public Stream<RIGHT_VALUE> getRightHandSide() {
+        return rightHandSide;
+    }
+
+    public HashJoinBuilder<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> setLeftHandKeyingFunction(final Function<LEFT_VALUE, KEY> leftHandKeyingFunction) {
+        this.leftHandKeyingFunction = leftHandKeyingFunction;
+        return this;
+    }
+
+    public HashJoinBuilder<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> setRightHandKeyingFunction(final Function<RIGHT_VALUE, KEY> rightHandKeyingFunction) {
+        this.rightHandKeyingFunction = rightHandKeyingFunction;
+        return this;
+    }
+
+    public HashJoinBuilder<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> setJoinFunction(final BiFunction<LEFT_VALUE, RIGHT_VALUE, RESULT> joinFunction) {
+        this.joinFunction = joinFunction;
+        return this;
+    }
+
+    public HashJoinBuilder<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> setJoinType(final JoinType joinType) {
+        this.joinType = joinType;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of items from each side held in memory at
+     * once. If both sides have more, they're partitioned to disk, which
+     * needs serializers for both sides. Defaults to no limit.
+     *
+     * @param memoryBudget the maximum number of items.
+     * @return this builder.
+     */
+    public HashJoinBuilder<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> setMemoryBudget(final int memoryBudget) {
+        this.memoryBudget = memoryBudget;
+        return this;
+    }
+
+    public HashJoinBuilder<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> setLeftHandSerializer(final Serializer<LEFT_VALUE> leftHandSerializer) {
+        this.leftHandSerializer = leftHandSerializer;
+        return this;
+    }
+
+    public HashJoinBuilder<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> setRightHandSerializer(final Serializer<RIGHT_VALUE> rightHandSerializer) {
+        this.rightHandSerializer = rightHandSerializer;
+        return this;
+    }
+
+    /**
+     * Sets the number of partitions the sides are split into when they're
+     * over the memory budget. Defaults to 16.
+     *
+     * @param partitions the number of partitions.
+     * @return this builder.
+     */
+    public HashJoinBuilder<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> setPartitions(final int partitions) {
+        this.partitions = partitions;
+        return this;
+    }
+
+    public HashJoinBuilder<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> setCompressed(final boolean compressed) {
+        this.compressed = compressed;
+        return this;
+    }
+
+    /**
+     * Sets the directory partitions are spilled to. Defaults to the default
+     * temporary-file directory.
+     *
+     * @param tempDirectory the directory.
+     * @return this builder.
+     */
+    public HashJoinBuilder<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> setTempDirectory(final Path tempDirectory) {
+        this.tempDirectory = tempDirectory;
+        return this;
+    }
+
+    public HashJoinIterator<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> build() {
+        Objects.requireNonNull(leftHandSide, "Left-hand-side stream must not be null.");
+        Objects.requireNonNull(rightHandSide, "Right-hand-side stream must not be null.");
+        Objects.requireNonNull(leftHandKeyingFunction, "Left-hand-side keying function must not be null.");
+        Objects.requireNonNull(rightHandKeyingFunction, "Right-hand-side keying function must not be null.");
+        Objects.requireNonNull(joinType, "Join type must not be null.");
+        // semi and anti joins emit the left items as is
+        if (joinType != JoinType.LEFT_SEMI && joinType != JoinType.LEFT_ANTI) {
+            Objects.requireNonNull(joinFunction, "Join function must not be null.");
+        }
+
+        return new HashJoinIterator<>(
+                leftHandSide.iterator(),
+                rightHandSide.iterator(),
+                leftHandKeyingFunction,
+                rightHandKeyingFunction,
+                joinFunction,
+                joinType,
+                memoryBudget,
+                leftHandSerializer,
+                rightHandSerializer,
+                partitions,
+                compressed,
+                tempDirectory
+        );
+    }
+
+    /**
+     * Static convenience method.
+     *
+     * @return a builder.
+     */
+    public static <KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> HashJoinBuilder<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> builder() {
+        return new HashJoinBuilder<>();
+    }
+}
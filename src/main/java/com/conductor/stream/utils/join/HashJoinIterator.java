@@ -0,0 +1,482 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.join;
+
+import com.conductor.stream.utils.spill.Partitioner;
+import com.conductor.stream.utils.spill.Serializer;
+import com.conductor.stream.utils.spill.SpillFile;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * This is an iterator that joins two streams of unordered data, by
+ * building a hash table from one side and probing it with the other.
+ * Keys are matched using their equals and hashCode methods, and every
+ * left item is joined to every right item with the same key, like a SQL
+ * join. Results come out in no particular order.
+ *
+ * Both sides are read in lockstep until one of them runs out. That one is
+ * the smaller side, and gets built into the table, while the other side
+ * (what was read of it, and then the rest) probes it. As such, up to the
+ * memory budget's worth of items from each side are held in memory.
+ *
+ * If neither side runs out within the memory budget, this turns into a
+ * grace hash join: both sides are split by key hash into partitions
+ * spilled to disk, using the provided serializers, and each pair of
+ * partitions is then joined in turn, the same way. Partitions that are
+ * still too big are split again, with a different hash, a few times over.
+ * After that (which only happens with a few very hot keys), they are
+ * joined in memory regardless of the budget.
+ *
+ * Spilled partitions are deleted as soon as they've been joined, or when
+ * this is closed.
+ *
+ * As such, this iterator shouldn't be used in parallel streams,
+ * as this iterator isn't fully thread safe.
+ *
+ * @param <KEY> the type of the key object.
+ * @param <LEFT_VALUE> the type of the items in the left hand
+ *                     side iterator.
+ * @param <RIGHT_VALUE> the type of the items in the right hand
+ *                      side iterator.
+ * @param <RESULT> the type of the items in the resulting iterator.
+ *
+ * @author Benjamin Shai
+ */
+public class HashJoinIterator<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> implements Iterator<RESULT>, AutoCloseable {
+
+    // how many times partitions are split before giving up on the budget
+    private static final int MAX_DEPTH = 4;
+
+    private final Iterator<LEFT_VALUE> leftHandSide;
+    private final Iterator<RIGHT_VALUE> rightHandSide;
+    private final Function<LEFT_VALUE, KEY> leftHandKeyingFunction;
+    private final Function<RIGHT_VALUE, KEY> rightHandKeyingFunction;
+    private final BiFunction<LEFT_VALUE, RIGHT_VALUE, RESULT> joinFunction;
+    private final JoinType joinType;
+    private final int memoryBudget;
+    private final Serializer<LEFT_VALUE> leftHandSerializer;
+    private final Serializer<RIGHT_VALUE> rightHandSerializer;
+    private final int partitions;
+    private final boolean compressed;
+    private final Path tempDirectory;
+    private final int depth;
+
+    private boolean started;
+
+    // The in-memory join. Only one of the tables is built, from the smaller
+    // side, and the other side probes it.
+    private Map<KEY, Bucket<LEFT_VALUE>> leftTable;
+    private Map<KEY, Bucket<RIGHT_VALUE>> rightTable;
+    private Iterator<LEFT_VALUE> leftProbe;
+    private Iterator<RIGHT_VALUE> rightProbe;
+    private boolean probed;
+
+    // The grace hash join: the partitions left to join, and the join of the
+    // current one.
+    private List<SpillFile<LEFT_VALUE>> leftPartitions;
+    private List<SpillFile<RIGHT_VALUE>> rightPartitions;
+    private int partitionIndex;
+    private HashJoinIterator<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> partitionJoin;
+
+    // the results we've worked out, but not handed out yet
+    private Iterator<RESULT> pending = Collections.emptyIterator();
+
+    /**
+     * Creates a new hash joining iterator.
+     *
+     * NOTE - your join function needs to handle null values if you're using
+     * any join type other than inner. Semi and anti joins never call the join
+     * function, and require the result type to be the left item type.
+     *
+     * @param leftHandSide the left side to join.
+     * @param rightHandSide the right side to join.
+     * @param leftHandKeyingFunction a function which returns the key of a
+     *                               left item.
+     * @param rightHandKeyingFunction a function which returns the key of a
+     *                                right item.
+     * @param joinFunction a function which join the values from the two sides.
+     * @param joinType the type of join to perform -- left, outer, inner,
+     *                 left semi, or left anti.
+     * @param memoryBudget the maximum number of items from each side to
+     *                     hold in memory.
+     * @param leftHandSerializer a serializer for spilling left items to disk,
+     *                           or null to reject joins over the budget.
+     * @param rightHandSerializer a serializer for spilling right items to
+     *                            disk, or null to reject joins over the budget.
+     * @param partitions the number of partitions to split the sides into
+     *                   when they're over the budget.
+     * @param compressed whether or not to compress the partitions.
+     * @param tempDirectory the directory to spill partitions to, or null for
+     *                      the default temporary-file directory.
+     */
+    public HashJoinIterator(
+            Iterator<LEFT_VALUE> leftHandSide,
+            Iterator<RIGHT_VALUE> rightHandSide,
+            Function<LEFT_VALUE, KEY> leftHandKeyingFunction,
+            Function<RIGHT_VALUE, KEY> rightHandKeyingFunction,
+            BiFunction<LEFT_VALUE, RIGHT_VALUE, RESULT> joinFunction,
+            JoinType joinType,
+            int memoryBudget,
+            Serializer<LEFT_VALUE> leftHandSerializer,
+            Serializer<RIGHT_VALUE> rightHandSerializer,
+            int partitions,
+            boolean compressed,
+            Path tempDirectory) {
+        this(
+                leftHandSide,
+                rightHandSide,
+                leftHandKeyingFunction,
+                rightHandKeyingFunction,
+                joinFunction,
+                joinType,
+                memoryBudget,
+                leftHandSerializer,
+                rightHandSerializer,
+                partitions,
+                compressed,
+                tempDirectory,
+                0
+        );
+    }
+
+    private HashJoinIterator(
+            Iterator<LEFT_VALUE> leftHandSide,
+            Iterator<RIGHT_VALUE> rightHandSide,
+            Function<LEFT_VALUE, KEY> leftHandKeyingFunction,
+            Function<RIGHT_VALUE, KEY> rightHandKeyingFunction,
+            BiFunction<LEFT_VALUE, RIGHT_VALUE, RESULT> joinFunction,
+            JoinType joinType,
+            int memoryBudget,
+            Serializer<LEFT_VALUE> leftHandSerializer,
+            Serializer<RIGHT_VALUE> rightHandSerializer,
+            int partitions,
+            boolean compressed,
+            Path tempDirectory,
+            int depth) {
+        if (memoryBudget < 1) {
+            throw new IllegalArgumentException("Memory budget must be at least 1.");
+        }
+        if (partitions < 2) {
+            throw new IllegalArgumentException("Partitions must be at least 2.");
+        }
+        this.leftHandSide = leftHandSide;
+        this.rightHandSide = rightHandSide;
+        this.leftHandKeyingFunction = leftHandKeyingFunction;
+        this.rightHandKeyingFunction = rightHandKeyingFunction;
+        this.joinFunction = joinFunction;
+        this.joinType = joinType;
+        this.memoryBudget = memoryBudget;
+        this.leftHandSerializer = leftHandSerializer;
+        this.rightHandSerializer = rightHandSerializer;
+        this.partitions = partitions;
+        this.compressed = compressed;
+        this.tempDirectory = tempDirectory;
+        this.depth = depth;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!pending.hasNext()) {
+            if (!started) {
+                started = true;
+                start();
+            } else if (leftPartitions != null) {
+                if (!joinNextPartition()) {
+                    return false;
+                }
+            } else if (leftTable != null) {
+                if (!probeWithRight()) {
+                    return false;
+                }
+            } else if (!probeWithLeft()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public RESULT next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return pending.next();
+    }
+
+    /**
+     * Deletes any partitions spilled to disk.
+     */
+    @Override
+    public void close() {
+        pending = Collections.emptyIterator();
+        leftTable = null;
+        rightTable = null;
+        if (partitionJoin != null) {
+            partitionJoin.close();
+            partitionJoin = null;
+        }
+        if (leftPartitions != null) {
+            // only close what was created, in case partitioning failed part way
+            for (; partitionIndex < Math.max(leftPartitions.size(), rightPartitions.size()); partitionIndex++) {
+                if (partitionIndex < leftPartitions.size()) {
+                    leftPartitions.get(partitionIndex).close();
+                }
+                if (partitionIndex < rightPartitions.size()) {
+                    rightPartitions.get(partitionIndex).close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads both sides in lockstep until one runs out, and builds it into
+     * the table, or partitions both if they outgrow the memory budget.
+     */
+    private void start() {
+        final List<LEFT_VALUE> leftItems = new ArrayList<>();
+        final List<RIGHT_VALUE> rightItems = new ArrayList<>();
+        // past the maximum depth, the budget is ignored
+        while (leftItems.size() < memoryBudget || depth >= MAX_DEPTH) {
+            if (!leftHandSide.hasNext()) {
+                leftTable = buildTable(leftItems, leftHandKeyingFunction);
+                rightProbe = concat(rightItems, rightHandSide);
+                return;
+            }
+            if (!rightHandSide.hasNext()) {
+                rightTable = buildTable(rightItems, rightHandKeyingFunction);
+                leftProbe = concat(leftItems, leftHandSide);
+                return;
+            }
+            leftItems.add(leftHandSide.next());
+            rightItems.add(rightHandSide.next());
+        }
+        partition(leftItems, rightItems);
+    }
+
+    private static <KEY, TYPE> Map<KEY, Bucket<TYPE>> buildTable(List<TYPE> items, Function<TYPE, KEY> keyingFunction) {
+        final Map<KEY, Bucket<TYPE>> table = new HashMap<>();
+        for (TYPE item : items) {
+            table.computeIfAbsent(keyingFunction.apply(item), key -> new Bucket<>()).items.add(item);
+        }
+        return table;
+    }
+
+    /**
+     * Iterates over the items already read from a side, and then the rest
+     * of it.
+     */
+    private static <TYPE> Iterator<TYPE> concat(List<TYPE> items, Iterator<TYPE> rest) {
+        final Iterator<TYPE> read = items.iterator();
+        return new Iterator<TYPE>() {
+            @Override
+            public boolean hasNext() {
+                return read.hasNext() || rest.hasNext();
+            }
+
+            @Override
+            public TYPE next() {
+                return read.hasNext() ? read.next() : rest.next();
+            }
+        };
+    }
+
+    /**
+     * Probes the right table with the next left item.
+     *
+     * @return false once there's nothing left to probe with.
+     */
+    private boolean probeWithLeft() {
+        if (leftProbe.hasNext()) {
+            final LEFT_VALUE left = leftProbe.next();
+            final Bucket<RIGHT_VALUE> bucket = rightTable.get(leftHandKeyingFunction.apply(left));
+            if (joinType == JoinType.LEFT_SEMI) {
+                pending = bucket != null ? Collections.singletonList(asResult(left)).iterator() : Collections.emptyIterator();
+            } else if (joinType == JoinType.LEFT_ANTI) {
+                pending = bucket == null ? Collections.singletonList(asResult(left)).iterator() : Collections.emptyIterator();
+            } else if (bucket != null) {
+                bucket.matched = true;
+                pending = bucket.items.stream().map(right -> joinFunction.apply(left, right)).iterator();
+            } else if (joinType == JoinType.LEFT || joinType == JoinType.OUTER) {
+                pending = Collections.singletonList(joinFunction.apply(left, null)).iterator();
+            }
+            return true;
+        }
+        if (joinType == JoinType.OUTER && !probed) {
+            // the right items that never matched are joined alone
+            probed = true;
+            pending = rightTable.values().stream()
+                    .filter(bucket -> !bucket.matched)
+                    .flatMap(bucket -> bucket.items.stream())
+                    .map(right -> joinFunction.apply(null, right))
+                    .iterator();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Probes the left table with the next right item.
+     *
+     * @return false once there's nothing left to probe with.
+     */
+    private boolean probeWithRight() {
+        if (rightProbe.hasNext()) {
+            final RIGHT_VALUE right = rightProbe.next();
+            final Bucket<LEFT_VALUE> bucket = leftTable.get(rightHandKeyingFunction.apply(right));
+            if (bucket == null) {
+                if (joinType == JoinType.OUTER) {
+                    pending = Collections.singletonList(joinFunction.apply(null, right)).iterator();
+                }
+            } else if (joinType == JoinType.LEFT_SEMI) {
+                // the left items are emitted on their first match only
+                if (!bucket.matched) {
+                    pending = bucket.items.stream().map(this::asResult).iterator();
+                }
+            } else if (joinType != JoinType.LEFT_ANTI) {
+                pending = bucket.items.stream().map(left -> joinFunction.apply(left, right)).iterator();
+            }
+            if (bucket != null) {
+                bucket.matched = true;
+            }
+            return true;
+        }
+        if (!probed && (joinType == JoinType.LEFT || joinType == JoinType.OUTER || joinType == JoinType.LEFT_ANTI)) {
+            // the left items that never matched are emitted alone
+            probed = true;
+            final Stream<LEFT_VALUE> unmatched = leftTable.values().stream()
+                    .filter(bucket -> !bucket.matched)
+                    .flatMap(bucket -> bucket.items.stream());
+            pending = joinType == JoinType.LEFT_ANTI
+                    ? unmatched.map(this::asResult).iterator()
+                    : unmatched.map(left -> joinFunction.apply(left, null)).iterator();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Splits both sides into partitions on disk, by key hash.
+     *
+     * @param leftItems the left items already read.
+     * @param rightItems the right items already read.
+     */
+    private void partition(List<LEFT_VALUE> leftItems, List<RIGHT_VALUE> rightItems) {
+        if (leftHandSerializer == null || rightHandSerializer == null) {
+            throw new IllegalStateException(String.format(
+                    "Both sides have more than %d items, and can't be spilled to disk without serializers.", memoryBudget));
+        }
+        leftPartitions = new ArrayList<>(partitions);
+        rightPartitions = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            leftPartitions.add(new SpillFile<>(tempDirectory, leftHandSerializer, compressed));
+            rightPartitions.add(new SpillFile<>(tempDirectory, rightHandSerializer, compressed));
+        }
+        leftItems.forEach(this::spillLeft);
+        leftHandSide.forEachRemaining(this::spillLeft);
+        rightItems.forEach(this::spillRight);
+        rightHandSide.forEachRemaining(this::spillRight);
+    }
+
+    private void spillLeft(LEFT_VALUE left) {
+        leftPartitions.get(partitionOf(leftHandKeyingFunction.apply(left))).write(left);
+    }
+
+    private void spillRight(RIGHT_VALUE right) {
+        rightPartitions.get(partitionOf(rightHandKeyingFunction.apply(right))).write(right);
+    }
+
+    /**
+     * Picks the partition for a key, mixing the hash differently at each
+     * depth.
+     *
+     * @param key the key.
+     * @return the partition.
+     */
+    private int partitionOf(KEY key) {
+        return Partitioner.partitionOf(key, depth, partitions);
+    }
+
+    /**
+     * Hands out the results of the current partition's join, moving on to
+     * the next partition once it's done.
+     *
+     * @return false once every partition has been joined.
+     */
+    private boolean joinNextPartition() {
+        if (partitionJoin != null) {
+            partitionJoin.close();
+            partitionJoin = null;
+            leftPartitions.get(partitionIndex).close();
+            rightPartitions.get(partitionIndex).close();
+            partitionIndex++;
+        }
+        if (partitionIndex >= partitions) {
+            return false;
+        }
+        partitionJoin = new HashJoinIterator<>(
+                leftPartitions.get(partitionIndex).read(),
+                rightPartitions.get(partitionIndex).read(),
+                leftHandKeyingFunction,
+                rightHandKeyingFunction,
+                joinFunction,
+                joinType,
+                memoryBudget,
+                leftHandSerializer,
+                rightHandSerializer,
+                partitions,
+                compressed,
+                tempDirectory,
+                depth + 1
+        );
+        pending = partitionJoin;
+        return true;
+    }
+
+    /**
+     * Semi and anti joins emit the left items as is, in which case the
+     * result type is the left item type.
+     *
+     * @param left the left item.
+     * @return the left item, as a result.
+     */
+    @SuppressWarnings("unchecked")
+    private RESULT asResult(LEFT_VALUE left) {
+        return (RESULT) left;
+    }
+
+    /**
+     * The items in the table with the same key, and whether any item from
+     * the other side has matched them.
+     *
+     * @param <TYPE> the type of the items.
+     */
+    private static class Bucket<TYPE> {
+        private final List<TYPE> items = new ArrayList<>();
+        private boolean matched;
+    }
+}
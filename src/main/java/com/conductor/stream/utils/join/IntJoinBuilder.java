@@ -0,0 +1,161 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.join;
+
+import com.conductor.stream.utils.spill.Serializer;
+
+import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+
+/**
+ * This is a builder for joins of two streams sorted by int keys,
+ * ascending, which never boxes the keys. See the LongJoiningIterator.
+ *
+ * @author Benjamin Shai
+ */
+public class IntJoinBuilder<LEFT_VALUE, RIGHT_VALUE, RESULT> {
+
+    private Stream<LEFT_VALUE> leftHandSide;
+    private Stream<RIGHT_VALUE> rightHandSide;
+    private ToIntFunction<LEFT_VALUE> leftHandKeyingFunction;
+    private ToIntFunction<RIGHT_VALUE> rightHandKeyingFunction;
+    private BiFunction<LEFT_VALUE, RIGHT_VALUE, RESULT> joinFunction;
+    private JoinType joinType;
+    private boolean manyToMany;
+    private int rightHandRunLimit = Integer.MAX_VALUE;
+    private Serializer<RIGHT_VALUE> rightHandSerializer;
+
+    public IntJoinBuilder() {}
+
+    public IntJoinBuilder<LEFT_VALUE, RIGHT_VALUE, RESULT> setLeftHandSide(final Stream<LEFT_VALUE> leftHandSide) {
+        this.leftHandSide = leftHandSide;
+        return this;
+    }
+
+    /**
+     * Getter so that we can appropriately clean up resources.
+     *
+     * @return the base stream on the left side
+     */
+    public Stream<LEFT_VALUE> getLeftHandSide() {
+        return leftHandSide;
+    }
+
+    public IntJoinBuilder<LEFT_VALUE, RIGHT_VALUE, RESULT> setRightHandSide(final Stream<RIGHT_VALUE> rightHandSide) {
+        this.rightHandSide = rightHandSide;
+        return this;
+    }
+
+    /**
+     * Getter so that we can appropriately clean up resources.
+     *
+     * @return the base stream on the right side
+     */
+    public Stream<RIGHT_VALUE> getRightHandSide() {
+        return rightHandSide;
+    }
+
+    public IntJoinBuilder<LEFT_VALUE, RIGHT_VALUE, RESULT> setLeftHandKeyingFunction(final ToIntFunction<LEFT_VALUE> leftHandKeyingFunction) {
+        this.leftHandKeyingFunction = leftHandKeyingFunction;
+        return this;
+    }
+
+    public IntJoinBuilder<LEFT_VALUE, RIGHT_VALUE, RESULT> setRightHandKeyingFunction(final ToIntFunction<RIGHT_VALUE> rightHandKeyingFunction) {
+        this.rightHandKeyingFunction = rightHandKeyingFunction;
+        return this;
+    }
+
+    public IntJoinBuilder<LEFT_VALUE, RIGHT_VALUE, RESULT> setJoinFunction(final BiFunction<LEFT_VALUE, RIGHT_VALUE, RESULT> joinFunction) {
+        this.joinFunction = joinFunction;
+        return this;
+    }
+
+    public IntJoinBuilder<LEFT_VALUE, RIGHT_VALUE, RESULT> setJoinType(final JoinType joinType) {
+        this.joinType = joinType;
+        return this;
+    }
+
+    /**
+     * Joins every left item to every right item with the same key, instead
+     * of joining duplicates in the order in which they appear.
+     *
+     * @param manyToMany whether or not to join many-to-many.
+     * @return this builder.
+     */
+    public IntJoinBuilder<LEFT_VALUE, RIGHT_VALUE, RESULT> setManyToMany(final boolean manyToMany) {
+        this.manyToMany = manyToMany;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of right items with the same key that a
+     * many-to-many join holds in memory. Longer runs are spilled to disk if
+     * a right-hand-side serializer is set, and rejected otherwise.
+     *
+     * @param rightHandRunLimit the maximum number of items.
+     * @return this builder.
+     */
+    public IntJoinBuilder<LEFT_VALUE, RIGHT_VALUE, RESULT> setRightHandRunLimit(final int rightHandRunLimit) {
+        this.rightHandRunLimit = rightHandRunLimit;
+        return this;
+    }
+
+    public IntJoinBuilder<LEFT_VALUE, RIGHT_VALUE, RESULT> setRightHandSerializer(final Serializer<RIGHT_VALUE> rightHandSerializer) {
+        this.rightHandSerializer = rightHandSerializer;
+        return this;
+    }
+
+    public LongJoiningIterator<LEFT_VALUE, RIGHT_VALUE, RESULT> build() {
+        Objects.requireNonNull(leftHandSide, "Left-hand-side stream must not be null.");
+        Objects.requireNonNull(rightHandSide, "Right-hand-side stream must not be null.");
+        Objects.requireNonNull(leftHandKeyingFunction, "Left-hand-side keying function must not be null.");
+        Objects.requireNonNull(rightHandKeyingFunction, "Right-hand-side keying function must not be null.");
+        Objects.requireNonNull(joinType, "Join type must not be null.");
+        // semi and anti joins emit the left items as is
+        if (joinType != JoinType.LEFT_SEMI && joinType != JoinType.LEFT_ANTI) {
+            Objects.requireNonNull(joinFunction, "Join function must not be null.");
+        }
+        // int keys widen to long keys without changing their order, so the
+        // long join does the job, still without boxing.
+        final ToLongFunction<LEFT_VALUE> leftHandLongKeyingFunction = leftHandKeyingFunction::applyAsInt;
+        final ToLongFunction<RIGHT_VALUE> rightHandLongKeyingFunction = rightHandKeyingFunction::applyAsInt;
+
+        return new LongJoiningIterator<>(
+                leftHandSide,
+                rightHandSide,
+                leftHandLongKeyingFunction,
+                rightHandLongKeyingFunction,
+                joinFunction,
+                joinType,
+                manyToMany,
+                rightHandRunLimit,
+                rightHandSerializer
+        );
+    }
+
+    /**
+     * Static convenience method.
+     *
+     * @return a builder.
+     */
+    public static <LEFT_VALUE, RIGHT_VALUE, RESULT> IntJoinBuilder<LEFT_VALUE, RIGHT_VALUE, RESULT> builder() {
+        return new IntJoinBuilder<>();
+    }
+}
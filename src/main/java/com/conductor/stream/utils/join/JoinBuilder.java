@@ -16,8 +16,15 @@
 
 package com.conductor.stream.utils.join;
 
+import com.conductor.stream.utils.seek.IteratorSource;
+import com.conductor.stream.utils.seek.SeekableSortedSource;
+import com.conductor.stream.utils.spill.Serializer;
+
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.stream.Stream;
@@ -30,13 +37,22 @@ import java.util.stream.Stream;
  */
 public class JoinBuilder<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> {
 
+    private static final int DEFAULT_PARTITION_SIZE = 10_000;
+
     private Stream<LEFT_VALUE> leftHandSide;
     private Stream<RIGHT_VALUE> rightHandSide;
+    private SeekableSortedSource<KEY, LEFT_VALUE> leftHandSource;
+    private SeekableSortedSource<KEY, RIGHT_VALUE> rightHandSource;
     private Comparator<KEY> ordering;
     private Function<LEFT_VALUE, KEY> leftHandKeyingFunction;
     private Function<RIGHT_VALUE, KEY> rightHandKeyingFunction;
     private BiFunction<LEFT_VALUE, RIGHT_VALUE, RESULT> joinFunction;
     private JoinType joinType;
+    private boolean manyToMany;
+    private int rightHandRunLimit = Integer.MAX_VALUE;
+    private Serializer<RIGHT_VALUE> rightHandSerializer;
+    private List<KEY> splitters = Collections.emptyList();
+    private int partitionSize = DEFAULT_PARTITION_SIZE;
 
     public JoinBuilder() {}
 
@@ -68,6 +84,32 @@ public class JoinBuilder<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> {
         return rightHandSide;
     }
 
+    /**
+     * Sets the left side to a seekable source, instead of a stream. Sources
+     * that support random access let the join skip non-matching items
+     * without reading them.
+     *
+     * @param leftHandSource the left side source.
+     * @return this builder.
+     */
+    public JoinBuilder<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> setLeftHandSource(final SeekableSortedSource<KEY, LEFT_VALUE> leftHandSource) {
+        this.leftHandSource = leftHandSource;
+        return this;
+    }
+
+    /**
+     * Sets the right side to a seekable source, instead of a stream. Sources
+     * that support random access let the join skip non-matching items
+     * without reading them.
+     *
+     * @param rightHandSource the right side source.
+     * @return this builder.
+     */
+    public JoinBuilder<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> setRightHandSource(final SeekableSortedSource<KEY, RIGHT_VALUE> rightHandSource) {
+        this.rightHandSource = rightHandSource;
+        return this;
+    }
+
     public JoinBuilder<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> setOrdering(final Comparator<KEY> ordering) {
         this.ordering = ordering;
         return this;
@@ -93,26 +135,141 @@ public class JoinBuilder<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> {
         return this;
     }
 
+    /**
+     * Joins every left item to every right item with the same key, instead
+     * of joining duplicates in the order in which they appear.
+     *
+     * @param manyToMany whether or not to join many-to-many.
+     * @return this builder.
+     */
+    public JoinBuilder<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> setManyToMany(final boolean manyToMany) {
+        this.manyToMany = manyToMany;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of right items with the same key that a
+     * many-to-many join holds in memory. Longer runs are spilled to disk if
+     * a right-hand-side serializer is set, and rejected otherwise.
+     *
+     * @param rightHandRunLimit the maximum number of items.
+     * @return this builder.
+     */
+    public JoinBuilder<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> setRightHandRunLimit(final int rightHandRunLimit) {
+        this.rightHandRunLimit = rightHandRunLimit;
+        return this;
+    }
+
+    public JoinBuilder<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> setRightHandSerializer(final Serializer<RIGHT_VALUE> rightHandSerializer) {
+        this.rightHandSerializer = rightHandSerializer;
+        return this;
+    }
+
+    /**
+     * Sets the keys at which a parallel join starts new partitions. Without
+     * splitters, partitions are cut by size alone, since the key distribution
+     * isn't sampled.
+     *
+     * @param splitters the keys, in ascending order.
+     * @return this builder.
+     */
+    public JoinBuilder<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> setSplitters(final List<KEY> splitters) {
+        this.splitters = splitters;
+        return this;
+    }
+
+    /**
+     * Sets the number of items after which a parallel join ends a partition
+     * at the next key, and beyond which a single key's left items are split
+     * over several partitions.
+     *
+     * @param partitionSize the number of items.
+     * @return this builder.
+     */
+    public JoinBuilder<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> setPartitionSize(final int partitionSize) {
+        this.partitionSize = partitionSize;
+        return this;
+    }
+
     public JoiningIterator<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> build() {
-        Objects.requireNonNull(leftHandSide, "Left-hand-side stream must not be null.");
-        Objects.requireNonNull(rightHandSide, "Right-hand-side stream must not be null.");
-        Objects.requireNonNull(ordering, "Ordering comparator must not be null.");
-        Objects.requireNonNull(leftHandKeyingFunction, "Left-hand-side keying function must not be null.");
-        Objects.requireNonNull(rightHandKeyingFunction, "Right-hand-side keying function must not be null.");
-        Objects.requireNonNull(joinFunction, "Join function must not be null.");
-        Objects.requireNonNull(joinType, "Join type must not be null.");
+        validate();
 
         return new JoiningIterator<>(
-                leftHandSide,
-                rightHandSide,
+                createLeftHandSource(),
+                createRightHandSource(),
                 ordering,
                 leftHandKeyingFunction,
                 rightHandKeyingFunction,
                 joinFunction,
-                joinType
+                joinType,
+                manyToMany,
+                rightHandRunLimit,
+                rightHandSerializer
         );
     }
 
+    /**
+     * Builds an iterator which joins partitions of the two sides in
+     * parallel, on the given pool.
+     *
+     * @param pool the pool to join the partitions on.
+     * @return the iterator.
+     */
+    public ParallelJoiningIterator<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> buildParallel(final ForkJoinPool pool) {
+        validate();
+        Objects.requireNonNull(pool, "Pool must not be null.");
+        Objects.requireNonNull(splitters, "Splitters must not be null.");
+
+        return new ParallelJoiningIterator<>(
+                createLeftHandSource(),
+                createRightHandSource(),
+                ordering,
+                leftHandKeyingFunction,
+                rightHandKeyingFunction,
+                joinFunction,
+                joinType,
+                manyToMany,
+                rightHandRunLimit,
+                rightHandSerializer,
+                pool,
+                splitters,
+                partitionSize
+        );
+    }
+
+    private void validate() {
+        if (leftHandSource == null) {
+            Objects.requireNonNull(leftHandSide, "Left-hand-side stream must not be null.");
+        } else if (leftHandSide != null) {
+            throw new IllegalStateException("Left-hand-side must be either a stream or a source, not both.");
+        }
+        if (rightHandSource == null) {
+            Objects.requireNonNull(rightHandSide, "Right-hand-side stream must not be null.");
+        } else if (rightHandSide != null) {
+            throw new IllegalStateException("Right-hand-side must be either a stream or a source, not both.");
+        }
+        Objects.requireNonNull(ordering, "Ordering comparator must not be null.");
+        Objects.requireNonNull(leftHandKeyingFunction, "Left-hand-side keying function must not be null.");
+        Objects.requireNonNull(rightHandKeyingFunction, "Right-hand-side keying function must not be null.");
+        Objects.requireNonNull(joinType, "Join type must not be null.");
+        // semi and anti joins emit the left items as is
+        if (joinType != JoinType.LEFT_SEMI && joinType != JoinType.LEFT_ANTI) {
+            Objects.requireNonNull(joinFunction, "Join function must not be null.");
+        }
+    }
+
+    private SeekableSortedSource<KEY, LEFT_VALUE> createLeftHandSource() {
+        return leftHandSource != null
+                ? leftHandSource
+                : new IteratorSource<>(leftHandSide.iterator(), leftHandKeyingFunction, ordering);
+    }
+
+    private SeekableSortedSource<KEY, RIGHT_VALUE> createRightHandSource() {
+        return rightHandSource != null
+                ? rightHandSource
+                : new IteratorSource<>(rightHandSide.iterator(), rightHandKeyingFunction, ordering);
+    }
+
     /**
      * Static convenience method.
      *
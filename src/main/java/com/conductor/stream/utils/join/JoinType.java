@@ -49,6 +49,24 @@ public enum JoinType {
      * because you can just use this left join but reverse the
      * order of the streams.
      */
-    LEFT
+    LEFT,
+
+    /**
+     * Similar to a SQL semi join (WHERE EXISTS), this join will
+     * emit every item from the left side that has at least one
+     * matching item on the right side, once, as is. The join
+     * function is never called, so the result type must be the
+     * type of the left side items.
+     */
+    LEFT_SEMI,
+
+    /**
+     * Similar to a SQL anti join (WHERE NOT EXISTS), this join
+     * will emit every item from the left side that has no
+     * matching item on the right side, as is. The join function
+     * is never called, so the result type must be the type of
+     * the left side items.
+     */
+    LEFT_ANTI
 
 }
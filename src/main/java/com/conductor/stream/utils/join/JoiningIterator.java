@@ -16,12 +16,11 @@
 
 package com.conductor.stream.utils.join;
 
-import com.conductor.stream.utils.misc.PeekingIterator;
+import com.conductor.stream.utils.seek.IteratorSource;
+import com.conductor.stream.utils.seek.SeekableSortedSource;
+import com.conductor.stream.utils.spill.Serializer;
 
 import java.util.Comparator;
-import java.util.Iterator;
-import java.util.NoSuchElementException;
-import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.stream.Stream;
@@ -31,6 +30,27 @@ import java.util.stream.Stream;
  * That's right, ordered data. If your data isn't ordered...
  * don't use this please.
  *
+ * By default, duplicate keys are joined in the order in which they
+ * appear: the first left item with a key is joined to the first right
+ * item with that key, and so on. In many-to-many mode, every left item
+ * is instead joined to every right item with the same key, like a SQL
+ * join. To do that, the run of right items sharing the current key is
+ * buffered (and only that run), and replayed for each matching left
+ * item. Runs longer than the run limit are either spilled to disk, if a
+ * serializer was provided, or rejected with an IllegalStateException.
+ *
+ * Whenever a side falls behind the other, it is sought ahead to the
+ * other side's key, rather than stepped through one item at a time.
+ * Streams still have to be read item by item, but sides provided as
+ * SeekableSortedSources that support random access (like sorted lists
+ * or files) skip the gap with a galloping search. That makes an inner
+ * join of a sparse side against a huge one cost O(m log n) rather than
+ * O(n + m).
+ *
+ * The key of the item at the head of each side is only extracted once,
+ * however many times it gets compared. For primitive keys, use the
+ * LongJoiningIterator, which doesn't box them.
+ *
  * As such, this iterator shouldn't be used in parallel streams,
  * as this iterator isn't fully thread safe.
  *
@@ -46,30 +66,27 @@ import java.util.stream.Stream;
  *
  * @author Benjamin Shai
  */
-public class JoiningIterator<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> implements Iterator<RESULT> {
+public class JoiningIterator<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> extends AbstractJoiningIterator<LEFT_VALUE, RIGHT_VALUE, RESULT> {
 
-    private PeekingIterator<LEFT_VALUE> leftHandSide;
-    private PeekingIterator<RIGHT_VALUE> rightHandSide;
+    private final SeekableSortedSource<KEY, LEFT_VALUE> leftHandSide;
+    private final SeekableSortedSource<KEY, RIGHT_VALUE> rightHandSide;
     private final Comparator<KEY> ordering;
     private final Function<LEFT_VALUE, KEY> leftHandKeyingFunction;
     private final Function<RIGHT_VALUE, KEY> rightHandKeyingFunction;
-    private final BiFunction<LEFT_VALUE, RIGHT_VALUE, RESULT> joinFunction;
-    private final JoinType joinType;
-
-    // Since we don't know if we have a next item for the hasNext call
-    // until we actually try to join it (we can't poll the two sides
-    // for their hasNext-ability because what if it's a left join and
-    // we only have items in the right? what if it's an inner join and
-    // we only have full streams of non-matching items?) so we cache
-    // the next item in every hasNext call, and return it in the next
-    // call. This is that cached item.
-    private AtomicReference<RESULT> nextItem;
+
+    // the keys of the items at the head of each side, and of the current
+    // many-to-many run
+    private KEY leftHandKey;
+    private KEY rightHandKey;
+    private KEY runKey;
 
     /**
      * Creates a new joining iterator.
      *
      * NOTE - your comparator must be able to handle null values. Your join
      * function needs to if you're using any join type other than inner.
+     * Semi and anti joins never call the join function, and require the
+     * result type to be the left item type.
      *
      * @param leftHandSide the left side stream to join.
      * @param rightHandSide the right side stream to join.
@@ -82,7 +99,8 @@ public class JoiningIterator<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> implements It
      *                                used by the comparator to determine the
      *                                relative location in the stream.
      * @param joinFunction a function which join the values from the two streams.
-     * @param joinType the type of join to perform -- left, outer, or inner.
+     * @param joinType the type of join to perform -- left, outer, inner,
+     *                 left semi, or left anti.
      */
     public JoiningIterator(
             Stream<LEFT_VALUE> leftHandSide,
@@ -92,142 +110,114 @@ public class JoiningIterator<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> implements It
             Function<RIGHT_VALUE, KEY> rightHandKeyingFunction,
             BiFunction<LEFT_VALUE, RIGHT_VALUE, RESULT> joinFunction,
             JoinType joinType) {
-        this.leftHandSide = new PeekingIterator<>(leftHandSide.iterator());
-        this.rightHandSide = new PeekingIterator<>(rightHandSide.iterator());
-        this.ordering = ordering;
-        this.leftHandKeyingFunction = leftHandKeyingFunction;
-        this.rightHandKeyingFunction = rightHandKeyingFunction;
-        this.joinFunction = joinFunction;
-        this.joinType = joinType;
+        this(
+                new IteratorSource<>(leftHandSide.iterator(), leftHandKeyingFunction, ordering),
+                new IteratorSource<>(rightHandSide.iterator(), rightHandKeyingFunction, ordering),
+                ordering,
+                leftHandKeyingFunction,
+                rightHandKeyingFunction,
+                joinFunction,
+                joinType,
+                false,
+                Integer.MAX_VALUE,
+                null
+        );
     }
 
     /**
-     * Determines whether there are items left to emit.
+     * Creates a new joining iterator over two seekable sources, optionally
+     * joining duplicate keys many-to-many.
      *
-     * @return true or false.
+     * NOTE - your comparator must be able to handle null values. Your join
+     * function needs to if you're using any join type other than inner.
+     * Semi and anti joins never call the join function, and require the
+     * result type to be the left item type.
+     *
+     * @param leftHandSide the left side source to join.
+     * @param rightHandSide the right side source to join.
+     * @param ordering a comparator which specifies the relative ordering
+     *                 of both sources.
+     * @param leftHandKeyingFunction a function which returns a key value,
+     *                               used by the comparator to determine the
+     *                               relative location in the source.
+     * @param rightHandKeyingFunction a function which returns a key value,
+     *                                used by the comparator to determine the
+     *                                relative location in the source.
+     * @param joinFunction a function which join the values from the two sources.
+     * @param joinType the type of join to perform -- left, outer, inner,
+     *                 left semi, or left anti.
+     * @param manyToMany whether to join every left item to every right item
+     *                   with the same key.
+     * @param rightHandRunLimit the maximum number of right items with the same
+     *                          key to hold in memory, in many-to-many mode.
+     * @param rightHandSerializer the serializer used to spill runs of right
+     *                            items longer than the limit to disk, or null
+     *                            to reject such runs instead.
      */
+    public JoiningIterator(
+            SeekableSortedSource<KEY, LEFT_VALUE> leftHandSide,
+            SeekableSortedSource<KEY, RIGHT_VALUE> rightHandSide,
+            Comparator<KEY> ordering,
+            Function<LEFT_VALUE, KEY> leftHandKeyingFunction,
+            Function<RIGHT_VALUE, KEY> rightHandKeyingFunction,
+            BiFunction<LEFT_VALUE, RIGHT_VALUE, RESULT> joinFunction,
+            JoinType joinType,
+            boolean manyToMany,
+            int rightHandRunLimit,
+            Serializer<RIGHT_VALUE> rightHandSerializer) {
+        super(leftHandSide, rightHandSide, joinFunction, joinType, manyToMany, rightHandRunLimit, rightHandSerializer);
+        this.leftHandSide = leftHandSide;
+        this.rightHandSide = rightHandSide;
+        this.ordering = ordering;
+        this.leftHandKeyingFunction = leftHandKeyingFunction;
+        this.rightHandKeyingFunction = rightHandKeyingFunction;
+    }
+
     @Override
-    public boolean hasNext() {
-        this.nextItem = getNextJoinedItem();
-        // if the item is null, we must have exhausted our supply of
-        // items. If not, we're good for the next next call.
-        return this.nextItem != null;
+    void extractLeftKey(LEFT_VALUE left) {
+        // We want to be friendly to null items, which may not be keyable.
+        leftHandKey = left == null ? null : leftHandKeyingFunction.apply(left);
     }
 
-    /**
-     * Obtains the next joined item, applying the joining function.
-     *
-     * @return the item.
-     */
     @Override
-    public RESULT next() {
-        // if someone called next without calling hasNext, we won't
-        // have a nextItem. Attempt to get the nextItem, following
-        // the contract of Iterator (throw an exception if there
-        // isn't one).
-        if (this.nextItem == null && !this.hasNext()) {
-            throw new NoSuchElementException();
-        }
-        // now we need to null out nextItem so that people can't call
-        // next twice without hasNext and get the same item.
-        final RESULT returnItem = this.nextItem.get();
-        this.nextItem = null;
-        return returnItem;
+    void extractRightKey(RIGHT_VALUE right) {
+        rightHandKey = right == null ? null : rightHandKeyingFunction.apply(right);
     }
 
-    /**
-     * Computes the actual join, and finds the next appropriate
-     * joined item.
-     *
-     * @return the joined item (which may be null) wrapped in a
-     * reference, to protect against null items being improperly
-     * handled, or null if no next item can be found.
-     */
-    private AtomicReference<RESULT> getNextJoinedItem() {
-        // Get the next available items. Peek so we don't consume.
-        // At any time, one side can be empty. Make sure to check for
-        // hasNext first.
-        boolean leftHasNext = leftHandSide.hasNext();
-        boolean rightHasNext = rightHandSide.hasNext();
-
-        while (leftHasNext || rightHasNext) {
-            // Use an atomic reference because either side of the stream
-            // can return null as an item, but there might be items left
-            // in the stream.
-            final LEFT_VALUE left = leftHasNext ? leftHandSide.peek() : null;
-            final RIGHT_VALUE right = rightHasNext ? rightHandSide.peek() : null;
-
-            final KEY leftHandKey = left == null ? null : leftHandKeyingFunction.apply(left);
-            final KEY rightHandKey = right == null ? null : rightHandKeyingFunction.apply(right);
-
-            // so here's the deal. We want to be friendly to null items
-            // that can arise from streams being completed. This has the
-            // potential to throw an exception when computing the ordering.
-            // We're proactive about heading off this issue.
-            final int comparison;
-            if (!leftHasNext) {
-                // treat left side missing the same as we treat as right side
-                // being "smaller"
-                comparison = 1;
-            } else if (!rightHasNext) {
-                // ... and vice versa
-                comparison = -1;
-            } else {
-                // since we know both are non-null, we can compute the ordering
-                // without worrying about throwing an NPE
-                comparison = ordering.compare(leftHandKey, rightHandKey);
-            }
-
-            // Depending on the join type, we have different criteria for
-            // how we join (and whether we can join). The one thing in
-            // common is that if the items are equal, always join them.
-            if (comparison == 0) {
-                // apply the join function and consume the item.
-                return new AtomicReference<>(joinFunction.apply(leftHandSide.next(), rightHandSide.next()));
-            }
-
-            // now we know the keys aren't equal. That means we've got an
-            // uneven join. We need to decide which side to poll to look
-            // for the matching item, and decide what to do with the
-            // unmatched items. That will depend on the join type.
-
-            // if the left side item is smaller than the right side item,
-            // then roll the left looking for a matching item for the
-            // right side.
-            else if (comparison < 0) {
-                // we know the left is smaller. If the join type is left
-                // or outer, we want the left item alone
-                if (joinType == JoinType.OUTER || joinType == JoinType.LEFT) {
-                    return new AtomicReference<>(joinFunction.apply(leftHandSide.next(), null));
-                } else {
-                    // if it's an inner join, we need to discard the left
-                    // item, which is smaller, and try again.
-                    leftHandSide.next();
-                }
-            }
-
-            // if the right side item is smaller than the left side item,
-            // then roll the right looking for a matching item for the
-            // left side.
-            else {
-                // we know the right is smaller. If the join type is outer,
-                // we want the right item alone
-                if (joinType == JoinType.OUTER) {
-                    return new AtomicReference<>(joinFunction.apply(null, rightHandSide.next()));
-                } else {
-                    // if it's an inner or left join, we need to discard
-                    // the right item, which is smaller, and try again.
-                    rightHandSide.next();
-                }
-            }
-            // if we've made it this far without finding a match,
-            // rev the hasNexts and try again
-            leftHasNext = leftHandSide.hasNext();
-            rightHasNext = rightHandSide.hasNext();
-        }
-        // if we somehow exited the loop without a result, we must
-        // have exhausted both streams without finding a match.
-        // return null in that case.
-        return null;
+    @Override
+    int compareKeys() {
+        return ordering.compare(leftHandKey, rightHandKey);
+    }
+
+    @Override
+    void startRunKey() {
+        runKey = leftHandKey;
+    }
+
+    @Override
+    boolean leftKeyInRun() {
+        return ordering.compare(runKey, leftHandKey) == 0;
+    }
+
+    @Override
+    boolean rightKeyInRun() {
+        return ordering.compare(runKey, rightHandKey) == 0;
+    }
+
+    @Override
+    Object getRunKey() {
+        return runKey;
+    }
+
+    @Override
+    boolean seekLeftToRightKey() {
+        leftHandSide.seek(rightHandKey);
+        return false;
+    }
+
+    @Override
+    boolean seekRightToLeftKey() {
+        rightHandSide.seek(leftHandKey);
+        return false;
     }
 }
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.join;
+
+import com.conductor.stream.utils.seek.IteratorSource;
+import com.conductor.stream.utils.seek.SeekableSortedSource;
+import com.conductor.stream.utils.spill.Serializer;
+
+import java.util.function.BiFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+
+/**
+ * This is an iterator that joins two streams of data ordered by a long
+ * key, ascending. It works just like the JoiningIterator, but keys are
+ * extracted, held and compared as primitives, so nothing gets boxed.
+ *
+ * Since there is no comparator, keys can't be null, and neither can the
+ * items (unless your keying functions can handle them).
+ *
+ * As such, this iterator shouldn't be used in parallel streams,
+ * as this iterator isn't fully thread safe.
+ *
+ * @param <LEFT_VALUE> the type of the items in the left hand
+ *                     side iterator.
+ * @param <RIGHT_VALUE> the type of the items in the right hand
+ *                      side iterator.
+ * @param <RESULT> the type of the items in the resulting iterator.
+ *
+ * @author Benjamin Shai
+ */
+public class LongJoiningIterator<LEFT_VALUE, RIGHT_VALUE, RESULT> extends AbstractJoiningIterator<LEFT_VALUE, RIGHT_VALUE, RESULT> {
+
+    private final SeekableSortedSource<Long, LEFT_VALUE> leftHandSide;
+    private final SeekableSortedSource<Long, RIGHT_VALUE> rightHandSide;
+    private final ToLongFunction<LEFT_VALUE> leftHandKeyingFunction;
+    private final ToLongFunction<RIGHT_VALUE> rightHandKeyingFunction;
+
+    // the keys of the items at the head of each side, and of the current
+    // many-to-many run
+    private long leftHandKey;
+    private long rightHandKey;
+    private long runKey;
+
+    /**
+     * Creates a new joining iterator, optionally joining duplicate keys
+     * many-to-many.
+     *
+     * NOTE - your join function needs to handle null values if you're using
+     * any join type other than inner. Semi and anti joins never call the join
+     * function, and require the result type to be the left item type.
+     *
+     * @param leftHandSide the left side stream to join.
+     * @param rightHandSide the right side stream to join.
+     * @param leftHandKeyingFunction a function which returns the key of a
+     *                               left item, which the left stream is
+     *                               sorted by.
+     * @param rightHandKeyingFunction a function which returns the key of a
+     *                                right item, which the right stream is
+     *                                sorted by.
+     * @param joinFunction a function which join the values from the two streams.
+     * @param joinType the type of join to perform -- left, outer, inner,
+     *                 left semi, or left anti.
+     * @param manyToMany whether to join every left item to every right item
+     *                   with the same key.
+     * @param rightHandRunLimit in many-to-many mode, the maximum number of
+     *                          right items with the same key to hold in memory.
+     * @param rightHandSerializer in many-to-many mode, a serializer for
+     *                            spilling longer runs to disk, or null
+     *                            to reject such runs instead.
+     */
+    public LongJoiningIterator(
+            Stream<LEFT_VALUE> leftHandSide,
+            Stream<RIGHT_VALUE> rightHandSide,
+            ToLongFunction<LEFT_VALUE> leftHandKeyingFunction,
+            ToLongFunction<RIGHT_VALUE> rightHandKeyingFunction,
+            BiFunction<LEFT_VALUE, RIGHT_VALUE, RESULT> joinFunction,
+            JoinType joinType,
+            boolean manyToMany,
+            int rightHandRunLimit,
+            Serializer<RIGHT_VALUE> rightHandSerializer) {
+        this(
+                // these are never sought with boxed keys, we step through
+                // them ourselves (see seekLeftToRightKey)
+                new IteratorSource<>(leftHandSide.iterator(), leftHandKeyingFunction::applyAsLong, Long::compare),
+                new IteratorSource<>(rightHandSide.iterator(), rightHandKeyingFunction::applyAsLong, Long::compare),
+                leftHandKeyingFunction,
+                rightHandKeyingFunction,
+                joinFunction,
+                joinType,
+                manyToMany,
+                rightHandRunLimit,
+                rightHandSerializer
+        );
+    }
+
+    private LongJoiningIterator(
+            SeekableSortedSource<Long, LEFT_VALUE> leftHandSide,
+            SeekableSortedSource<Long, RIGHT_VALUE> rightHandSide,
+            ToLongFunction<LEFT_VALUE> leftHandKeyingFunction,
+            ToLongFunction<RIGHT_VALUE> rightHandKeyingFunction,
+            BiFunction<LEFT_VALUE, RIGHT_VALUE, RESULT> joinFunction,
+            JoinType joinType,
+            boolean manyToMany,
+            int rightHandRunLimit,
+            Serializer<RIGHT_VALUE> rightHandSerializer) {
+        super(leftHandSide, rightHandSide, joinFunction, joinType, manyToMany, rightHandRunLimit, rightHandSerializer);
+        this.leftHandSide = leftHandSide;
+        this.rightHandSide = rightHandSide;
+        this.leftHandKeyingFunction = leftHandKeyingFunction;
+        this.rightHandKeyingFunction = rightHandKeyingFunction;
+    }
+
+    @Override
+    void extractLeftKey(LEFT_VALUE left) {
+        leftHandKey = leftHandKeyingFunction.applyAsLong(left);
+    }
+
+    @Override
+    void extractRightKey(RIGHT_VALUE right) {
+        rightHandKey = rightHandKeyingFunction.applyAsLong(right);
+    }
+
+    @Override
+    int compareKeys() {
+        return Long.compare(leftHandKey, rightHandKey);
+    }
+
+    @Override
+    void startRunKey() {
+        runKey = leftHandKey;
+    }
+
+    @Override
+    boolean leftKeyInRun() {
+        return runKey == leftHandKey;
+    }
+
+    @Override
+    boolean rightKeyInRun() {
+        return runKey == rightHandKey;
+    }
+
+    @Override
+    Object getRunKey() {
+        return runKey;
+    }
+
+    @Override
+    boolean seekLeftToRightKey() {
+        // step through the left side ourselves, so the key of the item we
+        // land on is extracted (once) without boxing. The item we're on is
+        // already known to be behind, so move past it first.
+        do {
+            leftHandSide.next();
+            if (!leftHandSide.hasNext()) {
+                return false;
+            }
+            leftHandKey = leftHandKeyingFunction.applyAsLong(leftHandSide.peek());
+        } while (leftHandKey < rightHandKey);
+        return true;
+    }
+
+    @Override
+    boolean seekRightToLeftKey() {
+        do {
+            rightHandSide.next();
+            if (!rightHandSide.hasNext()) {
+                return false;
+            }
+            rightHandKey = rightHandKeyingFunction.applyAsLong(rightHandSide.peek());
+        } while (rightHandKey < leftHandKey);
+        return true;
+    }
+}
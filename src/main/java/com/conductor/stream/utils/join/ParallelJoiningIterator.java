@@ -0,0 +1,439 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.join;
+
+import com.conductor.stream.utils.seek.IteratorSource;
+import com.conductor.stream.utils.seek.SeekableSortedSource;
+import com.conductor.stream.utils.seek.SortedListSource;
+import com.conductor.stream.utils.spill.Serializer;
+import com.conductor.stream.utils.spill.SpillFile;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * This is an iterator that joins two sides of ordered data in parallel.
+ * It produces exactly what a JoiningIterator over the same sides would,
+ * in the same order.
+ *
+ * Both sides are read in key order, on the calling thread, and cut into
+ * partitions of consecutive key ranges. A partition ends at the next
+ * splitter key, if splitters were given, and otherwise (or if a range
+ * between two splitters is too big) at the first key boundary once it
+ * holds the partition size's worth of items. Each partition is joined by
+ * a JoiningIterator on the fork join pool, while the next partitions are
+ * being read, and the results are handed out partition by partition.
+ *
+ * The key distribution isn't sampled: without splitters, partitions are
+ * cut by item count alone, as the items are read. If the keys are known
+ * ahead of time (say, from a sample), pass splitters to control where the
+ * partitions fall.
+ *
+ * Keys are never split across partitions, so a hot key (one with more
+ * items on either side than fit in a partition) would leave a single
+ * straggling partition. Instead, its items are split up over several
+ * partitions. For many-to-many, semi and anti joins, the left items are
+ * split up, and each part is joined to all the right items. For joins in
+ * the order in which items appear, both sides are split at the same
+ * positions.
+ *
+ * Partitions, hot keys included, are held in memory until they're
+ * joined, and there are at most a couple of partitions per thread of the
+ * pool in flight at once. The exception is a key with more right items
+ * than the right hand run limit, which is handled the same way the
+ * JoiningIterator handles it: the items are spilled to disk if there's
+ * a serializer, and rejected if not (for many-to-many joins, which are
+ * the only ones that have to hold on to them). A key spilled to disk is
+ * joined as a single partition.
+ *
+ * As such, this iterator shouldn't be used in parallel streams,
+ * as this iterator isn't fully thread safe.
+ *
+ * @param <KEY> the type of the key object.
+ * @param <LEFT_VALUE> the type of the items in the left hand
+ *                     side iterator.
+ * @param <RIGHT_VALUE> the type of the items in the right hand
+ *                      side iterator.
+ * @param <RESULT> the type of the items in the resulting iterator.
+ *
+ * @author Benjamin Shai
+ */
+public class ParallelJoiningIterator<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> implements Iterator<RESULT>, AutoCloseable {
+
+    private final SeekableSortedSource<KEY, LEFT_VALUE> leftHandSide;
+    private final SeekableSortedSource<KEY, RIGHT_VALUE> rightHandSide;
+    private final Comparator<KEY> ordering;
+    private final Function<LEFT_VALUE, KEY> leftHandKeyingFunction;
+    private final Function<RIGHT_VALUE, KEY> rightHandKeyingFunction;
+    private final BiFunction<LEFT_VALUE, RIGHT_VALUE, RESULT> joinFunction;
+    private final JoinType joinType;
+    private final boolean manyToMany;
+    private final int rightHandRunLimit;
+    private final Serializer<RIGHT_VALUE> rightHandSerializer;
+    private final ForkJoinPool pool;
+    private final List<KEY> splitters;
+    private final int partitionSize;
+    private final int maxInFlight;
+
+    // the keys of the items at the head of each side, once extracted
+    private KEY leftHandKey;
+    private boolean leftKeyCached;
+    private KEY rightHandKey;
+    private boolean rightKeyCached;
+
+    // the partition currently being read, and the next splitter it can't
+    // go past
+    private List<LEFT_VALUE> partitionLeft = new ArrayList<>();
+    private List<RIGHT_VALUE> partitionRight = new ArrayList<>();
+    private int splitterIndex;
+    // whether there's nothing left to read that could make it into a result
+    private boolean exhausted;
+
+    // the partitions being joined, in order, and the results of the one
+    // we're handing out
+    private final Deque<ForkJoinTask<List<RESULT>>> inFlight = new ArrayDeque<>();
+    // Set once we're closed, so that the partitions still in flight stop
+    // early. Cancelling a fork join task doesn't interrupt it, so this is
+    // how they find out.
+    private volatile boolean closed;
+    private Iterator<RESULT> results = Collections.emptyIterator();
+    // the right runs that were too long to hold in memory, which are
+    // deleted as they're joined, or when we're closed
+    private final List<SpillFile<RIGHT_VALUE>> spilledRuns = new ArrayList<>();
+
+    /**
+     * Creates a new parallel joining iterator.
+     *
+     * NOTE - your comparator must be able to handle null values. Your join
+     * function needs to if you're using any join type other than inner, and
+     * must be safe to call from several threads at once.
+     *
+     * @param leftHandSide the left side source to join.
+     * @param rightHandSide the right side source to join.
+     * @param ordering a comparator which specifies the relative ordering
+     *                 of both sources.
+     * @param leftHandKeyingFunction a function which returns a key value,
+     *                               used by the comparator to determine the
+     *                               relative location in the source.
+     * @param rightHandKeyingFunction a function which returns a key value,
+     *                                used by the comparator to determine the
+     *                                relative location in the source.
+     * @param joinFunction a function which join the values from the two sources.
+     * @param joinType the type of join to perform -- left, outer, inner,
+     *                 left semi, or left anti.
+     * @param manyToMany whether to join every left item to every right item
+     *                   with the same key.
+     * @param rightHandRunLimit in many-to-many mode, the maximum number of
+     *                          right items with the same key for each
+     *                          partition's join to hold in memory.
+     * @param rightHandSerializer in many-to-many mode, a serializer for
+     *                            spilling longer runs to disk, or null
+     *                            to reject such runs instead.
+     * @param pool the pool to join the partitions on.
+     * @param splitters the keys to start new partitions at, in order, or
+     *                  an empty list to pick partitions by size alone.
+     * @param partitionSize the number of items after which a partition
+     *                      ends at the next key.
+     */
+    public ParallelJoiningIterator(
+            SeekableSortedSource<KEY, LEFT_VALUE> leftHandSide,
+            SeekableSortedSource<KEY, RIGHT_VALUE> rightHandSide,
+            Comparator<KEY> ordering,
+            Function<LEFT_VALUE, KEY> leftHandKeyingFunction,
+            Function<RIGHT_VALUE, KEY> rightHandKeyingFunction,
+            BiFunction<LEFT_VALUE, RIGHT_VALUE, RESULT> joinFunction,
+            JoinType joinType,
+            boolean manyToMany,
+            int rightHandRunLimit,
+            Serializer<RIGHT_VALUE> rightHandSerializer,
+            ForkJoinPool pool,
+            List<KEY> splitters,
+            int partitionSize) {
+        if (partitionSize < 1) {
+            throw new IllegalArgumentException("Partition size must be at least 1.");
+        }
+        for (int i = 1; i < splitters.size(); i++) {
+            if (ordering.compare(splitters.get(i - 1), splitters.get(i)) >= 0) {
+                throw new IllegalArgumentException("Splitters must be in strictly ascending order.");
+            }
+        }
+        this.leftHandSide = leftHandSide;
+        this.rightHandSide = rightHandSide;
+        this.ordering = ordering;
+        this.leftHandKeyingFunction = leftHandKeyingFunction;
+        this.rightHandKeyingFunction = rightHandKeyingFunction;
+        this.joinFunction = joinFunction;
+        this.joinType = joinType;
+        this.manyToMany = manyToMany;
+        this.rightHandRunLimit = rightHandRunLimit;
+        this.rightHandSerializer = rightHandSerializer;
+        this.pool = pool;
+        this.splitters = new ArrayList<>(splitters);
+        this.partitionSize = partitionSize;
+        // enough to keep every thread busy while we read the next partition
+        this.maxInFlight = 2 * pool.getParallelism();
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!results.hasNext()) {
+            // top up the partitions being joined before waiting on the
+            // next one, so the pool always has work
+            readPartitions();
+            if (inFlight.isEmpty()) {
+                return false;
+            }
+            results = inFlight.poll().join().iterator();
+        }
+        return true;
+    }
+
+    @Override
+    public RESULT next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return results.next();
+    }
+
+    /**
+     * Stops any partitions still being joined, waits for them to stop, and
+     * closes both sides.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        // the partitions still being joined may be reading from spill
+        // files, so they have to stop before the files are deleted
+        inFlight.forEach(ForkJoinTask::quietlyJoin);
+        inFlight.clear();
+        results = Collections.emptyIterator();
+        try {
+            // closing a spill file twice is harmless, so this doesn't
+            // need to know which ones have been joined already
+            spilledRuns.forEach(SpillFile::close);
+            spilledRuns.clear();
+        } finally {
+            try {
+                leftHandSide.close();
+            } finally {
+                rightHandSide.close();
+            }
+        }
+    }
+
+    /**
+     * Reads keys off both sides into partitions, until enough partitions
+     * are in flight, or there's nothing left to read.
+     */
+    private void readPartitions() {
+        while (!exhausted && inFlight.size() < maxInFlight) {
+            final boolean leftHasNext = leftHandSide.hasNext();
+            final boolean rightHasNext = rightHandSide.hasNext();
+
+            // Just like the JoiningIterator, stop reading once nothing else
+            // could be emitted.
+            if ((!leftHasNext && !rightHasNext)
+                    || (!leftHasNext && joinType != JoinType.OUTER)
+                    || (!rightHasNext && (joinType == JoinType.INNER || joinType == JoinType.LEFT_SEMI))) {
+                exhausted = true;
+                submitPartition();
+                break;
+            }
+
+            // the next key is the smaller of the two heads
+            final KEY key;
+            if (!leftHasNext) {
+                key = rightKey();
+            } else if (!rightHasNext) {
+                key = leftKey();
+            } else {
+                key = ordering.compare(leftKey(), rightKey()) <= 0 ? leftKey() : rightKey();
+            }
+
+            // the partition can't cross a splitter
+            if (splitterIndex < splitters.size() && ordering.compare(key, splitters.get(splitterIndex)) >= 0) {
+                submitPartition();
+                while (splitterIndex < splitters.size() && ordering.compare(key, splitters.get(splitterIndex)) >= 0) {
+                    splitterIndex++;
+                }
+            }
+
+            // read every item with this key off both sides
+            final List<LEFT_VALUE> keyLeft = new ArrayList<>();
+            while (leftHandSide.hasNext() && ordering.compare(leftKey(), key) == 0) {
+                keyLeft.add(nextLeft());
+            }
+            List<RIGHT_VALUE> keyRight = new ArrayList<>();
+            SpillFile<RIGHT_VALUE> spilledRight = null;
+            while (rightHandSide.hasNext() && ordering.compare(rightKey(), key) == 0) {
+                final RIGHT_VALUE right = nextRight();
+                if (spilledRight != null) {
+                    spilledRight.write(right);
+                } else if (keyRight.size() < rightHandRunLimit || (!manyToMany && rightHandSerializer == null)) {
+                    // only many-to-many joins have to hold on to the right
+                    // items, so the others can go over the limit if they
+                    // have nowhere to spill to
+                    keyRight.add(right);
+                } else if (rightHandSerializer != null) {
+                    // the run is too long to hold on to, move it to disk,
+                    // just like the JoiningIterator does
+                    spilledRight = new SpillFile<>(null, rightHandSerializer, false);
+                    // register it right away, so it's cleaned up even if writing fails
+                    spilledRuns.add(spilledRight);
+                    keyRight.forEach(spilledRight::write);
+                    spilledRight.write(right);
+                    keyRight = null;
+                } else {
+                    throw new IllegalStateException(String.format(
+                            "More than %d right-hand-side items share the key %s.", rightHandRunLimit, key));
+                }
+            }
+
+            if (spilledRight != null) {
+                // a run on disk can only be read by one partition
+                submitPartition();
+                submit(keyLeft, null, spilledRight);
+            } else if (keyLeft.size() > partitionSize || keyRight.size() > partitionSize) {
+                // a hot key (on either side) gets partitions of its own
+                submitPartition();
+                submitHotKey(keyLeft, keyRight);
+            } else {
+                partitionLeft.addAll(keyLeft);
+                partitionRight.addAll(keyRight);
+                if (partitionLeft.size() + partitionRight.size() >= partitionSize) {
+                    submitPartition();
+                }
+            }
+        }
+    }
+
+    /**
+     * Splits the items of a hot key over several partitions, each with the
+     * items of the other side they'll be joined to.
+     *
+     * @param keyLeft the left items with the key.
+     * @param keyRight the right items with the key.
+     */
+    private void submitHotKey(List<LEFT_VALUE> keyLeft, List<RIGHT_VALUE> keyRight) {
+        if (manyToMany || joinType == JoinType.LEFT_SEMI || joinType == JoinType.LEFT_ANTI) {
+            // every left item needs to see all the right items, so only the
+            // left items can be split up (there's always at least one
+            // partition, even without any left items)
+            for (int start = 0; start < Math.max(keyLeft.size(), 1); start += partitionSize) {
+                final int end = Math.min(start + partitionSize, keyLeft.size());
+                submit(keyLeft.subList(start, end), keyRight);
+            }
+        } else {
+            // otherwise, the nth left item is joined to the nth right item,
+            // so both sides are split up at the same positions
+            final int length = Math.max(keyLeft.size(), keyRight.size());
+            for (int start = 0; start < length; start += partitionSize) {
+                final int end = Math.min(start + partitionSize, length);
+                submit(
+                        keyLeft.subList(Math.min(start, keyLeft.size()), Math.min(end, keyLeft.size())),
+                        keyRight.subList(Math.min(start, keyRight.size()), Math.min(end, keyRight.size())));
+            }
+        }
+    }
+
+    private void submitPartition() {
+        if (!partitionLeft.isEmpty() || !partitionRight.isEmpty()) {
+            submit(partitionLeft, partitionRight);
+            partitionLeft = new ArrayList<>();
+            partitionRight = new ArrayList<>();
+        }
+    }
+
+    private void submit(List<LEFT_VALUE> left, List<RIGHT_VALUE> right) {
+        submit(left, right, null);
+    }
+
+    /**
+     * Joins a partition on the pool.
+     *
+     * @param left the left items.
+     * @param right the right items, if they're in memory.
+     * @param spilledRight the right items, if they were spilled to disk
+     *                     instead. The file is deleted once it's been joined.
+     */
+    private void submit(List<LEFT_VALUE> left, List<RIGHT_VALUE> right, SpillFile<RIGHT_VALUE> spilledRight) {
+        inFlight.add(pool.submit(() -> {
+            final List<RESULT> joined = new ArrayList<>();
+            try (JoiningIterator<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> iterator = new JoiningIterator<>(
+                    new SortedListSource<>(left, leftHandKeyingFunction, ordering),
+                    spilledRight == null
+                            ? new SortedListSource<>(right, rightHandKeyingFunction, ordering)
+                            : new IteratorSource<>(spilledRight.read(), rightHandKeyingFunction, ordering),
+                    ordering,
+                    leftHandKeyingFunction,
+                    rightHandKeyingFunction,
+                    joinFunction,
+                    joinType,
+                    manyToMany,
+                    rightHandRunLimit,
+                    rightHandSerializer)) {
+                while (!closed && iterator.hasNext()) {
+                    joined.add(iterator.next());
+                }
+            } finally {
+                if (spilledRight != null) {
+                    spilledRight.close();
+                }
+            }
+            return joined;
+        }));
+    }
+
+    private KEY leftKey() {
+        if (!leftKeyCached) {
+            final LEFT_VALUE left = leftHandSide.peek();
+            leftHandKey = left == null ? null : leftHandKeyingFunction.apply(left);
+            leftKeyCached = true;
+        }
+        return leftHandKey;
+    }
+
+    private KEY rightKey() {
+        if (!rightKeyCached) {
+            final RIGHT_VALUE right = rightHandSide.peek();
+            rightHandKey = right == null ? null : rightHandKeyingFunction.apply(right);
+            rightKeyCached = true;
+        }
+        return rightHandKey;
+    }
+
+    private LEFT_VALUE nextLeft() {
+        leftKeyCached = false;
+        return leftHandSide.next();
+    }
+
+    private RIGHT_VALUE nextRight() {
+        rightKeyCached = false;
+        return rightHandSide.next();
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.join;
+
+import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+
+/**
+ * This is a builder for the WindowedJoinIterator, to make construction
+ * much simpler.
+ *
+ * @author Benjamin Shai
+ */
+public class WindowedJoinBuilder<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> {
+
+    private Stream<LEFT_VALUE> leftHandSide;
+    private Stream<RIGHT_VALUE> rightHandSide;
+    private Function<LEFT_VALUE, KEY> leftHandKeyingFunction;
+    private Function<RIGHT_VALUE, KEY> rightHandKeyingFunction;
+    private ToLongFunction<LEFT_VALUE> leftHandTimeFunction;
+    private ToLongFunction<RIGHT_VALUE> rightHandTimeFunction;
+    private long windowSize;
+    private long maxOutOfOrderness;
+    private BiFunction<LEFT_VALUE, RIGHT_VALUE, RESULT> joinFunction;
+    private JoinType joinType;
+
+    public WindowedJoinBuilder() {}
+
+    public WindowedJoinBuilder<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> setLeftHandSide(final Stream<LEFT_VALUE> leftHandSide) {
+        this.leftHandSide = leftHandSide;
+        return this;
+    }
+
+    /**
+     * Getter so that we can appropriately clean up resources.
+     *
+     * @return the base stream on the left side
+     */
+    public Stream<LEFT_VALUE> getLeftHandSide() {
+        return leftHandSide;
+    }
+
+    public WindowedJoinBuilder<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> setRightHandSide(final Stream<RIGHT_VALUE> rightHandSide) {
+        this.rightHandSide = rightHandSide;
+        return this;
+    }
+
+    /**
+     * Getter so that we can appropriately clean up resources.
+     *
+     * @return the base stream on the right side
+     */
+    public Stream<RIGHT_VALUE> getRightHandSide() {
+        return rightHandSide;
+    }
+
+    public WindowedJoinBuilder<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> setLeftHandKeyingFunction(final Function<LEFT_VALUE, KEY> leftHandKeyingFunction) {
+        this.leftHandKeyingFunction = leftHandKeyingFunction;
+        return this;
+    }
+
+    public WindowedJoinBuilder<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> setRightHandKeyingFunction(final Function<RIGHT_VALUE, KEY> rightHandKeyingFunction) {
+        this.rightHandKeyingFunction = rightHandKeyingFunction;
+        return this;
+    }
+
+    public WindowedJoinBuilder<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> setLeftHandTimeFunction(final ToLongFunction<LEFT_VALUE> leftHandTimeFunction) {
+        this.leftHandTimeFunction = leftHandTimeFunction;
+        return this;
+    }
+
+    public WindowedJoinBuilder<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> setRightHandTimeFunction(final ToLongFunction<RIGHT_VALUE> rightHandTimeFunction) {
+        this.rightHandTimeFunction = rightHandTimeFunction;
+        return this;
+    }
+
+    /**
+     * Sets how far apart in time two items with the same key can be and
+     * still be joined. Defaults to 0, so only items with the same time join.
+     *
+     * @param windowSize the window size.
+     * @return this builder.
+     */
+    public WindowedJoinBuilder<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> setWindowSize(final long windowSize) {
+        this.windowSize = windowSize;
+        return this;
+    }
+
+    /**
+     * Sets how far behind the latest item on its side an item can arrive,
+     * and still be joined. Later items are dropped. Defaults to 0, for
+     * streams that are sorted by time.
+     *
+     * @param maxOutOfOrderness the max out-of-orderness.
+     * @return this builder.
+     */
+    public WindowedJoinBuilder<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> setMaxOutOfOrderness(final long maxOutOfOrderness) {
+        this.maxOutOfOrderness = maxOutOfOrderness;
+        return this;
+    }
+
+    public WindowedJoinBuilder<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> setJoinFunction(final BiFunction<LEFT_VALUE, RIGHT_VALUE, RESULT> joinFunction) {
+        this.joinFunction = joinFunction;
+        return this;
+    }
+
+    public WindowedJoinBuilder<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> setJoinType(final JoinType joinType) {
+        this.joinType = joinType;
+        return this;
+    }
+
+    public WindowedJoinIterator<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> build() {
+        Objects.requireNonNull(leftHandSide, "Left-hand-side stream must not be null.");
+        Objects.requireNonNull(rightHandSide, "Right-hand-side stream must not be null.");
+        Objects.requireNonNull(leftHandKeyingFunction, "Left-hand-side keying function must not be null.");
+        Objects.requireNonNull(rightHandKeyingFunction, "Right-hand-side keying function must not be null.");
+        Objects.requireNonNull(leftHandTimeFunction, "Left-hand-side time function must not be null.");
+        Objects.requireNonNull(rightHandTimeFunction, "Right-hand-side time function must not be null.");
+        Objects.requireNonNull(joinType, "Join type must not be null.");
+        // semi and anti joins emit the left items as is
+        if (joinType != JoinType.LEFT_SEMI && joinType != JoinType.LEFT_ANTI) {
+            Objects.requireNonNull(joinFunction, "Join function must not be null.");
+        }
+
+        return new WindowedJoinIterator<>(
+                leftHandSide.iterator(),
+                rightHandSide.iterator(),
+                leftHandKeyingFunction,
+                rightHandKeyingFunction,
+                leftHandTimeFunction,
+                rightHandTimeFunction,
+                windowSize,
+                maxOutOfOrderness,
+                joinFunction,
+                joinType
+        );
+    }
+
+    /**
+     * Static convenience method.
+     *
+     * @return a builder.
+     */
+    public static <KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> WindowedJoinBuilder<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> builder() {
+        return new WindowedJoinBuilder<>();
+    }
+}
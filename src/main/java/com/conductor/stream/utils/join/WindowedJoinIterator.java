@@ -0,0 +1,402 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.join;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * This is an iterator that joins two streams whose items are only roughly
+ * ordered by time, such as feeds where items can arrive a little late.
+ * Items with the same key are joined when their times are within the
+ * window size of each other.
+ *
+ * Unlike the JoiningIterator, the streams don't have to be strictly
+ * sorted, only sorted to within the max out-of-orderness. The iterator
+ * keeps a watermark: the lowest time it can still see on either side,
+ * which is the latest time read from the side that's furthest behind,
+ * minus the max out-of-orderness. Items older than the watermark are too
+ * late, and are dropped.
+ *
+ * Every item is kept in the per-key state of its side, so later items
+ * from the other side can join to it. Once an item is more than a window
+ * older than the watermark, no item still to come can join to it, so
+ * it's evicted. That way the state only ever holds about a window and
+ * the max out-of-orderness worth of items, even on never-ending streams.
+ *
+ * The join types work just as they do for the JoiningIterator. Items that
+ * never matched are emitted alone (for outer and left joins) or as is (for
+ * anti joins) as they're evicted, and left items are emitted as is the
+ * first time they match for semi joins.
+ *
+ * As such, this iterator shouldn't be used in parallel streams,
+ * as this iterator isn't fully thread safe.
+ *
+ * @param <KEY> the type of the key object.
+ * @param <LEFT_VALUE> the type of the items in the left hand
+ *                     side iterator.
+ * @param <RIGHT_VALUE> the type of the items in the right hand
+ *                      side iterator.
+ * @param <RESULT> the type of the items in the resulting iterator.
+ *
+ * @author Benjamin Shai
+ */
+public class WindowedJoinIterator<KEY, LEFT_VALUE, RIGHT_VALUE, RESULT> implements Iterator<RESULT> {
+
+    private final Side<KEY, LEFT_VALUE> left;
+    private final Side<KEY, RIGHT_VALUE> right;
+    private final long windowSize;
+    private final long maxOutOfOrderness;
+    private final BiFunction<LEFT_VALUE, RIGHT_VALUE, RESULT> joinFunction;
+    private final JoinType joinType;
+
+    // the results we've worked out, but not handed out yet
+    private Iterator<RESULT> pending = Collections.emptyIterator();
+
+    /**
+     * Creates a new windowed joining iterator.
+     *
+     * NOTE - your join function needs to handle null values if you're using
+     * any join type other than inner. Semi and anti joins never call the join
+     * function, and require the result type to be the left item type.
+     *
+     * @param leftHandSide the left side iterator to join.
+     * @param rightHandSide the right side iterator to join.
+     * @param leftHandKeyingFunction a function which returns the key of a
+     *                               left item.
+     * @param rightHandKeyingFunction a function which returns the key of a
+     *                                right item.
+     * @param leftHandTimeFunction a function which returns the time of a
+     *                             left item.
+     * @param rightHandTimeFunction a function which returns the time of a
+     *                              right item.
+     * @param windowSize how far apart in time two items can be and still join.
+     * @param maxOutOfOrderness how far behind the latest item on its side an
+     *                          item can be and still not be late.
+     * @param joinFunction a function which join the values from the two sides.
+     * @param joinType the type of join to perform -- left, outer, inner,
+     *                 left semi, or left anti.
+     */
+    public WindowedJoinIterator(
+            Iterator<LEFT_VALUE> leftHandSide,
+            Iterator<RIGHT_VALUE> rightHandSide,
+            Function<LEFT_VALUE, KEY> leftHandKeyingFunction,
+            Function<RIGHT_VALUE, KEY> rightHandKeyingFunction,
+            ToLongFunction<LEFT_VALUE> leftHandTimeFunction,
+            ToLongFunction<RIGHT_VALUE> rightHandTimeFunction,
+            long windowSize,
+            long maxOutOfOrderness,
+            BiFunction<LEFT_VALUE, RIGHT_VALUE, RESULT> joinFunction,
+            JoinType joinType) {
+        if (windowSize < 0 || maxOutOfOrderness < 0) {
+            throw new IllegalArgumentException("The window size and max out-of-orderness must not be negative.");
+        }
+        this.left = new Side<>(leftHandSide, leftHandKeyingFunction, leftHandTimeFunction);
+        this.right = new Side<>(rightHandSide, rightHandKeyingFunction, rightHandTimeFunction);
+        this.windowSize = windowSize;
+        this.maxOutOfOrderness = maxOutOfOrderness;
+        this.joinFunction = joinFunction;
+        this.joinType = joinType;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!pending.hasNext()) {
+            if (!advance()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public RESULT next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return pending.next();
+    }
+
+    /**
+     * Visible for testing.
+     *
+     * @return the number of items held in the join state.
+     */
+    int getStateSize() {
+        return left.byTime.size() + right.byTime.size();
+    }
+
+    /**
+     * Reads the next item from whichever side is further behind, joins it
+     * to the state of the other side, and evicts whatever state the new
+     * watermark has left behind.
+     *
+     * @return false once there's nothing left to emit.
+     */
+    private boolean advance() {
+        if (isDone()) {
+            return false;
+        }
+        final List<RESULT> results = new ArrayList<>();
+
+        // Reading from the side that's behind keeps the two sides roughly
+        // in step, which keeps the watermark moving, and the state small.
+        final boolean readLeft = left.iterator.hasNext()
+                && (!right.iterator.hasNext() || left.latestTime <= right.latestTime);
+        if (readLeft) {
+            readLeft(results);
+        } else if (right.iterator.hasNext()) {
+            readRight(results);
+        }
+
+        // Once a side is done, it won't hold the watermark back anymore.
+        if (!left.iterator.hasNext()) {
+            left.latestTime = Long.MAX_VALUE;
+        }
+        if (!right.iterator.hasNext()) {
+            right.latestTime = Long.MAX_VALUE;
+        }
+
+        // Anything more than a window older than the watermark can't be
+        // joined by anything still to come.
+        final long horizon = minus(watermark(), windowSize);
+        evictLeft(horizon, results);
+        evictRight(horizon, results);
+
+        pending = results.iterator();
+        return true;
+    }
+
+    /**
+     * Checks if there's anything left to emit, stopping early on either side
+     * ending if nothing more can come of the other side's items.
+     *
+     * @return true if there's nothing left to emit.
+     */
+    private boolean isDone() {
+        final boolean leftDone = !left.iterator.hasNext() && left.isEmpty();
+        final boolean rightDone = !right.iterator.hasNext() && right.isEmpty();
+        if (leftDone && rightDone) {
+            return true;
+        }
+        // right items only ever show up in the results of outer joins
+        if (leftDone && joinType != JoinType.OUTER) {
+            return true;
+        }
+        // and inner and semi joins need right items for every result
+        return rightDone && (joinType == JoinType.INNER || joinType == JoinType.LEFT_SEMI);
+    }
+
+    private void readLeft(List<RESULT> results) {
+        final Entry<KEY, LEFT_VALUE> entry = left.read();
+        if (entry.time < watermark()) {
+            // too late, its matches may already be gone
+            return;
+        }
+        for (Entry<KEY, RIGHT_VALUE> match : right.get(entry.key)) {
+            if (!withinWindow(entry.time, match.time)) {
+                continue;
+            }
+            match.matched = true;
+            if (joinType == JoinType.LEFT_SEMI) {
+                if (!entry.matched) {
+                    results.add(asResult(entry.item));
+                }
+            } else if (joinType != JoinType.LEFT_ANTI) {
+                results.add(joinFunction.apply(entry.item, match.item));
+            }
+            entry.matched = true;
+        }
+        left.add(entry);
+    }
+
+    private void readRight(List<RESULT> results) {
+        final Entry<KEY, RIGHT_VALUE> entry = right.read();
+        if (entry.time < watermark()) {
+            // too late, its matches may already be gone
+            return;
+        }
+        for (Entry<KEY, LEFT_VALUE> match : left.get(entry.key)) {
+            if (!withinWindow(match.time, entry.time)) {
+                continue;
+            }
+            if (joinType == JoinType.LEFT_SEMI) {
+                if (!match.matched) {
+                    results.add(asResult(match.item));
+                }
+            } else if (joinType != JoinType.LEFT_ANTI) {
+                results.add(joinFunction.apply(match.item, entry.item));
+            }
+            match.matched = true;
+            entry.matched = true;
+        }
+        right.add(entry);
+    }
+
+    private void evictLeft(long horizon, List<RESULT> results) {
+        for (Entry<KEY, LEFT_VALUE> entry : left.evict(horizon)) {
+            if (entry.matched) {
+                continue;
+            }
+            if (joinType == JoinType.LEFT || joinType == JoinType.OUTER) {
+                results.add(joinFunction.apply(entry.item, null));
+            } else if (joinType == JoinType.LEFT_ANTI) {
+                results.add(asResult(entry.item));
+            }
+        }
+    }
+
+    private void evictRight(long horizon, List<RESULT> results) {
+        for (Entry<KEY, RIGHT_VALUE> entry : right.evict(horizon)) {
+            if (!entry.matched && joinType == JoinType.OUTER) {
+                results.add(joinFunction.apply(null, entry.item));
+            }
+        }
+    }
+
+    /**
+     * The watermark is the lowest time we can still see: the latest time of
+     * the side that's furthest behind, less the max out-of-orderness.
+     *
+     * @return the watermark.
+     */
+    private long watermark() {
+        final long latestTime = Math.min(left.latestTime, right.latestTime);
+        // once both sides are done, everything is evicted
+        return latestTime == Long.MAX_VALUE ? Long.MAX_VALUE : minus(latestTime, maxOutOfOrderness);
+    }
+
+    private boolean withinWindow(long leftTime, long rightTime) {
+        return Math.abs(leftTime - rightTime) <= windowSize;
+    }
+
+    /**
+     * Subtracts, without wrapping around past the smallest long.
+     */
+    private static long minus(long time, long amount) {
+        return time < Long.MIN_VALUE + amount ? Long.MIN_VALUE : time - amount;
+    }
+
+    /**
+     * Semi and anti joins emit the left items as is, in which case the
+     * result type is the left item type.
+     *
+     * @param left the left item.
+     * @return the left item, as a result.
+     */
+    @SuppressWarnings("unchecked")
+    private RESULT asResult(LEFT_VALUE left) {
+        return (RESULT) left;
+    }
+
+    /**
+     * One side of the join: the iterator, and the state of the items read
+     * from it that may still be joined to.
+     */
+    private static class Side<KEY, TYPE> {
+        private final Iterator<TYPE> iterator;
+        private final Function<TYPE, KEY> keyingFunction;
+        private final ToLongFunction<TYPE> timeFunction;
+        // the items in the state, by key
+        private final Map<KEY, Deque<Entry<KEY, TYPE>>> state = new HashMap<>();
+        // the same items, oldest first, for eviction
+        private final PriorityQueue<Entry<KEY, TYPE>> byTime =
+                new PriorityQueue<>(Comparator.comparingLong((Entry<KEY, TYPE> entry) -> entry.time));
+        private long latestTime = Long.MIN_VALUE;
+
+        Side(Iterator<TYPE> iterator, Function<TYPE, KEY> keyingFunction, ToLongFunction<TYPE> timeFunction) {
+            this.iterator = iterator;
+            this.keyingFunction = keyingFunction;
+            this.timeFunction = timeFunction;
+        }
+
+        Entry<KEY, TYPE> read() {
+            final TYPE item = iterator.next();
+            final Entry<KEY, TYPE> entry = new Entry<>(keyingFunction.apply(item), timeFunction.applyAsLong(item), item);
+            latestTime = Math.max(latestTime, entry.time);
+            return entry;
+        }
+
+        Collection<Entry<KEY, TYPE>> get(KEY key) {
+            final Deque<Entry<KEY, TYPE>> bucket = state.get(key);
+            return bucket == null ? Collections.emptyList() : bucket;
+        }
+
+        void add(Entry<KEY, TYPE> entry) {
+            state.computeIfAbsent(entry.key, key -> new ArrayDeque<>()).addLast(entry);
+            byTime.add(entry);
+        }
+
+        /**
+         * Removes the items older than the horizon from the state.
+         *
+         * @param horizon the oldest time to keep.
+         * @return the removed items, oldest first.
+         */
+        List<Entry<KEY, TYPE>> evict(long horizon) {
+            if (byTime.isEmpty() || byTime.peek().time >= horizon) {
+                return Collections.emptyList();
+            }
+            final List<Entry<KEY, TYPE>> evicted = new ArrayList<>();
+            while (!byTime.isEmpty() && byTime.peek().time < horizon) {
+                final Entry<KEY, TYPE> entry = byTime.poll();
+                final Deque<Entry<KEY, TYPE>> bucket = state.get(entry.key);
+                // items mostly arrive in order, so this is mostly the first one
+                bucket.remove(entry);
+                if (bucket.isEmpty()) {
+                    state.remove(entry.key);
+                }
+                evicted.add(entry);
+            }
+            return evicted;
+        }
+
+        boolean isEmpty() {
+            return byTime.isEmpty();
+        }
+    }
+
+    /**
+     * An item in the state, along with its key and time, and whether
+     * anything has joined to it.
+     */
+    private static class Entry<KEY, TYPE> {
+        private final KEY key;
+        private final long time;
+        private final TYPE item;
+        private boolean matched;
+
+        Entry(KEY key, long time, TYPE item) {
+            this.key = key;
+            this.time = time;
+            this.item = item;
+        }
+    }
+}
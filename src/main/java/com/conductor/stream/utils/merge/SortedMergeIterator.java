@@ -36,6 +36,14 @@ import java.util.stream.Stream;
  * criteria. Basically, it takes the "smallest next item" from all of the
  * streams, and keeps doing this until all streams are empty.
  *
+ * Under the hood this is a loser tree (a.k.a. tournament tree): every internal
+ * node holds the index of the stream that lost the match played at that node,
+ * and the overall winner sits at the root. Emitting an item only replays the
+ * matches on the path from the winner's leaf to the root, so each item costs
+ * O(log k) comparisons for k streams instead of a scan over all of them. Ties
+ * are won by the stream that appears first in the list, and null items are
+ * held back until the non-null items ahead of them are emitted.
+ *
  * NOTE: this is NOT thread safe, as ordered streams cannot be parallel.
  *
  * @param <TYPE> the type of the items in each of the input streams.
@@ -44,9 +52,29 @@ import java.util.stream.Stream;
  */
 public class SortedMergeIterator<TYPE> implements Iterator<TYPE> {
 
+    // stands in for "no stream" wherever we'd otherwise hold a stream index
+    private static final int NONE = -1;
+
     private final List<PeekingIterator<TYPE>> iterators;
     private final Comparator<TYPE> comparator;
 
+    // tree[0] is the index of the current winner, tree[1..k-1] hold the
+    // index of the loser of the match at that node. The leaves (one per
+    // stream) are implicit, at positions k..2k-1.
+    private final int[] tree;
+    // whether the stream at each index still has items available
+    private final boolean[] live;
+    // how many streams still have items available
+    private int liveCount;
+    // the tree is only built on first use, so that we don't pull from
+    // any of the streams until somebody actually asks for an item.
+    private boolean initialized;
+    // the index of the stream we last consumed from, whose leaf still
+    // needs to be replayed, or NONE. We defer the replay until the next
+    // hasNext/next call, so that an exception thrown while fetching the
+    // following item surfaces at that call rather than this one.
+    private int pendingReplay;
+
     /**
      * Creates a new SortedMerge Iterator.
      *
@@ -62,7 +90,11 @@ public class SortedMergeIterator<TYPE> implements Iterator<TYPE> {
                 .map(PeekingIterator::new)
                 // collect that into a list
                 .collect(Collectors.toList());
-        this.comparator = comparator;
+        // hold back null items, like the comparator was never asked about them
+        this.comparator = Comparator.nullsLast(comparator);
+        this.tree = new int[Math.max(iterators.size(), 1)];
+        this.live = new boolean[iterators.size()];
+        this.pendingReplay = NONE;
     }
 
     /**
@@ -72,8 +104,9 @@ public class SortedMergeIterator<TYPE> implements Iterator<TYPE> {
      */
     @Override
     public boolean hasNext() {
+        settle();
         // as long as any of our iterators have anything available, we do too!
-        return this.iterators.stream().anyMatch(PeekingIterator::hasNext);
+        return liveCount > 0;
     }
 
     /**
@@ -83,41 +116,101 @@ public class SortedMergeIterator<TYPE> implements Iterator<TYPE> {
      */
     @Override
     public TYPE next() {
-        // Store a reference to the smallest item (out of all the next 1 items
-        // per iterator). Initialize to null so the first call is guaranteed
-        // to store its item.
-        TYPE smallestItem = null;
-        // Store a reference to the iterator containing the smallest item.
-        PeekingIterator<TYPE> smallestIterator = null;
+        // In following the contract of `Iterator.next`, throw a NoSuchElementException
+        // if every iterator is empty.
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        // The winner at the root of the tree holds the smallest item. Consume
+        // it, and remember to replay its leaf before the next item is requested.
+        final int winner = tree[0];
+        pendingReplay = winner;
+        return iterators.get(winner).next();
+    }
 
-        // go through each iterator
-        Iterator<PeekingIterator<TYPE>> listIterator = iterators.iterator();
-        while(listIterator.hasNext()) {
-            PeekingIterator<TYPE> iterator = listIterator.next();
-            // if the iterator doesn't have any items left, skip it
-            if (!iterator.hasNext()) {
-                // for performance, we can remove this iterator from our list
-                // so we no longer try to poll it
-                listIterator.remove();
-                continue;
+    /**
+     * Makes sure the root of the tree reflects the smallest available item,
+     * building the tree on first use and replaying the last winner's leaf
+     * otherwise.
+     */
+    private void settle() {
+        if (!initialized) {
+            initialized = true;
+            for (int i = 0; i < iterators.size(); i++) {
+                live[i] = iterators.get(i).hasNext();
+                if (live[i]) {
+                    liveCount++;
+                }
             }
-            // if smallest item is bigger than the item peeked out of the current
-            // iterator (or smallest item is null because it's the first execution)...
-            if (smallestItem == null || comparator.compare(smallestItem, iterator.peek()) > 0) {
-                // update the reference to smallest item
-                smallestItem = iterator.peek();
-                // store the iterator containing the smallest item
-                smallestIterator = iterator;
+            tree[0] = iterators.isEmpty() ? NONE : build(1);
+        } else if (pendingReplay != NONE) {
+            final int index = pendingReplay;
+            pendingReplay = NONE;
+            if (!iterators.get(index).hasNext()) {
+                live[index] = false;
+                liveCount--;
             }
+            replay(index);
         }
+    }
 
-        // If we never found a "smallest iterator", that means that every iterator is empty.
-        // In following the contract of `Iterator.next`, throw a NoSuchElementException.
-        if (smallestIterator == null) {
-            throw new NoSuchElementException();
+    /**
+     * Plays the matches of the subtree rooted at the given node, storing the
+     * loser of each match in its node.
+     *
+     * @param node the node of the subtree to build.
+     * @return the index of the stream that won the subtree.
+     */
+    private int build(final int node) {
+        final int size = iterators.size();
+        // nodes at size or beyond are leaves, one per stream
+        if (node >= size) {
+            return node - size;
         }
+        final int left = build(2 * node);
+        final int right = build(2 * node + 1);
+        if (beats(left, right)) {
+            tree[node] = right;
+            return left;
+        }
+        tree[node] = left;
+        return right;
+    }
 
-        // Consume the smallest item and return it
-        return smallestIterator.next();
+    /**
+     * Replays the matches on the path from the given stream's leaf up to the
+     * root, after the head of that stream changed.
+     *
+     * @param index the index of the stream whose head changed.
+     */
+    private void replay(final int index) {
+        int winner = index;
+        for (int node = (index + iterators.size()) >> 1; node > 0; node >>= 1) {
+            // the stored loser beats the current winner, so they swap places
+            if (beats(tree[node], winner)) {
+                final int loser = winner;
+                winner = tree[node];
+                tree[node] = loser;
+            }
+        }
+        tree[0] = winner;
+    }
+
+    /**
+     * Determines whether the head of one stream should be emitted before the
+     * head of another. Exhausted streams lose to everything, and ties go to
+     * the stream that appears first in the list.
+     *
+     * @param first the index of the first stream.
+     * @param second the index of the second stream.
+     * @return true if the first stream's head comes first.
+     */
+    private boolean beats(final int first, final int second) {
+        if (!live[first] || !live[second]) {
+            return live[first] || (!live[second] && first < second);
+        }
+        final int comparison = comparator.compare(iterators.get(first).peek(), iterators.get(second).peek());
+        return comparison < 0 || (comparison == 0 && first < second);
     }
 }
@@ -0,0 +1,259 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.misc;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This is an iterator that reads ahead on its delegate from another thread,
+ * so that slow (usually I/O bound) iterators can be fetching their next items
+ * while the consumer is busy with the current one.
+ *
+ * As soon as it's created, it hands a reading task to the provided executor.
+ * That task pulls items off the delegate into a bounded queue, blocking once
+ * the queue holds `depth` items, until either the delegate is exhausted or
+ * this iterator is closed. Since the reading task only gives up its thread
+ * at one of those two points, the executor needs to be able to run it
+ * alongside any other prefetching iterators you're consuming at the same time.
+ *
+ * Exceptions (and errors) thrown by the delegate are held on to, and thrown
+ * from the hasNext/next call that would have returned the failed item (and
+ * every call after that), the same way the PeekingIterator does it.
+ *
+ * NOTE: only the reading task touches the delegate. The consumer side is NOT
+ * thread safe, the same as any other iterator.
+ *
+ * @param <TYPE> the type of the items in the delegate iterator.
+ *
+ * @author Benjamin Shai
+ */
+public class PrefetchingIterator<TYPE> implements Iterator<TYPE>, AutoCloseable {
+
+    // marks the end of the delegate iterator in the queue
+    private static final Entry<?> END = new Entry<>(null, null);
+
+    private final BlockingQueue<Entry<TYPE>> queue;
+    // counted down once the reading task is done touching the delegate
+    private final CountDownLatch finished;
+    // guards the reader thread reference, so that we never interrupt the
+    // thread once it has gone back to the executor
+    private final Object readerLock;
+    private Thread reader;
+    // whether the reading task has started on the delegate, which is the
+    // only time close needs to wait for it
+    private boolean started;
+    private volatile boolean closed;
+
+    // the entry at the front of the queue, taken but not yet consumed
+    private Entry<TYPE> nextEntry;
+
+    /**
+     * Creates the iterator, and starts reading ahead on the delegate.
+     *
+     * @param delegateIterator the iterator to read ahead on.
+     * @param executor the executor to run the reading task on.
+     * @param depth the maximum number of items to read ahead.
+     */
+    public PrefetchingIterator(Iterator<TYPE> delegateIterator, Executor executor, int depth) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("Prefetch depth must be at least 1.");
+        }
+        this.queue = new ArrayBlockingQueue<>(depth);
+        this.finished = new CountDownLatch(1);
+        this.readerLock = new Object();
+        executor.execute(() -> read(delegateIterator));
+    }
+
+    /**
+     * Check if there are any items left. This blocks until the reading task
+     * has fetched the next item, or found there isn't one.
+     *
+     * @return true if there are, false if not.
+     */
+    @Override
+    public boolean hasNext() {
+        return peekEntry() != END;
+    }
+
+    /**
+     * Get the next item, consuming it. This blocks until the reading task
+     * has fetched the next item.
+     *
+     * @return the next item.
+     */
+    @Override
+    public TYPE next() {
+        final Entry<TYPE> entry = peekEntry();
+        if (entry == END) {
+            throw new NoSuchElementException();
+        }
+        nextEntry = null;
+        return entry.item;
+    }
+
+    /**
+     * Waits for the reading task to fetch the next item (or find there isn't
+     * one), but only up to the provided timeout. Once this returns true,
+     * hasNext and next won't block.
+     *
+     * @param timeout the most time to wait.
+     * @param unit the unit of the timeout.
+     * @return true if the next item is ready, false if the timeout ran out.
+     */
+    public boolean awaitNext(long timeout, TimeUnit unit) {
+        if (nextEntry == null && !closed) {
+            try {
+                nextEntry = queue.poll(timeout, unit);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the next item.", e);
+            }
+        }
+        return nextEntry != null || closed;
+    }
+
+    /**
+     * Stops reading ahead, and waits for the reading task to let go of the
+     * delegate, so that it's safe to close whatever backs it. If the reading
+     * task hasn't been run yet, there's nothing to wait for, since it won't
+     * touch the delegate once it sees we're closed.
+     */
+    @Override
+    public void close() {
+        final boolean mustWait;
+        synchronized (readerLock) {
+            closed = true;
+            mustWait = started;
+            // wake up the reader if it's blocked, either on a full queue
+            // or on the delegate itself (if the delegate is interruptible)
+            if (reader != null) {
+                reader.interrupt();
+            }
+        }
+        queue.clear();
+        if (!mustWait) {
+            return;
+        }
+        try {
+            finished.await();
+        } catch (InterruptedException e) {
+            // stop waiting, but don't swallow the interrupt
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Gets the entry at the front of the queue without consuming it, throwing
+     * the delegate's exception if that's what's there.
+     *
+     * @return the entry.
+     */
+    @SuppressWarnings("unchecked")
+    private Entry<TYPE> peekEntry() {
+        if (nextEntry == null) {
+            // once closed, nobody is going to fill the queue any more
+            if (closed) {
+                return (Entry<TYPE>) END;
+            }
+            try {
+                nextEntry = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the next item.", e);
+            }
+        }
+        // If the delegate threw an exception getting this item,
+        // throw that exception now
+        final Throwable exception = nextEntry.exception;
+        if (exception instanceof RuntimeException) {
+            throw (RuntimeException) exception;
+        } else if (exception instanceof Error) {
+            throw (Error) exception;
+        } else if (exception != null) {
+            // a checked exception that was thrown sneakily
+            throw new IllegalStateException("Unable to read the next item.", exception);
+        }
+        return nextEntry;
+    }
+
+    /**
+     * The reading task. Pulls items off the delegate into the queue until
+     * the delegate is exhausted, it throws, or we're closed.
+     *
+     * @param delegateIterator the iterator to read ahead on.
+     */
+    @SuppressWarnings("unchecked")
+    private void read(Iterator<TYPE> delegateIterator) {
+        synchronized (readerLock) {
+            if (closed) {
+                finished.countDown();
+                return;
+            }
+            started = true;
+            reader = Thread.currentThread();
+        }
+        Throwable failure = null;
+        try {
+            while (!closed && delegateIterator.hasNext()) {
+                queue.put(new Entry<>(delegateIterator.next(), null));
+            }
+        } catch (InterruptedException e) {
+            // we only get interrupted when we're closed, so just stop reading
+        } catch (Throwable e) {
+            // this includes errors, since the consumer needs to hear about
+            // those too, rather than wait forever for an item
+            failure = e;
+        } finally {
+            try {
+                // if we're closed, nobody is going to see the end, and any
+                // exception was probably caused by us interrupting the delegate
+                if (!closed) {
+                    queue.put(failure == null ? (Entry<TYPE>) END : new Entry<>(null, failure));
+                }
+            } catch (InterruptedException ignored) {
+                // closed while waiting for room, so there's nobody to tell
+            } finally {
+                synchronized (readerLock) {
+                    reader = null;
+                }
+                // clear any interrupt we received, before the thread goes back
+                // to the executor
+                Thread.interrupted();
+                finished.countDown();
+            }
+        }
+    }
+
+    /**
+     * An item or exception read off the delegate.
+     */
+    private static final class Entry<TYPE> {
+        private final TYPE item;
+        private final Throwable exception;
+
+        Entry(TYPE item, Throwable exception) {
+            this.item = item;
+            this.exception = exception;
+        }
+    }
+}
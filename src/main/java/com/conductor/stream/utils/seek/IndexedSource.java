@@ -0,0 +1,132 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.seek;
+
+import java.util.Comparator;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+/**
+ * A seekable source over sorted items that can be fetched by index. Seeking
+ * gallops ahead from the current position (checking 1, 2, 4, 8... items
+ * ahead) until it overshoots the key, then binary searches the last gap.
+ * Skipping d items therefore only looks at O(log d) of them.
+ *
+ * Implement `get` and `size` to use this.
+ *
+ * @param <KEY> the type of the key the items are sorted by.
+ * @param <TYPE> the type of the items.
+ *
+ * @author Benjamin Shai
+ */
+public abstract class IndexedSource<KEY, TYPE> implements SeekableSortedSource<KEY, TYPE> {
+
+    private final Function<TYPE, KEY> keyingFunction;
+    private final Comparator<KEY> ordering;
+    // the index of the next item
+    private long position;
+
+    /**
+     * Creates a source.
+     *
+     * @param keyingFunction a function which returns the key of an item.
+     * @param ordering the comparator the items are sorted by.
+     */
+    protected IndexedSource(Function<TYPE, KEY> keyingFunction, Comparator<KEY> ordering) {
+        this.keyingFunction = keyingFunction;
+        this.ordering = ordering;
+    }
+
+    /**
+     * Gets the item at the given index.
+     *
+     * @param index the index, between 0 and size (exclusive).
+     * @return the item.
+     */
+    protected abstract TYPE get(long index);
+
+    /**
+     * Gets the number of items.
+     *
+     * @return the number of items.
+     */
+    protected abstract long size();
+
+    @Override
+    public boolean hasNext() {
+        return position < size();
+    }
+
+    @Override
+    public TYPE next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return get(position++);
+    }
+
+    @Override
+    public TYPE peek() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return get(position);
+    }
+
+    @Override
+    public void seek(KEY key) {
+        final long size = size();
+        // nothing to skip if we're already there
+        if (position >= size || !isBefore(position, key)) {
+            return;
+        }
+
+        // gallop: `low` is always before the key, and we double the step
+        // until `high` isn't (or we run off the end)
+        long low = position;
+        long high;
+        long step = 1;
+        while (true) {
+            high = low + step;
+            if (high >= size) {
+                high = size;
+                break;
+            }
+            if (!isBefore(high, key)) {
+                break;
+            }
+            low = high;
+            step <<= 1;
+        }
+
+        // binary search for the first item that isn't before the key,
+        // which is somewhere in (low, high]
+        while (high - low > 1) {
+            final long middle = (low + high) >>> 1;
+            if (isBefore(middle, key)) {
+                low = middle;
+            } else {
+                high = middle;
+            }
+        }
+        position = high;
+    }
+
+    private boolean isBefore(long index, KEY key) {
+        return ordering.compare(keyingFunction.apply(get(index)), key) < 0;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.seek;
+
+import com.conductor.stream.utils.misc.PeekingIterator;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.function.Function;
+
+/**
+ * A seekable source over a plain (sorted) iterator. Since an iterator can't
+ * jump ahead, seeking just consumes items one at a time until it gets there.
+ *
+ * Exceptions thrown by the iterator are deferred the same way the
+ * PeekingIterator does it.
+ *
+ * @param <KEY> the type of the key the iterator is sorted by.
+ * @param <TYPE> the type of the items in the iterator.
+ *
+ * @author Benjamin Shai
+ */
+public class IteratorSource<KEY, TYPE> implements SeekableSortedSource<KEY, TYPE> {
+
+    private final PeekingIterator<TYPE> iterator;
+    private final Function<TYPE, KEY> keyingFunction;
+    private final Comparator<KEY> ordering;
+
+    /**
+     * Creates a source.
+     *
+     * @param iterator the sorted iterator.
+     * @param keyingFunction a function which returns the key of an item.
+     * @param ordering the comparator the iterator is sorted by.
+     */
+    public IteratorSource(Iterator<TYPE> iterator, Function<TYPE, KEY> keyingFunction, Comparator<KEY> ordering) {
+        this.iterator = new PeekingIterator<>(iterator);
+        this.keyingFunction = keyingFunction;
+        this.ordering = ordering;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return iterator.hasNext();
+    }
+
+    @Override
+    public TYPE next() {
+        return iterator.next();
+    }
+
+    @Override
+    public TYPE peek() {
+        return iterator.peek();
+    }
+
+    @Override
+    public void seek(KEY key) {
+        while (iterator.hasNext() && ordering.compare(keyingFunction.apply(iterator.peek()), key) < 0) {
+            iterator.next();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.seek;
+
+import java.util.Iterator;
+
+/**
+ * A sorted source of items that, on top of being iterated one item at a
+ * time, can skip ahead to a given key.
+ *
+ * Sources that support random access (like sorted lists, or sorted files
+ * of fixed-size records) can seek without looking at every item they skip,
+ * which is what makes joining a sparse side against a huge one cheap.
+ *
+ * @param <KEY> the type of the key the source is sorted by.
+ * @param <TYPE> the type of the items in the source.
+ *
+ * @author Benjamin Shai
+ */
+public interface SeekableSortedSource<KEY, TYPE> extends Iterator<TYPE>, AutoCloseable {
+
+    /**
+     * Take a look at the next item without consuming it.
+     *
+     * @return the next item.
+     */
+    TYPE peek();
+
+    /**
+     * Skips every item whose key is smaller than the given key, so that the
+     * next item (if there is one) has a key greater than or equal to it.
+     * Seeking never moves backwards.
+     *
+     * @param key the key to skip to.
+     */
+    void seek(KEY key);
+
+    /**
+     * Releases anything the source holds on to. It's a noop by default.
+     */
+    @Override
+    default void close() { /* noop */ }
+
+}
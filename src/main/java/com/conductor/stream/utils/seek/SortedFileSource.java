@@ -0,0 +1,180 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.seek;
+
+import com.conductor.stream.utils.spill.Serializer;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.function.Function;
+
+/**
+ * A seekable source over a sorted file of fixed-size records. Since every
+ * record takes up the same number of bytes, any record can be read without
+ * reading the ones before it, which lets seeking skip most of the file.
+ *
+ * Records are read a block at a time, so iterating through the file doesn't
+ * cost a read per record. Use `write` to create such a file.
+ *
+ * IO failures are thrown as UncheckedIOExceptions. Close this once you're
+ * done with it, to release the file handle.
+ *
+ * @param <KEY> the type of the key the file is sorted by.
+ * @param <TYPE> the type of the items in the file.
+ *
+ * @author Benjamin Shai
+ */
+public class SortedFileSource<KEY, TYPE> extends IndexedSource<KEY, TYPE> {
+
+    private static final int BLOCK_SIZE = 8192;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final int recordSize;
+    private final Serializer<TYPE> serializer;
+    private final long size;
+
+    // the records currently held in memory, starting at record blockStart
+    private final ByteBuffer block;
+    private long blockStart;
+    private int blockRecords;
+
+    /**
+     * Opens a source over a file.
+     *
+     * @param path the file, sorted and made up of fixed-size records.
+     * @param recordSize the size of each record, in bytes.
+     * @param serializer the serializer to read records with.
+     * @param keyingFunction a function which returns the key of an item.
+     * @param ordering the comparator the file is sorted by.
+     */
+    public SortedFileSource(
+            Path path,
+            int recordSize,
+            Serializer<TYPE> serializer,
+            Function<TYPE, KEY> keyingFunction,
+            Comparator<KEY> ordering) {
+        super(keyingFunction, ordering);
+        if (recordSize < 1) {
+            throw new IllegalArgumentException("Record size must be at least 1.");
+        }
+        this.path = path;
+        this.recordSize = recordSize;
+        this.serializer = serializer;
+        this.block = ByteBuffer.allocate(Math.max(BLOCK_SIZE / recordSize, 1) * recordSize);
+        try {
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+            this.size = channel.size() / recordSize;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open sorted file " + path + ".", e);
+        }
+    }
+
+    @Override
+    protected TYPE get(long index) {
+        if (index < blockStart || index >= blockStart + blockRecords) {
+            readBlock(index);
+        }
+        final int offset = (int) (index - blockStart) * recordSize;
+        try {
+            return serializer.read(new DataInputStream(new ByteArrayInputStream(block.array(), offset, recordSize)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read record " + index + " of " + path + ".", e);
+        }
+    }
+
+    @Override
+    protected long size() {
+        return size;
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to close sorted file " + path + ".", e);
+        }
+    }
+
+    /**
+     * Reads the block of records starting at the given record.
+     *
+     * @param index the first record to read.
+     */
+    private void readBlock(long index) {
+        block.clear();
+        try {
+            long position = index * recordSize;
+            while (block.hasRemaining()) {
+                final int read = channel.read(block, position);
+                if (read < 0) {
+                    break;
+                }
+                position += read;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read " + path + ".", e);
+        }
+        blockStart = index;
+        blockRecords = block.position() / recordSize;
+    }
+
+    /**
+     * Writes items to a file of fixed-size records, which can then be read
+     * with a SortedFileSource. The items must already be sorted.
+     *
+     * @param path the file to write.
+     * @param items the sorted items to write.
+     * @param serializer the serializer to write records with.
+     * @param recordSize the size of each record, in bytes. Records that
+     *                   serialize to fewer bytes are padded with zeros.
+     * @param <TYPE> the type of the items.
+     */
+    public static <TYPE> void write(Path path, Iterator<TYPE> items, Serializer<TYPE> serializer, int recordSize) {
+        final ByteArrayOutputStream record = new ByteArrayOutputStream(recordSize);
+        final DataOutputStream recordOutput = new DataOutputStream(record);
+        final byte[] padding = new byte[recordSize];
+        try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(path), BLOCK_SIZE)) {
+            while (items.hasNext()) {
+                record.reset();
+                serializer.write(items.next(), recordOutput);
+                if (record.size() > recordSize) {
+                    throw new IllegalArgumentException(String.format(
+                            "Record of %d bytes doesn't fit in the record size of %d bytes.", record.size(), recordSize));
+                }
+                record.writeTo(output);
+                output.write(padding, 0, recordSize - record.size());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write sorted file " + path + ".", e);
+        }
+    }
+}
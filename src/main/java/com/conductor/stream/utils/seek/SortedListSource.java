@@ -0,0 +1,60 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.seek;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A seekable source over a sorted, in-memory, list. For arrays, wrap them
+ * with Arrays.asList.
+ *
+ * The list should support fast random access (like an ArrayList does),
+ * otherwise seeking loses its edge.
+ *
+ * @param <KEY> the type of the key the list is sorted by.
+ * @param <TYPE> the type of the items in the list.
+ *
+ * @author Benjamin Shai
+ */
+public class SortedListSource<KEY, TYPE> extends IndexedSource<KEY, TYPE> {
+
+    private final List<TYPE> list;
+
+    /**
+     * Creates a source.
+     *
+     * @param list the sorted list.
+     * @param keyingFunction a function which returns the key of an item.
+     * @param ordering the comparator the list is sorted by.
+     */
+    public SortedListSource(List<TYPE> list, Function<TYPE, KEY> keyingFunction, Comparator<KEY> ordering) {
+        super(keyingFunction, ordering);
+        this.list = list;
+    }
+
+    @Override
+    protected TYPE get(long index) {
+        return list.get((int) index);
+    }
+
+    @Override
+    protected long size() {
+        return list.size();
+    }
+}
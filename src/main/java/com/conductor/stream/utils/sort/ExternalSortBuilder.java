@@ -0,0 +1,133 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.sort;
+
+import com.conductor.stream.utils.spill.Serializer;
+
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * This is a builder for the ExternalSortIterator, to make construction
+ * much simpler.
+ *
+ * @author Benjamin Shai
+ */
+public class ExternalSortBuilder<TYPE> {
+
+    private Stream<TYPE> stream;
+    private Comparator<TYPE> comparator;
+    private Serializer<TYPE> serializer;
+    private int memoryBudget;
+    private int fanIn = ExternalSortIterator.DEFAULT_FAN_IN;
+    private boolean compressed;
+    private Path tempDirectory;
+
+    public ExternalSortBuilder() {}
+
+    public ExternalSortBuilder<TYPE> setStream(final Stream<TYPE> stream) {
+        this.stream = stream;
+        return this;
+    }
+
+    /**
+     * Getter so that we can appropriately clean up resources.
+     *
+     * @return the base stream
+     */
+    public Stream<TYPE> getStream() {
+        return stream;
+    }
+
+    public ExternalSortBuilder<TYPE> setComparator(final Comparator<TYPE> comparator) {
+        this.comparator = comparator;
+        return this;
+    }
+
+    public ExternalSortBuilder<TYPE> setSerializer(final Serializer<TYPE> serializer) {
+        this.serializer = serializer;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of items held in memory at once, which is
+     * also the size of each run spilled to disk.
+     *
+     * @param memoryBudget the maximum number of items.
+     * @return this builder.
+     */
+    public ExternalSortBuilder<TYPE> setMemoryBudget(final int memoryBudget) {
+        this.memoryBudget = memoryBudget;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of runs merged at once, each of which holds a
+     * file handle open. Defaults to ExternalSortIterator.DEFAULT_FAN_IN.
+     *
+     * @param fanIn the maximum number of runs.
+     * @return this builder.
+     */
+    public ExternalSortBuilder<TYPE> setFanIn(final int fanIn) {
+        this.fanIn = fanIn;
+        return this;
+    }
+
+    public ExternalSortBuilder<TYPE> setCompressed(final boolean compressed) {
+        this.compressed = compressed;
+        return this;
+    }
+
+    /**
+     * Sets the directory runs are spilled to. Defaults to the default
+     * temporary-file directory.
+     *
+     * @param tempDirectory the directory.
+     * @return this builder.
+     */
+    public ExternalSortBuilder<TYPE> setTempDirectory(final Path tempDirectory) {
+        this.tempDirectory = tempDirectory;
+        return this;
+    }
+
+    public ExternalSortIterator<TYPE> build() {
+        Objects.requireNonNull(stream, "Stream must not be null.");
+        Objects.requireNonNull(comparator, "Comparator must not be null.");
+        Objects.requireNonNull(serializer, "Serializer must not be null.");
+
+        return new ExternalSortIterator<>(
+                stream.iterator(),
+                comparator,
+                serializer,
+                memoryBudget,
+                fanIn,
+                compressed,
+                tempDirectory
+        );
+    }
+
+    /**
+     * Static convenience method.
+     *
+     * @return a builder.
+     */
+    public static <TYPE> ExternalSortBuilder<TYPE> builder() {
+        return new ExternalSortBuilder<>();
+    }
+}
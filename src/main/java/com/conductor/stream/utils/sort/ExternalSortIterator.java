@@ -0,0 +1,278 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.sort;
+
+import com.conductor.stream.utils.merge.SortedMergeIterator;
+import com.conductor.stream.utils.spill.Serializer;
+import com.conductor.stream.utils.spill.SpillFile;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterators;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * This iterator sorts an iterator that may be far too large to fit in memory.
+ *
+ * It reads the underlying iterator in runs of at most `runSize` items. Each
+ * run is sorted (in parallel, on the common fork join pool) and spilled to a
+ * temporary file. Once the underlying iterator is exhausted, the runs are
+ * read back and zipped together with a SortedMergeIterator. If everything
+ * fits in a single run, nothing is spilled at all.
+ *
+ * Each run being merged holds a file handle open, so at most `fanIn` runs
+ * are merged at once. If there are more, they're first merged in groups of
+ * `fanIn` into fewer, longer, runs (which are spilled in turn), until few
+ * enough are left.
+ *
+ * Nothing is read from the underlying iterator until the first hasNext/next
+ * call. The sort is stable: items that compare as equal come out in the order
+ * they went in.
+ *
+ * The temporary files are deleted when this is closed, so make sure it is.
+ *
+ * NOTE: this is NOT thread safe.
+ *
+ * @param <TYPE> the type of the items in the underlying iterator.
+ *
+ * @author Benjamin Shai
+ */
+public class ExternalSortIterator<TYPE> implements Iterator<TYPE>, AutoCloseable {
+
+    /**
+     * The default maximum number of runs merged at once.
+     */
+    public static final int DEFAULT_FAN_IN = 64;
+
+    private final Iterator<TYPE> iterator;
+    private final Comparator<TYPE> comparator;
+    private final Serializer<TYPE> serializer;
+    private final int runSize;
+    private final int fanIn;
+    private final boolean compressed;
+    private final Path tempDirectory;
+
+    private final List<SpillFile<TYPE>> runs;
+    // the sorted output, which is only computed on first use
+    private Iterator<TYPE> sorted;
+
+    /**
+     * Creates an iterator.
+     *
+     * @param iterator the iterator to sort.
+     * @param comparator the comparator to sort by.
+     * @param serializer the serializer used to spill runs to disk.
+     * @param runSize the maximum number of items to hold in memory at once.
+     * @param compressed whether or not to compress the spilled runs.
+     * @param tempDirectory the directory to spill runs to, or null for the
+     *                      default temporary-file directory.
+     */
+    public ExternalSortIterator(
+            Iterator<TYPE> iterator,
+            Comparator<TYPE> comparator,
+            Serializer<TYPE> serializer,
+            int runSize,
+            boolean compressed,
+            Path tempDirectory) {
+        this(iterator, comparator, serializer, runSize, DEFAULT_FAN_IN, compressed, tempDirectory);
+    }
+
+    /**
+     * Creates an iterator.
+     *
+     * @param iterator the iterator to sort.
+     * @param comparator the comparator to sort by.
+     * @param serializer the serializer used to spill runs to disk.
+     * @param runSize the maximum number of items to hold in memory at once.
+     * @param fanIn the maximum number of runs to merge (and so hold open) at once.
+     * @param compressed whether or not to compress the spilled runs.
+     * @param tempDirectory the directory to spill runs to, or null for the
+     *                      default temporary-file directory.
+     */
+    public ExternalSortIterator(
+            Iterator<TYPE> iterator,
+            Comparator<TYPE> comparator,
+            Serializer<TYPE> serializer,
+            int runSize,
+            int fanIn,
+            boolean compressed,
+            Path tempDirectory) {
+        if (runSize < 1) {
+            throw new IllegalArgumentException("Run size must be at least 1.");
+        }
+        if (fanIn < 2) {
+            throw new IllegalArgumentException("Fan in must be at least 2.");
+        }
+        this.iterator = iterator;
+        this.comparator = comparator;
+        this.serializer = serializer;
+        this.runSize = runSize;
+        this.fanIn = fanIn;
+        this.compressed = compressed;
+        this.tempDirectory = tempDirectory;
+        this.runs = new ArrayList<>();
+    }
+
+    /**
+     * Determines whether or not there are items left to emit. The first call
+     * sorts the whole underlying iterator.
+     *
+     * @return true or false.
+     */
+    @Override
+    public boolean hasNext() {
+        return sorted().hasNext();
+    }
+
+    /**
+     * Gets the next item, according to the comparator. The first call sorts
+     * the whole underlying iterator.
+     *
+     * @return the next item.
+     */
+    @Override
+    public TYPE next() {
+        return sorted().next();
+    }
+
+    /**
+     * Deletes any runs that were spilled to disk.
+     */
+    @Override
+    public void close() {
+        RuntimeException exception = null;
+        for (SpillFile<TYPE> run : runs) {
+            // make sure we try to delete every run, even if one fails
+            try {
+                run.close();
+            } catch (RuntimeException e) {
+                if (exception == null) {
+                    exception = e;
+                } else {
+                    exception.addSuppressed(e);
+                }
+            }
+        }
+        runs.clear();
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    private Iterator<TYPE> sorted() {
+        if (sorted == null) {
+            sorted = sort();
+        }
+        return sorted;
+    }
+
+    /**
+     * Reads the whole underlying iterator, spilling sorted runs as we go.
+     *
+     * @return an iterator over all the items, in order.
+     */
+    private Iterator<TYPE> sort() {
+        List<TYPE> run = new ArrayList<>();
+        while (iterator.hasNext()) {
+            run.add(iterator.next());
+            if (run.size() == runSize) {
+                spill(sortRun(run));
+                // start a fresh list, so the old one can be collected
+                run = new ArrayList<>();
+            }
+        }
+
+        // if it all fit in memory, there's no need to go to disk
+        if (runs.isEmpty()) {
+            return sortRun(run).iterator();
+        }
+        if (!run.isEmpty()) {
+            spill(sortRun(run));
+        }
+
+        while (runs.size() > fanIn) {
+            mergePass();
+        }
+        return merge(runs);
+    }
+
+    /**
+     * Merges each group of `fanIn` consecutive runs into a single run, and
+     * deletes the runs that were merged.
+     */
+    private void mergePass() {
+        final List<SpillFile<TYPE>> pass = new ArrayList<>(runs);
+        for (int start = 0; start < pass.size(); start += fanIn) {
+            final List<SpillFile<TYPE>> group = pass.subList(start, Math.min(start + fanIn, pass.size()));
+            if (group.size() == 1) {
+                // nothing to merge it with, so just move it along after the merged runs
+                runs.remove(group.get(0));
+                runs.add(group.get(0));
+                continue;
+            }
+            final SpillFile<TYPE> merged = new SpillFile<>(tempDirectory, serializer, compressed);
+            // register it right away, so it's cleaned up even if writing fails
+            runs.add(merged);
+            merge(group).forEachRemaining(merged::write);
+            for (SpillFile<TYPE> run : group) {
+                runs.remove(run);
+                run.close();
+            }
+        }
+    }
+
+    /**
+     * Zips runs together.
+     *
+     * @param group the runs to merge, in input order.
+     * @return an iterator over the items of all the runs, in order.
+     */
+    private Iterator<TYPE> merge(List<SpillFile<TYPE>> group) {
+        final List<Stream<TYPE>> streams = group.stream()
+                .map(spillFile -> StreamSupport.stream(Spliterators.spliteratorUnknownSize(spillFile.read(), 0), false))
+                .collect(Collectors.toList());
+        // the runs are in input order, and the merge favors earlier streams on
+        // ties, which keeps the sort stable.
+        return new SortedMergeIterator<>(streams, comparator);
+    }
+
+    /**
+     * Sorts a run, using all available cores.
+     *
+     * @param run the items to sort.
+     * @return the sorted items.
+     */
+    @SuppressWarnings("unchecked")
+    private List<TYPE> sortRun(List<TYPE> run) {
+        final TYPE[] items = (TYPE[]) run.toArray();
+        Arrays.parallelSort(items, comparator);
+        return Arrays.asList(items);
+    }
+
+    private void spill(List<TYPE> run) {
+        final SpillFile<TYPE> spillFile = new SpillFile<>(tempDirectory, serializer, compressed);
+        // register it right away, so it's cleaned up even if writing fails
+        runs.add(spillFile);
+        run.forEach(spillFile::write);
+    }
+}
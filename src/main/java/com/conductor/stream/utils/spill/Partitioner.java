@@ -0,0 +1,52 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.spill;
+
+import java.util.Objects;
+
+/**
+ * Picks the partition items are spilled to by the hash of their key, for
+ * the operators that split their input up on disk when it outgrows memory.
+ *
+ * Each depth (the number of times the items have been split up already)
+ * mixes the hash differently, since all the keys in a partition share the
+ * bits that picked it, so splitting it again the same way would put them
+ * all in one place.
+ *
+ * @author Benjamin Shai
+ */
+public final class Partitioner {
+
+    private Partitioner() {}
+
+    /**
+     * Picks the partition for a key.
+     *
+     * @param key the key.
+     * @param depth the number of times the key's items have been split up already.
+     * @param partitions the number of partitions.
+     * @return the partition, from 0 up to (but not including) the number of partitions.
+     */
+    public static int partitionOf(Object key, int depth, int partitions) {
+        int hash = Objects.hashCode(key) ^ (depth * 0x9E3779B9);
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        hash ^= hash >>> 16;
+        return Math.floorMod(hash, partitions);
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.spill;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Converts items to and from bytes, so that they can be spilled to disk
+ * when there are too many of them to hold in memory.
+ *
+ * The read method will be called exactly as many times as write was, in
+ * the same order, so there's no need to mark where one item ends.
+ *
+ * @param <TYPE> the type of the items to serialize.
+ *
+ * @author Benjamin Shai
+ */
+public interface Serializer<TYPE> {
+
+    /**
+     * Writes an item out.
+     *
+     * @param item the item to write.
+     * @param output where to write it.
+     * @throws IOException if the output can't be written to.
+     */
+    void write(TYPE item, DataOutput output) throws IOException;
+
+    /**
+     * Reads an item back in.
+     *
+     * @param input where to read it from.
+     * @return the item.
+     * @throws IOException if the input can't be read from.
+     */
+    TYPE read(DataInput input) throws IOException;
+
+}
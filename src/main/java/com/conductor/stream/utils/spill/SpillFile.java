@@ -0,0 +1,244 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.spill;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * A temporary file that items are spilled to, and later read back from
+ * in the same order.
+ *
+ * Items are written with the provided serializer, optionally compressed
+ * with java.util.zip (which trades CPU for disk I/O, and is usually a good
+ * deal for anything but the fastest disks). Once reading starts, no more
+ * items can be written, but the file can be read as many times as needed.
+ * The file is deleted when this is closed.
+ *
+ * IO failures are thrown as UncheckedIOExceptions, since all of this happens
+ * behind iterators.
+ *
+ * NOTE: this is NOT thread safe.
+ *
+ * @param <TYPE> the type of the items in the file.
+ *
+ * @author Benjamin Shai
+ */
+public class SpillFile<TYPE> implements AutoCloseable {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Path path;
+    private final Serializer<TYPE> serializer;
+    private final boolean compressed;
+    // readers that haven't reached the end of the file yet
+    private final List<Reader> openReaders;
+
+    private DataOutputStream output;
+    private Deflater deflater;
+    private boolean reading;
+    // the number of items written, which is how we know when to stop reading
+    private long size;
+
+    /**
+     * Creates a new, empty, spill file.
+     *
+     * @param directory the directory to create the file in, or null for the
+     *                  default temporary-file directory.
+     * @param serializer the serializer to write and read items with.
+     * @param compressed whether or not to compress the file.
+     */
+    public SpillFile(Path directory, Serializer<TYPE> serializer, boolean compressed) {
+        this.serializer = serializer;
+        this.compressed = compressed;
+        this.openReaders = new ArrayList<>();
+        try {
+            this.path = directory == null
+                    ? Files.createTempFile("stream-utils-", ".spill")
+                    : Files.createTempFile(directory, "stream-utils-", ".spill");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to create spill file.", e);
+        }
+    }
+
+    /**
+     * Appends an item to the file.
+     *
+     * @param item the item to write.
+     */
+    public void write(TYPE item) {
+        if (reading) {
+            throw new IllegalStateException("Cannot write to a spill file that is being read.");
+        }
+        try {
+            if (output == null) {
+                OutputStream stream = Files.newOutputStream(path);
+                if (compressed) {
+                    deflater = new Deflater(Deflater.BEST_SPEED);
+                    stream = new DeflaterOutputStream(stream, deflater, BUFFER_SIZE);
+                }
+                output = new DataOutputStream(new BufferedOutputStream(stream, BUFFER_SIZE));
+            }
+            serializer.write(item, output);
+            size++;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write to spill file " + path + ".", e);
+        }
+    }
+
+    /**
+     * Gets the number of items written to the file.
+     *
+     * @return the number of items.
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Finishes writing (if that hasn't happened yet), and returns an iterator
+     * over the items that were written, in the order they were written. Each
+     * call returns a new, independent, iterator.
+     *
+     * @return an iterator over the items.
+     */
+    public Iterator<TYPE> read() {
+        try {
+            reading = true;
+            closeOutput();
+            return new Reader();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read spill file " + path + ".", e);
+        }
+    }
+
+    /**
+     * Closes any open handles on the file, and deletes it.
+     */
+    @Override
+    public void close() {
+        try {
+            try {
+                closeOutput();
+            } finally {
+                // copy the list, because closing a reader removes it from the list
+                for (Reader reader : new ArrayList<>(openReaders)) {
+                    reader.close();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to close spill file " + path + ".", e);
+        } finally {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                // there's not much more we can do, the OS will have to clean it up
+                path.toFile().deleteOnExit();
+            }
+        }
+    }
+
+    private void closeOutput() throws IOException {
+        if (output != null) {
+            try {
+                output.close();
+            } finally {
+                output = null;
+                if (deflater != null) {
+                    // deflaters hold on to native memory until they're ended
+                    deflater.end();
+                    deflater = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * A single pass over the file. It lets go of its file handle as soon as
+     * it reaches the end.
+     */
+    private final class Reader implements Iterator<TYPE> {
+        private final DataInputStream input;
+        private final Inflater inflater;
+        private long remaining;
+
+        Reader() throws IOException {
+            InputStream stream = Files.newInputStream(path);
+            if (compressed) {
+                inflater = new Inflater();
+                stream = new InflaterInputStream(stream, inflater, BUFFER_SIZE);
+            } else {
+                inflater = null;
+            }
+            input = new DataInputStream(new BufferedInputStream(stream, BUFFER_SIZE));
+            remaining = size;
+            openReaders.add(this);
+            if (remaining == 0) {
+                close();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        public TYPE next() {
+            if (remaining <= 0) {
+                throw new NoSuchElementException();
+            }
+            try {
+                final TYPE item = serializer.read(input);
+                if (--remaining == 0) {
+                    close();
+                }
+                return item;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to read spill file " + path + ".", e);
+            }
+        }
+
+        void close() throws IOException {
+            remaining = 0;
+            openReaders.remove(this);
+            try {
+                input.close();
+            } finally {
+                if (inflater != null) {
+                    inflater.end();
+                }
+            }
+        }
+    }
+}
@@ -16,16 +16,30 @@
 
 package com.conductor.stream.utils;
 
+import com.conductor.stream.utils.join.CoGroup;
+import com.conductor.stream.utils.join.IntJoinBuilder;
+import com.conductor.stream.utils.join.JoinBuilder;
 import com.conductor.stream.utils.join.JoinType;
+import com.conductor.stream.utils.join.LongJoinBuilder;
+import com.conductor.stream.utils.join.WindowedJoinBuilder;
+import com.conductor.stream.utils.spill.Serializer;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import static org.junit.Assert.assertEquals;
@@ -102,6 +116,48 @@ public class OrderedStreamUtilsTest {
         assertEquals(100000, groupedStream.findFirst().get().size());
     }
 
+    @Test
+    public void testGroupByParallel() {
+        final List<Integer> items = IntStream.range(0, 100_000).boxed().collect(Collectors.toList());
+        final List<List<Integer>> expected = OrderedStreamUtils.groupBy(items.stream(), i -> i / 7).collect(Collectors.toList());
+
+        assertEquals(expected, OrderedStreamUtils.groupBy(items.parallelStream(), i -> i / 7).collect(Collectors.toList()));
+        assertEquals(
+                expected.stream().map(List::size).collect(Collectors.toList()),
+                OrderedStreamUtils.aggregate(items.stream().parallel(), i -> i / 7, List::size).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testKeyedGroupBy() {
+        final List<String> groups = OrderedStreamUtils.keyedGroupBy(getRecordStream(), TestRecord::getId)
+                .map(group -> group.getKey() + ":" + group.getValue().size())
+                .collect(Collectors.toList());
+        assertEquals(Arrays.asList("1:3", "2:2", "3:1", "4:2"), groups);
+    }
+
+    @Test
+    public void testGroupByPrimitiveKeys() {
+        final List<List<TestRecord>> expectedOutcome = OrderedStreamUtils.groupBy(getRecordStream(), TestRecord::getId)
+                .collect(Collectors.toList());
+
+        assertEquals(expectedOutcome, OrderedStreamUtils.groupByLong(getRecordStream(), TestRecord::getId).collect(Collectors.toList()));
+        assertEquals(expectedOutcome, OrderedStreamUtils.groupByInt(getRecordStream(), TestRecord::getId).collect(Collectors.toList()));
+        assertEquals(
+                Arrays.asList(3, 2, 1, 2),
+                OrderedStreamUtils.aggregateByLong(getRecordStream(), TestRecord::getId, List::size).collect(Collectors.toList()));
+        assertEquals(
+                Arrays.asList(3, 2, 1, 2),
+                OrderedStreamUtils.aggregateByInt(getRecordStream(), TestRecord::getId, List::size).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testGroupByLazy() {
+        final List<String> groups = OrderedStreamUtils.groupByLazy(getRecordStream(), TestRecord::getId)
+                .map(group -> group.getKey() + ":" + group.getValue().count())
+                .collect(Collectors.toList());
+        assertEquals(Arrays.asList("1:3", "2:2", "3:1", "4:2"), groups);
+    }
+
     @Test
     public void testAggregate() {
         OrderedStreamUtils.aggregate(Stream.of(1, 3, 5, 2, 4), (i) -> i % 2, List::toString);
@@ -123,6 +179,18 @@ public class OrderedStreamUtilsTest {
         );
     }
 
+    @Test
+    public void testAggregateWithCollector() {
+        assertEquals(
+                Arrays.asList("val1val2val3", "val1val2", "val1", "val1val2"),
+                OrderedStreamUtils.aggregate(
+                        getRecordStream(),
+                        TestRecord::getId,
+                        Collectors.mapping(TestRecord::getValue, Collectors.joining())
+                ).collect(Collectors.toList())
+        );
+    }
+
     @Test
     public void testSymmetricMerge() {
         final Stream<Integer> s1 = Stream.of(1, 3, 5, 7);
@@ -146,6 +214,62 @@ public class OrderedStreamUtilsTest {
         assertEquals(Arrays.asList(2, 4, 6, 8, 1, 3, 5, 7), stream.collect(Collectors.toList()));
     }
 
+    @Test
+    public void testPrefetchingMerge() {
+        final ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            final Stream<Integer> s1 = Stream.of(1, 4, 7);
+            final Stream<Integer> s2 = Stream.of(2, 5, 8);
+            final Stream<Integer> s3 = Stream.of(3, 6, 9);
+
+            final Stream<Integer> stream = OrderedStreamUtils.sortedMerge(
+                    Arrays.asList(s1, s2, s3), Comparator.naturalOrder(), executor, 2);
+
+            assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 9), stream.collect(Collectors.toList()));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(timeout = 1000)
+    public void testPrefetchingMergeClosesUnderlyingStreams() {
+        final ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            final AtomicInteger closed = new AtomicInteger();
+            final Stream<Integer> s1 = Stream.iterate(0, i -> i + 2).onClose(closed::incrementAndGet);
+            final Stream<Integer> s2 = Stream.iterate(1, i -> i + 2).onClose(closed::incrementAndGet);
+
+            try (Stream<Integer> stream = OrderedStreamUtils.sortedMerge(
+                    Arrays.asList(s1, s2), Comparator.naturalOrder(), executor, 4)) {
+                assertEquals(Arrays.asList(0, 1, 2, 3, 4), stream.limit(5).collect(Collectors.toList()));
+            }
+
+            assertEquals(2, closed.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testExternalSort() {
+        final Serializer<Integer> serializer = new Serializer<Integer>() {
+            @Override
+            public void write(Integer item, DataOutput output) throws IOException {
+                output.writeInt(item);
+            }
+
+            @Override
+            public Integer read(DataInput input) throws IOException {
+                return input.readInt();
+            }
+        };
+
+        try (Stream<Integer> stream = OrderedStreamUtils.externalSort(
+                Stream.of(5, 3, 8, 1, 9, 2, 7, 4, 6), Comparator.naturalOrder(), serializer, 2)) {
+            assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 9), stream.collect(Collectors.toList()));
+        }
+    }
+
     /*
       This is just a single test that tests the static utility method. For more
       comprehensive tests, check out JoiningIteratorTest.
@@ -164,6 +288,147 @@ public class OrderedStreamUtilsTest {
         assertEquals(Arrays.asList(2, 4, 6, 8, 10), join.collect(Collectors.toList()));
     }
 
+    @Test
+    public void testParallelJoin() {
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            final Stream<Integer> join = OrderedStreamUtils.parallelJoin(
+                    JoinBuilder.<Integer, Integer, Integer, Integer>builder()
+                            .setLeftHandSide(IntStream.range(0, 10_000).boxed())
+                            .setRightHandSide(IntStream.range(0, 10_000).map(i -> i * 2).boxed())
+                            .setOrdering(Comparator.naturalOrder())
+                            .setLeftHandKeyingFunction(Function.identity())
+                            .setRightHandKeyingFunction(Function.identity())
+                            .setJoinFunction((left, right) -> left + right)
+                            .setJoinType(JoinType.INNER)
+                            .setPartitionSize(100),
+                    pool
+            );
+            assertEquals(
+                    IntStream.range(0, 5_000).map(i -> i * 4).boxed().collect(Collectors.toList()),
+                    join.collect(Collectors.toList()));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testLongJoin() {
+        final Stream<Long> join = OrderedStreamUtils.join(LongJoinBuilder.<String, Long, Long>builder()
+                .setLeftHandSide(Stream.of("1", "2", "3", "4", "5"))
+                .setRightHandSide(Stream.of(2L, 4L, 6L))
+                .setLeftHandKeyingFunction(Long::parseLong)
+                .setRightHandKeyingFunction(Long::longValue)
+                .setJoinFunction((left, right) -> Long.parseLong(left) + right)
+                .setJoinType(JoinType.INNER)
+        );
+        assertEquals(Arrays.asList(4L, 8L), join.collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testIntJoin() {
+        final Stream<TestRecord> join = OrderedStreamUtils.join(IntJoinBuilder.<TestRecord, Integer, TestRecord>builder()
+                .setLeftHandSide(getRecordStream())
+                .setRightHandSide(Stream.of(1, 3, 5))
+                .setLeftHandKeyingFunction(TestRecord::getId)
+                .setRightHandKeyingFunction(Integer::intValue)
+                .setJoinType(JoinType.LEFT_SEMI)
+        );
+        assertEquals(Arrays.asList(VAL_1, VAL_2, VAL_3, VAL_6), join.collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testSemiJoin() {
+        final Stream<TestRecord> join = OrderedStreamUtils.semiJoin(
+                getRecordStream(),
+                Stream.of(1, 3, 5),
+                Comparator.naturalOrder(),
+                TestRecord::getId,
+                Function.identity()
+        );
+        assertEquals(Arrays.asList(VAL_1, VAL_2, VAL_3, VAL_6), join.collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testAntiJoin() {
+        final Stream<TestRecord> join = OrderedStreamUtils.antiJoin(
+                getRecordStream(),
+                Stream.of(1, 3, 5),
+                Comparator.naturalOrder(),
+                TestRecord::getId,
+                Function.identity()
+        );
+        assertEquals(Arrays.asList(VAL_4, VAL_5, VAL_7, VAL_8), join.collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testAsOfJoin() {
+        final Stream<String> join = OrderedStreamUtils.asOfJoin(
+                Stream.of(5L, 15L, 25L),
+                Stream.of(10L, 12L, 20L),
+                Comparator.<Long>naturalOrder(),
+                Function.identity(),
+                Function.identity(),
+                (left, right) -> left + "@" + right,
+                JoinType.LEFT
+        );
+        assertEquals(
+                Arrays.asList("5@null", "15@12", "25@20"),
+                join.collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testBandJoin() {
+        final Stream<String> join = OrderedStreamUtils.bandJoin(
+                Stream.of(100L, 200L, 400L),
+                Stream.of(90L, 160L, 210L, 260L),
+                Comparator.<Long>naturalOrder(),
+                Function.identity(),
+                Function.identity(),
+                time -> time - 50,
+                time -> time + 50,
+                (left, right) -> left + "~" + right,
+                JoinType.LEFT
+        );
+        assertEquals(
+                Arrays.asList("100~90", "200~160", "200~210", "400~null"),
+                join.collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testWindowedJoin() {
+        final Stream<String> join = OrderedStreamUtils.windowedJoin(WindowedJoinBuilder.<Integer, Long, Long, String>builder()
+                .setLeftHandSide(Stream.of(100L, 120L, 110L, 300L))
+                .setRightHandSide(Stream.of(105L, 200L))
+                .setLeftHandKeyingFunction(time -> 1)
+                .setRightHandKeyingFunction(time -> 1)
+                .setLeftHandTimeFunction(time -> time)
+                .setRightHandTimeFunction(time -> time)
+                .setWindowSize(10)
+                .setMaxOutOfOrderness(20)
+                .setJoinFunction((left, right) -> left + "~" + right)
+                .setJoinType(JoinType.INNER)
+        );
+        assertEquals(
+                Arrays.asList("100~105", "110~105"),
+                join.sorted().collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testCogroup() {
+        final Stream<CoGroup<Integer>> stream = OrderedStreamUtils.cogroup(
+                Arrays.asList(getRecordStream(), Stream.of(1, 3, 5)),
+                Arrays.<Function<?, Integer>>asList((TestRecord r) -> r.getId(), (Integer i) -> i),
+                Comparator.naturalOrder()
+        );
+
+        assertEquals(
+                Arrays.asList("1:3:1", "2:2:0", "3:1:1", "4:2:0", "5:0:1"),
+                stream.map(coGroup -> coGroup.getKey() + ":" + coGroup.get(0).size() + ":" + coGroup.get(1).size())
+                        .collect(Collectors.toList())
+        );
+    }
+
     private Stream<TestRecord> getRecordStream() {
         return Stream.of(
                 VAL_1,
@@ -16,18 +16,34 @@
 
 package com.conductor.stream.utils;
 
+import com.conductor.stream.utils.buffer.ListPool;
+import com.conductor.stream.utils.buffer.SizedBufferIterator;
+import com.conductor.stream.utils.join.JoinType;
+import com.conductor.stream.utils.spill.Serializer;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
+import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 import java.util.stream.Stream;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
 public class StreamUtilsTest {
@@ -58,9 +74,103 @@ public class StreamUtilsTest {
         final Stream<List<Integer>> groupedStream = StreamUtils.buffer(infiniteStream.limit(1000000000), 10);
         assertEquals(groupedStream.findFirst().get(), Arrays.asList(0, 0, 0, 0, 0, 0, 0, 0, 0, 0));
 
-        // get should only be called 11 times because we're buffering 10, and we retrieve the
-        // 11th to do the check that we're over the limit
-        Mockito.verify(supplier, Mockito.times(11)).get();
+        // get should only be called 10 times because we're buffering 10, and nothing
+        // past the first list is read
+        Mockito.verify(supplier, Mockito.times(10)).get();
+    }
+
+    @Test
+    public void testBufferHugeSize() {
+        // the lists must not be presized to the buffer size, or this would run out of memory
+        final int size = Integer.MAX_VALUE - 8;
+        assertEquals(
+                Collections.singletonList(Arrays.asList(1, 2, 3)),
+                StreamUtils.buffer(Stream.of(1, 2, 3), size).collect(Collectors.toList()));
+        final List<List<Integer>> lists = new ArrayList<>();
+        new SizedBufferIterator<>(Stream.of(1, 2, 3).iterator(), size).forEachRemaining(lists::add);
+        assertEquals(Collections.singletonList(Arrays.asList(1, 2, 3)), lists);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (Stream<List<Integer>> buffered = StreamUtils.buffer(Stream.of(1, 2, 3), size, 1, TimeUnit.SECONDS, executor)) {
+            assertEquals(Collections.singletonList(Arrays.asList(1, 2, 3)), buffered.collect(Collectors.toList()));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testBufferParallel() {
+        final List<Integer> items = IntStream.range(0, 100_000).boxed().collect(Collectors.toList());
+        final List<List<Integer>> expected = StreamUtils.buffer(items.stream(), 7).collect(Collectors.toList());
+
+        // sized sources split on list boundaries
+        assertEquals(expected, StreamUtils.buffer(items.parallelStream(), 7).collect(Collectors.toList()));
+        // and others fall back to batches of lists
+        assertEquals(expected, StreamUtils.buffer(items.stream().filter(i -> true), 7)
+                .parallel()
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testBufferPooled() {
+        final ListPool<Integer> pool = new ListPool<>(3, 4);
+        final List<Integer> sums = StreamUtils.buffer(Stream.of(1, 2, 3, 4, 5, 6, 7, 8), 3, pool)
+                .map(list -> {
+                    final int sum = list.stream().mapToInt(Integer::intValue).sum();
+                    pool.release(list);
+                    return sum;
+                })
+                .collect(Collectors.toList());
+        assertEquals(Arrays.asList(6, 15, 15), sums);
+    }
+
+    @Test
+    public void testBufferByWeight() {
+        final Stream<String> stream = Stream.of("ab", "cde", "fghij", "k", "lmnopqrstu", "v");
+
+        assertEquals(
+                Arrays.asList(
+                        Arrays.asList("ab", "cde"),
+                        Arrays.asList("fghij", "k"),
+                        Collections.singletonList("lmnopqrstu"),
+                        Collections.singletonList("v")),
+                StreamUtils.bufferByWeight(stream, 6, String::length).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testBufferByWeightAndCount() {
+        final Stream<String> stream = Stream.of("a", "b", "c", "d", "e");
+
+        assertEquals(
+                Arrays.asList(Arrays.asList("a", "b"), Arrays.asList("c", "d"), Collections.singletonList("e")),
+                StreamUtils.bufferByWeight(stream, 6, String::length, 2).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testBufferWithMaxDelay() {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (Stream<List<Integer>> buffered = StreamUtils.buffer(Stream.of(1, 2, 3, 4, 5), 2, 1, TimeUnit.SECONDS, executor)) {
+            assertEquals(
+                    Arrays.asList(Arrays.asList(1, 2), Arrays.asList(3, 4), Collections.singletonList(5)),
+                    buffered.collect(Collectors.toList()));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testBufferPrimitives() {
+        final List<int[]> ints = StreamUtils.buffer(IntStream.range(0, 5), 2).collect(Collectors.toList());
+        assertEquals(3, ints.size());
+        assertArrayEquals(new int[] {0, 1}, ints.get(0));
+        assertArrayEquals(new int[] {4}, ints.get(2));
+
+        final List<long[]> longs = StreamUtils.buffer(LongStream.range(0, 4), 2).collect(Collectors.toList());
+        assertEquals(2, longs.size());
+        assertArrayEquals(new long[] {2, 3}, longs.get(1));
+
+        final List<double[]> doubles = StreamUtils.buffer(DoubleStream.of(0.5, 1.5, 2.5), 3).collect(Collectors.toList());
+        assertEquals(1, doubles.size());
+        assertArrayEquals(new double[] {0.5, 1.5, 2.5}, doubles.get(0), 0);
     }
 
     @Test
@@ -111,4 +221,83 @@ public class StreamUtilsTest {
         final Stream<Integer> integerStream = StreamUtils.switchIfEmpty(Stream.empty(), Stream::empty);
         assertEquals(new ArrayList(), integerStream.collect(Collectors.toList()));
     }
+
+    @Test
+    public void testHashJoin() {
+        final Stream<String> join = StreamUtils.hashJoin(
+                Stream.of(3, 1, 2, 1),
+                Stream.of("1", "3", "4", "1"),
+                Function.identity(),
+                Integer::parseInt,
+                (left, right) -> left + "=" + right,
+                JoinType.INNER
+        );
+        assertEquals(
+                Arrays.asList("1=1", "1=1", "1=1", "1=1", "3=3"),
+                join.sorted().collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testHashJoinAntiJoin() {
+        final Stream<Integer> join = StreamUtils.hashJoin(
+                Stream.of(3, 1, 2, 1),
+                Stream.of("1", "3", "4"),
+                Function.identity(),
+                Integer::parseInt,
+                null,
+                JoinType.LEFT_ANTI
+        );
+        assertEquals(Collections.singletonList(2), join.collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testGroupByUnsorted() {
+        final Serializer<Integer> serializer = new Serializer<Integer>() {
+            @Override
+            public void write(Integer item, DataOutput output) throws IOException {
+                output.writeInt(item);
+            }
+
+            @Override
+            public Integer read(DataInput input) throws IOException {
+                return input.readInt();
+            }
+        };
+
+        try (Stream<Map.Entry<Integer, Long>> stream = StreamUtils.groupByUnsorted(
+                Stream.of(5, 3, 8, 1, 9, 2, 7, 4, 6), i -> i % 3, Collectors.counting(), serializer, 1)) {
+            final Map<Integer, Long> groups = stream.collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+            assertEquals(Stream.of(5, 3, 8, 1, 9, 2, 7, 4, 6).collect(Collectors.groupingBy(i -> i % 3, Collectors.counting())), groups);
+        }
+    }
+
+    @Test
+    public void testConcurrentGroupingBy() {
+        final Map<Integer, Long> expected = IntStream.range(0, 100_000).boxed()
+                .collect(Collectors.groupingBy(i -> i % 7, Collectors.counting()));
+
+        assertEquals(expected, IntStream.range(0, 100_000).boxed().parallel().unordered()
+                .collect(StreamUtils.concurrentGroupingBy(i -> i % 7, Collectors.counting())));
+        // ordered and sequential streams fall back to combining, and appending
+        assertEquals(expected, IntStream.range(0, 100_000).boxed().parallel()
+                .collect(StreamUtils.concurrentGroupingBy(i -> i % 7, Collectors.counting(), 2)));
+        assertEquals(expected, IntStream.range(0, 100_000).boxed()
+                .collect(StreamUtils.concurrentGroupingBy(i -> i % 7, Collectors.counting())));
+    }
+
+    @Test
+    public void testWindow() {
+        assertEquals(
+                Arrays.asList("[1, 2, 3]", "[3, 4, 5]"),
+                StreamUtils.window(Stream.of(1, 2, 3, 4, 5, 6), 3, 2).map(List::toString).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testWindowAggregate() {
+        assertEquals(
+                Arrays.asList(2.0, 3.0, 4.0),
+                StreamUtils.window(Stream.of(1, 2, 3, 4, 5), 3, 1, 0.0, (sum, i) -> sum + i, (sum, i) -> sum - i)
+                        .map(sum -> sum / 3)
+                        .collect(Collectors.toList()));
+    }
 }
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.buffer;
+
+import com.conductor.stream.utils.spill.Serializer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HashGroupingIteratorTest {
+
+    private static final Serializer<Integer> SERIALIZER = new Serializer<Integer>() {
+        @Override
+        public void write(Integer item, DataOutput output) throws IOException {
+            output.writeInt(item);
+        }
+
+        @Override
+        public Integer read(DataInput input) throws IOException {
+            return input.readInt();
+        }
+    };
+
+    private Path directory;
+
+    @Before
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("hash-grouping-test");
+    }
+
+    @After
+    public void teardown() throws IOException {
+        Files.delete(directory);
+    }
+
+    @Test
+    public void testFitsInMemory() throws IOException {
+        try (HashGroupingIterator<Integer, Integer, ?, Long> iterator =
+                     iterator(Stream.of(3, 1, 2, 1, 3, 3), Function.identity(), Collectors.counting(), 10, false)) {
+            final Map<Integer, Long> groups = new HashMap<>();
+            iterator.forEachRemaining(group -> groups.put(group.getKey(), group.getValue()));
+
+            final Map<Integer, Long> expected = new HashMap<>();
+            expected.put(1, 2L);
+            expected.put(2, 1L);
+            expected.put(3, 3L);
+            assertEquals(expected, groups);
+            // nothing needed to be spilled
+            assertFalse(hasFiles());
+        }
+    }
+
+    @Test
+    public void testGroupsAcrossPartitions() {
+        runGroupingTest(false);
+    }
+
+    @Test
+    public void testGroupsAcrossCompressedPartitions() {
+        runGroupingTest(true);
+    }
+
+    @Test
+    public void testCollidingKeys() {
+        // every key has the same hash, so the partitions can never split them,
+        // but each pass still finishes a key
+        final List<Integer> items = IntStream.range(0, 1000).boxed().collect(Collectors.toList());
+        final Map<CollidingKey, List<Integer>> groups = collect(
+                iterator(items.stream(), i -> new CollidingKey(i % 20), Collectors.toList(), 1, false));
+
+        assertEquals(items.stream().collect(Collectors.groupingBy(i -> new CollidingKey(i % 20))), groups);
+    }
+
+    @Test
+    public void testCloseDeletesPartitions() throws IOException {
+        final HashGroupingIterator<Integer, Integer, ?, Long> iterator = iterator(
+                IntStream.range(0, 1000).boxed(), Function.identity(), Collectors.counting(), 10, false);
+        // read one group, which spills everything that doesn't fit
+        iterator.next();
+        assertTrue(hasFiles());
+
+        iterator.close();
+        assertFalse(hasFiles());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsEmptyBudget() {
+        iterator(Stream.of(1), Function.identity(), Collectors.counting(), 0, false);
+    }
+
+    private void runGroupingTest(boolean compressed) {
+        final Random random = new Random(11);
+        final List<Integer> items = random.ints(20000, 0, 5000).boxed().collect(Collectors.toList());
+        // far more keys than fit in memory, so the partitions need splitting again
+        final Map<Integer, Integer> groups = collect(iterator(
+                items.stream(), i -> i % 2500, Collectors.summingInt(i -> i), 10, compressed));
+
+        assertEquals(items.stream().collect(Collectors.groupingBy(i -> i % 2500, Collectors.summingInt(i -> i))), groups);
+    }
+
+    private boolean hasFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.findAny().isPresent();
+        }
+    }
+
+    private <KEY, AGGREGATE> Map<KEY, AGGREGATE> collect(HashGroupingIterator<Integer, KEY, ?, AGGREGATE> iterator) {
+        final Map<KEY, AGGREGATE> groups = new HashMap<>();
+        try (HashGroupingIterator<Integer, KEY, ?, AGGREGATE> closeable = iterator) {
+            closeable.forEachRemaining(group -> {
+                // every key should only come out once
+                assertFalse(groups.containsKey(group.getKey()));
+                groups.put(group.getKey(), group.getValue());
+            });
+        }
+        return groups;
+    }
+
+    private <KEY, CONTAINER, AGGREGATE> HashGroupingIterator<Integer, KEY, CONTAINER, AGGREGATE> iterator(
+            Stream<Integer> stream,
+            Function<Integer, KEY> keyingFunction,
+            Collector<Integer, CONTAINER, AGGREGATE> collector,
+            int maxGroups,
+            boolean compressed) {
+        return new HashGroupingIterator<>(
+                stream.iterator(), keyingFunction, collector, SERIALIZER, maxGroups, compressed, directory);
+    }
+
+    private static final class CollidingKey {
+        private final int value;
+
+        CollidingKey(int value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof CollidingKey && ((CollidingKey) other).value == value;
+        }
+
+        @Override
+        public int hashCode() {
+            return 7;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.buffer;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class KeyedAggregatingIteratorTest {
+
+    @Test
+    public void testAggregatesGroups() {
+        final KeyedAggregatingIterator<String, Character, ?, String> iterator = new KeyedAggregatingIterator<>(
+                Stream.of("a1", "a2", "b1", "c1", "c2", "c3").iterator(),
+                item -> item.charAt(0),
+                Collectors.joining("|"));
+        final List<String> output = new ArrayList<>();
+        iterator.forEachRemaining(output::add);
+
+        assertEquals(Arrays.asList("a1|a2", "b1", "c1|c2|c3"), output);
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void testNullKeys() {
+        final List<Long> output = new ArrayList<>();
+        new KeyedAggregatingIterator<>(
+                Arrays.asList("a", null, null, "b").iterator(),
+                (String item) -> item,
+                Collectors.counting()
+        ).forEachRemaining(output::add);
+
+        assertEquals(Arrays.asList(1L, 2L, 1L), output);
+    }
+
+    @Test
+    public void testEmpty() {
+        assertFalse(new KeyedAggregatingIterator<>(
+                Collections.<Integer>emptyIterator(), i -> i, Collectors.counting()).hasNext());
+    }
+
+    @Test
+    public void testLargeGroups() {
+        final KeyedAggregatingIterator<Integer, Integer, ?, Long> iterator = new KeyedAggregatingIterator<>(
+                Stream.iterate(0, i -> i + 1).limit(3_000_000).iterator(),
+                i -> i / 2_000_000,
+                Collectors.counting());
+
+        assertEquals((Long) 2_000_000L, iterator.next());
+        assertEquals((Long) 1_000_000L, iterator.next());
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.buffer;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class KeyedGroupingSpliteratorTest {
+
+    private static final Function<Integer, Integer> KEYING_FUNCTION = i -> i / 100;
+
+    @Test
+    public void testGroups() {
+        final List<List<Integer>> groups = new ArrayList<>();
+        new KeyedGroupingSpliterator<>(Arrays.asList(1, 1, 2, 3, 3, 3).spliterator(), Function.identity())
+                .forEachRemaining(group -> groups.add(group.getValue()));
+        assertEquals(Arrays.asList(Arrays.asList(1, 1), Arrays.asList(2), Arrays.asList(3, 3, 3)), groups);
+    }
+
+    @Test
+    public void testGroupKeys() {
+        final List<Integer> keys = new ArrayList<>();
+        new KeyedGroupingSpliterator<>(Arrays.asList(105, 110, 230, 340, 399).spliterator(), KEYING_FUNCTION)
+                .forEachRemaining(group -> keys.add(group.getKey()));
+        assertEquals(Arrays.asList(1, 2, 3), keys);
+    }
+
+    @Test
+    public void testSplitsAreRealignedToGroups() {
+        final Random random = new Random(17);
+        for (int i = 0; i < 50; i++) {
+            final List<Integer> items = randomItems(random);
+            final List<List<Integer>> groups = new ArrayList<>();
+            splitAll(new KeyedGroupingSpliterator<>(items.spliterator(), KEYING_FUNCTION), groups);
+            assertEquals(sequentialGroups(items), groups);
+        }
+    }
+
+    @Test
+    public void testSplitAfterReading() {
+        final List<Integer> items = IntStream.range(0, 1000).boxed().collect(Collectors.toList());
+        final KeyedGroupingSpliterator<Integer, Integer> spliterator = new KeyedGroupingSpliterator<>(items.spliterator(), KEYING_FUNCTION);
+        final List<List<Integer>> groups = new ArrayList<>();
+        // this leaves the first item of the second group held
+        spliterator.tryAdvance(group -> groups.add(group.getValue()));
+        splitAll(spliterator, groups);
+        assertEquals(sequentialGroups(items), groups);
+    }
+
+    @Test
+    public void testOneGroupCantBeSplit() {
+        final KeyedGroupingSpliterator<Integer, Integer> spliterator =
+                new KeyedGroupingSpliterator<>(Arrays.asList(1, 1, 1, 1).spliterator(), i -> 0);
+        final Spliterator<Map.Entry<Integer, List<Integer>>> prefix = spliterator.trySplit();
+        final List<List<Integer>> groups = new ArrayList<>();
+        prefix.forEachRemaining(group -> groups.add(group.getValue()));
+        spliterator.forEachRemaining(group -> groups.add(group.getValue()));
+
+        // the whole group went to the front half
+        assertEquals(Arrays.asList(Arrays.asList(1, 1, 1, 1)), groups);
+        assertNull(spliterator.trySplit());
+    }
+
+    @Test
+    public void testParallelGroupsMatchSequential() {
+        final List<Integer> items = randomItems(new Random(3));
+        final List<List<Integer>> groups = StreamSupport
+                .stream(new KeyedGroupingSpliterator<>(items.spliterator(), KEYING_FUNCTION), true)
+                .map(Map.Entry::getValue)
+                .collect(Collectors.toList());
+        assertEquals(sequentialGroups(items), groups);
+    }
+
+    private static List<Integer> randomItems(Random random) {
+        // runs of random length, including long ones
+        final List<Integer> items = new ArrayList<>();
+        int key = 0;
+        final int runs = random.nextInt(100);
+        for (int run = 0; run < runs; run++) {
+            key += 1 + random.nextInt(2);
+            final int length = 1 + (random.nextInt(10) == 0 ? random.nextInt(500) : random.nextInt(5));
+            for (int i = 0; i < length; i++) {
+                items.add(key * 100 + random.nextInt(100));
+            }
+        }
+        return items;
+    }
+
+    private static List<List<Integer>> sequentialGroups(List<Integer> items) {
+        final List<List<Integer>> groups = new ArrayList<>();
+        new KeyedBufferIterator<>(items.iterator(), KEYING_FUNCTION).forEachRemaining(groups::add);
+        return groups;
+    }
+
+    private static void splitAll(Spliterator<Map.Entry<Integer, List<Integer>>> spliterator, List<List<Integer>> groups) {
+        final Spliterator<Map.Entry<Integer, List<Integer>>> prefix = spliterator.trySplit();
+        if (prefix != null) {
+            splitAll(prefix, groups);
+            splitAll(spliterator, groups);
+        } else {
+            spliterator.forEachRemaining(group -> groups.add(group.getValue()));
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.buffer;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class LazyGroupingIteratorTest {
+
+    @Test
+    public void testGroups() {
+        final LazyGroupingIterator<String, Character> iterator = iterator("a1", "a2", "b1", "c1", "c2");
+        final List<String> output = new ArrayList<>();
+        iterator.forEachRemaining(group ->
+                output.add(group.getKey() + "=" + group.getValue().collect(Collectors.joining(","))));
+
+        assertEquals(Arrays.asList("a=a1,a2", "b=b1", "c=c1,c2"), output);
+    }
+
+    @Test
+    public void testUnreadGroupsAreSkipped() {
+        final LazyGroupingIterator<String, Character> iterator = iterator("a1", "a2", "a3", "b1", "b2", "c1");
+
+        final Map.Entry<Character, Stream<String>> a = iterator.next();
+        final Map.Entry<Character, Stream<String>> b = iterator.next();
+        // only read part of this one
+        assertEquals(Collections.singletonList("b1"), b.getValue().limit(1).collect(Collectors.toList()));
+        final Map.Entry<Character, Stream<String>> c = iterator.next();
+
+        assertEquals((Character) 'c', c.getKey());
+        assertEquals(Collections.singletonList("c1"), c.getValue().collect(Collectors.toList()));
+        // once the next group is started, the old ones are over
+        assertEquals(Collections.emptyList(), a.getValue().collect(Collectors.toList()));
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test(timeout = 5000)
+    public void testGroupsAreNotHeldInMemory() {
+        // one endless group, then we only look at the first few items
+        final LazyGroupingIterator<Integer, Integer> iterator =
+                new LazyGroupingIterator<>(Stream.iterate(0, i -> i + 1).iterator(), i -> 0);
+
+        assertEquals(
+                Arrays.asList(0, 1, 2),
+                iterator.next().getValue().limit(3).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testEmpty() {
+        assertFalse(iterator().hasNext());
+    }
+
+    private static LazyGroupingIterator<String, Character> iterator(String... items) {
+        return new LazyGroupingIterator<>(Arrays.asList(items).iterator(), item -> item.charAt(0));
+    }
+}
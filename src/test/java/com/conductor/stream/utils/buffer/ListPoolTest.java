@@ -0,0 +1,82 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.buffer;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ListPoolTest {
+
+    @Test
+    public void testReleasedListsAreReused() {
+        final ListPool<Integer> pool = new ListPool<>(3, 2);
+        final List<Integer> list = pool.acquire();
+        list.addAll(Arrays.asList(1, 2, 3));
+        pool.release(list);
+
+        final List<Integer> reused = pool.acquire();
+        assertSame(list, reused);
+        assertTrue(reused.isEmpty());
+        // nothing left to reuse
+        assertNotSame(list, pool.acquire());
+    }
+
+    @Test
+    public void testPoolIsBounded() {
+        final ListPool<Integer> pool = new ListPool<>(3, 2);
+        final List<Integer> first = pool.acquire();
+        final List<Integer> second = pool.acquire();
+        final List<Integer> third = pool.acquire();
+        pool.release(first);
+        pool.release(second);
+        // no room for this one
+        pool.release(third);
+
+        assertSame(first, pool.acquire());
+        assertSame(second, pool.acquire());
+        final List<Integer> fresh = pool.acquire();
+        assertNotSame(third, fresh);
+        assertEquals(0, fresh.size());
+    }
+
+    @Test
+    public void testBufferReusesReleasedLists() {
+        final ListPool<Integer> pool = new ListPool<>(2, 1);
+        final SizedBufferIterator<Integer> iterator = new SizedBufferIterator<>(
+                Arrays.asList(1, 2, 3, 4, 5).iterator(), 2, pool);
+
+        final List<Integer> first = iterator.next();
+        assertEquals(Arrays.asList(1, 2), first);
+        pool.release(first);
+
+        // the second list was already started when the first was emitted
+        final List<Integer> second = iterator.next();
+        assertEquals(Arrays.asList(3, 4), second);
+        assertNotSame(first, second);
+
+        final List<Integer> third = iterator.next();
+        assertSame(first, third);
+        assertEquals(Arrays.asList(5), third);
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.buffer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LongKeyedBufferIteratorTest {
+
+    private LongKeyedBufferIterator<Long> iterator;
+
+    @Before
+    public void setup() {
+        iterator = new LongKeyedBufferIterator<>(
+                // stream doesn't matter because we're only testing the
+                // specific functions which don't use the iterator
+                Stream.<Long>empty().iterator(),
+                // keys well outside of the boxing cache, to make sure
+                // they're compared by value
+                i -> i / 10 + 1_000_000_000_000L
+        );
+    }
+
+    @Test
+    public void shouldFlush() throws Exception {
+        iterator.setupState(10L);
+        // now it shouldn't flush anything that resolves to the same key
+        assertFalse(iterator.shouldFlush(15L));
+        assertTrue(iterator.shouldFlush(20L));
+        // now that it flushed a 20, it shouldn't flush 2Xs any more until the current key changes
+        assertFalse(iterator.shouldFlush(29L));
+        assertTrue(iterator.shouldFlush(10L));
+    }
+
+    @Test
+    public void testGroups() {
+        final List<List<Long>> groups = new ArrayList<>();
+        new LongKeyedBufferIterator<Long>(Arrays.asList(1L, 2L, 11L, 35L, 36L).iterator(), i -> i / 10)
+                .forEachRemaining(groups::add);
+        assertEquals(Arrays.asList(Arrays.asList(1L, 2L), Arrays.asList(11L), Arrays.asList(35L, 36L)), groups);
+    }
+}
@@ -19,8 +19,10 @@ package com.conductor.stream.utils.buffer;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -59,4 +61,15 @@ public class SizedBufferIteratorTest {
         assertFalse(iterator.shouldFlush(null));
     }
 
+    @Test
+    public void testOnlyFirstListIsCapped() {
+        final SizedBufferIterator<Integer> sized =
+                new SizedBufferIterator<>(IntStream.range(0, 25_000).boxed().iterator(), 10_000);
+        // we don't know how long the stream is yet
+        assertEquals(BufferingIterator.MAX_PRESIZE, sized.initialCapacity());
+        assertEquals(10_000, sized.next().size());
+        // but now it's filled a list, so the rest start at the full size
+        assertEquals(10_000, sized.initialCapacity());
+    }
+
 }
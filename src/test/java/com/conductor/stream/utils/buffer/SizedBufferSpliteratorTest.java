@@ -0,0 +1,131 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.buffer;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SizedBufferSpliteratorTest {
+
+    @Test
+    public void testBuffers() {
+        final List<List<Integer>> lists = new ArrayList<>();
+        new SizedBufferSpliterator<>(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8).spliterator(), 3)
+                .forEachRemaining(lists::add);
+        assertEquals(Arrays.asList(Arrays.asList(1, 2, 3), Arrays.asList(4, 5, 6), Arrays.asList(7, 8)), lists);
+    }
+
+    @Test
+    public void testInitialCapacity() {
+        final List<Integer> source = IntStream.range(0, 25_000).boxed().collect(Collectors.toList());
+
+        // the exact number of items left is known, so lists start at the right size
+        final SizedBufferSpliterator<Integer> sized = new SizedBufferSpliterator<>(source.spliterator(), 10_000);
+        assertEquals(10_000, sized.initialCapacity());
+        sized.tryAdvance(list -> {});
+        sized.tryAdvance(list -> {});
+        assertEquals(5_000, sized.initialCapacity());
+
+        // otherwise, only the first list is capped
+        final SizedBufferSpliterator<Integer> unsized = new SizedBufferSpliterator<>(
+                Spliterators.spliteratorUnknownSize(source.iterator(), Spliterator.ORDERED), 10_000);
+        assertEquals(BufferingIterator.MAX_PRESIZE, unsized.initialCapacity());
+        unsized.tryAdvance(list -> {});
+        assertEquals(10_000, unsized.initialCapacity());
+    }
+
+    @Test
+    public void testSizedSplitsFallOnListBoundaries() {
+        for (int items = 0; items < 60; items++) {
+            for (int size = 1; size < 8; size++) {
+                final List<Integer> source = IntStream.range(0, items).boxed().collect(Collectors.toList());
+                final SizedBufferSpliterator<Integer> spliterator = new SizedBufferSpliterator<>(source.spliterator(), size);
+                assertEquals(items / size + (items % size == 0 ? 0 : 1), spliterator.estimateSize());
+
+                // split it all the way down, and put it back together in order
+                final List<List<Integer>> lists = new ArrayList<>();
+                splitAll(spliterator, lists);
+                assertEquals(expected(items, size), lists);
+            }
+        }
+    }
+
+    @Test
+    public void testSplitsReportExactSizes() {
+        final List<Integer> source = IntStream.range(0, 100).boxed().collect(Collectors.toList());
+        final SizedBufferSpliterator<Integer> spliterator = new SizedBufferSpliterator<>(source.spliterator(), 7);
+        assertTrue(spliterator.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.ORDERED));
+
+        final Spliterator<List<Integer>> prefix = spliterator.trySplit();
+        assertNotNull(prefix);
+        // the 50 items of the front half are rounded up to 8 lists, borrowing 6 items
+        assertEquals(8, prefix.getExactSizeIfKnown());
+        assertEquals(7, spliterator.getExactSizeIfKnown());
+    }
+
+    @Test
+    public void testSingleListDoesNotSplit() {
+        assertNull(new SizedBufferSpliterator<>(Arrays.asList(1, 2, 3).spliterator(), 3).trySplit());
+    }
+
+    @Test
+    public void testUnsizedSplitsIntoBatches() {
+        final SizedBufferSpliterator<Integer> spliterator = new SizedBufferSpliterator<>(unsized(5000), 10);
+        final List<List<Integer>> lists = new ArrayList<>();
+        splitAll(spliterator, lists);
+        assertEquals(expected(5000, 10), lists);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSizeMustBePositive() {
+        new SizedBufferSpliterator<>(Arrays.asList(1, 2, 3).spliterator(), 0);
+    }
+
+    private static Spliterator<Integer> unsized(int items) {
+        return IntStream.range(0, items).boxed().filter(i -> true).spliterator();
+    }
+
+    private static void splitAll(Spliterator<List<Integer>> spliterator, List<List<Integer>> lists) {
+        final Spliterator<List<Integer>> prefix = spliterator.trySplit();
+        if (prefix != null) {
+            splitAll(prefix, lists);
+            splitAll(spliterator, lists);
+        } else {
+            spliterator.forEachRemaining(lists::add);
+        }
+    }
+
+    private static List<List<Integer>> expected(int items, int size) {
+        final List<List<Integer>> lists = new ArrayList<>();
+        for (int start = 0; start < items; start += size) {
+            lists.add(IntStream.range(start, Math.min(items, start + size)).boxed().collect(Collectors.toList()));
+        }
+        return lists;
+    }
+}
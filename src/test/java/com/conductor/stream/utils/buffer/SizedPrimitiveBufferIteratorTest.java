@@ -0,0 +1,116 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.buffer;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The int, long and double buffer iterators only differ by type, so they
+ * share these tests. Each one's arrays are compared as longs.
+ */
+@RunWith(Parameterized.class)
+public class SizedPrimitiveBufferIteratorTest {
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> parameters() {
+        return Arrays.asList(
+                parameter("int", (items, size) -> new SizedIntBufferIterator(IntStream.of(items).iterator(), size),
+                        array -> IntStream.of((int[]) array).asLongStream().toArray()),
+                parameter("long", (items, size) -> new SizedLongBufferIterator(IntStream.of(items).asLongStream().iterator(), size),
+                        array -> (long[]) array),
+                parameter("double", (items, size) -> new SizedDoubleBufferIterator(IntStream.of(items).asDoubleStream().iterator(), size),
+                        array -> DoubleStream.of((double[]) array).mapToLong(item -> (long) item).toArray()));
+    }
+
+    @Parameterized.Parameter(0)
+    public String type;
+
+    @Parameterized.Parameter(1)
+    public BiFunction<int[], Integer, Iterator<?>> factory;
+
+    @Parameterized.Parameter(2)
+    public Function<Object, long[]> toLongs;
+
+    @Test
+    public void testBuffers() {
+        final List<long[]> arrays = buffer(new int[] {1, 2, 3, 4, 5}, 2);
+
+        assertEquals(3, arrays.size());
+        assertArrayEquals(new long[] {1L, 2L}, arrays.get(0));
+        assertArrayEquals(new long[] {3L, 4L}, arrays.get(1));
+        // the last array is trimmed down
+        assertArrayEquals(new long[] {5L}, arrays.get(2));
+    }
+
+    @Test
+    public void testBuffersPastTheInitialCapacity() {
+        final int size = BufferingIterator.MAX_PRESIZE * 3;
+        final List<long[]> arrays = buffer(IntStream.range(0, size * 2 + 1).toArray(), size);
+
+        assertEquals(3, arrays.size());
+        assertArrayEquals(LongStream.range(0, size).toArray(), arrays.get(0));
+        assertArrayEquals(LongStream.range(size, size * 2).toArray(), arrays.get(1));
+        assertArrayEquals(new long[] {size * 2}, arrays.get(2));
+    }
+
+    @Test
+    public void testHugeSize() {
+        // the arrays must not be allocated at the full size up front, or this
+        // would run out of memory
+        final List<long[]> arrays = buffer(new int[] {1, 2, 3}, Integer.MAX_VALUE - 8);
+
+        assertEquals(1, arrays.size());
+        assertArrayEquals(new long[] {1L, 2L, 3L}, arrays.get(0));
+    }
+
+    @Test
+    public void testEmpty() {
+        assertEquals(0, buffer(new int[0], 2).size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSizeMustBePositive() {
+        factory.apply(new int[0], 0);
+    }
+
+    private List<long[]> buffer(int[] items, int size) {
+        final List<long[]> arrays = new ArrayList<>();
+        factory.apply(items, size).forEachRemaining(array -> arrays.add(toLongs.apply(array)));
+        return arrays;
+    }
+
+    private static Object[] parameter(
+            String type, BiFunction<int[], Integer, Iterator<?>> factory, Function<Object, long[]> toLongs) {
+        return new Object[] {type, factory, toLongs};
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.buffer;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+
+public class StripedAggregatorTest {
+
+    @Test
+    public void testAggregatesFromManyThreads() throws Exception {
+        final StripedAggregator<Integer, Integer, ?, Long> aggregator =
+                new StripedAggregator<>(i -> i % 3 == 0 ? 0 : i % 10, Collectors.counting(), 4);
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                // a third of the items all go to the same, hot, key
+                futures.add(executor.submit(() -> IntStream.range(0, 100_000).boxed().forEach(aggregator)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        final Map<Integer, Long> expected = IntStream.range(0, 100_000).boxed()
+                .collect(Collectors.groupingBy(i -> i % 3 == 0 ? 0 : i % 10, Collectors.counting()));
+        expected.replaceAll((key, count) -> count * 8);
+        assertEquals(expected, aggregator.finish());
+    }
+
+    @Test
+    public void testMerge() {
+        final Collector<Integer, List<Integer>, List<Integer>> toList = Collector.of(ArrayList::new, List::add, (left, right) -> {
+            left.addAll(right);
+            return left;
+        });
+        final StripedAggregator<Integer, Integer, List<Integer>, List<Integer>> first =
+                new StripedAggregator<>(i -> i % 2, toList, 2);
+        final StripedAggregator<Integer, Integer, List<Integer>, List<Integer>> second =
+                new StripedAggregator<>(i -> i % 2, toList, 2);
+        IntStream.range(0, 4).boxed().forEach(first);
+        IntStream.range(4, 7).boxed().forEach(second);
+
+        final Map<Integer, List<Integer>> groups = first.merge(second).finish();
+        assertEquals(IntStream.range(0, 7).boxed().collect(Collectors.groupingBy(i -> i % 2)), groups);
+    }
+
+    @Test
+    public void testSingleStripe() {
+        final StripedAggregator<Integer, Integer, ?, Long> aggregator =
+                new StripedAggregator<>(Function.identity(), Collectors.counting(), 1);
+        IntStream.of(1, 2, 1).boxed().forEach(aggregator);
+        assertEquals(Long.valueOf(2), aggregator.finish().get(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsNoStripes() {
+        new StripedAggregator<>(Function.identity(), Collectors.counting(), 0);
+    }
+}
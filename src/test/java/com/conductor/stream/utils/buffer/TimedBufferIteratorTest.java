@@ -0,0 +1,166 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.buffer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TimedBufferIteratorTest {
+
+    // marks the end of the trickling source
+    private static final Integer END = -1;
+
+    private ExecutorService executor;
+
+    @Before
+    public void setup() {
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void teardown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testFullListsFromFastSource() {
+        final List<List<Integer>> lists = new ArrayList<>();
+        try (TimedBufferIterator<Integer> iterator = new TimedBufferIterator<>(
+                Arrays.asList(1, 2, 3, 4, 5, 6, 7).iterator(), 3, 1, TimeUnit.MINUTES, executor)) {
+            iterator.forEachRemaining(lists::add);
+        }
+        assertEquals(Arrays.asList(Arrays.asList(1, 2, 3), Arrays.asList(4, 5, 6), Collections.singletonList(7)), lists);
+    }
+
+    @Test(timeout = 5000)
+    public void testEmitsPartialListAfterMaxDelay() throws Exception {
+        final BlockingQueue<Integer> source = new LinkedBlockingQueue<>();
+        try (TimedBufferIterator<Integer> iterator = new TimedBufferIterator<>(
+                trickle(source), 100, 50, TimeUnit.MILLISECONDS, executor)) {
+            source.put(1);
+            source.put(2);
+
+            final long start = System.nanoTime();
+            assertEquals(Arrays.asList(1, 2), iterator.next());
+            // it waited for more items, but not for the list to fill
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(40));
+
+            source.put(3);
+            source.put(END);
+            assertEquals(Collections.singletonList(3), iterator.next());
+            assertFalse(iterator.hasNext());
+        }
+    }
+
+    @Test
+    public void testEmitsItemsBeforeException() {
+        try (TimedBufferIterator<Integer> iterator = new TimedBufferIterator<>(
+                failingAfter(2, () -> { throw new IllegalStateException("failed"); }), 10, 1, TimeUnit.MINUTES, executor)) {
+            assertEquals(Arrays.asList(1, 2), iterator.next());
+            try {
+                iterator.next();
+                fail("Expected the source's exception");
+            } catch (IllegalStateException e) {
+                assertEquals("failed", e.getMessage());
+            }
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void testEmitsItemsBeforeError() {
+        try (TimedBufferIterator<Integer> iterator = new TimedBufferIterator<>(
+                failingAfter(2, () -> { throw new StackOverflowError("failed"); }), 10, 1, TimeUnit.MINUTES, executor)) {
+            // the error doesn't lose the items read before it, or leave us
+            // waiting out the delay
+            assertEquals(Arrays.asList(1, 2), iterator.next());
+            try {
+                iterator.next();
+                fail("Expected the source's error");
+            } catch (StackOverflowError e) {
+                assertEquals("failed", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * An iterator over 1, 2, and so on, which fails after the given count.
+     */
+    private static Iterator<Integer> failingAfter(int items, Runnable failure) {
+        return new Iterator<Integer>() {
+            private int count;
+
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public Integer next() {
+                if (++count > items) {
+                    failure.run();
+                }
+                return count;
+            }
+        };
+    }
+
+    /**
+     * An iterator over the items put on the queue, up to the END marker.
+     */
+    private static Iterator<Integer> trickle(BlockingQueue<Integer> source) {
+        return new Iterator<Integer>() {
+            private Integer next;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null) {
+                    try {
+                        next = source.take();
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+                return !END.equals(next);
+            }
+
+            @Override
+            public Integer next() {
+                hasNext();
+                final Integer item = next;
+                next = null;
+                return item;
+            }
+        };
+    }
+}
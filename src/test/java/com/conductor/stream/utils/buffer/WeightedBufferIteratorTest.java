@@ -0,0 +1,67 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.buffer;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class WeightedBufferIteratorTest {
+
+    @Test
+    public void testFlushesBeforeGoingOverWeight() {
+        assertEquals(
+                Arrays.asList(Arrays.asList(3, 4), Arrays.asList(5, 5), Arrays.asList(2, 1, 1, 6)),
+                buffer(Arrays.asList(3, 4, 5, 5, 2, 1, 1, 6), 10, Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testHeavyItemsGetTheirOwnList() {
+        assertEquals(
+                Arrays.asList(Collections.singletonList(1), Collections.singletonList(20), Arrays.asList(2, 3)),
+                buffer(Arrays.asList(1, 20, 2, 3), 10, Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testMaxCount() {
+        assertEquals(
+                Arrays.asList(Arrays.asList(1, 1, 1), Arrays.asList(1, 1, 5), Collections.singletonList(5)),
+                buffer(Arrays.asList(1, 1, 1, 1, 1, 5, 5), 10, 3));
+    }
+
+    @Test
+    public void testEmpty() {
+        assertEquals(Collections.emptyList(), buffer(Collections.emptyList(), 10, 3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMaxCountMustBePositive() {
+        new WeightedBufferIterator<>(Collections.<Integer>emptyIterator(), 10, Integer::longValue, 0);
+    }
+
+    private static List<List<Integer>> buffer(List<Integer> items, long maxWeight, int maxCount) {
+        final List<List<Integer>> lists = new ArrayList<>();
+        new WeightedBufferIterator<>(items.iterator(), maxWeight, Integer::longValue, maxCount)
+                .forEachRemaining(lists::add);
+        return lists;
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.buffer;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+
+public class WindowAggregatingIteratorTest {
+
+    @Test
+    public void testRollingSum() {
+        final List<Integer> sums = new ArrayList<>();
+        new WindowAggregatingIterator<Integer, Integer>(
+                Arrays.asList(1, 2, 3, 4, 5).iterator(), 3, 1, 0, (sum, i) -> sum + i, (sum, i) -> sum - i)
+                .forEachRemaining(sums::add);
+        assertEquals(Arrays.asList(6, 9, 12), sums);
+    }
+
+    @Test
+    public void testMatchesWindows() {
+        final List<Integer> items = new Random(5).ints(1000, -100, 100).boxed().collect(Collectors.toList());
+        for (int size = 1; size < 8; size++) {
+            for (int step = 1; step < 10; step++) {
+                final List<Integer> expected = new ArrayList<>();
+                new WindowingIterator<>(items.iterator(), size, step)
+                        .forEachRemaining(window -> expected.add(window.stream().mapToInt(i -> i).sum()));
+
+                final List<Integer> sums = new ArrayList<>();
+                new WindowAggregatingIterator<Integer, Integer>(
+                        items.iterator(), size, step, 0, (sum, i) -> sum + i, (sum, i) -> sum - i)
+                        .forEachRemaining(sums::add);
+                assertEquals(expected, sums);
+            }
+        }
+    }
+
+    @Test
+    public void testLargeWindowStillSlidesCheaply() {
+        // counts the function calls, which shouldn't depend on the window size
+        final int[] calls = new int[1];
+        final List<Long> counts = new ArrayList<>();
+        new WindowAggregatingIterator<Integer, Long>(IntStream.range(0, 10_000).boxed().iterator(), 5_000, 1, 0L,
+                (count, i) -> {
+                    calls[0]++;
+                    return count + 1;
+                },
+                (count, i) -> {
+                    calls[0]++;
+                    return count - 1;
+                })
+                .forEachRemaining(counts::add);
+
+        assertEquals(5_001, counts.size());
+        // every item is added once, and all but the last window's are removed once
+        assertEquals(10_000 + 5_000, calls[0]);
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.buffer;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class WindowingIteratorTest {
+
+    @Test
+    public void testSlidingWindows() {
+        assertEquals(
+                Arrays.asList(Arrays.asList(1, 2, 3), Arrays.asList(2, 3, 4), Arrays.asList(3, 4, 5)),
+                windows(5, 3, 1));
+    }
+
+    @Test
+    public void testSteppedWindows() {
+        assertEquals(
+                Arrays.asList(Arrays.asList(1, 2, 3), Arrays.asList(3, 4, 5), Arrays.asList(5, 6, 7)),
+                windows(8, 3, 2));
+    }
+
+    @Test
+    public void testTumblingWindows() {
+        // the trailing 7 never makes a full window
+        assertEquals(Arrays.asList(Arrays.asList(1, 2, 3), Arrays.asList(4, 5, 6)), windows(7, 3, 3));
+    }
+
+    @Test
+    public void testGappedWindows() {
+        assertEquals(Arrays.asList(Arrays.asList(1, 2), Arrays.asList(5, 6), Arrays.asList(9, 10)), windows(10, 2, 4));
+    }
+
+    @Test
+    public void testTooFewItems() {
+        assertEquals(Collections.emptyList(), windows(2, 3, 1));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testStaleWindow() {
+        final WindowingIterator<Integer> iterator = new WindowingIterator<>(Arrays.asList(1, 2, 3).iterator(), 2, 1);
+        final List<Integer> window = iterator.next();
+        assertEquals(Arrays.asList(1, 2), window);
+        iterator.next();
+        // the ring buffer has moved on since
+        window.get(0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testStaleWindowAfterHasNext() {
+        final WindowingIterator<Integer> iterator =
+                new WindowingIterator<>(IntStream.rangeClosed(1, 5).boxed().iterator(), 3, 1);
+        final List<Integer> window = iterator.next();
+        assertEquals(Arrays.asList(1, 2, 3), window);
+        // reading ahead slides the ring buffer, even without a call to next
+        iterator.hasNext();
+        window.get(0);
+    }
+
+    @Test
+    public void testHasNextIsIdempotent() {
+        final WindowingIterator<Integer> iterator = new WindowingIterator<>(Arrays.asList(1, 2, 3).iterator(), 2, 1);
+        iterator.hasNext();
+        iterator.hasNext();
+        assertEquals(Arrays.asList(1, 2), iterator.next());
+        assertEquals(Arrays.asList(2, 3), iterator.next());
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsNoStep() {
+        new WindowingIterator<>(Collections.emptyIterator(), 2, 0);
+    }
+
+    private static List<List<Integer>> windows(int items, int size, int step) {
+        final List<List<Integer>> windows = new ArrayList<>();
+        new WindowingIterator<>(IntStream.rangeClosed(1, items).boxed().iterator(), size, step)
+                .forEachRemaining(window -> windows.add(new ArrayList<>(window)));
+        return windows;
+    }
+}
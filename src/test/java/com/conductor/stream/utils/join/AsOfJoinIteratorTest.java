@@ -0,0 +1,174 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.join;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+
+public class AsOfJoinIteratorTest {
+
+    // items are "symbol:time"
+    private static final Function<String, Integer> TIME = item -> Integer.parseInt(item.substring(item.indexOf(':') + 1));
+    private static final Function<String, String> SYMBOL = item -> item.substring(0, item.indexOf(':'));
+
+    @Test
+    public void testAsOfJoin() {
+        final List<String> trades = Arrays.asList("a:1", "a:5", "b:6", "a:10", "b:12");
+        final List<String> prices = Arrays.asList("a:2", "b:3", "a:5", "a:8", "b:11", "a:20");
+
+        assertEquals(
+                Arrays.asList("a:5=a:5", "b:6=b:3", "a:10=a:8", "b:12=b:11"),
+                toList(builder(trades, prices, JoinType.INNER).build()));
+    }
+
+    @Test
+    public void testLeftJoinAndStaleness() {
+        final List<String> trades = Arrays.asList("a:1", "a:5", "b:6", "a:10", "b:12");
+        final List<String> prices = Arrays.asList("a:2", "b:3", "a:5", "a:8", "b:11", "a:20");
+
+        assertEquals(
+                Arrays.asList("a:1=null", "a:5=a:5", "b:6=null", "a:10=a:8", "b:12=b:11"),
+                toList(builder(trades, prices, JoinType.LEFT).setMaxStaleness(time -> time - 2).build()));
+        assertEquals(
+                Arrays.asList("a:5", "a:10", "b:12"),
+                toList(builder(trades, prices, JoinType.LEFT_SEMI).setMaxStaleness(time -> time - 2).build()));
+        assertEquals(
+                Arrays.asList("a:1", "b:6"),
+                toList(builder(trades, prices, JoinType.LEFT_ANTI).setMaxStaleness(time -> time - 2).build()));
+    }
+
+    @Test
+    public void testRandomAsOfJoins() {
+        final Random random = new Random(5);
+        for (int i = 0; i < 50; i++) {
+            final List<String> left = randomSide(random);
+            final List<String> right = randomSide(random);
+            for (JoinType joinType : Arrays.asList(JoinType.INNER, JoinType.LEFT, JoinType.LEFT_SEMI, JoinType.LEFT_ANTI)) {
+                assertEquals(
+                        joinType.toString(),
+                        naiveAsOfJoin(left, right, joinType),
+                        toList(builder(left, right, joinType).setMaxStaleness(time -> time - 10).build()));
+            }
+        }
+    }
+
+    @Test
+    public void testUnpartitioned() {
+        final List<Object> output = new ArrayList<>();
+        new AsOfJoinIterator<Integer, Integer, Integer, String>(
+                Stream.of(0, 3, 4, 9).iterator(),
+                Stream.of(1, 3, 5, 6).iterator(),
+                Comparator.naturalOrder(),
+                Function.identity(),
+                Function.identity(),
+                null,
+                null,
+                null,
+                (l, r) -> l + "=" + r,
+                JoinType.INNER
+        ).forEachRemaining(output::add);
+        assertEquals(Arrays.asList("3=3", "4=3", "9=6"), output);
+    }
+
+    @Test
+    public void testRightKeysAreExtractedOnce() {
+        final AtomicInteger extractions = new AtomicInteger();
+        new AsOfJoinIterator<Integer, Integer, Integer, String>(
+                Stream.of(0, 1, 2, 3, 4, 5, 6, 7, 8).iterator(),
+                Stream.of(2, 4, 100).iterator(),
+                Comparator.naturalOrder(),
+                Function.identity(),
+                right -> {
+                    extractions.incrementAndGet();
+                    return right;
+                },
+                null,
+                null,
+                null,
+                (l, r) -> l + "=" + r,
+                JoinType.INNER
+        ).forEachRemaining(item -> { });
+        assertEquals(3, extractions.get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOuterJoinIsNotSupported() {
+        builder(Collections.emptyList(), Collections.emptyList(), JoinType.OUTER).build();
+    }
+
+    private static AsOfJoinBuilder<Integer, String, String, Object> builder(
+            List<String> left,
+            List<String> right,
+            JoinType joinType) {
+        return AsOfJoinBuilder.<Integer, String, String, Object>builder()
+                .setLeftHandSide(left.stream())
+                .setRightHandSide(right.stream())
+                .setOrdering(Comparator.naturalOrder())
+                .setLeftHandKeyingFunction(TIME)
+                .setRightHandKeyingFunction(TIME)
+                .setPartitioningFunctions(SYMBOL, SYMBOL)
+                .setJoinFunction((l, r) -> l + "=" + r)
+                .setJoinType(joinType);
+    }
+
+    private static List<Object> toList(AsOfJoinIterator<Integer, String, String, Object> iterator) {
+        final List<Object> output = new ArrayList<>();
+        iterator.forEachRemaining(output::add);
+        return output;
+    }
+
+    private static List<String> randomSide(Random random) {
+        return Stream.generate(() -> (char) ('a' + random.nextInt(3)) + ":" + random.nextInt(100))
+                .limit(random.nextInt(40))
+                .sorted(Comparator.comparing(TIME))
+                .collect(Collectors.toList());
+    }
+
+    private static List<Object> naiveAsOfJoin(List<String> left, List<String> right, JoinType joinType) {
+        final List<Object> output = new ArrayList<>();
+        for (String l : left) {
+            String match = null;
+            for (String r : right) {
+                if (SYMBOL.apply(r).equals(SYMBOL.apply(l))
+                        && TIME.apply(r) <= TIME.apply(l)
+                        && TIME.apply(r) >= TIME.apply(l) - 10) {
+                    match = r;
+                }
+            }
+            if (joinType == JoinType.LEFT_SEMI && match != null || joinType == JoinType.LEFT_ANTI && match == null) {
+                output.add(l);
+            } else if (match != null && (joinType == JoinType.INNER || joinType == JoinType.LEFT)) {
+                output.add(l + "=" + match);
+            } else if (joinType == JoinType.LEFT) {
+                output.add(l + "=null");
+            }
+        }
+        return output;
+    }
+}
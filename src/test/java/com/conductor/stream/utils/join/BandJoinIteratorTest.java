@@ -0,0 +1,161 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.join;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class BandJoinIteratorTest {
+
+    private static final int TOLERANCE = 3;
+
+    @Test
+    public void testBandJoin() {
+        final List<Integer> left = Arrays.asList(1, 5, 6, 20);
+        final List<Integer> right = Arrays.asList(-10, 2, 4, 9, 9, 30);
+
+        assertEquals(
+                Arrays.asList("1=2", "1=4", "5=2", "5=4", "6=4", "6=9", "6=9"),
+                join(left, right, JoinType.INNER));
+        assertEquals(
+                Arrays.asList("1=2", "1=4", "5=2", "5=4", "6=4", "6=9", "6=9", "20=null"),
+                join(left, right, JoinType.LEFT));
+        assertEquals(
+                Arrays.asList("null=-10", "1=2", "1=4", "5=2", "5=4", "6=4", "6=9", "6=9", "20=null", "null=30"),
+                join(left, right, JoinType.OUTER));
+        assertEquals(Arrays.asList("1", "5", "6"), join(left, right, JoinType.LEFT_SEMI));
+        assertEquals(Collections.singletonList("20"), join(left, right, JoinType.LEFT_ANTI));
+    }
+
+    @Test
+    public void testRandomBandJoins() {
+        final Random random = new Random(11);
+        for (int i = 0; i < 50; i++) {
+            final List<Integer> left = randomSide(random);
+            final List<Integer> right = randomSide(random);
+            for (JoinType joinType : JoinType.values()) {
+                final List<String> actual = join(left, right, joinType);
+                Collections.sort(actual);
+                assertEquals(joinType.toString(), nestedLoopJoin(left, right, joinType), actual);
+            }
+        }
+    }
+
+    @Test
+    public void testInnerJoinStopsOnceLeftSideIsDone() {
+        // the right side never ends, so this only finishes if the join
+        // stops reading it once the left side is done
+        final BandJoinIterator<Integer, Integer, Integer, String> iterator = new BandJoinIterator<>(
+                Arrays.asList(1, 2, 10).iterator(),
+                IntStream.iterate(0, i -> i + 1).iterator(),
+                Comparator.<Integer>naturalOrder(),
+                l -> l,
+                r -> r,
+                key -> key - 1,
+                key -> key + 1,
+                (l, r) -> l + "=" + r,
+                JoinType.INNER);
+        final List<String> output = new ArrayList<>();
+        iterator.forEachRemaining(output::add);
+        assertEquals(Arrays.asList("1=0", "1=1", "1=2", "2=1", "2=2", "2=3", "10=9", "10=10", "10=11"), output);
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void testInnerJoinStopsOnceRightSideIsDone() {
+        final BandJoinIterator<Integer, Integer, Integer, String> iterator = new BandJoinIterator<>(
+                IntStream.iterate(0, i -> i + 1).iterator(),
+                Arrays.asList(1, 2).iterator(),
+                Comparator.<Integer>naturalOrder(),
+                l -> l,
+                r -> r,
+                key -> key,
+                key -> key,
+                (l, r) -> l + "=" + r,
+                JoinType.INNER);
+        final List<String> output = new ArrayList<>();
+        iterator.forEachRemaining(output::add);
+        assertEquals(Arrays.asList("1=1", "2=2"), output);
+    }
+
+    private static List<String> join(List<Integer> left, List<Integer> right, JoinType joinType) {
+        final List<String> output = new ArrayList<>();
+        // semi and anti joins hand back the left items themselves
+        new BandJoinIterator<Integer, Integer, Integer, Object>(
+                left.iterator(),
+                right.iterator(),
+                Comparator.<Integer>naturalOrder(),
+                (Integer l) -> l,
+                (Integer r) -> r,
+                key -> key - TOLERANCE,
+                key -> key + TOLERANCE,
+                (l, r) -> l + "=" + r,
+                joinType
+        ).forEachRemaining(item -> output.add(String.valueOf(item)));
+        return output;
+    }
+
+    private static List<Integer> randomSide(Random random) {
+        return Stream.generate(() -> random.nextInt(60))
+                .limit(random.nextInt(30))
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    private static List<String> nestedLoopJoin(List<Integer> left, List<Integer> right, JoinType joinType) {
+        final List<String> output = new ArrayList<>();
+        final boolean[] rightMatched = new boolean[right.size()];
+        for (Integer l : left) {
+            boolean matched = false;
+            for (int i = 0; i < right.size(); i++) {
+                if (Math.abs(l - right.get(i)) <= TOLERANCE) {
+                    matched = true;
+                    rightMatched[i] = true;
+                    if (joinType != JoinType.LEFT_SEMI && joinType != JoinType.LEFT_ANTI) {
+                        output.add(l + "=" + right.get(i));
+                    }
+                }
+            }
+            if (joinType == JoinType.LEFT_SEMI && matched || joinType == JoinType.LEFT_ANTI && !matched) {
+                output.add(String.valueOf(l));
+            } else if (!matched && (joinType == JoinType.LEFT || joinType == JoinType.OUTER)) {
+                output.add(l + "=null");
+            }
+        }
+        if (joinType == JoinType.OUTER) {
+            for (int i = 0; i < right.size(); i++) {
+                if (!rightMatched[i]) {
+                    output.add("null=" + right.get(i));
+                }
+            }
+        }
+        Collections.sort(output);
+        return output;
+    }
+}
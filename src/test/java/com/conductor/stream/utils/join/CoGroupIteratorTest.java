@@ -0,0 +1,128 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.join;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class CoGroupIteratorTest {
+
+    @Test
+    public void testCoGroup() {
+        final Iterator<CoGroup<Integer>> iterator = new CoGroupIterator<>(
+                Arrays.asList(
+                        Stream.of(1, 2, 2, 4),
+                        Stream.of("1", "3", "4", "4"),
+                        Stream.of(2L, 3L, 5L)
+                ),
+                Arrays.<Function<?, Integer>>asList(
+                        (Integer i) -> i,
+                        (String s) -> Integer.parseInt(s),
+                        (Long l) -> l.intValue()
+                ),
+                Comparator.naturalOrder());
+
+        final List<CoGroup<Integer>> output = new ArrayList<>();
+        iterator.forEachRemaining(output::add);
+
+        assertEquals(Arrays.asList(
+                coGroup(1, Arrays.asList(1), Arrays.asList("1"), Collections.emptyList()),
+                coGroup(2, Arrays.asList(2, 2), Collections.emptyList(), Arrays.asList(2L)),
+                coGroup(3, Collections.emptyList(), Arrays.asList("3"), Arrays.asList(3L)),
+                coGroup(4, Arrays.asList(4), Arrays.asList("4", "4"), Collections.emptyList()),
+                coGroup(5, Collections.emptyList(), Collections.emptyList(), Arrays.asList(5L))
+        ), output);
+    }
+
+    @Test
+    public void testTypedAccess() {
+        final Iterator<CoGroup<Integer>> iterator = new CoGroupIterator<>(
+                Arrays.asList(Stream.of(1), Stream.of("1")),
+                Arrays.<Function<?, Integer>>asList((Integer i) -> i, (String s) -> Integer.parseInt(s)),
+                Comparator.naturalOrder());
+
+        final CoGroup<Integer> coGroup = iterator.next();
+        final List<Integer> left = coGroup.get(0);
+        final List<String> right = coGroup.get(1);
+
+        assertEquals((Integer) 1, coGroup.getKey());
+        assertEquals(2, coGroup.size());
+        assertEquals((Integer) 1, left.get(0));
+        assertEquals("1", right.get(0));
+    }
+
+    @Test
+    public void testKeysEachItemOnce() {
+        final AtomicInteger keyed = new AtomicInteger();
+        final Function<Integer, Integer> countingKeyingFunction = i -> {
+            keyed.incrementAndGet();
+            return i;
+        };
+
+        final Iterator<CoGroup<Integer>> iterator = new CoGroupIterator<>(
+                Arrays.asList(Stream.of(1, 2, 3, 4), Stream.of(1, 3), Stream.of(2, 4, 6)),
+                Arrays.asList(countingKeyingFunction, countingKeyingFunction, countingKeyingFunction),
+                Comparator.naturalOrder());
+        iterator.forEachRemaining(coGroup -> { });
+
+        assertEquals(9, keyed.get());
+    }
+
+    @Test
+    public void testAllEmpty() {
+        final Iterator<CoGroup<Integer>> iterator = new CoGroupIterator<>(
+                Arrays.asList(Stream.empty(), Stream.empty()),
+                Arrays.<Function<Integer, Integer>>asList(Function.identity(), Function.identity()),
+                Comparator.naturalOrder());
+
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testNextOnEmptyThrows() {
+        new CoGroupIterator<>(
+                Collections.singletonList(Stream.<Integer>empty()),
+                Collections.singletonList(Function.<Integer>identity()),
+                Comparator.<Integer>naturalOrder()
+        ).next();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMismatchedKeyingFunctions() {
+        new CoGroupIterator<>(
+                Arrays.asList(Stream.of(1), Stream.of(2)),
+                Collections.singletonList(Function.<Integer>identity()),
+                Comparator.<Integer>naturalOrder());
+    }
+
+    private static CoGroup<Integer> coGroup(Integer key, List<?>... groups) {
+        return new CoGroup<>(key, Arrays.asList(groups));
+    }
+}
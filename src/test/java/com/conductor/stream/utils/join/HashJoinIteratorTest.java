@@ -0,0 +1,251 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.join;
+
+import com.conductor.stream.utils.spill.Serializer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+public class HashJoinIteratorTest {
+
+    private static final Serializer<String> SERIALIZER = new Serializer<String>() {
+        @Override
+        public void write(String item, DataOutput output) throws IOException {
+            output.writeUTF(item);
+        }
+
+        @Override
+        public String read(DataInput input) throws IOException {
+            return input.readUTF();
+        }
+    };
+
+    private static final Function<String, String> KEYING_FUNCTION = item -> item.substring(0, item.indexOf(':'));
+
+    private Path directory;
+
+    @Before
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("hash-join-test");
+    }
+
+    @After
+    public void teardown() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void testInMemoryJoin() {
+        final List<String> left = Arrays.asList("3:a", "1:b", "2:c", "1:d", "5:e");
+        final List<String> right = Arrays.asList("1:x", "4:y", "1:z", "3:w");
+
+        for (JoinType joinType : JoinType.values()) {
+            assertMatches(left, right, joinType, Integer.MAX_VALUE);
+            // and with the other side being the smaller one
+            assertMatches(right, left, joinType, Integer.MAX_VALUE);
+        }
+    }
+
+    @Test
+    public void testEmptySides() {
+        final List<String> side = Arrays.asList("1:a", "2:b");
+        for (JoinType joinType : JoinType.values()) {
+            assertMatches(side, Collections.emptyList(), joinType, Integer.MAX_VALUE);
+            assertMatches(Collections.emptyList(), side, joinType, Integer.MAX_VALUE);
+            assertMatches(Collections.emptyList(), Collections.emptyList(), joinType, Integer.MAX_VALUE);
+        }
+    }
+
+    @Test
+    public void testGraceHashJoin() throws IOException {
+        final Random random = new Random(7);
+        final List<String> left = randomSide(random, 600, "l");
+        final List<String> right = randomSide(random, 900, "r");
+
+        for (JoinType joinType : JoinType.values()) {
+            // small enough that partitions get split again
+            assertMatches(left, right, joinType, 60);
+            assertEmptyDirectory();
+        }
+    }
+
+    @Test
+    public void testHotKeyIsJoinedInMemoryEventually() {
+        final List<String> left = IntStream.range(0, 100).mapToObj(i -> "hot:l" + i).collect(Collectors.toList());
+        final List<String> right = IntStream.range(0, 100).mapToObj(i -> "hot:r" + i).collect(Collectors.toList());
+        assertMatches(left, right, JoinType.INNER, 5);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testOverBudgetWithoutSerializers() {
+        HashJoinBuilder.<String, String, String, String>builder()
+                .setLeftHandSide(Stream.of("1:a", "2:b"))
+                .setRightHandSide(Stream.of("1:x", "2:y"))
+                .setLeftHandKeyingFunction(KEYING_FUNCTION)
+                .setRightHandKeyingFunction(KEYING_FUNCTION)
+                .setJoinFunction((l, r) -> l + r)
+                .setJoinType(JoinType.INNER)
+                .setMemoryBudget(1)
+                .build()
+                .hasNext();
+    }
+
+    @Test
+    public void testCloseDeletesPartitions() throws IOException {
+        final Random random = new Random(3);
+        try (HashJoinIterator<String, String, String, String> iterator = builder(
+                randomSide(random, 500, "l"), randomSide(random, 500, "r"), JoinType.INNER, 10).build()) {
+            iterator.next();
+        }
+        assertEmptyDirectory();
+    }
+
+    @Test
+    public void testCloseAfterPartitioningFails() {
+        final Random random = new Random(5);
+        final HashJoinIterator<String, String, String, String> iterator = builder(
+                randomSide(random, 50, "l"), randomSide(random, 50, "r"), JoinType.INNER, 10)
+                .setTempDirectory(directory.resolve("missing"))
+                .build();
+        try {
+            iterator.hasNext();
+            fail("The partitions can't be created in a missing directory.");
+        } catch (UncheckedIOException e) {
+            // expected
+        }
+        // closing shouldn't trip over the partitions that were never created
+        iterator.close();
+    }
+
+    @Test
+    public void testNullKeys() {
+        final Function<String, String> nullableKeyingFunction = item -> item.startsWith("-") ? null : KEYING_FUNCTION.apply(item);
+        final List<String> output = new ArrayList<>();
+        new HashJoinIterator<>(
+                Stream.of("-:a", "1:b").iterator(),
+                Stream.of("-:x", "2:y").iterator(),
+                nullableKeyingFunction,
+                nullableKeyingFunction,
+                (String l, String r) -> l + "+" + r,
+                JoinType.INNER,
+                Integer.MAX_VALUE,
+                null,
+                null,
+                16,
+                false,
+                null).forEachRemaining(output::add);
+        assertEquals(Collections.singletonList("-:a+-:x"), output);
+    }
+
+    private void assertMatches(List<String> left, List<String> right, JoinType joinType, int memoryBudget) {
+        final List<String> actual = new ArrayList<>();
+        try (HashJoinIterator<String, String, String, String> iterator = builder(left, right, joinType, memoryBudget).build()) {
+            iterator.forEachRemaining(actual::add);
+        }
+        Collections.sort(actual);
+        assertEquals(joinType.toString(), nestedLoopJoin(left, right, joinType), actual);
+    }
+
+    private HashJoinBuilder<String, String, String, String> builder(
+            List<String> left,
+            List<String> right,
+            JoinType joinType,
+            int memoryBudget) {
+        return HashJoinBuilder.<String, String, String, String>builder()
+                .setLeftHandSide(left.stream())
+                .setRightHandSide(right.stream())
+                .setLeftHandKeyingFunction(KEYING_FUNCTION)
+                .setRightHandKeyingFunction(KEYING_FUNCTION)
+                .setJoinFunction((l, r) -> l + "+" + r)
+                .setJoinType(joinType)
+                .setMemoryBudget(memoryBudget)
+                .setLeftHandSerializer(SERIALIZER)
+                .setRightHandSerializer(SERIALIZER)
+                .setPartitions(4)
+                .setTempDirectory(directory);
+    }
+
+    private static List<String> nestedLoopJoin(List<String> left, List<String> right, JoinType joinType) {
+        final List<String> output = new ArrayList<>();
+        final boolean[] rightMatched = new boolean[right.size()];
+        for (String l : left) {
+            boolean matched = false;
+            for (int i = 0; i < right.size(); i++) {
+                if (Objects.equals(KEYING_FUNCTION.apply(l), KEYING_FUNCTION.apply(right.get(i)))) {
+                    matched = true;
+                    rightMatched[i] = true;
+                    if (joinType != JoinType.LEFT_SEMI && joinType != JoinType.LEFT_ANTI) {
+                        output.add(l + "+" + right.get(i));
+                    }
+                }
+            }
+            if ((matched && joinType == JoinType.LEFT_SEMI) || (!matched && joinType == JoinType.LEFT_ANTI)) {
+                output.add(l);
+            } else if (!matched && (joinType == JoinType.LEFT || joinType == JoinType.OUTER)) {
+                output.add(l + "+null");
+            }
+        }
+        if (joinType == JoinType.OUTER) {
+            for (int i = 0; i < right.size(); i++) {
+                if (!rightMatched[i]) {
+                    output.add("null+" + right.get(i));
+                }
+            }
+        }
+        Collections.sort(output);
+        return output;
+    }
+
+    private static List<String> randomSide(Random random, int size, String prefix) {
+        return IntStream.range(0, size)
+                .mapToObj(i -> random.nextInt(size / 2) + ":" + prefix + i)
+                .collect(Collectors.toList());
+    }
+
+    private void assertEmptyDirectory() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            assertFalse(files.findAny().isPresent());
+        }
+    }
+}
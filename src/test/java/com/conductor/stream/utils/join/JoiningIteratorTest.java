@@ -16,10 +16,16 @@
 
 package com.conductor.stream.utils.join;
 
+import com.conductor.stream.utils.seek.SortedListSource;
+import com.conductor.stream.utils.spill.Serializer;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
@@ -33,6 +39,7 @@ import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -301,6 +308,321 @@ public class JoiningIteratorTest {
                 JoinType.INNER);
     }
 
+    /**
+     * The following are tests of semi and anti joins, which emit left items as is
+     */
+    @Test
+    public void testLeftSemiJoin() {
+        runFilteringTest(
+                JOIN_SIDE_1.stream(),
+                JOIN_SIDE_2.stream(),
+                JoinType.LEFT_SEMI,
+
+                "two", "four", "eight", "ten"
+        );
+    }
+
+    @Test
+    public void testLeftSemiJoinWithDuplicates() {
+        runFilteringTest(
+                Stream.of(new SideItem(1, "a"), new SideItem(2, "b"), new SideItem(2, "c"), new SideItem(3, "d")),
+                Stream.of(new SideItem(2, "x"), new SideItem(2, "y"), new SideItem(3, "z")),
+                JoinType.LEFT_SEMI,
+
+                "b", "c", "d"
+        );
+    }
+
+    @Test
+    public void testLeftAntiJoin() {
+        runFilteringTest(
+                JOIN_SIDE_1.stream(),
+                JOIN_SIDE_2.stream(),
+                JoinType.LEFT_ANTI,
+
+                "one", "five", "seven"
+        );
+    }
+
+    @Test
+    public void testLeftAntiJoinWithDuplicates() {
+        runFilteringTest(
+                Stream.of(new SideItem(1, "a"), new SideItem(2, "b"), new SideItem(2, "c"), new SideItem(4, "d")),
+                Stream.of(new SideItem(2, "x"), new SideItem(2, "y"), new SideItem(3, "z")),
+                JoinType.LEFT_ANTI,
+
+                "a", "d"
+        );
+    }
+
+    @Test
+    public void testFilteringJoinsWithEmptyStream() {
+        runFilteringTest(JOIN_SIDE_1.stream(), Stream.empty(), JoinType.LEFT_SEMI);
+        runFilteringTest(Stream.empty(), JOIN_SIDE_1.stream(), JoinType.LEFT_SEMI);
+        runFilteringTest(JOIN_SIDE_1.stream(), Stream.empty(), JoinType.LEFT_ANTI,
+                "one", "two", "four", "five", "seven", "eight", "ten");
+        runFilteringTest(Stream.empty(), JOIN_SIDE_1.stream(), JoinType.LEFT_ANTI);
+    }
+
+    /**
+     * Once the left side runs out, nothing else can be emitted, so the
+     * right side shouldn't be read any further. If it were, this would
+     * never finish.
+     */
+    @Test(timeout = 1000)
+    public void testStopsReadingOnceLeftSideIsExhausted() {
+        for (JoinType joinType : Arrays.asList(JoinType.INNER, JoinType.LEFT, JoinType.LEFT_SEMI, JoinType.LEFT_ANTI)) {
+            final Iterator<SideItem> iterator = JoinBuilder.<Integer, SideItem, SideItem, SideItem>builder()
+                    .setLeftHandSide(Stream.of(new SideItem(1, "one"), new SideItem(2, "two")))
+                    .setRightHandSide(Stream.iterate(new SideItem(2, "2"), item -> new SideItem(item.getNumber() + 1, "n")))
+                    .setOrdering(Comparator.naturalOrder())
+                    .setLeftHandKeyingFunction(KEYING_FUNCTION)
+                    .setRightHandKeyingFunction(KEYING_FUNCTION)
+                    .setJoinFunction(JOIN_RETURN_LHS_FUNCTION)
+                    .setJoinType(joinType)
+                    .build();
+            iterator.forEachRemaining(item -> { });
+        }
+    }
+
+    /**
+     * A sparse left side joined against a dense, seekable, right side should
+     * skip over the right side instead of reading every item of it.
+     */
+    @Test
+    public void testSparseJoinSeeksOverSource() {
+        final int[] gets = new int[1];
+        final List<SideItem> dense = new AbstractList<SideItem>() {
+            @Override
+            public SideItem get(int index) {
+                gets[0]++;
+                return new SideItem(index, "r" + index);
+            }
+
+            @Override
+            public int size() {
+                return 1_000_000;
+            }
+        };
+
+        for (JoinType joinType : Arrays.asList(JoinType.INNER, JoinType.LEFT_SEMI)) {
+            gets[0] = 0;
+            final Iterator<SideItem> iterator = JoinBuilder.<Integer, SideItem, SideItem, SideItem>builder()
+                    .setLeftHandSide(Stream.of(new SideItem(10, "a"), new SideItem(400_000, "b"), new SideItem(999_999, "c")))
+                    .setRightHandSource(new SortedListSource<>(dense, KEYING_FUNCTION, Comparator.naturalOrder()))
+                    .setOrdering(Comparator.naturalOrder())
+                    .setLeftHandKeyingFunction(KEYING_FUNCTION)
+                    .setRightHandKeyingFunction(KEYING_FUNCTION)
+                    .setJoinFunction(JOIN_RETURN_LHS_FUNCTION)
+                    .setJoinType(joinType)
+                    .build();
+            final List<String> output = new ArrayList<>();
+            iterator.forEachRemaining(item -> output.add(item.getStringRepresentation()));
+
+            assertEquals(Arrays.asList("a", "b", "c"), output);
+            assertTrue("read " + gets[0] + " items", gets[0] < 500);
+        }
+    }
+
+    @Test
+    public void testHasNextDoesNotSkipItems() {
+        final Iterator<String> iterator = new JoiningIterator<>(
+                JOIN_SIDE_1.stream(),
+                JOIN_SIDE_2.stream(),
+                Comparator.naturalOrder(),
+                KEYING_FUNCTION,
+                KEYING_FUNCTION,
+                JOIN_FUNCTION,
+                JoinType.INNER);
+
+        assertTrue(iterator.hasNext());
+        assertTrue(iterator.hasNext());
+        assertEquals("2 - two - 2 - '2'", iterator.next());
+        assertTrue(iterator.hasNext());
+        assertTrue(iterator.hasNext());
+        assertEquals("4 - four - 4 - '4'", iterator.next());
+    }
+
+    /**
+     * Each item's key should only be extracted once, no matter how many
+     * times it gets compared against the other side.
+     */
+    @Test
+    public void testKeysAreExtractedOncePerItem() {
+        final int[] calls = new int[1];
+        final Function<SideItem, Integer> countingKeyingFunction = item -> {
+            calls[0]++;
+            return item.getNumber();
+        };
+        final Iterator<String> iterator = new JoiningIterator<>(
+                JOIN_SIDE_1.stream(),
+                JOIN_SIDE_2.stream(),
+                Comparator.naturalOrder(),
+                countingKeyingFunction,
+                countingKeyingFunction,
+                JOIN_FUNCTION,
+                JoinType.OUTER);
+        iterator.forEachRemaining(item -> { });
+
+        assertEquals(JOIN_SIDE_1.size() + JOIN_SIDE_2.size(), calls[0]);
+    }
+
+    private void runFilteringTest(
+            Stream<SideItem> stream1,
+            Stream<SideItem> stream2,
+            JoinType joinType,
+            String... expected
+    ) {
+        // no join function, because these joins should never call it
+        final Iterator<SideItem> iterator = JoinBuilder.<Integer, SideItem, SideItem, SideItem>builder()
+                .setLeftHandSide(stream1)
+                .setRightHandSide(stream2)
+                .setOrdering(Comparator.naturalOrder())
+                .setLeftHandKeyingFunction(KEYING_FUNCTION)
+                .setRightHandKeyingFunction(KEYING_FUNCTION)
+                .setJoinType(joinType)
+                .build();
+        final List<String> output = new ArrayList<>();
+        iterator.forEachRemaining(item -> output.add(item.getStringRepresentation()));
+
+        assertEquals(Arrays.asList(expected), output);
+    }
+
+    /**
+     * The following are tests of many-to-many joins, where keys repeat on both sides
+     */
+    private static final List<SideItem> DUPLICATES_SIDE_1 = Arrays.asList(
+            new SideItem(1, "a"),
+            new SideItem(2, "b"),
+            new SideItem(2, "c"),
+            new SideItem(3, "d"),
+            new SideItem(5, "e")
+    );
+
+    private static final List<SideItem> DUPLICATES_SIDE_2 = Arrays.asList(
+            new SideItem(2, "x"),
+            new SideItem(2, "y"),
+            new SideItem(2, "z"),
+            new SideItem(4, "w"),
+            new SideItem(5, "v"),
+            new SideItem(5, "u")
+    );
+
+    @Test
+    public void testManyToManyInnerJoin() {
+        runManyToManyTest(
+                JoinBuilder.<Integer, SideItem, SideItem, String>builder().setJoinType(JoinType.INNER),
+
+                "2 - b - 2 - x",
+                "2 - b - 2 - y",
+                "2 - b - 2 - z",
+                "2 - c - 2 - x",
+                "2 - c - 2 - y",
+                "2 - c - 2 - z",
+                "5 - e - 5 - v",
+                "5 - e - 5 - u"
+        );
+    }
+
+    @Test
+    public void testManyToManyOuterJoin() {
+        runManyToManyTest(
+                JoinBuilder.<Integer, SideItem, SideItem, String>builder().setJoinType(JoinType.OUTER),
+
+                "1 - a",
+                "2 - b - 2 - x",
+                "2 - b - 2 - y",
+                "2 - b - 2 - z",
+                "2 - c - 2 - x",
+                "2 - c - 2 - y",
+                "2 - c - 2 - z",
+                "3 - d",
+                "4 - w",
+                "5 - e - 5 - v",
+                "5 - e - 5 - u"
+        );
+    }
+
+    @Test
+    public void testManyToManyLeftJoin() {
+        runManyToManyTest(
+                JoinBuilder.<Integer, SideItem, SideItem, String>builder().setJoinType(JoinType.LEFT),
+
+                "1 - a",
+                "2 - b - 2 - x",
+                "2 - b - 2 - y",
+                "2 - b - 2 - z",
+                "2 - c - 2 - x",
+                "2 - c - 2 - y",
+                "2 - c - 2 - z",
+                "3 - d",
+                "5 - e - 5 - v",
+                "5 - e - 5 - u"
+        );
+    }
+
+    @Test
+    public void testManyToManySpillsLongRuns() {
+        runManyToManyTest(
+                JoinBuilder.<Integer, SideItem, SideItem, String>builder()
+                        .setJoinType(JoinType.INNER)
+                        .setRightHandRunLimit(1)
+                        .setRightHandSerializer(SIDE_ITEM_SERIALIZER),
+
+                "2 - b - 2 - x",
+                "2 - b - 2 - y",
+                "2 - b - 2 - z",
+                "2 - c - 2 - x",
+                "2 - c - 2 - y",
+                "2 - c - 2 - z",
+                "5 - e - 5 - v",
+                "5 - e - 5 - u"
+        );
+    }
+
+    @Test
+    public void testManyToManyRejectsLongRunsWithoutSerializer() {
+        thrown.expect(IllegalStateException.class);
+        runManyToManyTest(
+                JoinBuilder.<Integer, SideItem, SideItem, String>builder()
+                        .setJoinType(JoinType.INNER)
+                        .setRightHandRunLimit(2)
+        );
+    }
+
+    private static final Serializer<SideItem> SIDE_ITEM_SERIALIZER = new Serializer<SideItem>() {
+        @Override
+        public void write(SideItem item, DataOutput output) throws IOException {
+            output.writeInt(item.getNumber());
+            output.writeUTF(item.getStringRepresentation());
+        }
+
+        @Override
+        public SideItem read(DataInput input) throws IOException {
+            return new SideItem(input.readInt(), input.readUTF());
+        }
+    };
+
+    private void runManyToManyTest(
+            JoinBuilder<Integer, SideItem, SideItem, String> builder,
+            String... expected
+    ) {
+        final List<String> output = new ArrayList<>();
+        try (JoiningIterator<Integer, SideItem, SideItem, String> iterator = builder
+                .setLeftHandSide(DUPLICATES_SIDE_1.stream())
+                .setRightHandSide(DUPLICATES_SIDE_2.stream())
+                .setOrdering(Comparator.naturalOrder())
+                .setLeftHandKeyingFunction(KEYING_FUNCTION)
+                .setRightHandKeyingFunction(KEYING_FUNCTION)
+                .setJoinFunction(JOIN_FUNCTION)
+                .setManyToMany(true)
+                .build()) {
+            iterator.forEachRemaining(output::add);
+        }
+
+        assertEquals(Arrays.asList(expected), output);
+    }
+
     private void runTest(
             Stream<SideItem> stream1,
             Stream<SideItem> stream2,
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.join;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LongJoiningIteratorTest {
+
+    private static final List<String> LEFT = Arrays.asList("1:a", "2:b", "2:c", "4:d", "5:e");
+    private static final List<String> RIGHT = Arrays.asList("2:x", "2:y", "3:z", "5:w");
+
+    @Test
+    public void testInnerJoin() {
+        assertEquals(Arrays.asList("2:b+2:x", "2:c+2:y", "5:e+5:w"), join(JoinType.INNER, false));
+    }
+
+    @Test
+    public void testLeftJoin() {
+        assertEquals(Arrays.asList("1:a+null", "2:b+2:x", "2:c+2:y", "4:d+null", "5:e+5:w"), join(JoinType.LEFT, false));
+    }
+
+    @Test
+    public void testOuterJoin() {
+        assertEquals(
+                Arrays.asList("1:a+null", "2:b+2:x", "2:c+2:y", "null+3:z", "4:d+null", "5:e+5:w"),
+                join(JoinType.OUTER, false));
+    }
+
+    @Test
+    public void testManyToManyJoin() {
+        assertEquals(
+                Arrays.asList("2:b+2:x", "2:b+2:y", "2:c+2:x", "2:c+2:y", "5:e+5:w"),
+                join(JoinType.INNER, true));
+    }
+
+    @Test
+    public void testSemiAndAntiJoin() {
+        assertEquals(Arrays.asList("2:b", "2:c", "5:e"), filter(JoinType.LEFT_SEMI));
+        assertEquals(Arrays.asList("1:a", "4:d"), filter(JoinType.LEFT_ANTI));
+    }
+
+    @Test
+    public void testIntJoinBuilder() {
+        final Iterator<String> iterator = IntJoinBuilder.<String, String, String>builder()
+                .setLeftHandSide(LEFT.stream())
+                .setRightHandSide(RIGHT.stream())
+                .setLeftHandKeyingFunction(LongJoiningIteratorTest::key)
+                .setRightHandKeyingFunction(LongJoiningIteratorTest::key)
+                .setJoinFunction((left, right) -> left + "+" + right)
+                .setJoinType(JoinType.INNER)
+                .build();
+        final List<String> output = new ArrayList<>();
+        iterator.forEachRemaining(output::add);
+        assertEquals(Arrays.asList("2:b+2:x", "2:c+2:y", "5:e+5:w"), output);
+    }
+
+    @Test
+    public void testNegativeKeys() {
+        final Iterator<Long> iterator = LongJoinBuilder.<Long, Long, Long>builder()
+                .setLeftHandSide(Stream.of(Long.MIN_VALUE, -1L, 0L, Long.MAX_VALUE))
+                .setRightHandSide(Stream.of(Long.MIN_VALUE, 0L, 1L, Long.MAX_VALUE))
+                .setLeftHandKeyingFunction(Long::longValue)
+                .setRightHandKeyingFunction(Long::longValue)
+                .setJoinType(JoinType.LEFT_SEMI)
+                .build();
+        final List<Long> output = new ArrayList<>();
+        iterator.forEachRemaining(output::add);
+        assertEquals(Arrays.asList(Long.MIN_VALUE, 0L, Long.MAX_VALUE), output);
+    }
+
+    @Test
+    public void testKeysAreExtractedOncePerItem() {
+        final int[] calls = new int[1];
+        for (JoinType joinType : JoinType.values()) {
+            calls[0] = 0;
+            final Iterator<String> iterator = LongJoinBuilder.<String, String, String>builder()
+                    .setLeftHandSide(LEFT.stream())
+                    .setRightHandSide(RIGHT.stream())
+                    .setLeftHandKeyingFunction(item -> {
+                        calls[0]++;
+                        return key(item);
+                    })
+                    .setRightHandKeyingFunction(item -> {
+                        calls[0]++;
+                        return key(item);
+                    })
+                    .setJoinFunction((left, right) -> left + "+" + right)
+                    .setJoinType(joinType)
+                    .build();
+            iterator.forEachRemaining(item -> { });
+
+            assertTrue(joinType + " extracted " + calls[0] + " keys", calls[0] <= LEFT.size() + RIGHT.size());
+        }
+    }
+
+    private static List<String> join(JoinType joinType, boolean manyToMany) {
+        final Iterator<String> iterator = LongJoinBuilder.<String, String, String>builder()
+                .setLeftHandSide(LEFT.stream())
+                .setRightHandSide(RIGHT.stream())
+                .setLeftHandKeyingFunction(LongJoiningIteratorTest::key)
+                .setRightHandKeyingFunction(LongJoiningIteratorTest::key)
+                .setJoinFunction((left, right) -> left + "+" + right)
+                .setJoinType(joinType)
+                .setManyToMany(manyToMany)
+                .build();
+        final List<String> output = new ArrayList<>();
+        iterator.forEachRemaining(output::add);
+        return output;
+    }
+
+    private static List<String> filter(JoinType joinType) {
+        final Iterator<String> iterator = LongJoinBuilder.<String, String, String>builder()
+                .setLeftHandSide(LEFT.stream())
+                .setRightHandSide(RIGHT.stream())
+                .setLeftHandKeyingFunction(LongJoiningIteratorTest::key)
+                .setRightHandKeyingFunction(LongJoiningIteratorTest::key)
+                .setJoinType(joinType)
+                .build();
+        final List<String> output = new ArrayList<>();
+        iterator.forEachRemaining(output::add);
+        return output;
+    }
+
+    private static int key(String item) {
+        return Integer.parseInt(item.substring(0, item.indexOf(':')));
+    }
+}
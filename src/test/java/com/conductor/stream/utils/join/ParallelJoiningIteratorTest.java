@@ -0,0 +1,262 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.join;
+
+import com.conductor.stream.utils.spill.Serializer;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+
+public class ParallelJoiningIteratorTest {
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    private static final Function<String, Integer> KEYING_FUNCTION = item -> Integer.parseInt(item.substring(0, item.indexOf(':')));
+
+    private static final Serializer<String> SERIALIZER = new Serializer<String>() {
+        @Override
+        public void write(String item, DataOutput output) throws IOException {
+            output.writeUTF(item);
+        }
+
+        @Override
+        public String read(DataInput input) throws IOException {
+            return input.readUTF();
+        }
+    };
+
+    @AfterClass
+    public static void teardown() {
+        POOL.shutdown();
+    }
+
+    /**
+     * Whatever the partitioning, a parallel join should produce exactly
+     * what a single-threaded join does.
+     */
+    @Test
+    public void testMatchesSequentialJoin() {
+        final Random random = new Random(42);
+        for (int round = 0; round < 20; round++) {
+            final List<String> left = randomSide(random, "l");
+            final List<String> right = randomSide(random, "r");
+            for (JoinType joinType : JoinType.values()) {
+                for (boolean manyToMany : Arrays.asList(false, true)) {
+                    for (int partitionSize : Arrays.asList(1, 3, 50, 10_000)) {
+                        assertMatches(left, right, joinType, manyToMany, partitionSize, Collections.emptyList());
+                        assertMatches(left, right, joinType, manyToMany, partitionSize, Arrays.asList(5, 10, 11, 30));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testHotKeyIsSplit() {
+        final List<String> left = new ArrayList<>();
+        left.add("1:a");
+        IntStream.range(0, 1000).forEach(i -> left.add("2:" + i));
+        left.add("3:b");
+        final List<String> right = Arrays.asList("2:x", "2:y", "3:z");
+
+        for (JoinType joinType : JoinType.values()) {
+            for (boolean manyToMany : Arrays.asList(false, true)) {
+                assertMatches(left, right, joinType, manyToMany, 7, Collections.emptyList());
+            }
+        }
+    }
+
+    @Test
+    public void testHotKeyWithMoreRightItems() {
+        final List<String> left = IntStream.range(0, 10).mapToObj(i -> "2:" + i).collect(Collectors.toList());
+        final List<String> right = IntStream.range(0, 25).mapToObj(i -> "2:r" + i).collect(Collectors.toList());
+
+        for (JoinType joinType : JoinType.values()) {
+            assertMatches(left, right, joinType, false, 3, Collections.emptyList());
+        }
+    }
+
+    @Test
+    public void testHotRightKeyIsSplit() {
+        final List<String> left = Arrays.asList("1:a", "2:b", "2:c", "3:d");
+        final List<String> right = new ArrayList<>();
+        right.add("1:x");
+        IntStream.range(0, 100).forEach(i -> right.add("2:" + i));
+        IntStream.range(0, 100).forEach(i -> right.add("4:" + i));
+
+        for (JoinType joinType : JoinType.values()) {
+            for (boolean manyToMany : Arrays.asList(false, true)) {
+                assertMatches(left, right, joinType, manyToMany, 7, Collections.emptyList());
+            }
+        }
+    }
+
+    @Test
+    public void testLongRightRunIsSpilled() {
+        final List<String> left = Arrays.asList("1:a", "2:b", "2:c", "3:d");
+        final List<String> right = new ArrayList<>();
+        IntStream.range(0, 100).forEach(i -> right.add("2:" + i));
+        right.add("3:x");
+
+        for (JoinType joinType : JoinType.values()) {
+            for (boolean manyToMany : Arrays.asList(false, true)) {
+                assertMatches(left, right, joinType, manyToMany, 7, Collections.emptyList(), builder -> builder
+                        .setRightHandRunLimit(10)
+                        .setRightHandSerializer(SERIALIZER));
+            }
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testLongRightRunWithoutSerializer() {
+        final List<String> right = IntStream.range(0, 100).mapToObj(i -> "2:" + i).collect(Collectors.toList());
+        try (ParallelJoiningIterator<Integer, String, String, String> iterator =
+                     builder(Collections.singletonList("2:a"), right, JoinType.INNER, true, 7)
+                             .setRightHandRunLimit(10)
+                             .buildParallel(POOL)) {
+            iterator.forEachRemaining(item -> { });
+        }
+    }
+
+    @Test
+    public void testCloseWaitsForPartitionsInFlight() throws InterruptedException {
+        final List<String> right = new ArrayList<>();
+        right.add("1:x");
+        IntStream.range(0, 100).forEach(i -> right.add("2:" + i));
+        final CountDownLatch started = new CountDownLatch(1);
+        final AtomicInteger running = new AtomicInteger();
+
+        final ParallelJoiningIterator<Integer, String, String, String> iterator =
+                builder(Arrays.asList("1:a", "2:b"), right, JoinType.INNER, true, 1)
+                        .setRightHandRunLimit(10)
+                        .setRightHandSerializer(SERIALIZER)
+                        .setJoinFunction((l, r) -> {
+                            if (l.startsWith("2:") && started.getCount() > 0) {
+                                // hold up the join of the spilled key
+                                running.incrementAndGet();
+                                started.countDown();
+                                try {
+                                    Thread.sleep(200);
+                                } catch (InterruptedException e) {
+                                    Thread.currentThread().interrupt();
+                                } finally {
+                                    running.decrementAndGet();
+                                }
+                            }
+                            return l + "+" + r;
+                        })
+                        .buildParallel(POOL);
+        assertEquals("1:a+1:x", iterator.next());
+        started.await();
+
+        // the spilled key's partition is reading from disk, so close has
+        // to wait for it before deleting the file
+        iterator.close();
+        assertEquals(0, running.get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnorderedSplitters() {
+        builder(Collections.<String>emptyList(), Collections.<String>emptyList(), JoinType.INNER, false, 10)
+                .setSplitters(Arrays.asList(5, 3))
+                .buildParallel(POOL);
+    }
+
+    private static void assertMatches(
+            List<String> left,
+            List<String> right,
+            JoinType joinType,
+            boolean manyToMany,
+            int partitionSize,
+            List<Integer> splitters) {
+        assertMatches(left, right, joinType, manyToMany, partitionSize, splitters, UnaryOperator.identity());
+    }
+
+    private static void assertMatches(
+            List<String> left,
+            List<String> right,
+            JoinType joinType,
+            boolean manyToMany,
+            int partitionSize,
+            List<Integer> splitters,
+            UnaryOperator<JoinBuilder<Integer, String, String, String>> options) {
+        final List<String> expected = new ArrayList<>();
+        options.apply(builder(left, right, joinType, manyToMany, partitionSize)).build().forEachRemaining(expected::add);
+
+        final List<String> actual = new ArrayList<>();
+        try (ParallelJoiningIterator<Integer, String, String, String> iterator =
+                     options.apply(builder(left, right, joinType, manyToMany, partitionSize))
+                             .setSplitters(splitters)
+                             .buildParallel(POOL)) {
+            iterator.forEachRemaining(actual::add);
+        }
+
+        assertEquals(
+                String.format("%s, many-to-many %s, partition size %d, splitters %s", joinType, manyToMany, partitionSize, splitters),
+                expected,
+                actual);
+    }
+
+    private static JoinBuilder<Integer, String, String, String> builder(
+            List<String> left,
+            List<String> right,
+            JoinType joinType,
+            boolean manyToMany,
+            int partitionSize) {
+        return JoinBuilder.<Integer, String, String, String>builder()
+                .setLeftHandSide(left.stream())
+                .setRightHandSide(right.stream())
+                .setOrdering(Comparator.naturalOrder())
+                .setLeftHandKeyingFunction(KEYING_FUNCTION)
+                .setRightHandKeyingFunction(KEYING_FUNCTION)
+                .setJoinFunction((l, r) -> l + "+" + r)
+                .setJoinType(joinType)
+                .setManyToMany(manyToMany)
+                .setPartitionSize(partitionSize);
+    }
+
+    private static List<String> randomSide(Random random, String prefix) {
+        final List<String> side = new ArrayList<>();
+        for (int key = 0; key < 40; key++) {
+            // mostly nothing, some singles, the odd run
+            final int count = random.nextInt(10) < 5 ? 0 : random.nextInt(10) < 8 ? 1 : random.nextInt(8);
+            for (int i = 0; i < count; i++) {
+                side.add(key + ":" + prefix + i);
+            }
+        }
+        return side;
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.join;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class WindowedJoinIteratorTest {
+
+    // items are "key:time"
+    private static final Function<String, String> KEY = item -> item.substring(0, item.indexOf(':'));
+    private static final ToLongFunction<String> TIME = item -> Long.parseLong(item.substring(item.indexOf(':') + 1));
+
+    @Test
+    public void testWindowedJoin() {
+        final List<String> left = Arrays.asList("a:10", "b:12", "a:11", "c:30", "a:40");
+        final List<String> right = Arrays.asList("a:13", "b:12", "a:20", "b:35");
+
+        assertEquals(
+                Arrays.asList("a:10=a:13", "a:11=a:13", "b:12=b:12"),
+                sorted(join(left, right, JoinType.INNER, 3, 2)));
+        assertEquals(
+                Arrays.asList("a:10=a:13", "a:11=a:13", "a:40=null", "b:12=b:12", "c:30=null"),
+                sorted(join(left, right, JoinType.LEFT, 3, 2)));
+        assertEquals(
+                Arrays.asList("a:10=a:13", "a:11=a:13", "a:40=null", "b:12=b:12", "c:30=null", "null=a:20", "null=b:35"),
+                sorted(join(left, right, JoinType.OUTER, 3, 2)));
+        assertEquals(Arrays.asList("a:10", "a:11", "b:12"), sorted(join(left, right, JoinType.LEFT_SEMI, 3, 2)));
+        assertEquals(Arrays.asList("a:40", "c:30"), sorted(join(left, right, JoinType.LEFT_ANTI, 3, 2)));
+    }
+
+    @Test
+    public void testRandomWindowedJoins() {
+        final Random random = new Random(13);
+        for (int i = 0; i < 30; i++) {
+            // shuffled to within the max out-of-orderness, so nothing is late
+            final List<String> left = randomSide(random, 5);
+            final List<String> right = randomSide(random, 5);
+            for (JoinType joinType : JoinType.values()) {
+                assertEquals(
+                        joinType.toString(),
+                        nestedLoopJoin(left, right, joinType, 4),
+                        sorted(join(left, right, joinType, 4, 5)));
+            }
+        }
+    }
+
+    @Test
+    public void testLateItemsAreDropped() {
+        final List<String> left = Arrays.asList("a:10", "a:20", "a:30", "a:5");
+        final List<String> right = Arrays.asList("a:5", "a:21", "a:31", "a:40");
+
+        assertEquals(
+                Arrays.asList("a:20=a:21", "a:30=a:31"),
+                sorted(join(left, right, JoinType.INNER, 1, 2)));
+    }
+
+    @Test
+    public void testStateStaysBoundedOnEndlessStreams() {
+        final Random random = new Random(1);
+        final WindowedJoinIterator<String, String, String, Object> iterator = new WindowedJoinIterator<>(
+                endless(random),
+                endless(random),
+                KEY,
+                KEY,
+                TIME,
+                TIME,
+                10,
+                5,
+                (l, r) -> l + "=" + r,
+                JoinType.INNER);
+
+        int maxStateSize = 0;
+        for (int i = 0; i < 100_000; i++) {
+            iterator.next();
+            maxStateSize = Math.max(maxStateSize, iterator.getStateSize());
+        }
+        // roughly a window and the out-of-orderness worth of items per side
+        assertTrue("state grew to " + maxStateSize, maxStateSize < 100);
+    }
+
+    private static List<Object> join(List<String> left, List<String> right, JoinType joinType, long windowSize, long maxOutOfOrderness) {
+        final List<Object> output = new ArrayList<>();
+        WindowedJoinBuilder.<String, String, String, Object>builder()
+                .setLeftHandSide(left.stream())
+                .setRightHandSide(right.stream())
+                .setLeftHandKeyingFunction(KEY)
+                .setRightHandKeyingFunction(KEY)
+                .setLeftHandTimeFunction(TIME)
+                .setRightHandTimeFunction(TIME)
+                .setWindowSize(windowSize)
+                .setMaxOutOfOrderness(maxOutOfOrderness)
+                .setJoinFunction((l, r) -> l + "=" + r)
+                .setJoinType(joinType)
+                .build()
+                .forEachRemaining(output::add);
+        return output;
+    }
+
+    private static List<String> randomSide(Random random, int maxOutOfOrderness) {
+        final List<String> side = new ArrayList<>();
+        int time = 0;
+        final int size = random.nextInt(40);
+        for (int i = 0; i < size; i++) {
+            time += random.nextInt(3);
+            side.add((char) ('a' + random.nextInt(3)) + ":" + (time + random.nextInt(maxOutOfOrderness + 1)));
+        }
+        return side;
+    }
+
+    private static Iterator<String> endless(Random random) {
+        return IntStream.iterate(0, i -> i + 1)
+                .mapToObj(i -> (char) ('a' + random.nextInt(3)) + ":" + (i + random.nextInt(6)))
+                .iterator();
+    }
+
+    private static List<Object> nestedLoopJoin(List<String> left, List<String> right, JoinType joinType, long windowSize) {
+        final List<Object> output = new ArrayList<>();
+        final boolean[] rightMatched = new boolean[right.size()];
+        for (String l : left) {
+            boolean matched = false;
+            for (int i = 0; i < right.size(); i++) {
+                final String r = right.get(i);
+                if (KEY.apply(l).equals(KEY.apply(r)) && Math.abs(TIME.applyAsLong(l) - TIME.applyAsLong(r)) <= windowSize) {
+                    matched = true;
+                    rightMatched[i] = true;
+                    if (joinType != JoinType.LEFT_SEMI && joinType != JoinType.LEFT_ANTI) {
+                        output.add(l + "=" + r);
+                    }
+                }
+            }
+            if (joinType == JoinType.LEFT_SEMI && matched || joinType == JoinType.LEFT_ANTI && !matched) {
+                output.add(l);
+            } else if (!matched && (joinType == JoinType.LEFT || joinType == JoinType.OUTER)) {
+                output.add(l + "=null");
+            }
+        }
+        if (joinType == JoinType.OUTER) {
+            for (int i = 0; i < right.size(); i++) {
+                if (!rightMatched[i]) {
+                    output.add("null=" + right.get(i));
+                }
+            }
+        }
+        return sorted(output);
+    }
+
+    private static List<Object> sorted(List<Object> items) {
+        return items.stream().map(String::valueOf).sorted().collect(Collectors.toList());
+    }
+}
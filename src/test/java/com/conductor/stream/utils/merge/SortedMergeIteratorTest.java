@@ -16,18 +16,23 @@
 
 package com.conductor.stream.utils.merge;
 
+import com.conductor.stream.utils.TestRecord;
 import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 public class SortedMergeIteratorTest {
 
@@ -134,4 +139,57 @@ public class SortedMergeIteratorTest {
         new SortedMergeIterator<>(Arrays.asList(s1, s1), Comparator.naturalOrder());
     }
 
+    @Test
+    public void testManyStreamsMerge() {
+        // 500 streams, where stream i holds i, i + 500, i + 1000, ... so the
+        // merged output is every number in order
+        final List<Stream<Integer>> streams = IntStream.range(0, 500)
+                .mapToObj(i -> IntStream.range(0, 20).mapToObj(j -> i + j * 500))
+                .collect(Collectors.toList());
+
+        final Iterator<Integer> iterator = new SortedMergeIterator<>(streams, Comparator.naturalOrder());
+        final List<Integer> output = new ArrayList<>();
+        iterator.forEachRemaining(output::add);
+
+        assertEquals(IntStream.range(0, 10000).boxed().collect(Collectors.toList()), output);
+    }
+
+    @Test
+    public void testTiesFavorEarlierStream() {
+        final Stream<TestRecord> s1 = Stream.of(new TestRecord(1, "a1"), new TestRecord(2, "a2"));
+        final Stream<TestRecord> s2 = Stream.of(new TestRecord(1, "b1"), new TestRecord(2, "b2"));
+        final Stream<TestRecord> s3 = Stream.of(new TestRecord(1, "c1"), new TestRecord(3, "c3"));
+
+        final Iterator<TestRecord> iterator = new SortedMergeIterator<>(
+                Arrays.asList(s1, s2, s3), Comparator.comparing(TestRecord::getId));
+        final List<String> output = new ArrayList<>();
+        iterator.forEachRemaining(record -> output.add(record.getValue()));
+
+        assertEquals(Arrays.asList("a1", "b1", "c1", "a2", "b2", "c3"), output);
+    }
+
+    @Test
+    public void testHasNextDoesNotConsume() {
+        final Stream<Integer> s1 = Stream.of(1, 3);
+        final Stream<Integer> s2 = Stream.of(2);
+
+        final Iterator<Integer> iterator = new SortedMergeIterator<>(Arrays.asList(s1, s2), Comparator.naturalOrder());
+
+        assertTrue(iterator.hasNext());
+        assertTrue(iterator.hasNext());
+        assertEquals((Integer) 1, iterator.next());
+        assertEquals((Integer) 2, iterator.next());
+        assertTrue(iterator.hasNext());
+        assertEquals((Integer) 3, iterator.next());
+        assertFalse(iterator.hasNext());
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void testNoStreams() {
+        final Iterator<Integer> iterator = new SortedMergeIterator<>(Collections.<Stream<Integer>>emptyList(), Comparator.naturalOrder());
+
+        assertFalse(iterator.hasNext());
+    }
+
 }
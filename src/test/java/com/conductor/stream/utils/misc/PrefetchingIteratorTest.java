@@ -0,0 +1,215 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.misc;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PrefetchingIteratorTest {
+
+    private ExecutorService executor;
+
+    @Before
+    public void setup() {
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void teardown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testReadsAllItems() {
+        final PrefetchingIterator<Integer> iterator =
+                new PrefetchingIterator<>(Arrays.asList(1, 2, 3, 4, 5).iterator(), executor, 2);
+        final List<Integer> output = new ArrayList<>();
+        iterator.forEachRemaining(output::add);
+
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5), output);
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void testNullItems() {
+        final PrefetchingIterator<Integer> iterator =
+                new PrefetchingIterator<>(Arrays.asList(1, null, 3).iterator(), executor, 1);
+        final List<Integer> output = new ArrayList<>();
+        iterator.forEachRemaining(output::add);
+
+        assertEquals(Arrays.asList(1, null, 3), output);
+    }
+
+    @Test(timeout = 1000)
+    public void testReadsAheadUpToDepth() throws Exception {
+        final AtomicInteger read = new AtomicInteger();
+        // an endless iterator that counts how many items were pulled off it
+        final Iterator<Integer> delegate = new Iterator<Integer>() {
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public Integer next() {
+                return read.incrementAndGet();
+            }
+        };
+
+        final PrefetchingIterator<Integer> iterator = new PrefetchingIterator<>(delegate, executor, 3);
+        // the queue holds 3, and the reader blocks on putting the 4th
+        while (read.get() < 4) {
+            Thread.sleep(1);
+        }
+        Thread.sleep(50);
+        assertEquals(4, read.get());
+
+        // consuming an item makes room for exactly one more
+        assertEquals((Integer) 1, iterator.next());
+        while (read.get() < 5) {
+            Thread.sleep(1);
+        }
+        Thread.sleep(50);
+        assertEquals(5, read.get());
+
+        iterator.close();
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void doesNotThrowExceptionUntilFailedItem() {
+        final Iterator<Integer> delegate = new Iterator<Integer>() {
+            private int count;
+
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public Integer next() {
+                if (++count == 3) {
+                    throw new IllegalStateException("Holy exception batman!");
+                }
+                return count;
+            }
+        };
+
+        final PrefetchingIterator<Integer> iterator = new PrefetchingIterator<>(delegate, executor, 5);
+        assertEquals((Integer) 1, iterator.next());
+        assertEquals((Integer) 2, iterator.next());
+
+        // now every call should throw the exception
+        boolean caught = false;
+        try {
+            iterator.hasNext();
+        } catch (IllegalStateException e) {
+            caught = true;
+        }
+        assertTrue(caught);
+        caught = false;
+        try {
+            iterator.next();
+        } catch (IllegalStateException e) {
+            caught = true;
+        }
+        assertTrue(caught);
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void throwsOnNextWhenEmpty() {
+        new PrefetchingIterator<>(Collections.emptyIterator(), executor, 1).next();
+    }
+
+    @Test(timeout = 1000)
+    public void testCloseStopsReading() {
+        final AtomicInteger read = new AtomicInteger();
+        final Iterator<Integer> delegate = new Iterator<Integer>() {
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public Integer next() {
+                return read.incrementAndGet();
+            }
+        };
+
+        final PrefetchingIterator<Integer> iterator = new PrefetchingIterator<>(delegate, executor, 1);
+        assertEquals((Integer) 1, iterator.next());
+        // close waits for the reader to let go of the delegate
+        iterator.close();
+        final int readAtClose = read.get();
+
+        assertFalse(iterator.hasNext());
+        assertEquals(readAtClose, read.get());
+    }
+
+    @Test(timeout = 1000, expected = AssertionError.class)
+    public void testErrorsWakeTheConsumer() {
+        final Iterator<Integer> delegate = new Iterator<Integer>() {
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public Integer next() {
+                throw new AssertionError("broken delegate");
+            }
+        };
+
+        // this would block forever if the error never made it to the queue
+        new PrefetchingIterator<>(delegate, executor, 1).hasNext();
+    }
+
+    @Test(timeout = 1000)
+    public void testCloseBeforeReadingStarts() {
+        final List<Runnable> tasks = new ArrayList<>();
+        // an executor that hasn't gotten around to running the task yet
+        final PrefetchingIterator<Integer> iterator = new PrefetchingIterator<>(Arrays.asList(1, 2).iterator(), tasks::add, 1);
+        iterator.close();
+
+        // once it does, the task sees we're closed, and doesn't read anything
+        tasks.forEach(Runnable::run);
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDepthMustBePositive() {
+        new PrefetchingIterator<>(Collections.emptyIterator(), executor, 0);
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.seek;
+
+import com.conductor.stream.utils.spill.Serializer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class SortedFileSourceTest {
+
+    private static final Serializer<String> SERIALIZER = new Serializer<String>() {
+        @Override
+        public void write(String item, DataOutput output) throws IOException {
+            output.writeUTF(item);
+        }
+
+        @Override
+        public String read(DataInput input) throws IOException {
+            return input.readUTF();
+        }
+    };
+
+    private Path directory;
+
+    @Before
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("sorted-file-source-test");
+    }
+
+    @After
+    public void teardown() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void testWriteThenRead() {
+        final Path file = directory.resolve("sorted");
+        SortedFileSource.write(file, Arrays.asList("a", "bb", "ccc").iterator(), SERIALIZER, 8);
+
+        final List<String> result = new ArrayList<>();
+        try (SortedFileSource<String, String> source = source(file)) {
+            source.forEachRemaining(result::add);
+        }
+        assertEquals(Arrays.asList("a", "bb", "ccc"), result);
+    }
+
+    @Test
+    public void testSeekAcrossBlocks() {
+        // enough records to span many blocks
+        final List<String> items = IntStream.range(0, 10_000)
+                .mapToObj(i -> String.format("%06d", i * 2))
+                .collect(Collectors.toList());
+        final Path file = directory.resolve("sorted");
+        SortedFileSource.write(file, items.iterator(), SERIALIZER, 8);
+
+        try (SortedFileSource<String, String> source = source(file)) {
+            source.seek("000101");
+            assertEquals("000102", source.next());
+            source.seek("015000");
+            assertEquals("015000", source.next());
+            assertEquals("015002", source.next());
+            source.seek("019999");
+            assertFalse(source.hasNext());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRecordTooBig() {
+        SortedFileSource.write(directory.resolve("sorted"), Arrays.asList("too long").iterator(), SERIALIZER, 4);
+    }
+
+    private static SortedFileSource<String, String> source(Path file) {
+        return new SortedFileSource<>(file, 8, SERIALIZER, Function.identity(), Comparator.<String>naturalOrder());
+    }
+}
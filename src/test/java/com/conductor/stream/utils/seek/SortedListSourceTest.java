@@ -0,0 +1,113 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.seek;
+
+import org.junit.Test;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SortedListSourceTest {
+
+    @Test
+    public void testIteratesInOrder() {
+        final SortedListSource<Integer, Integer> source = source(Arrays.asList(1, 2, 3));
+        final List<Integer> result = new ArrayList<>();
+        source.forEachRemaining(result::add);
+        assertEquals(Arrays.asList(1, 2, 3), result);
+    }
+
+    @Test
+    public void testSeekLandsOnFirstItemNotBeforeKey() {
+        final List<Integer> list = Arrays.asList(1, 3, 3, 5, 7, 9, 11, 13, 15, 17);
+        for (int key = 0; key <= 18; key++) {
+            final SortedListSource<Integer, Integer> source = source(list);
+            source.seek(key);
+            final int expected = key;
+            final List<Integer> expectedRemaining = list.stream().filter(i -> i >= expected).collect(Collectors.toList());
+            final List<Integer> remaining = new ArrayList<>();
+            source.forEachRemaining(remaining::add);
+            assertEquals("seeking " + key, expectedRemaining, remaining);
+        }
+    }
+
+    @Test
+    public void testSeekNeverMovesBackwards() {
+        final SortedListSource<Integer, Integer> source = source(Arrays.asList(1, 2, 3, 4, 5));
+        source.seek(4);
+        source.seek(2);
+        assertEquals(4, (int) source.peek());
+    }
+
+    @Test
+    public void testSeekPastEnd() {
+        final SortedListSource<Integer, Integer> source = source(Arrays.asList(1, 2, 3));
+        source.seek(10);
+        assertFalse(source.hasNext());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testPeekAtEnd() {
+        source(Arrays.<Integer>asList()).peek();
+    }
+
+    @Test
+    public void testSeekOnlyLooksAtLogarithmicallyManyItems() {
+        final int[] gets = new int[1];
+        final List<Integer> list = new AbstractList<Integer>() {
+            @Override
+            public Integer get(int index) {
+                gets[0]++;
+                return index;
+            }
+
+            @Override
+            public int size() {
+                return 1_000_000;
+            }
+        };
+        final SortedListSource<Integer, Integer> source = source(list);
+        source.seek(500_000);
+        assertTrue("looked at " + gets[0] + " items", gets[0] < 50);
+        assertEquals(500_000, (int) source.next());
+    }
+
+    @Test
+    public void testSeekingRepeatedly() {
+        final List<Integer> list = IntStream.range(0, 1000).map(i -> i * 2).boxed().collect(Collectors.toList());
+        final SortedListSource<Integer, Integer> source = source(list);
+        for (int key = 1; key < 1998; key += 37) {
+            source.seek(key);
+            assertEquals(key + key % 2, (int) source.next());
+        }
+    }
+
+    private static SortedListSource<Integer, Integer> source(List<Integer> list) {
+        return new SortedListSource<>(list, Function.identity(), Comparator.naturalOrder());
+    }
+}
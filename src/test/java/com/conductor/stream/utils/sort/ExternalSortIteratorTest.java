@@ -0,0 +1,194 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.sort;
+
+import com.conductor.stream.utils.TestRecord;
+import com.conductor.stream.utils.spill.Serializer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ExternalSortIteratorTest {
+
+    private static final Serializer<TestRecord> SERIALIZER = new Serializer<TestRecord>() {
+        @Override
+        public void write(TestRecord item, DataOutput output) throws IOException {
+            output.writeInt(item.getId());
+            output.writeUTF(item.getValue());
+        }
+
+        @Override
+        public TestRecord read(DataInput input) throws IOException {
+            return new TestRecord(input.readInt(), input.readUTF());
+        }
+    };
+
+    private Path directory;
+
+    @Before
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("external-sort-test");
+    }
+
+    @After
+    public void teardown() throws IOException {
+        Files.delete(directory);
+    }
+
+    @Test
+    public void testSortsAcrossRuns() {
+        runSortTest(false);
+    }
+
+    @Test
+    public void testSortsAcrossCompressedRuns() {
+        runSortTest(true);
+    }
+
+    @Test
+    public void testFitsInMemory() {
+        try (ExternalSortIterator<TestRecord> iterator = new ExternalSortIterator<>(
+                Stream.of(new TestRecord(3, "c"), new TestRecord(1, "a"), new TestRecord(2, "b")).iterator(),
+                Comparator.comparing(TestRecord::getId),
+                SERIALIZER,
+                10,
+                false,
+                directory)) {
+            final List<String> output = new ArrayList<>();
+            iterator.forEachRemaining(record -> output.add(record.getValue()));
+
+            assertEquals(Arrays.asList("a", "b", "c"), output);
+            // nothing should have been spilled
+            assertEquals(0, countFiles());
+        }
+    }
+
+    @Test
+    public void testEmpty() {
+        try (ExternalSortIterator<TestRecord> iterator = new ExternalSortIterator<>(
+                Collections.<TestRecord>emptyIterator(),
+                Comparator.comparing(TestRecord::getId),
+                SERIALIZER,
+                10,
+                false,
+                directory)) {
+            assertFalse(iterator.hasNext());
+        }
+    }
+
+    @Test
+    public void testSortIsStable() {
+        // the ids collide a lot, and the values record the original order
+        final List<TestRecord> input = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            input.add(new TestRecord(i % 3, String.format("%03d", i)));
+        }
+
+        try (ExternalSortIterator<TestRecord> iterator = new ExternalSortIterator<>(
+                input.iterator(), Comparator.comparing(TestRecord::getId), SERIALIZER, 7, false, directory)) {
+            final List<String> output = new ArrayList<>();
+            iterator.forEachRemaining(record -> output.add(record.getValue()));
+
+            final List<String> expected = input.stream()
+                    .sorted(Comparator.comparing(TestRecord::getId))
+                    .map(TestRecord::getValue)
+                    .collect(Collectors.toList());
+            assertEquals(expected, output);
+        }
+    }
+
+    @Test
+    public void testMergesInPasses() {
+        // the ids collide a lot, and the values record the original order
+        final List<TestRecord> input = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            input.add(new TestRecord(i % 7, String.format("%03d", i)));
+        }
+
+        // 20 runs of 5, merged 3 at a time: 20 -> 7 -> 3
+        try (ExternalSortIterator<TestRecord> iterator = new ExternalSortIterator<>(
+                input.iterator(), Comparator.comparing(TestRecord::getId), SERIALIZER, 5, 3, false, directory)) {
+            assertTrue(iterator.hasNext());
+            // the intermediate runs should have been cleaned up as they were merged
+            assertEquals(3, countFiles());
+
+            final List<String> output = new ArrayList<>();
+            iterator.forEachRemaining(record -> output.add(record.getValue()));
+
+            final List<String> expected = input.stream()
+                    .sorted(Comparator.comparing(TestRecord::getId))
+                    .map(TestRecord::getValue)
+                    .collect(Collectors.toList());
+            assertEquals(expected, output);
+        }
+        assertEquals(0, countFiles());
+    }
+
+    private void runSortTest(boolean compressed) {
+        final Random random = new Random(42);
+        final List<TestRecord> input = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            final int id = random.nextInt(100000);
+            input.add(new TestRecord(id, "val" + id));
+        }
+
+        final ExternalSortIterator<TestRecord> iterator = new ExternalSortIterator<>(
+                input.iterator(), Comparator.comparing(TestRecord::getId), SERIALIZER, 1000, compressed, directory);
+
+        assertTrue(iterator.hasNext());
+        // 10,000 items in runs of 1,000
+        assertEquals(10, countFiles());
+
+        final List<Integer> output = new ArrayList<>();
+        iterator.forEachRemaining(record -> output.add(record.getId()));
+        iterator.close();
+
+        final List<Integer> expected = input.stream()
+                .map(TestRecord::getId)
+                .sorted()
+                .collect(Collectors.toList());
+        assertEquals(expected, output);
+        // closing should clean up after ourselves
+        assertEquals(0, countFiles());
+    }
+
+    private long countFiles() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
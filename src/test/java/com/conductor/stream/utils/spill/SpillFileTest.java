@@ -0,0 +1,144 @@
+/*
+ * Copyright 2017 Conductor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.conductor.stream.utils.spill;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class SpillFileTest {
+
+    private static final Serializer<String> SERIALIZER = new Serializer<String>() {
+        @Override
+        public void write(String item, DataOutput output) throws IOException {
+            output.writeUTF(item);
+        }
+
+        @Override
+        public String read(DataInput input) throws IOException {
+            return input.readUTF();
+        }
+    };
+
+    private Path directory;
+
+    @Before
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("spill-file-test");
+    }
+
+    @After
+    public void teardown() throws IOException {
+        Files.delete(directory);
+    }
+
+    @Test
+    public void testRoundTrip() {
+        runRoundTrip(false);
+    }
+
+    @Test
+    public void testCompressedRoundTrip() {
+        runRoundTrip(true);
+    }
+
+    @Test
+    public void testEmpty() {
+        try (SpillFile<String> spillFile = new SpillFile<>(directory, SERIALIZER, true)) {
+            assertEquals(0, spillFile.size());
+            assertFalse(spillFile.read().hasNext());
+        }
+        assertDirectoryEmpty();
+    }
+
+    @Test
+    public void testReadMoreThanOnce() {
+        try (SpillFile<String> spillFile = new SpillFile<>(directory, SERIALIZER, true)) {
+            spillFile.write("one");
+            spillFile.write("two");
+
+            final Iterator<String> first = spillFile.read();
+            final Iterator<String> second = spillFile.read();
+            assertEquals("one", first.next());
+            assertEquals("one", second.next());
+            assertEquals("two", second.next());
+            assertEquals("two", first.next());
+            assertFalse(first.hasNext());
+            assertFalse(second.hasNext());
+        }
+        assertDirectoryEmpty();
+    }
+
+    @Test
+    public void testCloseWithOpenReader() {
+        try (SpillFile<String> spillFile = new SpillFile<>(directory, SERIALIZER, true)) {
+            spillFile.write("one");
+            spillFile.write("two");
+            assertEquals("one", spillFile.read().next());
+        }
+        assertDirectoryEmpty();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testCannotWriteAfterReading() {
+        try (SpillFile<String> spillFile = new SpillFile<>(directory, SERIALIZER, false)) {
+            spillFile.write("one");
+            spillFile.read();
+            spillFile.write("two");
+        }
+    }
+
+    private void runRoundTrip(boolean compressed) {
+        final List<String> items = IntStream.range(0, 10000)
+                .mapToObj(i -> "item " + i)
+                .collect(Collectors.toList());
+
+        try (SpillFile<String> spillFile = new SpillFile<>(directory, SERIALIZER, compressed)) {
+            items.forEach(spillFile::write);
+            assertEquals(10000, spillFile.size());
+
+            final List<String> output = new ArrayList<>();
+            final Iterator<String> iterator = spillFile.read();
+            iterator.forEachRemaining(output::add);
+            assertEquals(items, output);
+        }
+        assertDirectoryEmpty();
+    }
+
+    private void assertDirectoryEmpty() {
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}